@@ -52,9 +52,9 @@ protected String getCacheId()
     }
 
     @Override
-    protected String getCacheKeyPrefix()
+    protected String getCacheKeyPrefix(DocumentReference documentReference)
     {
-        return this.wikiManager.getCurrentWikiId();
+        return documentReference.getWikiReference().getName();
     }
 
     @Override
@@ -22,6 +22,7 @@
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.syntax.Syntax;
+import org.xwiki.stability.Unstable;
 
 /**
  * Exposes methods for accessing Documents. This is temporary until we remodel the Model classes and the Document
@@ -127,6 +128,20 @@
      */
     XDOM getXDOM();
 
+    /**
+     * Same as {@link #getXDOM()} but the returned XDOM may be shared with other callers and thus must not be modified.
+     * Note that creating a new block with some of its blocks as children also modify them (their parent changes), so
+     * clone the part you need to modify first.
+     * 
+     * @return the XDOM for the document
+     * @since 11.3RC1
+     */
+    @Unstable
+    default XDOM getReadOnlyXDOM()
+    {
+        return getXDOM();
+    }
+
     /**
      * @return the document's content author user reference
      * @since 7.2M1
@@ -23,7 +23,10 @@
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -101,6 +104,16 @@ public abstract class AbstractDocumentConfigurationSource extends AbstractConfig
 
     protected Cache<Object> cache;
 
+    /**
+     * Incremented each time cached values are invalidated, to not cache values read before an invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * True when an extension still overrides the deprecated {@link #getCacheKeyPrefix()}.
+     */
+    private boolean legacyCacheKeyPrefix;
+
     /**
      * @return the document reference of the document containing an XWiki Object with configuration data or null if
      *         there no such document in which case this configuration source will be skipped
@@ -119,15 +132,33 @@ public abstract class AbstractDocumentConfigurationSource extends AbstractConfig
 
     /**
      * @return the prefix used to generate a cache key combined to the actual configuration property name
+     * @deprecated since 11.3RC1, use {@link #getCacheKeyPrefix(DocumentReference)} instead; still used when overridden
+     *             but then the whole cache is invalidated each time a configuration document is modified
      */
+    @Deprecated
     protected String getCacheKeyPrefix()
     {
-        return this.referenceSerializer.serialize(getDocumentReference());
+        return getCacheKeyPrefix(getDocumentReference());
+    }
+
+    /**
+     * The cached values are grouped by prefix so that all the values coming from a configuration document can be
+     * invalidated at once when this document is modified.
+     *
+     * @param documentReference the reference of the document containing the configuration
+     * @return the key used to cache the configuration values located in the passed document
+     * @since 11.3RC1
+     */
+    protected String getCacheKeyPrefix(DocumentReference documentReference)
+    {
+        return this.referenceSerializer.serialize(documentReference);
     }
 
     @Override
     public void initialize() throws InitializationException
     {
+        this.legacyCacheKeyPrefix = isLegacyCacheKeyPrefix();
+
         // Initialize cache
         try {
             this.cache = this.cacheManager.createNewCache(new CacheConfiguration(getCacheId()));
@@ -158,6 +189,22 @@ public List<Event> getEvents()
         });
     }
 
+    private boolean isLegacyCacheKeyPrefix()
+    {
+        for (Class<?> type = getClass(); type != AbstractDocumentConfigurationSource.class;
+            type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("getCacheKeyPrefix");
+
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Look in the parent class
+            }
+        }
+
+        return false;
+    }
+
     @Override
     public void dispose() throws ComponentLifecycleException
     {
@@ -175,8 +222,14 @@ protected List<Event> getCacheCleanupEvents()
 
     protected void onCacheCleanup(Event event, Object source, Object data)
     {
-        // TODO: do finer grain cache invalidation
-        this.cache.removeAll();
+        this.generation.incrementAndGet();
+
+        if (source instanceof XWikiDocument && !this.legacyCacheKeyPrefix) {
+            // Only forget the values coming from the modified document
+            this.cache.remove(getCacheKeyPrefix(((XWikiDocument) source).getDocumentReference()));
+        } else {
+            this.cache.removeAll();
+        }
     }
 
     /**
@@ -311,9 +364,14 @@ protected <T> T getPropertyValue(String key, Class<T> valueClass)
             this.asyncContext.useEntity(reference);
         }
 
-        String cacheKey = getCacheKeyPrefix() + ':' + (valueClass != null ? valueClass.getName() : null) + ':' + key;
+        long currentGeneration = this.generation.get();
+        Map<String, Object> values = null;
+        if (reference != null) {
+            values = getCachedValues(this.legacyCacheKeyPrefix ? getCacheKeyPrefix() : getCacheKeyPrefix(reference));
+        }
+        String valueKey = (valueClass != null ? valueClass.getName() : null) + ':' + key;
 
-        Object result = this.cache.get(cacheKey);
+        Object result = values != null ? values.get(valueKey) : null;
 
         if (result == null) {
             XWikiContext xcontext = this.xcontextProvider.get();
@@ -326,8 +384,11 @@ protected <T> T getPropertyValue(String key, Class<T> valueClass)
                         result = this.converter.convert(valueClass, result);
                     }
 
-                    // Void.TYPE is used to keep track of fields that don't exist
-                    this.cache.set(cacheKey, result == null ? Void.TYPE : result);
+                    // Void.TYPE is used to keep track of fields that don't exist. Don't remember a value read from a
+                    // document which has been modified in the meantime.
+                    if (values != null && this.generation.get() == currentGeneration) {
+                        values.put(valueKey, result == null ? Void.TYPE : result);
+                    }
                 } catch (XWikiException e) {
                     this.logger.error("Failed to access configuration property", e);
                 }
@@ -342,6 +403,20 @@ protected <T> T getPropertyValue(String key, Class<T> valueClass)
         return (T) result;
     }
 
+    private Map<String, Object> getCachedValues(String cacheKey)
+    {
+        Map<String, Object> values = (Map<String, Object>) this.cache.get(cacheKey);
+
+        if (values == null) {
+            // Several threads might end up creating the same entry, which is fine since they would contain the same
+            // values
+            values = new ConcurrentHashMap<>();
+            this.cache.set(cacheKey, values);
+        }
+
+        return values;
+    }
+
     @Override
     public boolean isEmpty()
     {
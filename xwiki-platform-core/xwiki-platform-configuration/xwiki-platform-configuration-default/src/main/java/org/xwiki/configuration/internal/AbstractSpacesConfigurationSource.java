@@ -22,28 +22,106 @@
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.cache.event.AbstractCacheEntryListener;
+import org.xwiki.cache.event.CacheEntryEvent;
+import org.xwiki.component.manager.ComponentLifecycleException;
+import org.xwiki.component.phase.Disposable;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.Event;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 
 /**
  * Abstract composite configuration source that looks in the current space and all its parent spaces.
+ * <p>
+ * When the space configuration source is a document configuration source, the values resolved through the whole
+ * chain of spaces are cached and each modified space preferences document only invalidates the values of its space
+ * and of the spaces it contains.
  *
  * @version $Id$
  * @since 8.2RC1
  */
 public abstract class AbstractSpacesConfigurationSource extends AbstractCompositeConfigurationSource
+    implements Initializable, Disposable
 {
+    /**
+     * Used to keep track of keys which exist but have a {@code null} value.
+     */
+    private static final Object NULL_VALUE = new Object();
+
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> referenceSerializer;
+
+    @Inject
+    private ObservationManager observation;
+
+    /**
+     * The values resolved through the chain of spaces, grouped by the space from which they were resolved.
+     */
+    private Cache<Map<String, Object>> resolvedCache;
+
+    /**
+     * Keep an index of what's in the cache to clean just what's needed.
+     */
+    private final Map<String, SpaceReference> resolvedCacheIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented each time resolved values are invalidated, to not cache values resolved before an invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final EventListener resolvedCacheListener = new EventListener()
+    {
+        @Override
+        public String getName()
+        {
+            return getResolvedCacheId();
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return ((AbstractDocumentConfigurationSource) getSpaceConfigurationSource()).getCacheCleanupEvents();
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            generation.incrementAndGet();
+
+            if (source instanceof XWikiDocument) {
+                invalidate(((XWikiDocument) source).getDocumentReference().getLastSpaceReference());
+            } else {
+                resolvedCache.removeAll();
+            }
+        }
+    };
+
     private class SpaceIterator implements Iterator<ConfigurationSource>
     {
         private SpaceReference reference;
@@ -188,17 +266,198 @@ public boolean isEmpty()
     }
 
     @Override
-    public Iterator<ConfigurationSource> iterator()
+    public void initialize() throws InitializationException
+    {
+        // The resolved values can only be invalidated when we know which documents they come from
+        if (getSpaceConfigurationSource() instanceof AbstractDocumentConfigurationSource) {
+            try {
+                this.resolvedCache = this.cacheManager.createNewCache(new CacheConfiguration(getResolvedCacheId()));
+            } catch (CacheException e) {
+                throw new InitializationException("Failed to initialize cache", e);
+            }
+
+            this.resolvedCache.addCacheEntryListener(new AbstractCacheEntryListener<Map<String, Object>>()
+            {
+                @Override
+                public void cacheEntryRemoved(CacheEntryEvent<Map<String, Object>> event)
+                {
+                    resolvedCacheIndex.remove(event.getEntry().getKey());
+                }
+            });
+
+            this.observation.addListener(this.resolvedCacheListener);
+        }
+    }
+
+    @Override
+    public void dispose() throws ComponentLifecycleException
+    {
+        if (this.resolvedCache != null) {
+            this.observation.removeListener(getResolvedCacheId());
+            this.resolvedCache.dispose();
+        }
+    }
+
+    /**
+     * @return the identifier of the cache containing the values resolved through the chain of spaces
+     * @since 11.3RC1
+     */
+    protected String getResolvedCacheId()
+    {
+        return "configuration.spaces." + getClass().getName();
+    }
+
+    private void invalidate(SpaceReference spaceReference)
+    {
+        // Forget the values of the modified space and of all the spaces it contains
+        for (Map.Entry<String, SpaceReference> entry : this.resolvedCacheIndex.entrySet()) {
+            if (entry.getValue().equals(spaceReference) || entry.getValue().hasParent(spaceReference)) {
+                this.resolvedCacheIndex.remove(entry.getKey());
+                this.resolvedCache.remove(entry.getKey());
+            }
+        }
+    }
+
+    private SpaceReference getCurrentSpaceReference()
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
         if (xcontext != null) {
             XWikiDocument currentDocument = xcontext.getDoc();
             if (currentDocument != null) {
-                return new SpaceIterator(currentDocument.getDocumentReference().getLastSpaceReference());
+                return currentDocument.getDocumentReference().getLastSpaceReference();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the value of the first space containing the key ({@link #NULL_VALUE} if it's {@code null}) or
+     *         {@link Void#TYPE} if none contains it
+     */
+    private Object resolveProperty(String key, Class<?> valueClass)
+    {
+        for (ConfigurationSource source : this) {
+            if (source.containsKey(key)) {
+                Object value = valueClass != null ? source.getProperty(key, valueClass) : source.getProperty(key);
+
+                return value != null ? value : NULL_VALUE;
             }
         }
 
+        return Void.TYPE;
+    }
+
+    /**
+     * @return the cached value of the key ({@link #NULL_VALUE} if it's {@code null}) or {@link Void#TYPE} if no space
+     *         contains it
+     */
+    private Object getCachedProperty(String key, Class<?> valueClass)
+    {
+        SpaceReference spaceReference = getCurrentSpaceReference();
+
+        if (spaceReference == null) {
+            return Void.TYPE;
+        }
+
+        long currentGeneration = this.generation.get();
+        String cacheKey = this.referenceSerializer.serialize(spaceReference);
+        Map<String, Object> values = this.resolvedCache.get(cacheKey);
+        if (values == null) {
+            // Several threads might end up creating the same entry, which is fine since they would contain the same
+            // values
+            values = new ConcurrentHashMap<>();
+            this.resolvedCache.set(cacheKey, values);
+            this.resolvedCacheIndex.put(cacheKey, spaceReference);
+        }
+
+        String valueKey = (valueClass != null ? valueClass.getName() : null) + ':' + key;
+        Object value = values.get(valueKey);
+        if (value == null) {
+            value = resolveProperty(key, valueClass);
+            // Don't remember a value resolved from documents which have been modified in the meantime
+            if (this.generation.get() == currentGeneration) {
+                values.put(valueKey, value);
+            }
+        }
+
+        return value;
+    }
+
+    private Object getResolvedProperty(String key, Class<?> valueClass)
+    {
+        Object value = getCachedProperty(key, valueClass);
+
+        // Void.TYPE is used to keep track of keys that don't exist
+        return value != Void.TYPE && value != NULL_VALUE ? value : null;
+    }
+
+    @Override
+    public boolean containsKey(String key)
+    {
+        if (this.resolvedCache == null) {
+            return super.containsKey(key);
+        }
+
+        return getCachedProperty(key, null) != Void.TYPE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProperty(String key)
+    {
+        if (this.resolvedCache == null) {
+            return super.getProperty(key);
+        }
+
+        return (T) getResolvedProperty(key, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProperty(String key, Class<T> valueClass)
+    {
+        if (this.resolvedCache == null) {
+            return super.getProperty(key, valueClass);
+        }
+
+        T result = (T) getResolvedProperty(key, valueClass);
+
+        // List and Properties must return empty collections and not null values.
+        if (result == null) {
+            result = getDefault(valueClass);
+        }
+
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getProperty(String key, T defaultValue)
+    {
+        if (this.resolvedCache == null) {
+            return super.getProperty(key, defaultValue);
+        }
+
+        T result = (T) getResolvedProperty(key, defaultValue != null ? defaultValue.getClass() : null);
+
+        if (result == null) {
+            result = defaultValue;
+        }
+
+        return result;
+    }
+
+    @Override
+    public Iterator<ConfigurationSource> iterator()
+    {
+        SpaceReference spaceReference = getCurrentSpaceReference();
+
+        if (spaceReference != null) {
+            return new SpaceIterator(spaceReference);
+        }
+
         return Collections.<ConfigurationSource>emptyList().iterator();
     }
 
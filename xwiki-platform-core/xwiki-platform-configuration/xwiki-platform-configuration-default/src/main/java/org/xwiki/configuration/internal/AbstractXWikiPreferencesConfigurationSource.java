@@ -51,14 +51,9 @@ public abstract class AbstractXWikiPreferencesConfigurationSource extends Abstra
         CLASS_PAGE_NAME);
 
     @Override
-    protected String getCacheKeyPrefix()
+    protected String getCacheKeyPrefix(DocumentReference documentReference)
     {
-        DocumentReference currentDocumentReference = getDocumentReference();
-        if (currentDocumentReference != null) {
-            return this.referenceSerializer.serialize(currentDocumentReference.getParent());
-        }
-
-        return null;
+        return this.referenceSerializer.serialize(documentReference.getParent());
     }
 
     @Override
@@ -51,17 +51,6 @@ protected String getCacheId()
         return "configuration.document.space";
     }
 
-    @Override
-    protected String getCacheKeyPrefix()
-    {
-        DocumentReference currentDocumentReference = this.documentAccessBridge.getCurrentDocumentReference();
-        if (currentDocumentReference != null) {
-            return this.referenceSerializer.serialize(currentDocumentReference.getParent());
-        }
-
-        return null;
-    }
-
     @Override
     protected DocumentReference getDocumentReference()
     {
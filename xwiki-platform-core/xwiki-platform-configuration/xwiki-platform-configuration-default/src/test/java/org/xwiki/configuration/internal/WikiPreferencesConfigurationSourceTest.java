@@ -19,6 +19,8 @@
  */
 package org.xwiki.configuration.internal;
 
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -35,6 +37,8 @@
 import org.xwiki.properties.converter.ConversionException;
 
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
 
 /**
  * Unit tests for {@link WikiPreferencesConfigurationSource}.
@@ -162,4 +166,18 @@ public void testIsEmpty() throws ComponentLookupException, XWikiException
 
         Assert.assertFalse(this.componentManager.getComponentUnderTest().isEmpty());
     }
+
+    @Test
+    public void testCacheCleanupOnlyForgetsModifiedWiki() throws ComponentLookupException
+    {
+        WikiPreferencesConfigurationSource source =
+            (WikiPreferencesConfigurationSource) this.componentManager.getComponentUnderTest();
+
+        source.onCacheCleanup(new XObjectUpdatedEvent(), new XWikiDocument(new DocumentReference("otherwiki",
+            WikiPreferencesConfigurationSource.CLASS_SPACE_NAME, WikiPreferencesConfigurationSource.CLASS_PAGE_NAME)),
+            null);
+
+        verify(this.mockCache).remove("otherwiki");
+        verify(this.mockCache, never()).removeAll();
+    }
 }
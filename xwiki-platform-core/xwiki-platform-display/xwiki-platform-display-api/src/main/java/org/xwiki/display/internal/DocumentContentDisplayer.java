@@ -244,7 +244,7 @@ private XDOM displayInIsolatedExecutionContext(DocumentModelBridge document, Str
      */
     protected XDOM display(DocumentModelBridge document, String nameSpace, DocumentDisplayerParameters parameters)
     {
-        // This is a clone of the cached content that can be safely modified.
+        // This is a copy of the cached content that can be safely modified.
         XDOM content = getContent(document, parameters);
 
         if (!parameters.isContentTransformed()) {
@@ -269,15 +269,18 @@ protected XDOM display(DocumentModelBridge document, String nameSpace, DocumentD
     }
 
     /**
-     * Get the content to display (either the entire document content or the content of a specific section).
+     * Get the content to display (either the entire document content or the content of a specific section). Only the
+     * displayed content is cloned from the cached XDOM of the document.
      * 
      * @param document the source document
      * @param parameters the display parameters
-     * @return the content as an XDOM tree
+     * @return the content as an XDOM tree, that can be modified
      */
     private XDOM getContent(DocumentModelBridge document, final DocumentDisplayerParameters parameters)
     {
-        XDOM content = parameters.isContentTranslated() ? getTranslatedContent(document) : document.getXDOM();
+        // Read-only, it must not be modified.
+        XDOM content =
+            parameters.isContentTranslated() ? getTranslatedContent(document) : document.getReadOnlyXDOM();
 
         if (parameters.getSectionId() != null) {
             HeaderBlock headerBlock =
@@ -294,8 +297,11 @@ public boolean match(Block block)
                 throw new RuntimeException("Cannot find section [" + parameters.getSectionId() + "] in document ["
                     + this.defaultEntityReferenceSerializer.serialize(document.getDocumentReference()) + "]");
             } else {
-                content = new XDOM(headerBlock.getSection().getChildren(), content.getMetaData());
+                content = new XDOM(headerBlock.getSection().clone().getChildren(),
+                    new MetaData(content.getMetaData().getMetaData()));
             }
+        } else {
+            content = content.clone();
         }
 
         return content;
@@ -308,7 +314,7 @@ public boolean match(Block block)
      * we load the current translation from the database/cache and use its content.
      * 
      * @param document the source document
-     * @return the translated content of the given document, as XDOM tree
+     * @return the translated content of the given document, as a read-only XDOM tree
      */
     private XDOM getTranslatedContent(DocumentModelBridge document)
     {
@@ -321,8 +327,8 @@ private XDOM getTranslatedContent(DocumentModelBridge document)
             if (!document.getRealLanguage().equals(translatedDocument.getRealLanguage())) {
                 // The language of the given document doesn't match the context language. Use the translated content.
                 if (document.getSyntax().equals(translatedDocument.getSyntax())) {
-                    // Use getXDOM() because it caches the XDOM.
-                    return translatedDocument.getXDOM();
+                    // Use getReadOnlyXDOM() because it caches the XDOM.
+                    return translatedDocument.getReadOnlyXDOM();
                 } else {
                     // If the translated document has a different syntax then we have to parse its content using the
                     // syntax of the given document.
@@ -333,7 +339,7 @@ private XDOM getTranslatedContent(DocumentModelBridge document)
         } catch (Exception e) {
             // Use the content of the given document.
         }
-        return document.getXDOM();
+        return document.getReadOnlyXDOM();
     }
 
     /**
@@ -20,7 +20,6 @@
 package org.xwiki.display.internal;
 
 import java.util.Collections;
-import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -67,13 +66,13 @@ protected XDOM extractTitleFromContent(DocumentModelBridge document, DocumentDis
         // generate headings for example or some other transformations could modify headings. However we don't do this
         // at the moment since it would be too costly to do so. In the future we will even probably remove the feature
         // of generating the title from the content.
-        List<HeaderBlock> blocks =
-            document.getXDOM().getBlocks(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
-        if (!blocks.isEmpty()) {
-            HeaderBlock heading = blocks.get(0);
+        // Note: We only clone the heading we transform instead of the whole document XDOM.
+        HeaderBlock heading =
+            document.getReadOnlyXDOM().getFirstBlock(new ClassBlockMatcher(HeaderBlock.class), Block.Axes.DESCENDANT);
+        if (heading != null) {
             // Check the heading depth after which we should return null if no heading was found.
             if (heading.getLevel().getAsInt() <= displayConfiguration.getTitleHeadingDepth()) {
-                XDOM headingXDOM = new XDOM(Collections.<Block> singletonList(heading));
+                XDOM headingXDOM = new XDOM(Collections.<Block> singletonList(heading.clone()));
                 try {
                     TransformationContext txContext =
                         new TransformationContext(headingXDOM, document.getSyntax(),
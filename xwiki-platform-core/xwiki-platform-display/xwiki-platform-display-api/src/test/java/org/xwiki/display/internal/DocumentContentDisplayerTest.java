@@ -40,7 +40,8 @@
 import org.xwiki.test.junit5.mockito.MockComponent;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
@@ -84,7 +85,7 @@ public void baseMetaDataIsSetBeforeExecutingTransformations() throws Exception
 
         // The document being displayed.
         XDOM content = new XDOM(Collections.emptyList());
-        when(document.getXDOM()).thenReturn(content);
+        when(document.getReadOnlyXDOM()).thenReturn(content);
 
         // The reference of the current document musts be set as the value of the BASE meta data.
         DocumentReference currentDocRef = new DocumentReference("wiki", "Space", "Page");
@@ -112,9 +113,13 @@ public Void answer(InvocationOnMock invocation)
         parameters.setTransformationContextIsolated(false);
 
         // Execute the display.
-        assertSame(content, displayer.display(document, parameters));
+        XDOM result = displayer.display(document, parameters);
+
+        // The cached content of the document must not be modified.
+        assertNotSame(content, result);
+        assertNull(content.getMetaData().getMetaData(MetaData.BASE));
 
         // Make sure the transformations are executed exactly once, and on the right content.
-        verify(transformationManager, times(1)).performTransformations(same(content), any(TransformationContext.class));
+        verify(transformationManager, times(1)).performTransformations(same(result), any(TransformationContext.class));
     }
 }
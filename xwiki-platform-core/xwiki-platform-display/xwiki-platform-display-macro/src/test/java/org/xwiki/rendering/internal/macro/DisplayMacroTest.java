@@ -374,7 +374,7 @@ private void setUpDocumentMock(final String resolve, final DocumentReference ref
                 will(returnValue(mockDocument));
                 allowing(mockDocument).getSyntax();
                 will(returnValue(Syntax.XWIKI_2_0));
-                allowing(mockDocument).getXDOM();
+                allowing(mockDocument).getReadOnlyXDOM();
                 will(returnValue(getXDOM(content)));
                 allowing(mockDocument).getDocumentReference();
                 will(returnValue(reference));
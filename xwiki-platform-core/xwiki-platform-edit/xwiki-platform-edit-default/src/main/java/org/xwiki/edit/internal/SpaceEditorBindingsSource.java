@@ -49,13 +49,9 @@ protected String getCacheId()
     }
 
     @Override
-    protected String getCacheKeyPrefix()
+    protected String getCacheKeyPrefix(DocumentReference documentReference)
     {
-        DocumentReference currentDocumentReference = this.documentAccessBridge.getCurrentDocumentReference();
-        if (currentDocumentReference != null) {
-            return this.referenceSerializer.serialize(currentDocumentReference.getParent());
-        }
-        return null;
+        return this.referenceSerializer.serialize(documentReference.getParent());
     }
 
     @Override
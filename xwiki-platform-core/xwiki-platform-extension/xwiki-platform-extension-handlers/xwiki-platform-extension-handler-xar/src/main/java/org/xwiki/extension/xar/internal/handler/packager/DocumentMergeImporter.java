@@ -20,6 +20,7 @@
 package org.xwiki.extension.xar.internal.handler.packager;
 
 import java.util.Date;
+import java.util.List;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -76,6 +77,27 @@
      */
     public void importDocument(String comment, XWikiDocument previousDocument, XWikiDocument currentDocument,
         XWikiDocument nextDocument, PackageConfiguration configuration) throws Exception
+    {
+        XWikiDocument documentToSave = mergeDocument(previousDocument, currentDocument, nextDocument, configuration);
+
+        if (documentToSave != null) {
+            saveDocumentSetContextUser(documentToSave, comment);
+        }
+    }
+
+    /**
+     * Merge the document without saving it.
+     *
+     * @param currentDocument the document currently in database
+     * @param previousDocument the standard version of the document
+     * @param nextDocument the new standard version of the document
+     * @param configuration the configuration of the import
+     * @return the document to save, or {@code null} if the document currently in database does not need to be saved
+     * @throws Exception when failing to merge the document
+     * @since 11.3RC1
+     */
+    public XWikiDocument mergeDocument(XWikiDocument previousDocument, XWikiDocument currentDocument,
+        XWikiDocument nextDocument, PackageConfiguration configuration) throws Exception
     {
         XarEntryType type = this.typeResolver.getDefault();
         XWikiDocumentMerger merger = this.defaultMerger;
@@ -113,7 +135,34 @@ public void importDocument(String comment, XWikiDocument previousDocument, XWiki
                 nextDocument, mergeConfiguration);
 
         if (documentToSave != null && documentToSave != currentDocument) {
-            saveDocument(documentToSave, comment, configuration);
+            return prepareDocument(documentToSave, configuration);
+        }
+
+        return null;
+    }
+
+    /**
+     * Save documents returned by {@link #mergeDocument(XWikiDocument, XWikiDocument, XWikiDocument,
+     * PackageConfiguration)} together.
+     *
+     * @param documents the documents to save, all with the same author
+     * @param comment the comment to use when saving the documents
+     * @throws Exception when failing to save the documents
+     * @since 11.3RC1
+     */
+    public void saveDocuments(List<XWikiDocument> documents, String comment) throws Exception
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        DocumentReference userReference = xcontext.getUserReference();
+
+        try {
+            // See #saveDocumentSetContextUser()
+            xcontext.setUserReference(documents.get(0).getAuthorReference());
+
+            xcontext.getWiki().saveDocuments(documents, comment, false, xcontext);
+        } finally {
+            xcontext.setUserReference(userReference);
         }
     }
 
@@ -126,7 +175,7 @@ private UpgradeType getUpgradeType(XarEntryType type)
         return null;
     }
 
-    private void saveDocument(XWikiDocument document, String comment, PackageConfiguration configuration)
+    private XWikiDocument prepareDocument(XWikiDocument document, PackageConfiguration configuration)
         throws Exception
     {
         XWikiContext xcontext = this.xcontextProvider.get();
@@ -150,7 +199,7 @@ private void saveDocument(XWikiDocument document, String comment, PackageConfigu
         // Set document authors
         setDocumentAuthor(currentDocument, document, configuration);
 
-        saveDocumentSetContextUser(currentDocument, comment);
+        return currentDocument;
     }
 
     private void setDocumentAuthor(XWikiDocument currentDocument, XWikiDocument document,
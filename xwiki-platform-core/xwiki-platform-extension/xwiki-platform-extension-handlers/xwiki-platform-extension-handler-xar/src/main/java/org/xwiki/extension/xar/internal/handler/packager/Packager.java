@@ -25,7 +25,9 @@
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -167,6 +169,9 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
 
         XWikiContext xcontext = this.xcontextProvider.get();
 
+        // The merged documents are saved together
+        List<XWikiDocument> documentsToSave = new ArrayList<>();
+
         String currentWiki = xcontext.getWikiId();
         try {
             xcontext.setWikiId(wikiReference.getName());
@@ -181,15 +186,19 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
                         if (xarEntry != null) {
                             configuration.setXarEntry(xarEntry);
 
-                            importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
+                            importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName(),
+                                documentsToSave);
                         }
                     } else {
                         configuration.setXarEntry(null);
-                        importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName());
+                        importDocumentToWiki(comment, wikiReference, zis, configuration, entry.getName(),
+                            documentsToSave);
                     }
                 }
             }
         } finally {
+            saveDocuments(documentsToSave, comment);
+
             this.observation.notify(new XARImportedEvent(), null, xcontext);
 
             xcontext.setWikiId(currentWiki);
@@ -197,7 +206,8 @@ private void importXARToWiki(String comment, InputStream xarInputStream, WikiRef
     }
 
     private void importDocumentToWiki(String comment, WikiReference wikiReference, InputStream inputStream,
-        PackageConfiguration configuration, String name) throws XWikiException, XarException, IOException
+        PackageConfiguration configuration, String name, List<XWikiDocument> documentsToSave)
+        throws XWikiException, XarException, IOException
     {
         XWikiContext xcontext = this.xcontextProvider.get();
 
@@ -211,6 +221,16 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
         }
 
         DocumentReference reference = nextDocument.getDocumentReferenceWithLocale();
+
+        // The document to merge with must contain the pending changes
+        for (XWikiDocument documentToSave : documentsToSave) {
+            if (documentToSave.getDocumentReferenceWithLocale().equals(reference)) {
+                saveDocuments(documentsToSave, comment);
+
+                break;
+            }
+        }
+
         XWikiDocument currentDocument = xcontext.getWiki().getDocument(reference, xcontext);
         currentDocument.loadAttachmentsContentSafe(xcontext);
         XWikiDocument previousDocument;
@@ -227,7 +247,22 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
         }
 
         try {
-            this.importer.importDocument(comment, previousDocument, currentDocument, nextDocument, configuration);
+            XWikiDocument documentToSave =
+                this.importer.mergeDocument(previousDocument, currentDocument, nextDocument, configuration);
+
+            if (documentToSave != null) {
+                // A batch is saved with a single context user
+                if (!documentsToSave.isEmpty() && !Objects.equals(documentToSave.getAuthorReference(),
+                    documentsToSave.get(0).getAuthorReference())) {
+                    saveDocuments(documentsToSave, comment);
+                }
+
+                documentsToSave.add(documentToSave);
+
+                if (documentsToSave.size() >= xcontext.getWiki().getSaveBatchSize()) {
+                    saveDocuments(documentsToSave, comment);
+                }
+            }
 
             if (configuration.isVerbose()) {
                 this.logger.info(LOG_INSTALLDOCUMENT_SUCCESS_END, "Done installing document [{}]",
@@ -241,6 +276,29 @@ private void importDocumentToWiki(String comment, WikiReference wikiReference, I
         }
     }
 
+    private void saveDocuments(List<XWikiDocument> documents, String comment)
+    {
+        if (documents.isEmpty()) {
+            return;
+        }
+
+        try {
+            this.importer.saveDocuments(documents, comment);
+        } catch (Exception e) {
+            // Don't lose the whole batch because of a single document
+            for (XWikiDocument document : documents) {
+                try {
+                    this.importer.saveDocuments(Collections.singletonList(document), comment);
+                } catch (Exception documentException) {
+                    this.logger.error("Failed to save document [{}]", document.getDocumentReferenceWithLocale(),
+                        documentException);
+                }
+            }
+        } finally {
+            documents.clear();
+        }
+    }
+
     public void unimportPages(Collection<XarEntry> pages, PackageConfiguration configuration)
         throws WikiManagerException
     {
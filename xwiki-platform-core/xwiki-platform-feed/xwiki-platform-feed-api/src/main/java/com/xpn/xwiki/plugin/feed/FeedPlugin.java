@@ -25,6 +25,7 @@
 import java.lang.reflect.Constructor;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -33,8 +34,12 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Vector;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.cache.Cache;
@@ -42,6 +47,10 @@
 import org.xwiki.cache.CacheManager;
 import org.xwiki.cache.config.CacheConfiguration;
 import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.observation.EventListener;
+import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.ApplicationStoppedEvent;
+import org.xwiki.observation.event.Event;
 import org.xwiki.rendering.converter.ConversionException;
 import org.xwiki.rendering.converter.Converter;
 import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
@@ -56,6 +65,8 @@
 import com.sun.syndication.feed.synd.SyndFeedImpl;
 import com.sun.syndication.feed.synd.SyndImage;
 import com.sun.syndication.feed.synd.SyndImageImpl;
+import com.sun.syndication.fetcher.impl.FeedFetcherCache;
+import com.sun.syndication.fetcher.impl.LinkedHashMapFeedInfoCache;
 import com.sun.syndication.io.SyndFeedOutput;
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
@@ -77,6 +88,16 @@ public class FeedPlugin extends XWikiDefaultPlugin implements XWikiPluginInterfa
 
     private Map<String, UpdateThread> updateThreads = new HashMap<String, UpdateThread>();
 
+    /**
+     * The threads shared by all the scheduled feed updates.
+     */
+    private ScheduledExecutorService updateExecutor;
+
+    /**
+     * The validators (ETag and Last-Modified) of the fetched feeds, used to send conditional requests.
+     */
+    private final FeedFetcherCache feedInfoCache = new LinkedHashMapFeedInfoCache();
+
     private Converter syntaxConverter;
 
     /**
@@ -125,6 +146,40 @@ public int compare(com.xpn.xwiki.api.Object entry1, com.xpn.xwiki.api.Object ent
         }
     }
 
+    /**
+     * Stops the scheduled feed updates of the plugin instance it holds when the application is stopped or when that
+     * instance is replaced by a new one.
+     */
+    private static final class ShutdownListener implements EventListener
+    {
+        private static final List<Event> EVENTS = Arrays.<Event> asList(new ApplicationStoppedEvent());
+
+        private final FeedPlugin plugin;
+
+        ShutdownListener(FeedPlugin plugin)
+        {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public String getName()
+        {
+            return FeedPlugin.class.getName();
+        }
+
+        @Override
+        public List<Event> getEvents()
+        {
+            return EVENTS;
+        }
+
+        @Override
+        public void onEvent(Event event, Object source, Object data)
+        {
+            this.plugin.stopUpdateExecutor();
+        }
+    }
+
     public FeedPlugin(String name, String className, XWikiContext context)
     {
         super(name, className, context);
@@ -153,11 +208,28 @@ public void flushCache()
         this.feedCache = null;
     }
 
+    /**
+     * Stop the scheduled feed updates and their threads.
+     */
+    private synchronized void stopUpdateExecutor()
+    {
+        if (this.updateExecutor != null) {
+            this.updateExecutor.shutdownNow();
+            this.updateExecutor = null;
+        }
+        for (UpdateThread updateThread : this.updateThreads.values()) {
+            updateThread.stopUpdate = true;
+        }
+        this.updateThreads.clear();
+    }
+
     @Override
     public void init(XWikiContext context)
     {
         super.init(context);
 
+        registerShutdownListener();
+
         prepareCache(context);
         this.refreshPeriod = (int) context.getWiki().ParamAsLong("xwiki.plugins.feed.cacherefresh", 3600);
 
@@ -174,6 +246,28 @@ public void init(XWikiContext context)
         }
     }
 
+    /**
+     * The plugins don't have any dispose hook so the scheduled feed updates are stopped when the application is
+     * stopped, or when a new instance of the plugin replaces this one.
+     */
+    private void registerShutdownListener()
+    {
+        ObservationManager observationManager = Utils.getComponent(ObservationManager.class);
+
+        EventListener previousListener = observationManager.getListener(FeedPlugin.class.getName());
+        if (previousListener instanceof ShutdownListener) {
+            if (((ShutdownListener) previousListener).plugin == this) {
+                // The plugin is initialized several times in a row
+                return;
+            }
+
+            ((ShutdownListener) previousListener).plugin.stopUpdateExecutor();
+            observationManager.removeListener(previousListener.getName());
+        }
+
+        observationManager.addListener(new ShutdownListener(this));
+    }
+
     public void initCache(XWikiContext context) throws XWikiException
     {
         int iCapacity = 100;
@@ -293,7 +387,7 @@ public SyndFeed getFeedForce(String sfeed, boolean ignoreInvalidFeeds, XWikiCont
     {
         try {
             URL feedURL = new URL(sfeed);
-            XWikiFeedFetcher feedFetcher = new XWikiFeedFetcher();
+            XWikiFeedFetcher feedFetcher = new XWikiFeedFetcher(this.feedInfoCache);
             feedFetcher.setUserAgent(context.getWiki().Param("xwiki.plugins.feed.useragent",
                 context.getWiki().getHttpUserAgent(context)));
             SyndFeed feed =
@@ -433,14 +527,27 @@ public boolean startUpdateFeedsInSpace(String space, boolean fullContent, int sc
         if (updateThread == null) {
             updateThread = new UpdateThread(space, fullContent, scheduleTimer, this, context);
             this.updateThreads.put(context.getWikiId() + ":" + space, updateThread);
-            Thread thread = new Thread(updateThread);
-            thread.start();
+            updateThread.setScheduledFuture(getUpdateExecutor(context).scheduleWithFixedDelay(updateThread, 0,
+                scheduleTimer, TimeUnit.MILLISECONDS));
             return true;
         } else {
             return false;
         }
     }
 
+    private synchronized ScheduledExecutorService getUpdateExecutor(XWikiContext context)
+    {
+        if (this.updateExecutor == null) {
+            int poolSize = (int) context.getWiki().ParamAsLong("xwiki.plugins.feed.updateThreads", 2);
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(Math.max(1, poolSize),
+                new BasicThreadFactory.Builder().namingPattern("XWiki feed update %d").daemon(true).build());
+            executor.setRemoveOnCancelPolicy(true);
+            this.updateExecutor = executor;
+        }
+
+        return this.updateExecutor;
+    }
+
     public void stopUpdateFeedsInSpace(String space, XWikiContext context) throws XWikiException
     {
         UpdateThread updateThread = this.updateThreads.get(context.getWikiId() + ":" + space);
@@ -20,13 +20,16 @@
 package com.xpn.xwiki.plugin.feed;
 
 import java.util.Date;
+import java.util.concurrent.Future;
 
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.DocumentReference;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.util.AbstractXWikiRunnable;
+import com.xpn.xwiki.util.XWikiStubContextProvider;
 import com.xpn.xwiki.web.Utils;
 
 public class UpdateThread extends AbstractXWikiRunnable
@@ -57,12 +60,18 @@ public class UpdateThread extends AbstractXWikiRunnable
 
     protected Exception exception;
 
-    private XWikiContext xwikiContext;
+    private String wikiId;
+
+    private DocumentReference userReference;
+
+    private Future<?> scheduledFuture;
 
     public UpdateThread(String spaceReference, boolean fullContent, int scheduleTimer, FeedPlugin feedPlugin,
         XWikiContext context)
     {
-        this.xwikiContext = context.clone();
+        // Don't keep the request context: it holds the request, the response and the documents of the request
+        this.wikiId = context.getWikiId();
+        this.userReference = context.getUserReference();
         this.fullContent = fullContent;
         this.space = spaceReference;
         this.feedPlugin = feedPlugin;
@@ -72,8 +81,29 @@ public UpdateThread(String spaceReference, boolean fullContent, int scheduleTime
     @Override
     protected void declareProperties(ExecutionContext executionContext)
     {
-        xwikiContext.declareInExecutionContext(executionContext);
-        xwikiContext = null;
+        // The update is executed several times so we need a new context each time
+        XWikiContext xwikiContext = Utils.getComponent(XWikiStubContextProvider.class).createStubContext();
+        if (xwikiContext != null) {
+            xwikiContext.setWikiId(this.wikiId);
+            xwikiContext.setUserReference(this.userReference);
+            xwikiContext.declareInExecutionContext(executionContext);
+        }
+    }
+
+    /**
+     * @param scheduledFuture the result of the scheduling of this update, used to cancel next executions once the
+     *            update is stopped
+     */
+    void setScheduledFuture(Future<?> scheduledFuture)
+    {
+        this.scheduledFuture = scheduledFuture;
+    }
+
+    private void cancel()
+    {
+        if (this.scheduledFuture != null) {
+            this.scheduledFuture.cancel(false);
+        }
     }
 
 
@@ -153,6 +183,7 @@ public void stopUpdate()
     {
         if (!updateInProgress) {
             feedPlugin.removeUpdateThread(space, this, getXWikiContext());
+            cancel();
         }
         stopUpdate = true;
     }
@@ -180,17 +211,11 @@ public void setNbLoadedFeedsErrors(int nbLoadedFeedsErrors)
     @Override
     protected void runInternal()
     {
-        while (true) {
-            update();
-            if (stopUpdate) {
-                feedPlugin.removeUpdateThread(space, this, getXWikiContext());
-                break;
-            }
-            try {
-                Thread.sleep(scheduleTimer);
-            } catch (InterruptedException e) {
-                break;
-            }
+        // The next executions are scheduled by the feed plugin
+        update();
+        if (stopUpdate) {
+            feedPlugin.removeUpdateThread(space, this, getXWikiContext());
+            cancel();
         }
     }
 }
@@ -159,7 +159,9 @@ public SyndFeed retrieveFeed(URL feedUrl, int timeout)
                 // Note that syndFeedInfo will be null if it is not in the cache
                 SyndFeedInfo syndFeedInfo = cache.getFeedInfo(feedUrl);
                 if (syndFeedInfo != null) {
-                    method.setRequestHeader("If-None-Match", syndFeedInfo.getETag());
+                    if (syndFeedInfo.getETag() != null) {
+                        method.setRequestHeader("If-None-Match", syndFeedInfo.getETag());
+                    }
 
                     if (syndFeedInfo.getLastModified() instanceof String) {
                         method.setRequestHeader("If-Modified-Since", (String) syndFeedInfo.getLastModified());
@@ -76,6 +76,11 @@ public class DocumentInstanceOutputProperties extends InstanceOutputProperties
      */
     private boolean stoppedWhenSaveFail = true;
 
+    /**
+     * @see #getSaveBatchSize()
+     */
+    private int saveBatchSize;
+
     /**
      * @return The base reference to use to resolve reference from events
      */
@@ -237,4 +242,27 @@ public void setStoppedWhenSaveFail(boolean stoppedWhenSaveFail)
     {
         this.stoppedWhenSaveFail = stoppedWhenSaveFail;
     }
+
+    /**
+     * @return the maximum number of documents to save together, 1 to save each document as soon as it's received and
+     *         0 (the default) to use the batch size of the store ({@code xwiki.store.save.batchSize} in xwiki.cfg)
+     * @since 11.3RC1
+     */
+    @PropertyName("Save batch size")
+    @PropertyDescription("The maximum number of documents to save together in the same database transaction."
+        + " 1 to save each document as soon as it's received and 0 to use the batch size configured for the store.")
+    public int getSaveBatchSize()
+    {
+        return this.saveBatchSize;
+    }
+
+    /**
+     * @param saveBatchSize the maximum number of documents to save together, 1 to save each document as soon as it's
+     *            received and 0 to use the batch size of the store
+     * @since 11.3RC1
+     */
+    public void setSaveBatchSize(int saveBatchSize)
+    {
+        this.saveBatchSize = saveBatchSize;
+    }
 }
@@ -20,7 +20,6 @@
 package org.xwiki.filter.xar.internal.input;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -66,7 +65,8 @@ public void send(XARInputFilter proxyFilter) throws FilterException
                 } catch (IOException e) {
                     throw new FilterException(e);
                 } finally {
-                    if (this.content.isInMemory()) {
+                    // The content is not needed anymore
+                    if (!this.content.isInMemory()) {
                         this.content.getFile().delete();
                     }
                 }
@@ -123,25 +123,20 @@ public WikiAttachment read(XMLStreamReader xmlReader, XARInputProperties propert
                     // specification does not force any order for the attachment properties and we need to be sure we
                     // have everything when sending the event.
 
-                    // Allocate a temporary file in case the attachment content is big
-                    File temporaryFile;
-                    try {
-                        temporaryFile = File.createTempFile("xar/attachments/attachment", ".bin");
-                    } catch (IOException e) {
-                        throw new FilterException(e);
-                    }
-
-                    // Create a deferred file based content (if the content is bigger than 10000 bytes it will end up in
-                    // a file)
-                    wikiAttachment.content = new DeferredFileOutputStream(100000, temporaryFile);
+                    // Create a deferred file based content (if the content is bigger than 100000 bytes it will end up
+                    // in a temporary file, which is only created at that point)
+                    wikiAttachment.content =
+                        new DeferredFileOutputStream(100000, "xar-attachment", ".bin", null);
 
                     // Copy the content to byte array or file depending on its size
-                    for (xmlReader.next(); xmlReader.isCharacters(); xmlReader.next()) {
-                        try {
-                            wikiAttachment.content.write(xmlReader.getText().getBytes(StandardCharsets.UTF_8));
-                        } catch (IOException e) {
-                            throw new FilterException(e);
+                    try {
+                        for (xmlReader.next(); xmlReader.isCharacters(); xmlReader.next()) {
+                            wikiAttachment.content.write(xmlReader.getText().getBytes(StandardCharsets.US_ASCII));
                         }
+
+                        wikiAttachment.content.close();
+                    } catch (IOException e) {
+                        throw new FilterException(e);
                     }
                 }
             }
@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.internal.plugin.image;
 
+import java.awt.Dimension;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.RenderingHints;
@@ -32,9 +33,12 @@
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
 import javax.imageio.plugins.jpeg.JPEGImageWriteParam;
+import javax.imageio.stream.ImageInputStream;
 import javax.imageio.stream.ImageOutputStream;
 import javax.inject.Singleton;
 
@@ -58,6 +62,53 @@ public Image readImage(InputStream inputStream) throws IOException
         return ImageIO.read(inputStream);
     }
 
+    @Override
+    public Image readImage(InputStream inputStream, int subsampling) throws IOException
+    {
+        if (subsampling <= 1) {
+            return readImage(inputStream);
+        }
+
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            ImageReader reader = getImageReader(imageInputStream);
+            try {
+                reader.setInput(imageInputStream, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    @Override
+    public Dimension readImageDimensions(InputStream inputStream) throws IOException
+    {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            ImageReader reader = getImageReader(imageInputStream);
+            try {
+                // Only the image header is read.
+                reader.setInput(imageInputStream, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private ImageReader getImageReader(ImageInputStream imageInputStream) throws IOException
+    {
+        if (imageInputStream != null) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (readers.hasNext()) {
+                return readers.next();
+            }
+        }
+
+        throw new IOException("Unsupported image format");
+    }
+
     @Override
     public void writeImage(RenderedImage image, String mimeType, float quality, OutputStream out) throws IOException
     {
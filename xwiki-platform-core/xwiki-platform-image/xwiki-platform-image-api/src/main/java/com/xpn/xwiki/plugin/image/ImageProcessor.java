@@ -19,6 +19,7 @@
  */
 package com.xpn.xwiki.plugin.image;
 
+import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -26,6 +27,7 @@
 import java.io.OutputStream;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Component used to process images.
@@ -45,6 +47,37 @@
      */
     Image readImage(InputStream inputStream) throws IOException;
 
+    /**
+     * Reads an image from an input stream, decoding only one pixel out of {@code subsampling} on each axis. This
+     * allows to produce a small version of a large image without having to hold the full size raster in memory.
+     *
+     * @param inputStream the input stream to read the image from
+     * @param subsampling the subsampling factor to apply on both axes; values lower or equal to 1 mean no subsampling
+     * @return the read image
+     * @throws IOException if reading the image fails
+     * @since 11.3RC1
+     */
+    @Unstable
+    default Image readImage(InputStream inputStream, int subsampling) throws IOException
+    {
+        return readImage(inputStream);
+    }
+
+    /**
+     * Reads the dimensions of an image from an input stream, without decoding the image when possible.
+     *
+     * @param inputStream the input stream to read the image from
+     * @return the width and height of the image
+     * @throws IOException if reading the image fails
+     * @since 11.3RC1
+     */
+    @Unstable
+    default Dimension readImageDimensions(InputStream inputStream) throws IOException
+    {
+        Image image = readImage(inputStream);
+        return new Dimension(image.getWidth(null), image.getHeight(null));
+    }
+
     /**
      * Encodes the given image to match the specified mime type, if possible, and writes it to the output stream, using
      * the specified compression quality if appropriate.
@@ -19,26 +19,44 @@
  */
 package com.xpn.xwiki.plugin.image;
 
+import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import org.apache.commons.io.IOUtils;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.AutoCloseInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheException;
-import org.xwiki.cache.CacheManager;
-import org.xwiki.cache.config.CacheConfiguration;
-import org.xwiki.cache.eviction.LRUEvictionConfiguration;
+import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.api.Api;
 import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
 import com.xpn.xwiki.web.Utils;
@@ -63,14 +81,57 @@ public class ImagePlugin extends XWikiDefaultPlugin
     private static final String PLUGIN_NAME = "image";
 
     /**
-     * Cache for already served images.
+     * The extension of the files in which the scaled images are written before being moved to their final location.
+     */
+    private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+    /**
+     * The minimum time between two updates of the last modification date of a stored scaled image when it's used.
+     */
+    private static final long ACCESS_DATE_PRECISION = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * The part of the capacity freed when the least recently used scaled images are deleted, to not delete images each
+     * time a new one is stored.
+     */
+    private static final double EVICTION_RATIO = 0.1;
+
+    /**
+     * The directory where the scaled images are stored. Each scaled image is stored in a file named after the hash of
+     * the attachment reference, the attachment version, date and size (an attachment can be deleted and uploaded again
+     * with the same version) and the transformation parameters, so the stored files never need to be invalidated and
+     * they survive restarts.
      */
-    private Cache<XWikiAttachment> imageCache;
+    private File thumbnailDirectory;
 
     /**
-     * The size of the cache. This parameter can be configured using the key {@code xwiki.plugin.image.cache.capacity}.
+     * The maximum number of scaled images stored in {@link #thumbnailDirectory}. The least recently used ones are
+     * deleted when this number is exceeded. This parameter can be configured using the key
+     * {@code xwiki.plugin.image.cache.capacity}.
      */
-    private int capacity = 50;
+    private int capacity = 1000;
+
+    /**
+     * The number of scaled images stored in {@link #thumbnailDirectory}.
+     */
+    private final AtomicInteger thumbnailCount = new AtomicInteger();
+
+    /**
+     * Indicate if the least recently used scaled images are currently being deleted.
+     */
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    /**
+     * Limits the number of images that are scaled at the same time. This parameter can be configured using the key
+     * {@code xwiki.plugin.image.resize.maxConcurrent} (defaults to the number of available processors).
+     */
+    private Semaphore resizePermits;
+
+    /**
+     * The scaled images currently being created, so that concurrent requests for the same scaled image wait for the
+     * same result instead of scaling the image again.
+     */
+    private final ConcurrentMap<String, FutureTask<File>> pendingThumbnails = new ConcurrentHashMap<>();
 
     /**
      * Default JPEG image quality.
@@ -114,8 +175,30 @@ public void init(XWikiContext context)
     {
         super.init(context);
 
+        String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.capacity");
+        if (!StringUtils.isBlank(capacityParam)) {
+            try {
+                this.capacity = Math.max(1, Integer.parseInt(capacityParam.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warn("Failed to parse xwiki.plugin.image.cache.capacity configuration parameter. "
+                    + "Using {} as the maximum number of stored scaled images.", this.capacity);
+            }
+        }
+
         initCache(context);
 
+        int maxConcurrentResizes = Runtime.getRuntime().availableProcessors();
+        String maxConcurrentResizesParam = context.getWiki().Param("xwiki.plugin.image.resize.maxConcurrent");
+        if (!StringUtils.isBlank(maxConcurrentResizesParam)) {
+            try {
+                maxConcurrentResizes = Math.max(1, Integer.parseInt(maxConcurrentResizesParam.trim()));
+            } catch (NumberFormatException e) {
+                LOG.warn("Failed to parse xwiki.plugin.image.resize.maxConcurrent configuration parameter. "
+                    + "Using {} as the maximum number of concurrent image resizes.", maxConcurrentResizes);
+            }
+        }
+        this.resizePermits = new Semaphore(maxConcurrentResizes, true);
+
         String imageProcessorHint = context.getWiki().Param("xwiki.plugin.image.processorHint", "thumbnailator");
         this.imageProcessor = Utils.getComponent(ImageProcessor.class, imageProcessorHint);
 
@@ -131,48 +214,87 @@ public void init(XWikiContext context)
     }
 
     /**
-     * Tries to initializes the image cache. If the initialization fails the image cache remains {@code null}.
+     * Tries to initializes the directory where the scaled images are stored. If the initialization fails the scaled
+     * images are not stored.
      *
      * @param context the XWiki context
      */
     private void initCache(XWikiContext context)
     {
-        if (this.imageCache == null) {
-            CacheConfiguration configuration = new CacheConfiguration();
-
-            configuration.setConfigurationId("xwiki.plugin.image");
-
-            // Set cache constraints.
-            LRUEvictionConfiguration lru = new LRUEvictionConfiguration();
-            configuration.put(LRUEvictionConfiguration.CONFIGURATIONID, lru);
-
-            String capacityParam = context.getWiki().Param("xwiki.plugin.image.cache.capacity");
-            if (!StringUtils.isBlank(capacityParam) && StringUtils.isNumeric(capacityParam.trim())) {
-                try {
-                    this.capacity = Integer.parseInt(capacityParam.trim());
-                } catch (NumberFormatException e) {
-                    LOG.warn(String.format(
-                        "Failed to parse xwiki.plugin.image.cache.capacity configuration parameter. "
-                            + "Using %s as the cache capacity.", this.capacity), e);
-                }
+        if (this.thumbnailDirectory == null) {
+            File directory =
+                new File(Utils.getComponent(Environment.class).getPermanentDirectory(), "cache/image/thumbnails");
+            if (directory.isDirectory() || directory.mkdirs()) {
+                this.thumbnailCount.set(listThumbnails(directory).size());
+                this.thumbnailDirectory = directory;
+            } else {
+                LOG.error("Failed to create the image thumbnail directory [{}].", directory);
             }
-            lru.setMaxEntries(this.capacity);
+        }
+    }
 
+    @Override
+    public void flushCache()
+    {
+        if (this.thumbnailDirectory != null) {
             try {
-                this.imageCache = Utils.getComponent(CacheManager.class).createNewLocalCache(configuration);
-            } catch (CacheException e) {
-                LOG.error("Error initializing the image cache.", e);
+                FileUtils.cleanDirectory(this.thumbnailDirectory);
+            } catch (IOException e) {
+                LOG.warn("Failed to clean the image thumbnail directory [{}].", this.thumbnailDirectory, e);
             }
+            this.thumbnailCount.set(listThumbnails(this.thumbnailDirectory).size());
         }
     }
 
-    @Override
-    public void flushCache()
+    /**
+     * @param directory the directory where the scaled images are stored
+     * @return the files of the stored scaled images (not including the ones being written)
+     */
+    private List<File> listThumbnails(File directory)
     {
-        if (this.imageCache != null) {
-            this.imageCache.dispose();
+        List<File> thumbnails = new ArrayList<>();
+
+        File[] subdirectories = directory.listFiles(File::isDirectory);
+        if (subdirectories != null) {
+            for (File subdirectory : subdirectories) {
+                File[] files =
+                    subdirectory.listFiles(file -> file.isFile() && !file.getName().endsWith(TEMPORARY_FILE_EXTENSION));
+                if (files != null) {
+                    thumbnails.addAll(Arrays.asList(files));
+                }
+            }
+        }
+
+        return thumbnails;
+    }
+
+    /**
+     * Delete the least recently used scaled images when there are more than {@link #capacity}.
+     *
+     * @param newThumbnail the scaled image which has just been stored, which is kept
+     */
+    private void evictThumbnails(File newThumbnail)
+    {
+        if (this.thumbnailCount.get() > this.capacity && this.evicting.compareAndSet(false, true)) {
+            try {
+                List<File> thumbnails = listThumbnails(this.thumbnailDirectory);
+                thumbnails.remove(newThumbnail);
+                thumbnails.sort(Comparator.comparingLong(File::lastModified));
+
+                int count = thumbnails.size() + 1;
+                int target = (int) (this.capacity * (1 - EVICTION_RATIO));
+                for (int i = 0; i < thumbnails.size() && count > target; ++i) {
+                    // A scaled image which is being sent can still be read after it's deleted, except on Windows where
+                    // the deletion fails
+                    if (thumbnails.get(i).delete()) {
+                        --count;
+                    }
+                }
+                this.thumbnailCount.set(count);
+            } finally {
+                this.evicting.set(false);
+            }
         }
-        this.imageCache = null;
     }
 
     /**
@@ -249,7 +371,7 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
 
         boolean keepAspectRatio = Boolean.valueOf(context.getRequest().getParameter("keepAspectRatio"));
 
-        XWikiAttachment thumbnail = (this.imageCache == null)
+        XWikiAttachment thumbnail = (this.thumbnailDirectory == null)
             ? shrinkImage(image, width, height, keepAspectRatio, quality, context)
             : downloadImageFromCache(image, width, height, keepAspectRatio, quality, context);
 
@@ -280,18 +402,96 @@ private XWikiAttachment downloadImage(XWikiAttachment image, int width, int heig
     private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width, int height,
         boolean keepAspectRatio, float quality, XWikiContext context) throws Exception
     {
-        String key =
-            String.format("%s;%s;%s;%s;%s;%s", image.getId(), image.getVersion(), width, height, keepAspectRatio,
-                quality);
-
-        XWikiAttachment thumbnail = this.imageCache.get(key);
-        if (thumbnail == null) {
-            thumbnail = shrinkImage(image, width, height, keepAspectRatio, quality, context);
-            this.imageCache.set(key, thumbnail);
+        Date date = image.getDate();
+        String key = DigestUtils.sha256Hex(String.format("%s;%s;%s;%s;%s;%s;%s;%s", image.getReference(),
+            image.getVersion(), date != null ? date.getTime() : 0, image.getLongSize(), width, height, keepAspectRatio,
+            quality));
+        File file = new File(this.thumbnailDirectory, key.substring(0, 2) + File.separator + key);
+
+        if (file.exists()) {
+            // Remember when the scaled image was last used, to delete the least recently used ones first
+            long now = System.currentTimeMillis();
+            if (now - file.lastModified() > ACCESS_DATE_PRECISION) {
+                file.setLastModified(now);
+            }
+        } else {
+            FutureTask<File> task =
+                new FutureTask<>(() -> storeImage(image, width, height, keepAspectRatio, quality, file, context));
+            FutureTask<File> pendingTask = this.pendingThumbnails.putIfAbsent(key, task);
+            if (pendingTask == null) {
+                // Scale the image in the current thread, the concurrent requests for the same key will wait for it.
+                try {
+                    task.run();
+                } finally {
+                    this.pendingThumbnails.remove(key);
+                }
+                pendingTask = task;
+            }
+
+            try {
+                if (pendingTask.get() == null) {
+                    // No transformation needed.
+                    return image;
+                }
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            }
         }
+
+        XWikiAttachment thumbnail = image.clone();
+        thumbnail.setAttachment_content(new ThumbnailContent(file, thumbnail));
         return thumbnail;
     }
 
+    /**
+     * Scales the given image and stores the result in the given file.
+     *
+     * @param image the image to be scaled
+     * @param width the desired image width
+     * @param height the desired image height
+     * @param keepAspectRatio {@code true} to preserve aspect ratio when resizing the image, {@code false} otherwise
+     * @param quality the desired compression quality
+     * @param file the file where to store the scaled image
+     * @param context the XWiki context
+     * @return the file where the scaled image is stored or {@code null} if the image doesn't need to be transformed
+     * @throws Exception if transforming the image fails
+     */
+    private File storeImage(XWikiAttachment image, int width, int height, boolean keepAspectRatio, float quality,
+        File file, XWikiContext context) throws Exception
+    {
+        this.resizePermits.acquire();
+        try {
+            // The image might have been stored by a request that ended right before this one started.
+            if (file.exists()) {
+                return file;
+            }
+
+            file.getParentFile().mkdirs();
+            File temporaryFile = File.createTempFile(file.getName(), TEMPORARY_FILE_EXTENSION, file.getParentFile());
+            try {
+                boolean transformed;
+                try (OutputStream outputStream = new FileOutputStream(temporaryFile)) {
+                    transformed =
+                        writeShrunkImage(image, width, height, keepAspectRatio, quality, outputStream, context);
+                }
+                if (!transformed) {
+                    return null;
+                }
+                Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporaryFile.toPath());
+            }
+
+            this.thumbnailCount.incrementAndGet();
+            evictThumbnails(file);
+
+            return file;
+        } finally {
+            this.resizePermits.release();
+        }
+    }
+
     /**
      * Reduces the size (i.e. the number of bytes) of an image by scaling its width and height and by reducing its
      * compression quality. This helps decreasing the time needed to download the image attachment.
@@ -312,11 +512,51 @@ private XWikiAttachment downloadImageFromCache(XWikiAttachment image, int width,
     private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
         boolean keepAspectRatio, float requestedQuality, XWikiContext context) throws Exception
     {
-        Image image = this.imageProcessor.readImage(attachment.getContentInputStream(context));
+        // Create an image attachment for the shrunk image.
+        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
+        thumbnail.loadAttachmentContent(context);
 
+        boolean transformed;
+        this.resizePermits.acquire();
+        try (OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream()) {
+            transformed = writeShrunkImage(attachment, requestedWidth, requestedHeight, keepAspectRatio,
+                requestedQuality, acos, context);
+        } finally {
+            this.resizePermits.release();
+        }
+
+        return transformed ? thumbnail : attachment;
+    }
+
+    /**
+     * Scales the given image and writes the result to the given output stream. Only the pixels needed to produce the
+     * scaled image are decoded, which avoids holding the full size raster of large images in memory.
+     *
+     * @param attachment the image to be shrunk
+     * @param requestedWidth the desired image width; this value is taken into account only if it is greater than zero
+     *            and less than the current image width
+     * @param requestedHeight the desired image height; this value is taken into account only if it is greater than zero
+     *            and less than the current image height
+     * @param keepAspectRatio {@code true} to preserve the image aspect ratio even when both requested dimensions are
+     *            properly specified, {@code false} otherwise
+     * @param requestedQuality the desired compression quality
+     * @param outputStream where to write the scaled image
+     * @param context the XWiki context
+     * @return {@code false} if the image doesn't need to be transformed (nothing is written in this case),
+     *         {@code true} otherwise
+     * @throws Exception if shrinking the image fails
+     */
+    private boolean writeShrunkImage(XWikiAttachment attachment, int requestedWidth, int requestedHeight,
+        boolean keepAspectRatio, float requestedQuality, OutputStream outputStream, XWikiContext context)
+        throws Exception
+    {
         // Compute the new image dimension.
-        int currentWidth = image.getWidth(null);
-        int currentHeight = image.getHeight(null);
+        Dimension currentDimensions;
+        try (InputStream inputStream = attachment.getContentInputStream(context)) {
+            currentDimensions = this.imageProcessor.readImageDimensions(inputStream);
+        }
+        int currentWidth = currentDimensions.width;
+        int currentHeight = currentDimensions.height;
         int[] dimensions =
             reduceImageDimensions(currentWidth, currentHeight, requestedWidth, requestedHeight, keepAspectRatio);
 
@@ -324,27 +564,25 @@ private XWikiAttachment shrinkImage(XWikiAttachment attachment, int requestedWid
         if (quality < 0) {
             // If no scaling is needed and the quality parameter is not specified, return the original image.
             if (dimensions[0] == currentWidth && dimensions[1] == currentHeight) {
-                return attachment;
+                return false;
             }
             quality = this.defaultQuality;
         }
 
+        // Decode only the pixels we need, keeping twice the target resolution for a good scaling quality.
+        int subsampling = Math.min(currentWidth / Math.max(1, dimensions[0]),
+            currentHeight / Math.max(1, dimensions[1])) / 2;
+        Image image;
+        try (InputStream inputStream = attachment.getContentInputStream(context)) {
+            image = this.imageProcessor.readImage(inputStream, subsampling);
+        }
+
         // Scale the image to the new dimensions.
         RenderedImage shrunkImage = this.imageProcessor.scaleImage(image, dimensions[0], dimensions[1]);
 
-        // Create an image attachment for the shrunk image.
-        XWikiAttachment thumbnail = (XWikiAttachment) attachment.clone();
-        thumbnail.loadAttachmentContent(context);
-
-        OutputStream acos = thumbnail.getAttachment_content().getContentOutputStream();
-        this.imageProcessor.writeImage(shrunkImage,
-            attachment.getMimeType(context),
-            quality,
-            acos);
-
-        IOUtils.closeQuietly(acos);
+        this.imageProcessor.writeImage(shrunkImage, attachment.getMimeType(context), quality, outputStream);
 
-        return thumbnail;
+        return true;
     }
 
     /**
@@ -411,7 +649,9 @@ private int[] reduceImageDimensions(int currentWidth, int currentHeight, int req
      */
     public int getWidth(XWikiAttachment attachment, XWikiContext context) throws IOException, XWikiException
     {
-        return this.imageProcessor.readImage(attachment.getContentInputStream(context)).getWidth(null);
+        try (InputStream inputStream = attachment.getContentInputStream(context)) {
+            return this.imageProcessor.readImageDimensions(inputStream).width;
+        }
     }
 
     /**
@@ -423,6 +663,55 @@ public int getWidth(XWikiAttachment attachment, XWikiContext context) throws IOE
      */
     public int getHeight(XWikiAttachment attachment, XWikiContext context) throws IOException, XWikiException
     {
-        return this.imageProcessor.readImage(attachment.getContentInputStream(context)).getHeight(null);
+        try (InputStream inputStream = attachment.getContentInputStream(context)) {
+            return this.imageProcessor.readImageDimensions(inputStream).height;
+        }
+    }
+
+    /**
+     * The content of a scaled image, read from the file where it is stored.
+     */
+    private static final class ThumbnailContent extends XWikiAttachmentContent
+    {
+        private final File file;
+
+        ThumbnailContent(File file, XWikiAttachment attachment)
+        {
+            super(attachment, null);
+
+            this.file = file;
+        }
+
+        @Override
+        public ThumbnailContent clone()
+        {
+            return new ThumbnailContent(this.file, getAttachment());
+        }
+
+        @Override
+        public InputStream getContentInputStream()
+        {
+            try {
+                return new AutoCloseInputStream(new FileInputStream(this.file));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read the scaled image", e);
+            }
+        }
+
+        @Override
+        public byte[] getContent()
+        {
+            try {
+                return FileUtils.readFileToByteArray(this.file);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read the scaled image", e);
+            }
+        }
+
+        @Override
+        public long getLongSize()
+        {
+            return this.file.length();
+        }
     }
 }
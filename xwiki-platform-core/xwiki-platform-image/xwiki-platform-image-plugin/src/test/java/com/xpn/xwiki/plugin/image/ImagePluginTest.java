@@ -19,29 +19,32 @@
  */
 package com.xpn.xwiki.plugin.image;
 
+import java.awt.Dimension;
 import java.awt.Image;
 import java.awt.image.RenderedImage;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Date;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentMatchers;
 import org.mockito.Mockito;
-import org.xwiki.cache.Cache;
-import org.xwiki.cache.CacheManager;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiAttachment;
-import com.xpn.xwiki.doc.XWikiAttachmentContent;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
 import com.xpn.xwiki.web.XWikiServletRequest;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 
 /**
@@ -100,11 +103,11 @@
     public void configure() throws Exception
     {
         XWiki xwiki = this.oldCore.getSpyXWiki();
-        Mockito.doReturn("10").when(xwiki).Param("xwiki.plugin.image.cache.capacity");
+        Mockito.doReturn("2").when(xwiki).Param("xwiki.plugin.image.resize.maxConcurrent");
         Mockito.doReturn("test").when(xwiki).Param(
                 ArgumentMatchers.eq("xwiki.plugin.image.processorHint"), ArgumentMatchers.anyString());
 
-        this.oldCore.getMocker().registerMockComponent(CacheManager.class);
+        this.oldCore.registerMockEnvironment();
 
         this.imageProcessor = this.oldCore.getMocker().registerMockComponent(ImageProcessor.class, "test");
         Mockito.when(this.imageProcessor.isMimeTypeSupported("image/png")).thenReturn(true);
@@ -127,42 +130,137 @@ public void testCacheOfScaledAttachment() throws Exception
 
         XWikiAttachment attachment = Mockito.mock(XWikiAttachment.class);
         Mockito.when(attachment.getMimeType(xcontext)).thenReturn("image/png");
-        InputStream attachmentInputStream = new ByteArrayInputStream(IMAGE_CONTENT);
-        Mockito.when(attachment.getContentInputStream(xcontext)).thenReturn(attachmentInputStream);
-        Mockito.when(attachment.clone()).thenReturn(attachment);
-
-        XWikiAttachmentContent attachmentContent = Mockito.mock(XWikiAttachmentContent.class);
-        Mockito.when(attachment.getAttachment_content()).thenReturn(attachmentContent);
-        Mockito.when(attachmentContent.getContentInputStream()).thenReturn(attachmentInputStream);
-        OutputStream attachmentOutputStream = Mockito.mock(OutputStream.class);
-        Mockito.when(attachmentContent.getContentOutputStream()).thenReturn(attachmentOutputStream);
-
-        CacheManager cacheManager = this.oldCore.getMocker().getInstance(CacheManager.class);
-        Cache<Object> imageCache = Mockito.mock(Cache.class);
-        Mockito.when(cacheManager.createNewLocalCache(ArgumentMatchers.any())).thenReturn(imageCache);
+        Mockito.when(attachment.getVersion()).thenReturn("1.1");
+        Mockito.when(attachment.getContentInputStream(xcontext))
+            .then(invocation -> new ByteArrayInputStream(IMAGE_CONTENT));
+        Mockito.when(attachment.clone()).then(invocation -> {
+            XWikiAttachment clone = new XWikiAttachment();
+            clone.setFilename("image.png");
+            return clone;
+        });
 
         XWikiServletRequest request = Mockito.mock(XWikiServletRequest.class);
         Mockito.when(request.getParameter("width")).thenReturn("30");
         Mockito.when(request.getParameter("height")).thenReturn("30");
         xcontext.setRequest(request);
 
+        Mockito.when(this.imageProcessor.readImageDimensions(ArgumentMatchers.any(InputStream.class)))
+            .thenReturn(new Dimension(400, 300));
         Image image = Mockito.mock(Image.class);
-        Mockito.when(image.getWidth(null)).thenReturn(400);
-        Mockito.when(image.getHeight(null)).thenReturn(300);
-        Mockito.when(imageProcessor.readImage(attachmentInputStream)).thenReturn(image);
+        // Only one pixel out of 5 is decoded because the image is scaled down 10 times.
+        Mockito.when(this.imageProcessor.readImage(ArgumentMatchers.any(InputStream.class), ArgumentMatchers.eq(5)))
+            .thenReturn(image);
         RenderedImage renderedImage = Mockito.mock(RenderedImage.class);
-        Mockito.when(imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        Mockito.when(this.imageProcessor.scaleImage(image, 30, 30)).thenReturn(renderedImage);
+        byte[] scaledContent = new byte[] {1, 2, 3};
+        Mockito.doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(scaledContent);
+            return null;
+        }).when(this.imageProcessor).writeImage(ArgumentMatchers.same(renderedImage), ArgumentMatchers.eq("image/png"),
+            ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
 
         XWikiAttachment scaled = plugin.downloadAttachment(attachment, xcontext);
 
-        String cacheKey = "0;null;30;30;false;-1.0";
-        Mockito.when(imageCache.get(cacheKey)).thenReturn(scaled);
+        assertNotSame(attachment, scaled);
+        assertEquals(3, scaled.getLongSize());
+        assertArrayEquals(scaledContent, IOUtils.toByteArray(scaled.getContentInputStream(xcontext)));
+
+        // Load again, this time from the stored thumbnail.
+        XWikiAttachment cached = plugin.downloadAttachment(attachment, xcontext);
+
+        assertArrayEquals(scaledContent, IOUtils.toByteArray(cached.getContentInputStream(xcontext)));
+        Mockito.verify(this.imageProcessor, Mockito.times(1)).writeImage(ArgumentMatchers.same(renderedImage),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+
+        // A new version of the attachment produces a new thumbnail.
+        Mockito.when(attachment.getVersion()).thenReturn("1.2");
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(this.imageProcessor, Mockito.times(2)).writeImage(ArgumentMatchers.same(renderedImage),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+
+        // The attachment is deleted and uploaded again, with the same version.
+        Mockito.when(attachment.getDate()).thenReturn(new Date());
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(this.imageProcessor, Mockito.times(3)).writeImage(ArgumentMatchers.same(renderedImage),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+
+        // Flushing the cache deletes the stored thumbnails but they can still be stored afterwards.
+        plugin.flushCache();
+        plugin.downloadAttachment(attachment, xcontext);
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(this.imageProcessor, Mockito.times(4)).writeImage(ArgumentMatchers.same(renderedImage),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+    }
+
+    @Test
+    public void testCapacityOfScaledAttachmentStore() throws Exception
+    {
+        Mockito.doReturn("1").when(this.oldCore.getSpyXWiki()).Param("xwiki.plugin.image.cache.capacity");
+        this.plugin = new ImagePlugin("image", ImagePlugin.class.getName(), this.oldCore.getXWikiContext());
+
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = Mockito.mock(XWikiAttachment.class);
+        Mockito.when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        Mockito.when(attachment.getVersion()).thenReturn("1.1");
+        Mockito.when(attachment.getContentInputStream(xcontext))
+            .then(invocation -> new ByteArrayInputStream(IMAGE_CONTENT));
+        Mockito.when(attachment.clone()).then(invocation -> {
+            XWikiAttachment clone = new XWikiAttachment();
+            clone.setFilename("image.png");
+            return clone;
+        });
+
+        XWikiServletRequest request = Mockito.mock(XWikiServletRequest.class);
+        xcontext.setRequest(request);
+
+        Mockito.when(this.imageProcessor.readImageDimensions(ArgumentMatchers.any(InputStream.class)))
+            .thenReturn(new Dimension(400, 300));
+        Image image = Mockito.mock(Image.class);
+        Mockito.when(this.imageProcessor.readImage(ArgumentMatchers.any(InputStream.class), ArgumentMatchers.anyInt()))
+            .thenReturn(image);
+        Mockito.when(this.imageProcessor.scaleImage(ArgumentMatchers.same(image), ArgumentMatchers.anyInt(),
+            ArgumentMatchers.anyInt())).thenReturn(Mockito.mock(RenderedImage.class));
+
+        Mockito.when(request.getParameter("width")).thenReturn("30");
+        plugin.downloadAttachment(attachment, xcontext);
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(this.imageProcessor, Mockito.times(1)).writeImage(ArgumentMatchers.any(RenderedImage.class),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+
+        // Storing a second scaled image deletes the least recently used one.
+        Mockito.when(request.getParameter("width")).thenReturn("20");
+        plugin.downloadAttachment(attachment, xcontext);
+        Mockito.when(request.getParameter("width")).thenReturn("30");
+        plugin.downloadAttachment(attachment, xcontext);
+
+        Mockito.verify(this.imageProcessor, Mockito.times(3)).writeImage(ArgumentMatchers.any(RenderedImage.class),
+            ArgumentMatchers.eq("image/png"), ArgumentMatchers.eq(.5F), ArgumentMatchers.any(OutputStream.class));
+    }
+
+    @Test
+    public void testDownloadAttachmentWithoutScaling() throws Exception
+    {
+        XWikiContext xcontext = this.oldCore.getXWikiContext();
+
+        XWikiAttachment attachment = Mockito.mock(XWikiAttachment.class);
+        Mockito.when(attachment.getMimeType(xcontext)).thenReturn("image/png");
+        Mockito.when(attachment.getContentInputStream(xcontext))
+            .then(invocation -> new ByteArrayInputStream(IMAGE_CONTENT));
+
+        XWikiServletRequest request = Mockito.mock(XWikiServletRequest.class);
+        Mockito.when(request.getParameter("width")).thenReturn("500");
+        xcontext.setRequest(request);
 
-        // Load again, this time from cache.
-        assertSame(scaled, plugin.downloadAttachment(attachment, xcontext));
+        Mockito.when(this.imageProcessor.readImageDimensions(ArgumentMatchers.any(InputStream.class)))
+            .thenReturn(new Dimension(400, 300));
 
-        Mockito.verify(imageProcessor, Mockito.times(1)).writeImage(renderedImage,
-            "image/png", .5F, attachmentOutputStream);
-        Mockito.verify(imageCache, Mockito.times(1)).set(cacheKey, attachment);
+        assertSame(attachment, plugin.downloadAttachment(attachment, xcontext));
+        Mockito.verify(this.imageProcessor, Mockito.never()).readImage(ArgumentMatchers.any(InputStream.class),
+            ArgumentMatchers.anyInt());
     }
 }
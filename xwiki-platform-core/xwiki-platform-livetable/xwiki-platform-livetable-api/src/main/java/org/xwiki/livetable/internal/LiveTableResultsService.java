@@ -0,0 +1,220 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livetable.internal;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Helpers for the computation of the live table results which are too costly to do in Velocity.
+ * <p>
+ * The total number of results of a live table query is cached per wiki, user and query (statement, bound values and
+ * filters) so that it's not computed again when the user is only paginating or sorting the same results. The counts
+ * of a wiki are forgotten as soon as a document of that wiki is modified, see {@link LiveTableResultsListener}. A count
+ * computed while a document was modified is not remembered since it might not take the modification into account.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = LiveTableResultsService.class)
+@Singleton
+public class LiveTableResultsService
+{
+    /**
+     * The maximum number of counts to remember.
+     */
+    private static final int CACHE_SIZE = 1000;
+
+    /**
+     * The rights returned for each live table row.
+     */
+    private static final List<Right> ROW_RIGHTS = Arrays.asList(Right.VIEW, Right.EDIT, Right.DELETE);
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("count")
+    private QueryFilter countFilter;
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    private DocumentAccessBridge documentAccessBridge;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    private final Map<List<Object>, Long> counts =
+        Collections.synchronizedMap(new LinkedHashMap<List<Object>, Long>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Long> eldest)
+            {
+                return size() > CACHE_SIZE;
+            }
+        });
+
+    /**
+     * Incremented each time counts are invalidated, to not remember a count computed before the invalidation.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Same as {@code ScriptQuery#count()} but the result is cached.
+     * 
+     * @param query the query selecting the document names to count
+     * @return the total number of results for the passed query
+     * @throws QueryException when failing to execute the count query
+     */
+    public long count(Query query) throws QueryException
+    {
+        List<Object> key = getKey(query);
+
+        Long count = this.counts.get(key);
+        if (count == null) {
+            long countGeneration = this.generation.get();
+
+            count = countInternal(query);
+
+            synchronized (this.counts) {
+                // Don't remember a count which might have been computed before a document modification
+                if (this.generation.get() == countGeneration) {
+                    this.counts.put(key, count);
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Forget the counts computed for the passed wiki.
+     * 
+     * @param wiki the identifier of the wiki
+     */
+    public void invalidate(String wiki)
+    {
+        synchronized (this.counts) {
+            this.generation.incrementAndGet();
+
+            for (Iterator<List<Object>> it = this.counts.keySet().iterator(); it.hasNext();) {
+                if (wiki.equals(it.next().get(0))) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Check the rights needed to display the actions of the live table rows. The rights are still checked document by
+     * document (the authorization API does not support checking several documents at once) but only once for each
+     * document and without the cost of doing it from Velocity.
+     * 
+     * @param documentReferences the references of the documents displayed in the live table
+     * @return the view, edit and delete rights of the current user on each passed document, indexed by right name
+     */
+    public Map<DocumentReference, Map<String, Boolean>> getRowRights(
+        Collection<DocumentReference> documentReferences)
+    {
+        Map<DocumentReference, Map<String, Boolean>> access = new HashMap<>();
+
+        for (DocumentReference documentReference : documentReferences) {
+            if (documentReference != null && !access.containsKey(documentReference)) {
+                access.put(documentReference, ROW_RIGHTS.stream().collect(Collectors.toMap(Right::getName,
+                    right -> this.authorization.hasAccess(right, documentReference))));
+            }
+        }
+
+        return access;
+    }
+
+    private List<Object> getKey(Query query)
+    {
+        String wiki = query.getWiki();
+        if (wiki == null) {
+            EntityReference currentReference = this.modelContext.getCurrentEntityReference();
+            wiki = currentReference != null ? currentReference.extractReference(EntityType.WIKI).getName() : null;
+        }
+
+        List<String> filters = query.getFilters().stream().map(filter -> filter.getClass().getName())
+            .collect(Collectors.toList());
+
+        // Query filters (like the hidden documents filter) can depend on the current user preferences
+        return Arrays.asList(wiki, this.documentAccessBridge.getCurrentUserReference(), query.getLanguage(),
+            query.isNamed(), query.getStatement(), new HashMap<>(query.getNamedParameters()),
+            new HashMap<>(query.getPositionalParameters()), filters);
+    }
+
+    private long countInternal(Query query) throws QueryException
+    {
+        // Create a copy of the passed query.
+        Query countQuery;
+        if (query.isNamed()) {
+            countQuery = this.queryManager.getNamedQuery(query.getStatement());
+        } else {
+            countQuery = this.queryManager.createQuery(query.getStatement(), query.getLanguage());
+        }
+        countQuery.setWiki(query.getWiki());
+        for (Map.Entry<Integer, Object> entry : query.getPositionalParameters().entrySet()) {
+            countQuery.bindValue(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Object> entry : query.getNamedParameters().entrySet()) {
+            countQuery.bindValue(entry.getKey(), entry.getValue());
+        }
+        for (QueryFilter filter : query.getFilters()) {
+            countQuery.addFilter(filter);
+        }
+
+        // Add the count filter to it.
+        countQuery.addFilter(this.countFilter);
+
+        // Execute and retrieve the count result.
+        List<Long> results = countQuery.execute();
+
+        return results.get(0);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livetable.script;
+
+import java.util.Collection;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.livetable.internal.LiveTableResultsService;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.script.service.ScriptService;
+import org.xwiki.stability.Unstable;
+
+/**
+ * Helpers used by the live table results page.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Named("livetable")
+@Singleton
+@Unstable
+public class LiveTableScriptService implements ScriptService
+{
+    @Inject
+    private LiveTableResultsService service;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * Same as {@code $query.count()} but the result is cached until a document is modified in the target wiki, which
+     * makes paginating or sorting the same live table results a lot cheaper.
+     * 
+     * @param query the query selecting the document names to count
+     * @return the total number of results for the passed query, -1 if it failed
+     */
+    public long count(Query query)
+    {
+        try {
+            return this.service.count(query);
+        } catch (QueryException e) {
+            this.logger.warn("Failed to count the results of query [{}]", query.getStatement(), e);
+
+            return -1;
+        }
+    }
+
+    /**
+     * @param documentReferences the references of the documents displayed in the live table
+     * @return the view, edit and delete rights of the current user on each passed document, indexed by right name
+     */
+    public Map<DocumentReference, Map<String, Boolean>> getRowRights(
+        Collection<DocumentReference> documentReferences)
+    {
+        return this.service.getRowRights(documentReferences);
+    }
+}
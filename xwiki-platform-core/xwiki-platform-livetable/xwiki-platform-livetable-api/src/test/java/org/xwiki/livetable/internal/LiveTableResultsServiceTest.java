@@ -0,0 +1,162 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.livetable.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.bridge.DocumentAccessBridge;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryFilter;
+import org.xwiki.query.QueryManager;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link LiveTableResultsService}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class LiveTableResultsServiceTest
+{
+    private static final String STATEMENT = "where doc.space = ?";
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("count")
+    private QueryFilter countFilter;
+
+    @MockComponent
+    private ModelContext modelContext;
+
+    @MockComponent
+    private DocumentAccessBridge documentAccessBridge;
+
+    @MockComponent
+    private ContextualAuthorizationManager authorization;
+
+    @InjectMockComponents
+    private LiveTableResultsService service;
+
+    private Query query;
+
+    private Query countQuery;
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        this.query = mock(Query.class);
+        when(this.query.getStatement()).thenReturn(STATEMENT);
+        when(this.query.getLanguage()).thenReturn(Query.HQL);
+        when(this.query.getPositionalParameters()).thenReturn(Collections.singletonMap(1, "Space"));
+
+        this.countQuery = mock(Query.class);
+        when(this.queryManager.createQuery(STATEMENT, Query.HQL)).thenReturn(this.countQuery);
+        when(this.countQuery.<Long>execute()).thenReturn(Arrays.asList(42L), Arrays.asList(43L));
+    }
+
+    @Test
+    public void count() throws Exception
+    {
+        assertEquals(42L, this.service.count(this.query));
+        assertEquals(42L, this.service.count(this.query));
+
+        verify(this.countQuery).bindValue(1, "Space");
+        verify(this.countQuery).addFilter(this.countFilter);
+        verify(this.countQuery, times(1)).execute();
+
+        this.service.invalidate("otherwiki");
+
+        assertEquals(42L, this.service.count(this.query));
+
+        this.service.invalidate("wiki");
+
+        assertEquals(43L, this.service.count(this.query));
+    }
+
+    @Test
+    public void countWithDifferentParameters() throws Exception
+    {
+        assertEquals(42L, this.service.count(this.query));
+
+        when(this.query.getPositionalParameters()).thenReturn(Collections.singletonMap(1, "OtherSpace"));
+
+        assertEquals(43L, this.service.count(this.query));
+    }
+
+    @Test
+    public void countInvalidatedWhileComputed() throws Exception
+    {
+        when(this.countQuery.<Long>execute()).then(invocation -> {
+            // A document is modified while the count is computed
+            this.service.invalidate("otherwiki");
+
+            return Arrays.asList(42L);
+        }).thenReturn(Arrays.asList(43L));
+
+        assertEquals(42L, this.service.count(this.query));
+
+        // The count might be outdated so it was not remembered
+        assertEquals(43L, this.service.count(this.query));
+        assertEquals(43L, this.service.count(this.query));
+
+        verify(this.countQuery, times(2)).execute();
+    }
+
+    @Test
+    public void getRowRights()
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        when(this.authorization.hasAccess(Right.VIEW, documentReference)).thenReturn(true);
+        when(this.authorization.hasAccess(Right.EDIT, documentReference)).thenReturn(true);
+
+        Map<String, Boolean> access =
+            this.service.getRowRights(Arrays.asList(documentReference, documentReference)).get(documentReference);
+
+        assertTrue(access.get("view"));
+        assertTrue(access.get("edit"));
+        assertFalse(access.get("delete"));
+        verify(this.authorization, times(1)).hasAccess(Right.VIEW, documentReference);
+    }
+}
@@ -31,6 +31,7 @@
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.xwiki.livetable.script.LiveTableScriptService;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.script.ModelScriptService;
 import org.xwiki.query.internal.ScriptQuery;
@@ -68,6 +69,8 @@ public class LiveTableResultsTest extends PageTest
 
     private ModelScriptService modelService;
 
+    private LiveTableScriptService liveTableService;
+
     private Map<String, Object> results;
 
     @BeforeEach
@@ -100,6 +103,9 @@ public void setUp() throws Exception
         modelService = mock(ModelScriptService.class);
         oldcore.getMocker().registerComponent(ScriptService.class, "model", modelService);
 
+        liveTableService = mock(LiveTableScriptService.class);
+        oldcore.getMocker().registerComponent(ScriptService.class, "livetable", liveTableService);
+
         TagPluginApi tagPluginApi = mock(TagPluginApi.class);
         doReturn(tagPluginApi).when(oldcore.getSpyXWiki()).getPluginApi(eq("tag"), any(XWikiContext.class));
 
@@ -130,7 +136,7 @@ public void plainPageResults() throws Exception
         when(query.setOffset(12)).thenReturn(query);
         when(query.bindValues(anyListOf(Object.class))).thenReturn(query);
 
-        when(query.count()).thenReturn(17L);
+        when(liveTableService.count(query)).thenReturn(17L);
         when(query.execute()).thenReturn(Arrays.<Object>asList("A.B", "X.Y"));
 
         DocumentReference abReference = new DocumentReference("wiki", "A", "B");
@@ -30,7 +30,6 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
-import org.xwiki.localization.LocaleUtils;
 import org.xwiki.localization.LocalizationManager;
 import org.xwiki.localization.Translation;
 import org.xwiki.localization.TranslationBundle;
@@ -62,6 +61,12 @@ public class DefaultLocalizationManager implements LocalizationManager
     @Inject
     private TranslationBundleContext bundleContext;
 
+    /**
+     * Used to resolve translations without going through all the bundles each time.
+     */
+    @Inject
+    private TranslationIndexManager translationIndexes;
+
     /**
      * The logger to log.
      */
@@ -71,24 +76,7 @@ public class DefaultLocalizationManager implements LocalizationManager
     @Override
     public Translation getTranslation(String key, Locale locale)
     {
-        for (TranslationBundle bundle : this.bundleContext.getBundles()) {
-            try {
-                Translation translation = bundle.getTranslation(key, locale);
-                if (translation != null && translation.getLocale().equals(locale)) {
-                    return translation;
-                }
-            } catch (Exception e) {
-                this.logger.error("Failed to get translation", e);
-            }
-        }
-
-        // Try parent locale
-        Locale parentLocale = LocaleUtils.getParentLocale(locale);
-        if (parentLocale != null) {
-            return getTranslation(key, parentLocale);
-        }
-
-        return null;
+        return this.translationIndexes.getTranslation(this.bundleContext.getBundles(), key, locale);
     }
 
     @Override
@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.xwiki.localization.LocaleUtils;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.TranslationBundle;
+
+/**
+ * Merged view of an ordered list of {@link TranslationBundle}s: remember for each locale and key which translation
+ * wins so that following lookups don't have to go through all the bundles again.
+ * <p>
+ * The index does not keep any reference to the bundles, which are passed with each lookup, so that it does not
+ * prevent unregistered bundles from being garbage collected.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+class TranslationIndex
+{
+    /**
+     * The maximum number of entries (including misses) remembered for a given locale before starting from scratch.
+     */
+    static final int MAX_ENTRIES_PER_LOCALE = 100000;
+
+    /**
+     * Resolved entries depending on all the bundles (misses and translations coming from a parent locale).
+     */
+    private static final int ALL_BUNDLES = Integer.MAX_VALUE;
+
+    private static final class Entry
+    {
+        private final Translation translation;
+
+        /**
+         * The position of the last bundle which had an impact on the result.
+         */
+        private final int limit;
+
+        /**
+         * False when one of the bundles failed, in which case the result should not be remembered.
+         */
+        private final boolean cacheable;
+
+        Entry(Translation translation, int limit, boolean cacheable)
+        {
+            this.translation = translation;
+            this.limit = limit;
+            this.cacheable = cacheable;
+        }
+    }
+
+    private final Map<Locale, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+
+    /**
+     * Incremented each time entries are forgotten, so that a result resolved before that is not remembered.
+     */
+    private volatile long stamp;
+
+    /**
+     * @param logger the logger to use to report bundle errors
+     */
+    TranslationIndex(Logger logger)
+    {
+        this.logger = logger;
+    }
+
+    /**
+     * @param bundles the bundles of the index, ordered by priority
+     * @param key the key of the translation
+     * @param locale the locale of the translation
+     * @return the translation or null if none could be found
+     */
+    Translation getTranslation(TranslationBundle[] bundles, String key, Locale locale)
+    {
+        Map<String, Entry> localeEntries = this.entries.computeIfAbsent(locale, k -> new ConcurrentHashMap<>());
+
+        Entry entry = localeEntries.get(key);
+        if (entry == null) {
+            long resolveStamp = this.stamp;
+
+            entry = resolve(bundles, key, locale);
+
+            if (entry.cacheable) {
+                synchronized (this) {
+                    // Don't remember a result which might have been affected by an invalidation during the resolution
+                    if (resolveStamp == this.stamp) {
+                        if (localeEntries.size() >= MAX_ENTRIES_PER_LOCALE) {
+                            // Protect against an unlimited number of different keys (usually misses)
+                            localeEntries.clear();
+                        }
+                        localeEntries.put(key, entry);
+                    }
+                }
+            }
+        }
+
+        return entry.translation;
+    }
+
+    private Entry resolve(TranslationBundle[] bundles, String key, Locale locale)
+    {
+        boolean failed = false;
+
+        for (Locale currentLocale = locale; currentLocale != null;
+            currentLocale = LocaleUtils.getParentLocale(currentLocale)) {
+            for (int i = 0; i < bundles.length; ++i) {
+                try {
+                    Translation translation = bundles[i].getTranslation(key, currentLocale);
+                    if (translation != null && translation.getLocale().equals(currentLocale)) {
+                        // A translation coming from a parent locale could be overwritten by any bundle
+                        return new Entry(translation, currentLocale.equals(locale) ? i : ALL_BUNDLES, !failed);
+                    }
+                } catch (Exception e) {
+                    this.logger.error("Failed to get translation", e);
+
+                    failed = true;
+                }
+            }
+        }
+
+        return new Entry(null, ALL_BUNDLES, !failed);
+    }
+
+    /**
+     * Forget all the entries which could be affected by a modification of the bundle at the passed position.
+     * 
+     * @param position the position of the modified bundle
+     */
+    synchronized void invalidate(int position)
+    {
+        ++this.stamp;
+
+        // Entries resolved by a bundle with a higher priority are not impacted
+        for (Map<String, Entry> localeEntries : this.entries.values()) {
+            localeEntries.values().removeIf(entry -> entry.limit >= position);
+        }
+    }
+
+    /**
+     * Forget all the entries.
+     */
+    synchronized void clear()
+    {
+        ++this.stamp;
+
+        this.entries.clear();
+    }
+}
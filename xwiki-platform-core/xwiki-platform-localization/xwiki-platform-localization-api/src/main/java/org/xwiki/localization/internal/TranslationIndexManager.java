@@ -0,0 +1,246 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.TranslationBundle;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.EntityReference;
+
+/**
+ * Maintain merged translation indexes for the various lists of bundles used in the different wikis, so that resolving
+ * a translation does not require asking each bundle every time.
+ * <p>
+ * Bundles whose content can change are expected to call {@link #invalidate(TranslationBundle)} when it happens.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = TranslationIndexManager.class)
+@Singleton
+public class TranslationIndexManager
+{
+    /**
+     * The maximum number of indexes kept in memory.
+     */
+    private static final int MAX_INDEXES = 100;
+
+    /**
+     * The wiki and the bundles of an index. The stored keys only keep weak references to the bundles so that the
+     * indexes don't prevent unregistered bundles from being garbage collected, while the keys used for lookups keep
+     * the bundles themselves.
+     */
+    private static final class IndexKey
+    {
+        private final String wiki;
+
+        /**
+         * {@link TranslationBundle}s or weak references to them (the bundles don't override
+         * {@link Object#equals(Object)}).
+         */
+        private final Object[] bundles;
+
+        private final int hashCode;
+
+        IndexKey(String wiki, Object[] bundles)
+        {
+            this.wiki = wiki;
+            this.bundles = bundles;
+
+            int hash = wiki.hashCode();
+            for (int i = 0; i < bundles.length; ++i) {
+                hash = 31 * hash + System.identityHashCode(getBundle(i));
+            }
+            this.hashCode = hash;
+        }
+
+        private IndexKey(IndexKey key, Object[] bundles)
+        {
+            this.wiki = key.wiki;
+            this.bundles = bundles;
+            this.hashCode = key.hashCode;
+        }
+
+        IndexKey toWeakKey()
+        {
+            Object[] references = new Object[this.bundles.length];
+            for (int i = 0; i < references.length; ++i) {
+                references[i] = new WeakReference<>(getBundle(i));
+            }
+
+            return new IndexKey(this, references);
+        }
+
+        TranslationBundle getBundle(int position)
+        {
+            Object bundle = this.bundles[position];
+
+            return (TranslationBundle) (bundle instanceof Reference ? ((Reference<?>) bundle).get() : bundle);
+        }
+
+        int getPosition(TranslationBundle bundle)
+        {
+            for (int i = 0; i < this.bundles.length; ++i) {
+                if (getBundle(i) == bundle) {
+                    return i;
+                }
+            }
+
+            return -1;
+        }
+
+        boolean isCollected()
+        {
+            return getPosition(null) != -1;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (obj == this) {
+                return true;
+            }
+
+            if (!(obj instanceof IndexKey)) {
+                return false;
+            }
+
+            IndexKey other = (IndexKey) obj;
+            if (this.hashCode != other.hashCode || !this.wiki.equals(other.wiki)
+                || this.bundles.length != other.bundles.length) {
+                return false;
+            }
+
+            for (int i = 0; i < this.bundles.length; ++i) {
+                TranslationBundle bundle = getBundle(i);
+                if (bundle == null || bundle != other.getBundle(i)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    @Inject
+    private ModelContext modelContext;
+
+    @Inject
+    private Logger logger;
+
+    private final Map<IndexKey, TranslationIndex> indexes =
+        new LinkedHashMap<IndexKey, TranslationIndex>(16, 0.75F, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IndexKey, TranslationIndex> eldest)
+            {
+                return size() > MAX_INDEXES;
+            }
+        };
+
+    /**
+     * @param bundles the bundles to search, ordered by priority
+     * @param key the key of the translation
+     * @param locale the locale of the translation
+     * @return the translation or null if none could be found
+     */
+    public Translation getTranslation(Collection<TranslationBundle> bundles, String key, Locale locale)
+    {
+        // Some bundles (like the legacy XWikiPreferences one) depend on the current wiki
+        TranslationBundle[] bundleArray = bundles.toArray(new TranslationBundle[bundles.size()]);
+        IndexKey indexKey = new IndexKey(getCurrentWiki(), bundleArray);
+
+        return getIndex(indexKey).getTranslation(bundleArray, key, locale);
+    }
+
+    private TranslationIndex getIndex(IndexKey indexKey)
+    {
+        synchronized (this.indexes) {
+            TranslationIndex index = this.indexes.get(indexKey);
+            if (index == null) {
+                // Forget the indexes of bundles which don't exist anymore
+                this.indexes.keySet().removeIf(IndexKey::isCollected);
+
+                index = new TranslationIndex(this.logger);
+                this.indexes.put(indexKey.toWeakKey(), index);
+            }
+
+            return index;
+        }
+    }
+
+    /**
+     * Forget the resolved translations which could be affected by a modification of the passed bundle.
+     * 
+     * @param bundle the modified bundle
+     */
+    public void invalidate(TranslationBundle bundle)
+    {
+        synchronized (this.indexes) {
+            boolean found = false;
+
+            for (Map.Entry<IndexKey, TranslationIndex> entry : this.indexes.entrySet()) {
+                int position = entry.getKey().getPosition(bundle);
+                if (position != -1) {
+                    entry.getValue().invalidate(position);
+
+                    found = true;
+                }
+            }
+
+            if (!found) {
+                // The bundle might be used by one of the indexed bundles (legacy document bundles for example)
+                this.indexes.values().forEach(TranslationIndex::clear);
+            }
+        }
+    }
+
+    private String getCurrentWiki()
+    {
+        EntityReference currentReference = this.modelContext.getCurrentEntityReference();
+        if (currentReference != null) {
+            EntityReference wikiReference = currentReference.extractReference(EntityType.WIKI);
+            if (wikiReference != null) {
+                return wikiReference.getName();
+            }
+        }
+
+        return "";
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.localization.internal;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.localization.Translation;
+import org.xwiki.localization.TranslationBundle;
+import org.xwiki.model.ModelContext;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TranslationIndexManager}.
+ *
+ * @version $Id$
+ */
+public class TranslationIndexManagerTest
+{
+    @Rule
+    public final MockitoComponentMockingRule<TranslationIndexManager> mocker =
+        new MockitoComponentMockingRule<>(TranslationIndexManager.class);
+
+    private TranslationBundle bundle1;
+
+    private TranslationBundle bundle2;
+
+    private List<TranslationBundle> bundles;
+
+    @Before
+    public void before() throws Exception
+    {
+        ModelContext modelContext = this.mocker.getInstance(ModelContext.class);
+        when(modelContext.getCurrentEntityReference()).thenReturn(new WikiReference("wiki"));
+
+        this.bundle1 = mock(TranslationBundle.class, "bundle1");
+        this.bundle2 = mock(TranslationBundle.class, "bundle2");
+        this.bundles = Arrays.asList(this.bundle1, this.bundle2);
+    }
+
+    private Translation mockTranslation(TranslationBundle bundle, String key, Locale locale)
+    {
+        Translation translation = mock(Translation.class);
+        when(translation.getLocale()).thenReturn(locale);
+        when(bundle.getTranslation(key, locale)).thenReturn(translation);
+
+        return translation;
+    }
+
+    @Test
+    public void getTranslationIsRemembered() throws Exception
+    {
+        Translation translation1 = mockTranslation(this.bundle1, "key", Locale.ENGLISH);
+        mockTranslation(this.bundle2, "key", Locale.ENGLISH);
+
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ENGLISH));
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ENGLISH));
+
+        verify(this.bundle1, times(1)).getTranslation("key", Locale.ENGLISH);
+        verify(this.bundle2, times(0)).getTranslation("key", Locale.ENGLISH);
+    }
+
+    @Test
+    public void getTranslationFromParentLocale() throws Exception
+    {
+        Translation translation = mockTranslation(this.bundle2, "key", Locale.ROOT);
+
+        assertSame(translation, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ENGLISH));
+    }
+
+    @Test
+    public void missIsRememberedUntilInvalidated() throws Exception
+    {
+        assertNull(this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key", Locale.ROOT));
+        assertNull(this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key", Locale.ROOT));
+
+        verify(this.bundle2, times(1)).getTranslation("key", Locale.ROOT);
+
+        Translation translation = mockTranslation(this.bundle2, "key", Locale.ROOT);
+        this.mocker.getComponentUnderTest().invalidate(this.bundle2);
+
+        assertSame(translation, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+    }
+
+    @Test
+    public void invalidateLowerPriorityBundleKeepsEntry() throws Exception
+    {
+        Translation translation1 = mockTranslation(this.bundle1, "key", Locale.ROOT);
+
+        this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key", Locale.ROOT);
+        this.mocker.getComponentUnderTest().invalidate(this.bundle2);
+
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+
+        verify(this.bundle1, times(1)).getTranslation("key", Locale.ROOT);
+
+        this.mocker.getComponentUnderTest().invalidate(this.bundle1);
+
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+
+        verify(this.bundle1, times(2)).getTranslation("key", Locale.ROOT);
+    }
+
+    @Test
+    public void getTranslationWithDifferentBundles() throws Exception
+    {
+        Translation translation2 = mockTranslation(this.bundle2, "key", Locale.ROOT);
+
+        assertNull(this.mocker.getComponentUnderTest().getTranslation(Arrays.asList(this.bundle1), "key",
+            Locale.ROOT));
+        assertSame(translation2, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+    }
+
+    @Test
+    public void invalidateDuringResolutionIsNotLost() throws Exception
+    {
+        Translation translation1 = mockTranslation(this.bundle1, "key", Locale.ROOT);
+
+        // The bundle is modified while the translation is being resolved
+        doAnswer(invocation -> {
+            this.mocker.getComponentUnderTest().invalidate(this.bundle1);
+
+            return translation1;
+        }).when(this.bundle1).getTranslation("key", Locale.ROOT);
+
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+        assertSame(translation1, this.mocker.getComponentUnderTest().getTranslation(this.bundles, "key",
+            Locale.ROOT));
+
+        // The first result was not remembered
+        verify(this.bundle1, times(2)).getTranslation("key", Locale.ROOT);
+    }
+}
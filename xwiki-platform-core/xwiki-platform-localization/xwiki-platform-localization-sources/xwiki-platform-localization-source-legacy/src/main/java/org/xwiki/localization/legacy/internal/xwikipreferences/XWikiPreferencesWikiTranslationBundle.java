@@ -36,6 +36,7 @@
 import org.xwiki.localization.Translation;
 import org.xwiki.localization.TranslationBundle;
 import org.xwiki.localization.internal.AbstractTranslationBundle;
+import org.xwiki.localization.internal.TranslationIndexManager;
 import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
@@ -79,6 +80,8 @@ public class XWikiPreferencesWikiTranslationBundle extends AbstractTranslationBu
 
     private XWikiPreferencesTranslationBundle parent;
 
+    private TranslationIndexManager translationIndexes;
+
     private Map<DocumentReference, XWikiPreferencesDocumentTranslationBundle> bundles;
 
     public XWikiPreferencesWikiTranslationBundle(String wiki, XWikiPreferencesTranslationBundle parent,
@@ -92,6 +95,7 @@ public XWikiPreferencesWikiTranslationBundle(String wiki, XWikiPreferencesTransl
         this.observation = componentManager.getInstance(ObservationManager.class);
         this.documentAccessBridge = componentManager.getInstance(DocumentAccessBridge.class);
         this.resolver = componentManager.getInstance(DocumentReferenceResolver.TYPE_STRING);
+        this.translationIndexes = componentManager.getInstance(TranslationIndexManager.class);
 
         intializeBundles();
 
@@ -161,6 +165,9 @@ public List<Event> getEvents()
     public void onEvent(Event arg0, Object arg1, Object arg2)
     {
         intializeBundles();
+
+        // The list of document bundles changed
+        this.translationIndexes.invalidate(this.parent);
     }
 
     // Bundle
@@ -44,6 +44,7 @@
 import org.xwiki.localization.internal.DefaultLocalizedTranslationBundle;
 import org.xwiki.localization.internal.DefaultTranslation;
 import org.xwiki.localization.internal.LocalizedTranslationBundle;
+import org.xwiki.localization.internal.TranslationIndexManager;
 import org.xwiki.localization.message.TranslationMessage;
 import org.xwiki.localization.message.TranslationMessageParser;
 import org.xwiki.model.reference.DocumentReference;
@@ -219,6 +220,8 @@ public void dispose()
         this.disposed = true;
         this.bundleCache.clear();
         this.observation.removeListener(getName());
+
+        invalidateTranslationIndexes();
     }
 
     // EventListener
@@ -239,6 +242,25 @@ public void onEvent(Event event, Object source, Object data)
                 this.bundleCache.remove(document.getDefaultLocale());
             }
         }
+
+        invalidateTranslationIndexes();
+    }
+
+    /**
+     * Make sure translations previously resolved from this bundle are not remembered anymore.
+     * 
+     * @since 11.3RC1
+     */
+    protected void invalidateTranslationIndexes()
+    {
+        try {
+            TranslationIndexManager indexes = this.componentManager.getInstance(TranslationIndexManager.class);
+            if (indexes != null) {
+                indexes.invalidate(this);
+            }
+        } catch (ComponentLookupException e) {
+            this.logger.error("Failed to lookup the translation index manager", e);
+        }
     }
 
     @Override
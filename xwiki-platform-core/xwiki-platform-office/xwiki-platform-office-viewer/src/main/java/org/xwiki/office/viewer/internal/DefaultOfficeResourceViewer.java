@@ -21,6 +21,7 @@
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.Arrays;
@@ -29,11 +30,16 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jodconverter.document.DocumentFamily;
@@ -133,6 +139,19 @@ public class DefaultOfficeResourceViewer implements OfficeResourceViewer, Initia
      */
     private Cache<OfficeDocumentView> externalCache;
 
+    /**
+     * Persistent attachment based office document view store, used when the view is not in the memory cache.
+     */
+    @Inject
+    private OfficeDocumentViewStore viewStore;
+
+    /**
+     * The attachment views being currently built, used to make sure an office attachment is converted only once when
+     * it is viewed concurrently.
+     */
+    private final ConcurrentMap<String, FutureTask<AttachmentOfficeDocumentView>> pendingViews =
+        new ConcurrentHashMap<>();
+
     /**
      * Used to build XDOM documents from office documents.
      */
@@ -351,17 +370,7 @@ private OfficeDocumentView getView(ResourceReference reference, AttachmentRefere
 
         // If a view in not available, build one and cache it.
         if (view == null) {
-            XDOMOfficeDocument xdomOfficeDocument = createXDOM(attachmentReference, parameters);
-            String attachmentVersion = this.documentAccessBridge.getAttachmentVersion(attachmentReference);
-            XDOM xdom = xdomOfficeDocument.getContentDocument();
-            // We use only the file name from the resource reference because the rest of the information is specified by
-            // the owner document reference. This way we ensure the path to the temporary files doesn't contain
-            // redundant information and so it remains as small as possible (considering that the path length is limited
-            // on some environments).
-            Set<File> temporaryFiles = processImages(xdom, xdomOfficeDocument.getArtifacts(),
-                attachmentReference.getDocumentReference(), attachmentReference.getName(), parameters);
-            view = new AttachmentOfficeDocumentView(reference, attachmentReference, attachmentVersion, xdom,
-                temporaryFiles);
+            view = getView(reference, attachmentReference, currentVersion, cacheKey, parameters);
 
             this.attachmentCache.set(cacheKey, view);
         }
@@ -371,6 +380,97 @@ private OfficeDocumentView getView(ResourceReference reference, AttachmentRefere
         return view;
     }
 
+    private AttachmentOfficeDocumentView getView(ResourceReference reference, AttachmentReference attachmentReference,
+        String version, String cacheKey, Map<String, ?> parameters) throws Exception
+    {
+        // The version is not enough to identify the attachment content since an attachment can be deleted and uploaded
+        // again with the same version. Reading the content is still much cheaper than converting it.
+        String contentHash = "";
+        try (InputStream content = this.documentAccessBridge.getAttachmentContent(attachmentReference)) {
+            if (content != null) {
+                contentHash = DigestUtils.sha256Hex(content);
+            }
+        }
+        String storeKey = DigestUtils.sha256Hex(cacheKey + '/' + version + '/' + contentHash);
+
+        FutureTask<AttachmentOfficeDocumentView> task = new FutureTask<>(
+            () -> loadOrCreateView(reference, attachmentReference, version, storeKey, parameters));
+        FutureTask<AttachmentOfficeDocumentView> pendingTask = this.pendingViews.putIfAbsent(storeKey, task);
+        if (pendingTask == null) {
+            // Build the view in the current thread, the other threads asking for the same view will wait for it.
+            pendingTask = task;
+            try {
+                task.run();
+            } finally {
+                this.pendingViews.remove(storeKey, task);
+            }
+        }
+
+        try {
+            return pendingTask.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private AttachmentOfficeDocumentView loadOrCreateView(ResourceReference reference,
+        AttachmentReference attachmentReference, String version, String storeKey, Map<String, ?> parameters)
+        throws Exception
+    {
+        DocumentReference ownerDocumentReference = attachmentReference.getDocumentReference();
+
+        // Reuse the view stored by a previous conversion (possibly before a restart or by another cluster member).
+        XDOM xdom = this.viewStore.getXDOM(storeKey);
+        if (xdom != null) {
+            Set<File> temporaryFiles = restoreImages(this.viewStore.getArtifacts(storeKey), ownerDocumentReference,
+                attachmentReference.getName(), parameters);
+            return new AttachmentOfficeDocumentView(reference, attachmentReference, version, xdom, temporaryFiles);
+        }
+
+        XDOMOfficeDocument xdomOfficeDocument = createXDOM(attachmentReference, parameters);
+        xdom = xdomOfficeDocument.getContentDocument();
+        // We use only the file name from the resource reference because the rest of the information is specified by
+        // the owner document reference. This way we ensure the path to the temporary files doesn't contain
+        // redundant information and so it remains as small as possible (considering that the path length is limited
+        // on some environments).
+        Set<File> temporaryFiles = processImages(xdom, xdomOfficeDocument.getArtifacts(), ownerDocumentReference,
+            attachmentReference.getName(), parameters);
+
+        this.viewStore.store(storeKey, xdom, xdomOfficeDocument.getArtifacts());
+
+        return new AttachmentOfficeDocumentView(reference, attachmentReference, version, xdom, temporaryFiles);
+    }
+
+    /**
+     * Re-creates the temporary files of the image artifacts of a stored view. The image blocks of the stored XDOM
+     * already point to these temporary files.
+     * 
+     * @param artifacts the stored artifacts
+     * @param ownerDocumentReference specifies the document that owns the office file
+     * @param resourceReference a reference to the office file that is being viewed
+     * @param parameters the build parameters
+     * @return the set of temporary files corresponding to image artifacts
+     */
+    private Set<File> restoreImages(Map<String, File> artifacts, DocumentReference ownerDocumentReference,
+        String resourceReference, Map<String, ?> parameters)
+    {
+        Set<File> temporaryFiles = new HashSet<File>();
+        for (Map.Entry<String, File> artifact : artifacts.entrySet()) {
+            List<String> resourcePath = Arrays.asList(String.valueOf(parameters.hashCode()), artifact.getKey());
+            TemporaryResourceReference temporaryResourceReference =
+                new TemporaryResourceReference(MODULE_NAME, resourcePath, ownerDocumentReference);
+            try (InputStream stream = new FileInputStream(artifact.getValue())) {
+                temporaryFiles.add(this.temporaryResourceStore.createTemporaryFile(temporaryResourceReference, stream));
+            } catch (Exception ex) {
+                String message = "Error while restoring artifact image [%s].";
+                this.logger.error(String.format(message, artifact.getKey()), ex);
+            }
+        }
+
+        return temporaryFiles;
+    }
+
     private OfficeDocumentView getView(ResourceReference resourceReference, Map<String, ?> parameters) throws Exception
     {
         DocumentReference ownerDocument = getOwnerDocument(parameters);
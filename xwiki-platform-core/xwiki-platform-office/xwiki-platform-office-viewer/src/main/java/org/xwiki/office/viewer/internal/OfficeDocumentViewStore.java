@@ -0,0 +1,236 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.DefaultWikiPrinter;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+
+/**
+ * Stores the office document views on the file system so that they survive restarts and cache evictions. Each view is
+ * stored in its own directory, named after the key of the view, which holds the XDOM of the view (serialized in the
+ * {@code xdom+xml/current} syntax) and its artifacts. The total size of the store is bounded by the
+ * {@code officeviewer.cache.maxSize} configuration property (in MB), the least recently used views being removed first.
+ * The views being written and the ones used very recently (which might still be read) are never removed.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = OfficeDocumentViewStore.class)
+@Singleton
+public class OfficeDocumentViewStore implements Initializable
+{
+    private static final String SYNTAX = "xdom+xml/current";
+
+    private static final String CONTENT_FILE = "content.xml";
+
+    private static final String ARTIFACTS_DIRECTORY = "artifacts";
+
+    private static final String TEMPORARY_DIRECTORY_EXTENSION = ".tmp";
+
+    /**
+     * The views used more recently than this (in milliseconds) are not removed since they might still be read.
+     */
+    private static final long RECENT_VIEW_DELAY = TimeUnit.MINUTES.toMillis(1);
+
+    private static final long DEFAULT_MAX_SIZE = 200;
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    @Inject
+    private Environment environment;
+
+    @Inject
+    @Named(SYNTAX)
+    private BlockRenderer renderer;
+
+    @Inject
+    @Named(SYNTAX)
+    private Parser parser;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    private File storeDirectory;
+
+    private long maxSize;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        this.storeDirectory = new File(this.environment.getPermanentDirectory(), "cache/officeviewer");
+        this.maxSize = this.configuration.getProperty("officeviewer.cache.maxSize", DEFAULT_MAX_SIZE) * MEGABYTE;
+    }
+
+    /**
+     * @param key the key of the view
+     * @return the stored XDOM of the view, or {@code null} if the view is not stored
+     */
+    public XDOM getXDOM(String key)
+    {
+        File viewDirectory = new File(this.storeDirectory, key);
+        File contentFile = new File(viewDirectory, CONTENT_FILE);
+        if (contentFile.isFile()) {
+            // Remember that the view has been used recently, before reading it so that it's not removed meanwhile.
+            viewDirectory.setLastModified(System.currentTimeMillis());
+
+            try (Reader reader = Files.newBufferedReader(contentFile.toPath(), StandardCharsets.UTF_8)) {
+                return this.parser.parse(reader);
+            } catch (Exception e) {
+                this.logger.warn("Failed to read the stored office view [{}]: {}", viewDirectory, e.getMessage());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param key the key of the view
+     * @return the stored artifacts of the view, indexed by their name
+     */
+    public Map<String, File> getArtifacts(String key)
+    {
+        Map<String, File> artifacts = new LinkedHashMap<>();
+
+        File[] files = new File(new File(this.storeDirectory, key), ARTIFACTS_DIRECTORY).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                try {
+                    artifacts.put(URLDecoder.decode(file.getName(), StandardCharsets.UTF_8.name()), file);
+                } catch (UnsupportedEncodingException e) {
+                    // Should never happen.
+                }
+            }
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * Stores a view, replacing the existing one with the same key.
+     * 
+     * @param key the key of the view
+     * @param xdom the XDOM of the view
+     * @param artifacts the artifacts of the view, indexed by their name
+     */
+    public void store(String key, XDOM xdom, Map<String, byte[]> artifacts)
+    {
+        // Write the view in a temporary directory first so that the view is never read partially.
+        File temporaryDirectory =
+            new File(this.storeDirectory, key + '.' + UUID.randomUUID() + TEMPORARY_DIRECTORY_EXTENSION);
+        try {
+            WikiPrinter printer = new DefaultWikiPrinter();
+            this.renderer.render(xdom, printer);
+            File contentFile = new File(temporaryDirectory, CONTENT_FILE);
+            FileUtils.forceMkdirParent(contentFile);
+            try (Writer writer = Files.newBufferedWriter(contentFile.toPath(), StandardCharsets.UTF_8)) {
+                writer.write(printer.toString());
+            }
+
+            File artifactsDirectory = new File(temporaryDirectory, ARTIFACTS_DIRECTORY);
+            for (Map.Entry<String, byte[]> artifact : artifacts.entrySet()) {
+                FileUtils.writeByteArrayToFile(new File(artifactsDirectory,
+                    URLEncoder.encode(artifact.getKey(), StandardCharsets.UTF_8.name())), artifact.getValue());
+            }
+
+            File viewDirectory = new File(this.storeDirectory, key);
+            FileUtils.deleteQuietly(viewDirectory);
+            if (!temporaryDirectory.renameTo(viewDirectory)) {
+                this.logger.warn("Failed to store the office view [{}].", viewDirectory);
+            }
+        } catch (Exception e) {
+            this.logger.warn("Failed to store the office view [{}]: {}", key, e.getMessage());
+        } finally {
+            FileUtils.deleteQuietly(temporaryDirectory);
+        }
+
+        evict();
+    }
+
+    /**
+     * Removes the least recently used views until the store fits the configured maximum size.
+     */
+    private synchronized void evict()
+    {
+        File[] viewDirectories = this.storeDirectory.listFiles(File::isDirectory);
+        if (viewDirectories == null) {
+            return;
+        }
+
+        List<File> views = new ArrayList<>(Arrays.asList(viewDirectories));
+        views.sort(Comparator.comparingLong(File::lastModified));
+
+        long size = 0;
+        for (File view : views) {
+            size += FileUtils.sizeOfDirectory(view);
+        }
+
+        long recentDate = System.currentTimeMillis() - RECENT_VIEW_DELAY;
+        for (int i = 0; size > this.maxSize && i < views.size(); i++) {
+            File view = views.get(i);
+            // The views are sorted by date so all the remaining views are recent
+            if (view.lastModified() > recentDate) {
+                break;
+            }
+            // Skip the views being written
+            if (!view.getName().endsWith(TEMPORARY_DIRECTORY_EXTENSION)) {
+                long viewSize = FileUtils.sizeOfDirectory(view);
+                if (FileUtils.deleteQuietly(view)) {
+                    size -= viewSize;
+                }
+            }
+        }
+    }
+}
@@ -26,10 +26,12 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
+import org.apache.commons.io.FileUtils;
 import org.jodconverter.document.DefaultDocumentFormatRegistry;
 import org.junit.Assert;
 import org.junit.Before;
@@ -239,6 +241,10 @@ public void testViewExistingOfficeAttachmentWithCacheMiss() throws Exception
         mocker.getComponentUnderTest().createView(ATTACHMENT_RESOURCE_REFERENCE, DEFAULT_VIEW_PARAMETERS);
 
         verify(attachmentCache).set(eq(CACHE_KEY), notNull(AttachmentOfficeDocumentView.class));
+
+        OfficeDocumentViewStore viewStore = mocker.getInstance(OfficeDocumentViewStore.class);
+        verify(viewStore).store(anyString(), same(xdomOfficeDocument.getContentDocument()),
+            same(xdomOfficeDocument.getArtifacts()));
     }
 
     /**
@@ -318,6 +324,46 @@ public void testViewANewVersionOfAnExistingOfficeAttachment() throws Exception
         verify(attachmentCache).set(eq(CACHE_KEY), notNull(AttachmentOfficeDocumentView.class));
     }
 
+    /**
+     * Tests creating a view for an office attachment which is not in the memory cache but has been stored on disk.
+     * 
+     * @throws Exception if an error occurs.
+     */
+    @Test
+    public void testViewExistingOfficeAttachmentWithStoreHit() throws Exception
+    {
+        when(attachmentCache.get(CACHE_KEY)).thenReturn(null);
+        when(documentAccessBridge.getAttachmentReferences(ATTACHMENT_REFERENCE.getDocumentReference())).thenReturn(
+            Arrays.asList(ATTACHMENT_REFERENCE));
+        when(documentAccessBridge.getAttachmentVersion(ATTACHMENT_REFERENCE)).thenReturn(ATTACHMENT_VERSION);
+
+        when(documentAccessBridge.getAttachmentContent(ATTACHMENT_REFERENCE))
+            .thenReturn(new ByteArrayInputStream(new byte[256]));
+
+        File artifact = new File("target/test-" + new Date().getTime(), "image.png");
+        FileUtils.writeByteArrayToFile(artifact, new byte[8]);
+
+        OfficeDocumentViewStore viewStore = mocker.getInstance(OfficeDocumentViewStore.class);
+        when(viewStore.getXDOM(anyString())).thenReturn(new XDOM(new ArrayList<Block>()));
+        when(viewStore.getArtifacts(anyString())).thenReturn(Collections.singletonMap("image.png", artifact));
+
+        Assert.assertNotNull(mocker.getComponentUnderTest().createView(ATTACHMENT_RESOURCE_REFERENCE,
+            DEFAULT_VIEW_PARAMETERS));
+
+        verify(attachmentCache).set(eq(CACHE_KEY), notNull(AttachmentOfficeDocumentView.class));
+        // The content is only read to compute the key of the stored view, it's not converted.
+        verify(documentAccessBridge, times(1)).getAttachmentContent(ATTACHMENT_REFERENCE);
+        verify(officeDocumentBuilder, never()).build(any(InputStream.class), anyString(), any(DocumentReference.class),
+            anyBoolean());
+        verify(viewStore, never()).store(anyString(), any(XDOM.class), anyMap());
+
+        TemporaryResourceReference temporaryResourceReference = new TemporaryResourceReference("officeviewer",
+            Arrays.asList(String.valueOf(DEFAULT_VIEW_PARAMETERS.hashCode()), "image.png"),
+            ATTACHMENT_REFERENCE.getDocumentReference());
+        TemporaryResourceStore store = mocker.getInstance(TemporaryResourceStore.class);
+        verify(store).createTemporaryFile(eq(temporaryResourceReference), any(InputStream.class));
+    }
+
     @Test
     public void testViewPresentation() throws Exception
     {
@@ -0,0 +1,182 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.office.viewer.internal;
+
+import java.io.File;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.environment.Environment;
+import org.xwiki.rendering.block.Block;
+import org.xwiki.rendering.block.XDOM;
+import org.xwiki.rendering.parser.Parser;
+import org.xwiki.rendering.renderer.BlockRenderer;
+import org.xwiki.rendering.renderer.printer.WikiPrinter;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link OfficeDocumentViewStore}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class OfficeDocumentViewStoreTest
+{
+    private static final String SYNTAX = "xdom+xml/current";
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    @MockComponent
+    private Environment environment;
+
+    @MockComponent
+    @Named(SYNTAX)
+    private BlockRenderer renderer;
+
+    @MockComponent
+    @Named(SYNTAX)
+    private Parser parser;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private OfficeDocumentViewStore store;
+
+    private File permanentDirectory;
+
+    private XDOM xdom = new XDOM(new ArrayList<Block>());
+
+    @BeforeComponent
+    public void beforeComponent()
+    {
+        this.permanentDirectory = new File("target/test-" + new Date().getTime());
+        when(this.environment.getPermanentDirectory()).thenReturn(this.permanentDirectory);
+        when(this.configuration.getProperty("officeviewer.cache.maxSize", 200L)).thenReturn(2L);
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        doAnswer(invocation -> {
+            invocation.<WikiPrinter>getArgument(1).print("serialized view");
+            return null;
+        }).when(this.renderer).render(same(this.xdom), any(WikiPrinter.class));
+
+        when(this.parser.parse(any(Reader.class))).then(invocation -> {
+            assertEquals("serialized view", IOUtils.toString(invocation.<Reader>getArgument(0)));
+            return this.xdom;
+        });
+    }
+
+    private File getViewDirectory(String key)
+    {
+        return new File(this.permanentDirectory, "cache/officeviewer/" + key);
+    }
+
+    private void storeView(String key)
+    {
+        this.store.store(key, this.xdom, Collections.singletonMap("image.png", new byte[(int) MEGABYTE]));
+    }
+
+    private void setAge(File directory, long age)
+    {
+        directory.setLastModified(System.currentTimeMillis() - age);
+    }
+
+    @Test
+    public void storeAndGet()
+    {
+        assertNull(this.store.getXDOM("key"));
+        assertTrue(this.store.getArtifacts("key").isEmpty());
+
+        this.store.store("key", this.xdom, Collections.singletonMap("image 1.png", new byte[] { 1, 2 }));
+
+        assertEquals(this.xdom, this.store.getXDOM("key"));
+        Map<String, File> artifacts = this.store.getArtifacts("key");
+        assertEquals(Collections.singleton("image 1.png"), artifacts.keySet());
+        assertNotNull(artifacts.get("image 1.png"));
+    }
+
+    @Test
+    public void storeReplacesExistingView() throws Exception
+    {
+        this.store.store("key", this.xdom, Collections.singletonMap("image.png", new byte[] { 1 }));
+        this.store.store("key", this.xdom, Collections.singletonMap("other.png", new byte[] { 2 }));
+
+        Map<String, File> artifacts = this.store.getArtifacts("key");
+        assertEquals(Collections.singleton("other.png"), artifacts.keySet());
+        assertArrayEquals(new byte[] { 2 }, FileUtils.readFileToByteArray(artifacts.get("other.png")));
+
+        // No temporary directory is left behind
+        assertEquals(1, getViewDirectory("").list().length);
+    }
+
+    @Test
+    public void evict() throws Exception
+    {
+        // A view being written by another thread
+        File temporaryDirectory = getViewDirectory("written.1234.tmp");
+        FileUtils.writeByteArrayToFile(new File(temporaryDirectory, "content.xml"), new byte[(int) MEGABYTE]);
+        setAge(temporaryDirectory, 3600000L);
+
+        // The maximum size (2MB) is exceeded but the views are too recent to be removed
+        storeView("read");
+        storeView("old");
+        assertNotNull(this.store.getXDOM("old"));
+
+        setAge(getViewDirectory("read"), 2400000L);
+        setAge(getViewDirectory("old"), 1800000L);
+
+        // The view is read, so it's used recently
+        assertNotNull(this.store.getXDOM("read"));
+
+        storeView("new");
+
+        assertNull(this.store.getXDOM("old"));
+        assertNotNull(this.store.getXDOM("read"));
+        assertNotNull(this.store.getXDOM("new"));
+        assertTrue(temporaryDirectory.exists());
+    }
+}
@@ -288,6 +288,9 @@ public class XWiki implements EventListener
     /** Represents no value (ie the default value will be used) in xproperties */
     private static final String NO_VALUE = "---";
 
+    /** The default number of documents saved in a single transaction by {@link #saveDocuments}. */
+    private static final long DEFAULT_SAVE_BATCH_SIZE = 100;
+
     /**
      * List of top level space names that can be used in the fake context document created when accessing a resource
      * with the 'skin' action.
@@ -1813,107 +1816,217 @@ public void saveDocument(XWikiDocument document, String comment, boolean isMinor
             // Switch to document wiki
             context.setWikiId(document.getDocumentReference().getWikiReference().getName());
 
-            // Setting comment & minor edit before saving
-            document.setComment(StringUtils.defaultString(comment));
-            document.setMinorEdit(isMinorEdit);
-
-            // We need to save the original document since saveXWikiDoc() will reset it and we
-            // need that original document for the notification below.
-            XWikiDocument originalDocument = document.getOriginalDocument();
-
-            // Make sure to always have an original document for listeners that need to compare with it.
-            // The only case where we have a null original document is supposedly when the document
-            // instance has been crafted and passed #saveDocument without using #getDocument
-            // (which is not a good practice)
-            // Also for document indicated as new make sure the previous document is accurate.
-            if (originalDocument == null || document.isNew()) {
-                XWikiDocument existing = getDocument(document.getDocumentReferenceWithLocale(), context);
-                // Switch the original document only if we actually find an existing document or if there is no original
-                // document in the first place
-                if (originalDocument == null || !existing.isNew()) {
-                    originalDocument = existing;
-                    document.setOriginalDocument(originalDocument);
+            XWikiDocument originalDocument = prepareSaveDocument(document, comment, isMinorEdit, context);
+            cleanBeforeSaveDocument(document, originalDocument, context);
+
+            // Actually save the document.
+            getStore().saveXWikiDoc(document, context);
+
+            notifyDocumentSaved(document, originalDocument, context);
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    /**
+     * @return the maximum number of documents saved in a single database transaction by
+     *         {@link #saveDocuments(List, String, boolean, XWikiContext)}, as configured with
+     *         {@code xwiki.store.save.batchSize} in xwiki.cfg
+     * @since 11.3RC1
+     */
+    @Unstable
+    public int getSaveBatchSize()
+    {
+        return (int) Math.max(1, ParamAsLong("xwiki.store.save.batchSize", DEFAULT_SAVE_BATCH_SIZE));
+    }
+
+    /**
+     * Save several documents at once. The documents are saved in batches of {@code xwiki.store.save.batchSize}
+     * documents (as configured in xwiki.cfg), each batch being saved in a single database transaction. The events
+     * notifying about the created and updated documents are sent once the batch containing them has been committed.
+     * <p>
+     * If a listener cancels the save of a document, an exception is thrown and no document of its batch is modified,
+     * but the documents of the previous batches stay saved.
+     *
+     * @param documents the documents to save
+     * @param comment the comment to associated to the new version of the saved documents, or {@code null} to keep the
+     *            comment already set on each document
+     * @param isMinorEdit true if the new versions are minor versions
+     * @param context see {@link XWikiContext}
+     * @throws XWikiException when failing to save the documents
+     * @since 11.3RC1
+     */
+    @Unstable
+    public void saveDocuments(List<XWikiDocument> documents, String comment, boolean isMinorEdit,
+        XWikiContext context) throws XWikiException
+    {
+        int batchSize = getSaveBatchSize();
+
+        String currentWiki = context.getWikiId();
+
+        try {
+            // A batch only contains documents of the same wiki
+            List<XWikiDocument> batch = new ArrayList<>(Math.min(batchSize, documents.size()));
+            for (XWikiDocument document : documents) {
+                String documentWiki = document.getDocumentReference().getWikiReference().getName();
+                if (!batch.isEmpty() && (batch.size() >= batchSize || !documentWiki.equals(context.getWikiId()))) {
+                    saveDocumentBatch(batch, comment, isMinorEdit, context);
+                    batch.clear();
                 }
+
+                // Switch to document wiki
+                context.setWikiId(documentWiki);
+                batch.add(document);
             }
 
-            ObservationManager om = getObservationManager();
+            if (!batch.isEmpty()) {
+                saveDocumentBatch(batch, comment, isMinorEdit, context);
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
 
-            // Notify listeners about the document about to be created or updated
+    private void saveDocumentBatch(List<XWikiDocument> documents, String comment, boolean isMinorEdit,
+        XWikiContext context) throws XWikiException
+    {
+        // Make sure no listener cancels the save of a document before modifying anything
+        List<XWikiDocument> originalDocuments = new ArrayList<>(documents.size());
+        for (XWikiDocument document : documents) {
+            originalDocuments.add(
+                prepareSaveDocument(document, comment != null ? comment : document.getComment(), isMinorEdit, context));
+        }
 
-            // Note that for the moment the event being send is a bridge event, as we are still passing around
-            // an XWikiDocument as source and an XWikiContext as data.
+        for (int i = 0; i < documents.size(); ++i) {
+            cleanBeforeSaveDocument(documents.get(i), originalDocuments.get(i), context);
+        }
 
-            if (om != null) {
-                CancelableEvent documentEvent;
-                if (originalDocument.isNew()) {
-                    documentEvent = new DocumentCreatingEvent(document.getDocumentReference());
-                } else {
-                    documentEvent = new DocumentUpdatingEvent(document.getDocumentReference());
-                }
-                om.notify(documentEvent, document, context);
+        // Actually save the documents.
+        getStore().saveXWikiDocs(documents, context);
 
-                // If the action has been canceled by the user then don't perform any save and throw an exception
-                if (documentEvent.isCanceled()) {
-                    throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
-                        XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC,
-                        String.format("An Event Listener has cancelled the document save for [%s]. Reason: [%s]",
-                            document.getDocumentReference(), documentEvent.getReason()));
-                }
+        for (int i = 0; i < documents.size(); ++i) {
+            notifyDocumentSaved(documents.get(i), originalDocuments.get(i), context);
+        }
+    }
+
+    /**
+     * Prepare a document to be saved in the current wiki and notify the listeners that it's about to be saved. Nothing
+     * is modified in the database so that the save can still be canceled.
+     *
+     * @return the original document, to use in the notifications sent once the document is saved
+     */
+    private XWikiDocument prepareSaveDocument(XWikiDocument document, String comment, boolean isMinorEdit,
+        XWikiContext context) throws XWikiException
+    {
+        // Setting comment & minor edit before saving
+        document.setComment(StringUtils.defaultString(comment));
+        document.setMinorEdit(isMinorEdit);
+
+        // We need to save the original document since saveXWikiDoc() will reset it and we
+        // need that original document for the notification below.
+        XWikiDocument originalDocument = document.getOriginalDocument();
+
+        // Make sure to always have an original document for listeners that need to compare with it.
+        // The only case where we have a null original document is supposedly when the document
+        // instance has been crafted and passed #saveDocument without using #getDocument
+        // (which is not a good practice)
+        // Also for document indicated as new make sure the previous document is accurate.
+        if (originalDocument == null || document.isNew()) {
+            XWikiDocument existing = getDocument(document.getDocumentReferenceWithLocale(), context);
+            // Switch the original document only if we actually find an existing document or if there is no original
+            // document in the first place
+            if (originalDocument == null || !existing.isNew()) {
+                originalDocument = existing;
+                document.setOriginalDocument(originalDocument);
             }
+        }
+
+        ObservationManager om = getObservationManager();
+
+        // Notify listeners about the document about to be created or updated
 
-            // Delete existing document if we replace with a new one
-            if (document.isNew() && !originalDocument.isNew()) {
-                // We don't want to notify about this delete since from outside world point of view it's an update an
-                // not a delete+create
-                deleteDocument(originalDocument, true, false, context);
+        // Note that for the moment the event being send is a bridge event, as we are still passing around
+        // an XWikiDocument as source and an XWikiContext as data.
+
+        if (om != null) {
+            CancelableEvent documentEvent;
+            if (originalDocument.isNew()) {
+                documentEvent = new DocumentCreatingEvent(document.getDocumentReference());
             } else {
-                // Put attachments to remove in recycle bin
-                if (hasAttachmentRecycleBin(context)) {
-                    for (XWikiAttachmentToRemove attachment : document.getAttachmentsToRemove()) {
-                        if (attachment.isToRecycleBin()) {
-                            // Make sure the attachment will be deleted with its history
-                            attachment.getAttachment().loadArchive(context);
-                            getAttachmentRecycleBinStore().saveToRecycleBin(attachment.getAttachment(),
-                                context.getUser(), new Date(), context, true);
-                        }
+                documentEvent = new DocumentUpdatingEvent(document.getDocumentReference());
+            }
+            om.notify(documentEvent, document, context);
+
+            // If the action has been canceled by the user then don't perform any save and throw an exception
+            if (documentEvent.isCanceled()) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC,
+                    String.format("An Event Listener has cancelled the document save for [%s]. Reason: [%s]",
+                        document.getDocumentReference(), documentEvent.getReason()));
+            }
+        }
+
+        return originalDocument;
+    }
+
+    /**
+     * Remove what the new version of a document replaces, once it's sure that the document is going to be saved.
+     */
+    private void cleanBeforeSaveDocument(XWikiDocument document, XWikiDocument originalDocument, XWikiContext context)
+        throws XWikiException
+    {
+        // Delete existing document if we replace with a new one
+        if (document.isNew() && !originalDocument.isNew()) {
+            // We don't want to notify about this delete since from outside world point of view it's an update an
+            // not a delete+create
+            deleteDocument(originalDocument, true, false, context);
+        } else {
+            // Put attachments to remove in recycle bin
+            if (hasAttachmentRecycleBin(context)) {
+                for (XWikiAttachmentToRemove attachment : document.getAttachmentsToRemove()) {
+                    if (attachment.isToRecycleBin()) {
+                        // Make sure the attachment will be deleted with its history
+                        attachment.getAttachment().loadArchive(context);
+                        getAttachmentRecycleBinStore().saveToRecycleBin(attachment.getAttachment(),
+                            context.getUser(), new Date(), context, true);
                     }
                 }
             }
+        }
+    }
 
-            // Actually save the document.
-            getStore().saveXWikiDoc(document, context);
+    private void notifyDocumentSaved(XWikiDocument document, XWikiDocument originalDocument, XWikiContext context)
+    {
+        ObservationManager om = getObservationManager();
 
-            // Since the store#saveXWikiDoc resets originalDocument, we need to temporarily put it
-            // back to send notifications.
-            XWikiDocument newOriginal = document.getOriginalDocument();
+        // Since the store#saveXWikiDoc resets originalDocument, we need to temporarily put it
+        // back to send notifications.
+        XWikiDocument newOriginal = document.getOriginalDocument();
 
-            try {
-                document.setOriginalDocument(originalDocument);
+        try {
+            document.setOriginalDocument(originalDocument);
 
-                // Notify listeners about the document having been created or updated
+            // Notify listeners about the document having been created or updated
 
-                // First the legacy notification mechanism
+            // First the legacy notification mechanism
 
-                // Then the new observation module
-                // Note that for the moment the event being send is a bridge event, as we are still passing around
-                // an XWikiDocument as source and an XWikiContext as data.
-                // The old version is made available using doc.getOriginalDocument()
+            // Then the new observation module
+            // Note that for the moment the event being send is a bridge event, as we are still passing around
+            // an XWikiDocument as source and an XWikiContext as data.
+            // The old version is made available using doc.getOriginalDocument()
 
-                if (om != null) {
-                    if (originalDocument.isNew()) {
-                        om.notify(new DocumentCreatedEvent(document.getDocumentReference()), document, context);
-                    } else {
-                        om.notify(new DocumentUpdatedEvent(document.getDocumentReference()), document, context);
-                    }
+            if (om != null) {
+                if (originalDocument.isNew()) {
+                    om.notify(new DocumentCreatedEvent(document.getDocumentReference()), document, context);
+                } else {
+                    om.notify(new DocumentUpdatedEvent(document.getDocumentReference()), document, context);
                 }
-            } catch (Exception ex) {
-                LOGGER.error("Failed to send document save notification for document ["
-                    + getDefaultEntityReferenceSerializer().serialize(document.getDocumentReference()) + "]", ex);
-            } finally {
-                document.setOriginalDocument(newOriginal);
             }
+        } catch (Exception ex) {
+            LOGGER.error("Failed to send document save notification for document ["
+                + getDefaultEntityReferenceSerializer().serialize(document.getDocumentReference()) + "]", ex);
         } finally {
-            context.setWikiId(currentWiki);
+            document.setOriginalDocument(newOriginal);
         }
     }
 
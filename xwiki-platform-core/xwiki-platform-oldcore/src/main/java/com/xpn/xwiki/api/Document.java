@@ -208,14 +208,15 @@ public XWikiDocument getDocument()
     }
 
     /**
-     * Get a clone of the XWikiDocument wrapped by this API.
+     * Get a clone of the XWikiDocument wrapped by this API. Objects and attachments are only cloned when they are
+     * accessed (see {@link XWikiDocument#lazyClone()}).
      *
      * @return A clone of the XWikiDocument wrapped by this API.
      */
     protected XWikiDocument getDoc()
     {
         if (this.initialDoc == this.doc) {
-            this.doc = this.initialDoc.clone();
+            this.doc = this.initialDoc.lazyClone();
         }
 
         return this.doc;
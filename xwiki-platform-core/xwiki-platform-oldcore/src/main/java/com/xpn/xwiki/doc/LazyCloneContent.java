@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.doc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xwiki.model.reference.DocumentReference;
+
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * The objects and attachments that a document obtained with {@link XWikiDocument#lazyClone()} has not cloned yet.
+ * Until then they are shared with the source document. They are cloned the first time the clone accesses them, or all
+ * at once as soon as the source document accesses its own objects or attachments, since they could then be modified.
+ * <p>
+ * The clone and the source document can be used by different threads (the source document usually comes from the
+ * document cache) so the shared content is only accessed while holding the lock of this instance. This guarantees that
+ * the source document does not modify an object while it's being cloned. The clones are attached to the lazy clone only
+ * when it takes them, from its own thread.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+class LazyCloneContent
+{
+    private final Map<DocumentReference, List<BaseObject>> xObjects;
+
+    private List<XWikiAttachment> attachments;
+
+    /**
+     * True when the remaining content has already been cloned.
+     */
+    private boolean detached;
+
+    /**
+     * @param source the document from which the clone was created
+     */
+    LazyCloneContent(XWikiDocument source)
+    {
+        Map<DocumentReference, List<BaseObject>> sourceXObjects = source.getXObjectsToShare();
+        this.xObjects = new HashMap<>(sourceXObjects.size());
+        for (Map.Entry<DocumentReference, List<BaseObject>> entry : sourceXObjects.entrySet()) {
+            // Copy the list so that adding or removing objects in the source document is not visible
+            this.xObjects.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+
+        List<XWikiAttachment> sourceAttachments = source.getAttachmentsToShare();
+        if (!sourceAttachments.isEmpty()) {
+            this.attachments = new ArrayList<>(sourceAttachments);
+        }
+    }
+
+    /**
+     * @return true if the whole content has been given to the clone
+     */
+    synchronized boolean isEmpty()
+    {
+        return this.xObjects.isEmpty() && this.attachments == null;
+    }
+
+    /**
+     * @param classReference the reference of the class
+     * @return the clones of the objects of the passed class (without owner document), or {@code null} if they were
+     *         already given to the lazy clone
+     */
+    synchronized List<BaseObject> takeXObjects(DocumentReference classReference)
+    {
+        List<BaseObject> objects = this.xObjects.remove(classReference);
+
+        return objects != null && !this.detached ? cloneXObjects(objects) : objects;
+    }
+
+    /**
+     * @return the clones of all the remaining objects (without owner document), indexed by class reference
+     */
+    synchronized Map<DocumentReference, List<BaseObject>> takeAllXObjects()
+    {
+        Map<DocumentReference, List<BaseObject>> result = new HashMap<>(this.xObjects.size());
+        for (DocumentReference classReference : new ArrayList<>(this.xObjects.keySet())) {
+            result.put(classReference, takeXObjects(classReference));
+        }
+
+        return result;
+    }
+
+    /**
+     * Forget the remaining objects, when the lazy clone replaces its objects.
+     */
+    synchronized void dropXObjects()
+    {
+        this.xObjects.clear();
+    }
+
+    /**
+     * @return the clones of the attachments, or {@code null} if they were already given to the lazy clone
+     */
+    synchronized List<XWikiAttachment> takeAttachments()
+    {
+        List<XWikiAttachment> result = this.attachments;
+        this.attachments = null;
+
+        return result != null && !this.detached ? cloneAttachments(result) : result;
+    }
+
+    /**
+     * Forget the remaining attachments, when the lazy clone replaces its attachments.
+     */
+    synchronized void dropAttachments()
+    {
+        this.attachments = null;
+    }
+
+    /**
+     * Clone all the remaining content so that the source document is free to modify its objects and attachments.
+     */
+    synchronized void detach()
+    {
+        if (!this.detached) {
+            this.xObjects.replaceAll((classReference, objects) -> cloneXObjects(objects));
+            if (this.attachments != null) {
+                this.attachments = cloneAttachments(this.attachments);
+            }
+
+            this.detached = true;
+        }
+    }
+
+    private List<BaseObject> cloneXObjects(List<BaseObject> objects)
+    {
+        List<BaseObject> clonedObjects = new ArrayList<>(objects.size());
+        for (BaseObject object : objects) {
+            if (object != null) {
+                BaseObject clonedObject = object.clone();
+                clonedObject.setNumber(clonedObjects.size());
+                clonedObjects.add(clonedObject);
+            } else {
+                clonedObjects.add(null);
+            }
+        }
+
+        return clonedObjects;
+    }
+
+    private List<XWikiAttachment> cloneAttachments(List<XWikiAttachment> sourceAttachments)
+    {
+        List<XWikiAttachment> clonedAttachments = new ArrayList<>(sourceAttachments.size());
+        for (XWikiAttachment attachment : sourceAttachments) {
+            clonedAttachments.add(attachment.clone());
+        }
+
+        return clonedAttachments;
+    }
+}
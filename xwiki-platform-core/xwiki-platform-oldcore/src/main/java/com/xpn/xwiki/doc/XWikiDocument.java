@@ -25,6 +25,7 @@
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
@@ -502,6 +503,18 @@ private static ObjectReferenceResolver<EntityReference> getCurrentReferenceObjec
 
     private final XWikiAttachmentList attachmentList = new XWikiAttachmentList(XWikiDocument.this);
 
+    /**
+     * Objects and attachments of the document this document has been cloned from (see {@link #lazyClone()}), which are
+     * only cloned the first time they are accessed.
+     */
+    private volatile LazyCloneContent lazyCloneContent;
+
+    /**
+     * The content shared with the documents lazily cloned from this document (see {@link #lazyClone()}), which has to
+     * be cloned before this document can give access to its own objects and attachments.
+     */
+    private volatile List<WeakReference<LazyCloneContent>> lazyClones;
+
     // Caching
     private boolean fromCache = false;
 
@@ -2451,9 +2464,99 @@ public void setXClass(BaseClass xwikiClass)
      */
     public Map<DocumentReference, List<BaseObject>> getXObjects()
     {
+        detachLazyClones();
+
+        return getXObjectsToShare();
+    }
+
+    /**
+     * Same as {@link #getXObjects()} but without cloning the objects shared with the documents lazily cloned from this
+     * document, since it's only used to share them with a new lazy clone.
+     */
+    Map<DocumentReference, List<BaseObject>> getXObjectsToShare()
+    {
+        LazyCloneContent content = this.lazyCloneContent;
+        if (content != null) {
+            for (Map.Entry<DocumentReference, List<BaseObject>> entry : content.takeAllXObjects().entrySet()) {
+                putLazyClonedXObjects(entry.getKey(), entry.getValue());
+            }
+            releaseLazyCloneContent(content);
+        }
+
         return this.xObjects;
     }
 
+    /**
+     * Clone the shared objects of the passed class, if any.
+     */
+    private void materializeXObjects(DocumentReference classReference)
+    {
+        detachLazyClones();
+
+        LazyCloneContent content = this.lazyCloneContent;
+        if (content != null) {
+            putLazyClonedXObjects(classReference, content.takeXObjects(classReference));
+            releaseLazyCloneContent(content);
+        }
+    }
+
+    private void putLazyClonedXObjects(DocumentReference classReference, List<BaseObject> objects)
+    {
+        if (objects != null) {
+            for (BaseObject object : objects) {
+                if (object != null) {
+                    object.setOwnerDocument(this);
+                }
+            }
+            this.xObjects.put(classReference, objects);
+        }
+    }
+
+    private void releaseLazyCloneContent(LazyCloneContent content)
+    {
+        if (content.isEmpty()) {
+            this.lazyCloneContent = null;
+        }
+    }
+
+    /**
+     * Clone the content shared with the documents lazily cloned from this document, so that this document can give
+     * access to its objects and attachments, which could then be modified.
+     */
+    private void detachLazyClones()
+    {
+        if (this.lazyClones != null) {
+            List<WeakReference<LazyCloneContent>> clones;
+            synchronized (this) {
+                clones = this.lazyClones;
+                this.lazyClones = null;
+            }
+
+            if (clones != null) {
+                for (WeakReference<LazyCloneContent> reference : clones) {
+                    LazyCloneContent content = reference.get();
+                    if (content != null) {
+                        content.detach();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@code getXObjects().get(classReference)} but without cloning the shared objects of other classes.
+     */
+    private List<BaseObject> getXObjectsInternal(DocumentReference classReference)
+    {
+        if (this.lazyCloneContent != null) {
+            materializeXObjects(classReference);
+
+            return this.xObjects.get(classReference);
+        }
+
+        return getXObjects().get(classReference);
+    }
+
     /**
      * @since 2.2M1
      */
@@ -2479,6 +2582,12 @@ public void setXObjects(Map<DocumentReference, List<BaseObject>> objects)
         }
 
         // Replace the current objects with the provided ones.
+        detachLazyClones();
+        LazyCloneContent content = this.lazyCloneContent;
+        if (content != null) {
+            content.dropXObjects();
+            releaseLazyCloneContent(content);
+        }
         this.xObjects = objects;
     }
 
@@ -2543,6 +2652,7 @@ public int createXObject(EntityReference classReference, XWikiContext context) t
         BaseObject object = BaseClass.newCustomClassInstance(absoluteClassReference, context);
         object.setOwnerDocument(this);
         object.setXClassReference(classReference);
+        materializeXObjects(absoluteClassReference);
         List<BaseObject> objects = this.xObjects.get(absoluteClassReference);
         if (objects == null) {
             objects = new ArrayList<BaseObject>();
@@ -2572,7 +2682,7 @@ public int createNewObject(String className, XWikiContext context) throws XWikiE
     public int getXObjectSize(DocumentReference classReference)
     {
         try {
-            return getXObjects().get(classReference).size();
+            return getXObjectsInternal(classReference).size();
         } catch (Exception e) {
             return 0;
         }
@@ -2606,7 +2716,7 @@ public List<BaseObject> getXObjects(DocumentReference classReference)
         List<BaseObject> xobjects = null;
 
         if (classReference != null) {
-            xobjects = getXObjects().get(classReference);
+            xobjects = getXObjectsInternal(classReference);
         }
 
         return xobjects != null ? xobjects : Collections.emptyList();
@@ -2632,7 +2742,9 @@ public List<BaseObject> getXObjects(EntityReference reference)
     @Deprecated
     public Vector<BaseObject> getObjects(String className)
     {
-        List<BaseObject> result = this.xObjects.get(resolveClassReference(className));
+        DocumentReference classReference = resolveClassReference(className);
+        materializeXObjects(classReference);
+        List<BaseObject> result = this.xObjects.get(classReference);
         return result == null ? null : new Vector<BaseObject>(result);
     }
 
@@ -2642,6 +2754,7 @@ public Vector<BaseObject> getObjects(String className)
     public void setXObjects(DocumentReference classReference, List<BaseObject> objects)
     {
         // Remove existing objects
+        materializeXObjects(classReference);
         List<BaseObject> existingbjects = this.xObjects.get(classReference);
         if (existingbjects != null) {
             existingbjects.clear();
@@ -2691,7 +2804,7 @@ public BaseObject getXObject(EntityReference reference)
     public BaseObject getXObject(DocumentReference classReference)
     {
         BaseObject result = null;
-        List<BaseObject> objects = getXObjects().get(classReference);
+        List<BaseObject> objects = getXObjectsInternal(classReference);
         if (objects != null) {
             for (BaseObject object : objects) {
                 if (object != null) {
@@ -2757,7 +2870,7 @@ public BaseObject getObject(String className)
      */
     public BaseObject getXObject(DocumentReference classReference, int nb)
     {
-        List<BaseObject> objects = getXObjects().get(classReference);
+        List<BaseObject> objects = getXObjectsInternal(classReference);
 
         if (objects != null && objects.size() > nb) {
             return objects.get(nb);
@@ -2863,7 +2976,7 @@ public BaseObject getXObject(DocumentReference classReference, String key, Strin
                 }
             }
 
-            List<BaseObject> objects = getXObjects().get(classReference);
+            List<BaseObject> objects = getXObjectsInternal(classReference);
             if ((objects == null) || (objects.size() == 0)) {
                 return null;
             }
@@ -2907,6 +3020,7 @@ public BaseObject getObject(String className, String key, String value, boolean
     @Deprecated
     public void addXObject(DocumentReference classReference, BaseObject object)
     {
+        materializeXObjects(classReference);
         List<BaseObject> vobj = this.xObjects.get(classReference);
         if (vobj == null) {
             setXObject(classReference, 0, object);
@@ -2927,6 +3041,7 @@ public void addXObject(BaseObject object)
     {
         object.setOwnerDocument(this);
 
+        materializeXObjects(object.getXClassReference());
         List<BaseObject> vobj = this.xObjects.get(object.getXClassReference());
         if (vobj == null) {
             setXObject(0, object);
@@ -2956,6 +3071,7 @@ public void setXObject(DocumentReference classReference, int nb, BaseObject obje
             object.setNumber(nb);
         }
 
+        materializeXObjects(classReference);
         List<BaseObject> objects = this.xObjects.get(classReference);
         if (objects == null) {
             objects = new ArrayList<BaseObject>();
@@ -2982,6 +3098,7 @@ public void setXObject(int nb, BaseObject object)
         object.setOwnerDocument(this);
         object.setNumber(nb);
 
+        materializeXObjects(object.getXClassReference());
         List<BaseObject> objects = this.xObjects.get(object.getXClassReference());
         if (objects == null) {
             objects = new ArrayList<BaseObject>();
@@ -3101,6 +3218,12 @@ public void duplicateXObjects(XWikiDocument templatedoc)
     private void cloneXObjects(XWikiDocument templatedoc, boolean keepsIdentity)
     {
         // clean map
+        detachLazyClones();
+        LazyCloneContent content = this.lazyCloneContent;
+        if (content != null) {
+            content.dropXObjects();
+            releaseLazyCloneContent(content);
+        }
         this.xObjects.clear();
 
         // fill map
@@ -4128,7 +4251,40 @@ private void clone(XWikiDocument document)
     @Override
     public XWikiDocument clone()
     {
-        return cloneInternal(getDocumentReference(), true);
+        return cloneInternal(getDocumentReference(), true, false);
+    }
+
+    /**
+     * Same as {@link #clone()} but objects and attachments are only cloned when they are accessed for the first time
+     * (objects are cloned by class). Until then they are shared with this document, and they are all cloned as soon as
+     * this document gives access to its own objects or attachments (which could then be modified). Objects and
+     * attachments obtained from this document before calling this method should not be modified anymore (like for
+     * example the ones of documents coming from the document cache).
+     *
+     * @return a clone of this document
+     * @since 11.3RC1
+     */
+    public XWikiDocument lazyClone()
+    {
+        XWikiDocument doc = cloneInternal(getDocumentReference(), true, true);
+
+        if (doc != null && doc.lazyCloneContent != null) {
+            synchronized (this) {
+                List<WeakReference<LazyCloneContent>> clones = new ArrayList<>();
+                if (this.lazyClones != null) {
+                    // Forget the clones which don't exist anymore
+                    for (WeakReference<LazyCloneContent> reference : this.lazyClones) {
+                        if (reference.get() != null) {
+                            clones.add(reference);
+                        }
+                    }
+                }
+                clones.add(new WeakReference<>(doc.lazyCloneContent));
+                this.lazyClones = clones;
+            }
+        }
+
+        return doc;
     }
 
     /**
@@ -4138,10 +4294,10 @@ public XWikiDocument clone()
      */
     public XWikiDocument duplicate(DocumentReference newDocumentReference)
     {
-        return cloneInternal(newDocumentReference, false);
+        return cloneInternal(newDocumentReference, false, false);
     }
 
-    private XWikiDocument cloneInternal(DocumentReference newDocumentReference, boolean keepsIdentity)
+    private XWikiDocument cloneInternal(DocumentReference newDocumentReference, boolean keepsIdentity, boolean lazy)
     {
         XWikiDocument doc = null;
 
@@ -4186,8 +4342,12 @@ private XWikiDocument cloneInternal(DocumentReference newDocumentReference, bool
 
             if (keepsIdentity) {
                 doc.setXClassXML(getXClassXML());
-                doc.cloneXObjects(this);
-                doc.cloneAttachments(this);
+                if (lazy) {
+                    doc.shareContent(this);
+                } else {
+                    doc.cloneXObjects(this);
+                    doc.cloneAttachments(this);
+                }
             } else {
                 doc.getXClass().setCustomMapping(null);
                 doc.duplicateXObjects(this);
@@ -4207,6 +4367,22 @@ private XWikiDocument cloneInternal(DocumentReference newDocumentReference, bool
         return doc;
     }
 
+    /**
+     * Reference the objects and attachments of another document, they will be cloned when accessed.
+     *
+     * @param sourceDocument the document to share the objects and attachments with
+     */
+    private void shareContent(XWikiDocument sourceDocument)
+    {
+        this.xObjects.clear();
+        this.attachmentList.clear();
+
+        LazyCloneContent content = new LazyCloneContent(sourceDocument);
+        if (!content.isEmpty()) {
+            this.lazyCloneContent = content;
+        }
+    }
+
     /**
      * Clone attachments from another document. This implementation expects that this document is the same as the other
      * document and thus attachments will be saved in the database in the same place as the ones which they are cloning.
@@ -4903,6 +5079,12 @@ public void setAttachmentList(List<XWikiAttachment> list)
         // For backwards compatibility reasons (and in general), we need to allow callers to do something like
         // setAttachmentList(getAttachmentList())
         if (this.attachmentList != list) {
+            detachLazyClones();
+            LazyCloneContent content = this.lazyCloneContent;
+            if (content != null) {
+                content.dropAttachments();
+                releaseLazyCloneContent(content);
+            }
             this.attachmentList.clear();
             this.attachmentList.addAll(list);
         }
@@ -4910,9 +5092,49 @@ public void setAttachmentList(List<XWikiAttachment> list)
 
     public List<XWikiAttachment> getAttachmentList()
     {
+        materializeAttachments();
+
+        return this.attachmentList;
+    }
+
+    /**
+     * Same as {@link #getAttachmentList()} but without cloning the attachments shared with the documents lazily cloned
+     * from this document, since it's only used to share them with a new lazy clone.
+     */
+    List<XWikiAttachment> getAttachmentsToShare()
+    {
+        takeLazyClonedAttachments();
+
         return this.attachmentList;
     }
 
+    /**
+     * Clone the shared attachments, if any.
+     */
+    private void materializeAttachments()
+    {
+        detachLazyClones();
+
+        takeLazyClonedAttachments();
+    }
+
+    private void takeLazyClonedAttachments()
+    {
+        LazyCloneContent content = this.lazyCloneContent;
+        if (content != null) {
+            List<XWikiAttachment> attachments = content.takeAttachments();
+            if (attachments != null) {
+                // Inserting attachments mark the document as dirty but the document did not really change
+                boolean metaDataDirty = isMetaDataDirty();
+                for (XWikiAttachment attachment : attachments) {
+                    this.attachmentList.set(attachment);
+                }
+                setMetaDataDirty(metaDataDirty);
+            }
+            releaseLazyCloneContent(content);
+        }
+    }
+
     /**
      * @deprecated should not be used, save the document instead
      */
@@ -4929,7 +5151,7 @@ public void saveAllAttachments(XWikiContext context) throws XWikiException
     public void saveAllAttachments(boolean updateParent, boolean transaction, XWikiContext context)
         throws XWikiException
     {
-        for (XWikiAttachment attachment : this.attachmentList) {
+        for (XWikiAttachment attachment : getAttachmentList()) {
             saveAttachmentContent(attachment, false, transaction, context);
         }
 
@@ -5044,6 +5266,8 @@ public XWikiAttachment removeAttachment(XWikiAttachment attachment)
      */
     public XWikiAttachment removeAttachment(XWikiAttachment attachmentToRemove, boolean toRecycleBin)
     {
+        materializeAttachments();
+
         if (this.attachmentList.remove(attachmentToRemove)) {
             this.attachmentsToRemove.add(new XWikiAttachmentToRemove(attachmentToRemove, toRecycleBin));
             setMetaDataDirty(true);
@@ -5242,7 +5466,7 @@ private Set<EntityReference> getUniqueLinkedEntityReferences(XWikiContext contex
                 references = new LinkedHashSet<>();
 
                 // Document content
-                XDOM dom = getXDOM();
+                XDOM dom = getReadOnlyXDOM();
                 getUniqueLinkedEntityReferences(dom, entityType, references);
 
                 // XObjects
@@ -5489,6 +5713,7 @@ public List<String> getChildren(int nb, int start, XWikiContext context) throws
      */
     public void renameProperties(DocumentReference classReference, Map<String, String> fieldsToRename)
     {
+        materializeXObjects(classReference);
         List<BaseObject> objects = this.xObjects.get(classReference);
         if (objects == null) {
             return;
@@ -5617,7 +5842,7 @@ private List<String> getIncludedPagesInternal(XWikiContext context)
             return getIncludedPagesForXWiki10Syntax(getContent(), context);
         } else {
             // Find all include macros listed on the page
-            XDOM dom = getXDOM();
+            XDOM dom = getReadOnlyXDOM();
 
             List<String> result = new ArrayList<String>();
             List<MacroBlock> macroBlocks =
@@ -5712,6 +5937,8 @@ public String displayHidden(PropertyClass pclass, String prefix, BaseCollection
      */
     public XWikiAttachment getAttachment(String filename)
     {
+        materializeAttachments();
+
         XWikiAttachment output = this.attachmentList.getByFilename(filename);
         if (output != null) {
             return output;
@@ -5748,6 +5975,8 @@ public void addAttachment(XWikiAttachment attachment)
      */
     public XWikiAttachment setAttachment(XWikiAttachment attachment)
     {
+        materializeAttachments();
+
         return this.attachmentList.set(attachment);
     }
 
@@ -7119,7 +7348,7 @@ private String getDefaultEditModeInternal(XWikiContext context) throws XWikiExce
             // Find all include macros and extract the document names
             // TODO: Is there a good way not to hardcode the macro name? The macro itself shouldn't know
             // its own name since it's a deployment time concern.
-            for (Block macroBlock : getXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
+            for (Block macroBlock : getReadOnlyXDOM().getBlocks(new MacroBlockMatcher("include"), Axes.CHILD)) {
                 // Find the document reference to include by checking the macro's "reference" parameter.
                 // For backward-compatibility we also check for a "document" parameter since this is the parameter name
                 // that was used prior to XWiki 3.4M1 when the "reference" one was introduced and thus when the
@@ -7725,6 +7954,7 @@ public boolean isProgrammaticContent()
      */
     public boolean removeXObject(BaseObject object)
     {
+        materializeXObjects(object.getXClassReference());
         List<BaseObject> objects = this.xObjects.get(object.getXClassReference());
         // No objects at all, nothing to remove
         if (objects == null) {
@@ -7782,6 +8012,7 @@ public boolean removeObject(BaseObject object)
      */
     public boolean removeXObjects(DocumentReference classReference)
     {
+        materializeXObjects(classReference);
         List<BaseObject> objects = this.xObjects.get(classReference);
         // No objects at all, nothing to remove
         if (objects == null) {
@@ -8578,16 +8809,38 @@ public void convertSyntax(Syntax targetSyntax, XWikiContext context) throws XWik
     @Override
     public XDOM getXDOM()
     {
-        if (this.xdomCache == null) {
+        return getXDOMInternal(true);
+    }
+
+    /**
+     * NOTE: This method returns the cached XDOM itself so it's a lot cheaper than {@link #getXDOM()} but the result
+     * MUST NOT be modified in any way.
+     *
+     * @return the XDOM corresponding to the document's string content
+     * @since 11.3RC1
+     */
+    @Override
+    @Unstable
+    public XDOM getReadOnlyXDOM()
+    {
+        return getXDOMInternal(false);
+    }
+
+    private XDOM getXDOMInternal(boolean clone)
+    {
+        XDOM xdom = this.xdomCache;
+
+        if (xdom == null) {
             try {
-                this.xdomCache = parseContent(getContent());
+                xdom = parseContent(getContent());
+                this.xdomCache = xdom;
             } catch (XWikiException e) {
                 ErrorBlockGenerator errorBlockGenerator = Utils.getComponent(ErrorBlockGenerator.class);
                 return new XDOM(errorBlockGenerator.generateErrorBlocks("Failed to render content", e, false));
             }
         }
 
-        return this.xdomCache.clone();
+        return clone ? xdom.clone() : xdom;
     }
 
     /**
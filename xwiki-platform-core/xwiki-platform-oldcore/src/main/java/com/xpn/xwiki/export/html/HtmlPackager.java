@@ -23,10 +23,17 @@
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -38,6 +45,7 @@
 import org.apache.commons.io.filefilter.SuffixFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xwiki.component.util.DefaultParameterizedType;
@@ -46,6 +54,7 @@
 import org.xwiki.context.ExecutionContextException;
 import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.environment.Environment;
+import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
@@ -116,6 +125,11 @@
      */
     private Set<DocumentReference> pageReferences = new HashSet<>();
 
+    /**
+     * The maximum number of pages rendered at the same time.
+     */
+    private int threads = 1;
+
     /**
      * Used to get the temporary directory.
      */
@@ -160,6 +174,28 @@ public String getDescription()
         return this.description;
     }
 
+    /**
+     * Modify the maximum number of pages rendered at the same time. The ZIP entries are always written one at a time,
+     * in the order in which the pages are rendered.
+     *
+     * @param threads the maximum number of pages rendered in parallel, 1 (the default) to render the pages in the
+     *            calling thread
+     * @since 11.3RC1
+     */
+    public void setThreads(int threads)
+    {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @return the maximum number of pages rendered at the same time
+     * @since 11.3RC1
+     */
+    public int getThreads()
+    {
+        return this.threads;
+    }
+
     /**
      * Add a page to export.
      *
@@ -218,23 +254,39 @@ private DocumentReference resolvePage(String pageName)
     }
 
     /**
-     * Add rendered document to ZIP stream.
+     * A rendered page waiting to be written in the ZIP stream.
+     */
+    private static final class RenderedDocument
+    {
+        private final String zipname;
+
+        private final byte[] content;
+
+        RenderedDocument(String zipname, byte[] content)
+        {
+            this.zipname = zipname;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Render a document.
      *
      * @param pageReference the reference of the page to render.
-     * @param zos the ZIP output stream.
      * @param exportContext the context object for the export
      * @param context the clean XWiki context for rendering
+     * @return the rendered document or null if the document does not exist
      * @throws XWikiException error when rendering document.
      * @throws IOException error when rendering document.
      */
-    private void renderDocument(DocumentReference pageReference, ZipOutputStream zos,
-        FilesystemExportContext exportContext, XWikiContext context) throws XWikiException, IOException
+    private RenderedDocument renderDocument(DocumentReference pageReference, FilesystemExportContext exportContext,
+        XWikiContext context) throws XWikiException, IOException
     {
         XWikiDocument doc = context.getWiki().getDocument(pageReference, context);
 
         if (doc.isNew()) {
             // Skip non-existing documents.
-            return;
+            return null;
         }
 
         // Compute the location of the page inside the zip. We put pages inside directories for scalability as
@@ -246,9 +298,6 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
         }
         zipname += ".html";
 
-        ZipEntry zipentry = new ZipEntry(zipname);
-        zos.putNextEntry(zipentry);
-
         try {
             context.setWikiId(doc.getDocumentReference().getWikiReference().getName());
             context.setDoc(doc);
@@ -263,8 +312,7 @@ private void renderDocument(DocumentReference pageReference, ZipOutputStream zos
 
             String content = evaluateDocumentContent(context);
 
-            zos.write(content.getBytes(context.getWiki().getEncoding()));
-            zos.closeEntry();
+            return new RenderedDocument(zipname, content.getBytes(context.getWiki().getEncoding()));
         } catch (Exception e) {
             throw new IOException(String.format("Failed to render document [%s] for HTML export", pageReference), e);
         }
@@ -307,28 +355,113 @@ private String evaluateDocumentContent(XWikiContext context) throws IOException
      */
     private void renderDocuments(ZipOutputStream zos, ExportURLFactory urlf, XWikiContext context)
         throws XWikiException, IOException
+    {
+        JobProgressManager progress = Utils.getComponent(JobProgressManager.class);
+
+        progress.pushLevelProgress(this.pageReferences.size(), this);
+
+        try {
+            if (this.threads > 1) {
+                renderDocumentsInParallel(zos, urlf, context, progress);
+            } else {
+                ExecutionContext parentContext = Utils.getComponent(Execution.class).getContext();
+                for (DocumentReference pageReference : this.pageReferences) {
+                    progress.startStep(this);
+
+                    writeDocument(renderDocument(pageReference, urlf, parentContext, context), zos);
+
+                    progress.endStep(this);
+                }
+            }
+        } finally {
+            progress.popLevelProgress(this);
+        }
+    }
+
+    /**
+     * Render the documents in a bounded pool of threads and write them in the ZIP stream from the calling thread. To
+     * keep the memory usage under control a page is submitted for rendering only when there is less than twice the
+     * number of threads rendered pages waiting to be written.
+     */
+    private void renderDocumentsInParallel(ZipOutputStream zos, ExportURLFactory urlf, XWikiContext context,
+        JobProgressManager progress) throws XWikiException, IOException
+    {
+        ExecutionContext parentContext = Utils.getComponent(Execution.class).getContext();
+
+        ExecutorService executor = Executors.newFixedThreadPool(this.threads,
+            new BasicThreadFactory.Builder().namingPattern("XWiki HTML export thread %d").daemon(true).build());
+
+        try {
+            Deque<Future<RenderedDocument>> pending = new ArrayDeque<>();
+            for (DocumentReference pageReference : this.pageReferences) {
+                if (pending.size() >= this.threads * 2) {
+                    writeRenderedDocument(pending.poll(), zos, progress);
+                }
+
+                pending.add(executor.submit(() -> renderDocument(pageReference, urlf, parentContext, context)));
+            }
+
+            while (!pending.isEmpty()) {
+                writeRenderedDocument(pending.poll(), zos, progress);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void writeRenderedDocument(Future<RenderedDocument> future, ZipOutputStream zos,
+        JobProgressManager progress) throws XWikiException, IOException
+    {
+        progress.startStep(this);
+
+        try {
+            writeDocument(future.get(), zos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IOException("Interrupted while waiting for a page to be rendered for HTML export", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof XWikiException) {
+                throw (XWikiException) e.getCause();
+            }
+
+            throw new IOException("Failed to render page for HTML export", e.getCause());
+        }
+
+        progress.endStep(this);
+    }
+
+    private void writeDocument(RenderedDocument document, ZipOutputStream zos) throws IOException
+    {
+        if (document != null) {
+            zos.putNextEntry(new ZipEntry(document.zipname));
+            zos.write(document.content);
+            zos.closeEntry();
+        }
+    }
+
+    private RenderedDocument renderDocument(DocumentReference pageReference, ExportURLFactory urlf,
+        ExecutionContext parentContext, XWikiContext context) throws XWikiException, IOException
     {
         ExecutionContextManager ecm = Utils.getComponent(ExecutionContextManager.class);
         Execution execution = Utils.getComponent(Execution.class);
 
-        for (DocumentReference pageReference : this.pageReferences) {
-            try {
-                // Isolate and initialize Contexts
-                XWikiContext renderContext = initializeContexts(ecm, execution, urlf, context);
-
-                renderDocument(pageReference, zos, urlf.getFilesystemExportContext(), renderContext);
-            } catch (ExecutionContextException e) {
-                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
-                    "Failed to initialize Execution Context", e);
-            } finally {
-                // Clean up context
-                execution.popContext();
-            }
+        try {
+            // Isolate and initialize Contexts
+            XWikiContext renderContext = initializeContexts(ecm, execution, urlf, parentContext, context);
+
+            return renderDocument(pageReference, urlf.getFilesystemExportContext(), renderContext);
+        } catch (ExecutionContextException e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_INIT_FAILED,
+                "Failed to initialize Execution Context", e);
+        } finally {
+            // Clean up context
+            execution.popContext();
         }
     }
 
     private XWikiContext initializeContexts(ExecutionContextManager ecm, Execution execution, ExportURLFactory urlf,
-        XWikiContext originalContext) throws ExecutionContextException
+        ExecutionContext parentContext, XWikiContext originalContext) throws ExecutionContextException
     {
         XWikiContext renderContext = originalContext.clone();
 
@@ -338,7 +471,8 @@ private XWikiContext initializeContexts(ExecutionContextManager ecm, Execution e
         // Set the URL Factories/Serializer to use
         renderContext.setURLFactory(urlf);
 
-        ExecutionContext executionContext = ecm.clone(execution.getContext());
+        // Note: the parent Execution Context is passed explicitly since the rendering might happen in a worker thread
+        ExecutionContext executionContext = ecm.clone(parentContext);
 
         // Bridge with old XWiki Context, required for legacy code.
         executionContext.setProperty("xwikicontext", renderContext);
@@ -375,6 +509,20 @@ public void export(XWikiContext context) throws IOException, XWikiException
             "attachment; filename=" + Util.encodeURI(this.name, context) + ".zip");
         context.setFinished(true);
 
+        export(context.getResponse().getOutputStream(), context);
+    }
+
+    /**
+     * Apply export and write the ZIP package in the passed stream.
+     *
+     * @param out the stream where to write the ZIP package
+     * @param context the XWiki context used to render pages.
+     * @throws IOException error when creating the package.
+     * @throws XWikiException error when render the pages.
+     * @since 11.3RC1
+     */
+    public void export(OutputStream out, XWikiContext context) throws IOException, XWikiException
+    {
         File dir = this.environment.getTemporaryDirectory();
         File tempdir = new File(dir, RandomStringUtils.randomAlphanumeric(8));
         tempdir.mkdirs();
@@ -394,7 +542,7 @@ public void export(XWikiContext context) throws IOException, XWikiException
             FilesystemExportContext exportContext = exportContextProvider.get();
             urlf.init(this.pageReferences, tempdir, exportContext, context);
 
-            ZipOutputStream zos = new ZipOutputStream(context.getResponse().getOutputStream());
+            ZipOutputStream zos = new ZipOutputStream(out);
 
             // Render pages to export
             renderDocuments(zos, urlf, context);
@@ -0,0 +1,279 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.component.manager.ComponentManager;
+import org.xwiki.environment.Environment;
+import org.xwiki.filter.input.InputFilterStream;
+import org.xwiki.filter.input.InputFilterStreamFactory;
+import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
+import org.xwiki.filter.output.BeanOutputFilterStreamFactory;
+import org.xwiki.filter.output.DefaultOutputStreamOutputTarget;
+import org.xwiki.filter.output.OutputFilterStream;
+import org.xwiki.filter.output.OutputFilterStreamFactory;
+import org.xwiki.filter.type.FilterStreamType;
+import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSet;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.export.html.HtmlPackager;
+
+/**
+ * Export pages as XAR or HTML package in the background. The package is first written in a temporary file which is
+ * moved to its final location (see {@link #getExportFile(Environment, String, String)}) only once complete, so that
+ * it can be downloaded (possibly in several ranges) as soon as it exists.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(ExportJob.JOBTYPE)
+public class ExportJob extends AbstractJob<ExportRequest, DefaultJobStatus<ExportRequest>>
+{
+    /**
+     * The id of the job.
+     */
+    public static final String JOBTYPE = "export";
+
+    /**
+     * The format of XAR exports.
+     */
+    public static final String FORMAT_XAR = "xar";
+
+    /**
+     * The format of HTML exports.
+     */
+    public static final String FORMAT_HTML = "html";
+
+    private static final String EXPORT_DIRECTORY = "export";
+
+    private static final Pattern EXPORT_ID_PATTERN = Pattern.compile("[a-zA-Z0-9\\-]+");
+
+    /**
+     * Exports which are older than that are removed when a new export is started.
+     */
+    private static final long EXPORT_FILE_TTL = 24L * 60 * 60 * 1000;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    @Named("context")
+    private Provider<ComponentManager> componentManagerProvider;
+
+    @Inject
+    private Environment environment;
+
+    /**
+     * @param environment the environment used to find the temporary directory
+     * @param exportId the unique identifier of the export
+     * @param format the format of the export
+     * @return the file containing the result of the export (which exists only once the export is finished) or null if
+     *         the passed identifier is not a valid export identifier
+     */
+    public static File getExportFile(Environment environment, String exportId, String format)
+    {
+        if (exportId == null || !EXPORT_ID_PATTERN.matcher(exportId).matches()) {
+            return null;
+        }
+
+        return new File(new File(environment.getTemporaryDirectory(), EXPORT_DIRECTORY),
+            exportId + '.' + getExtension(format));
+    }
+
+    /**
+     * @param format the format of the export
+     * @return the extension of the exported file
+     */
+    public static String getExtension(String format)
+    {
+        return FORMAT_HTML.equals(format) ? "zip" : FORMAT_XAR;
+    }
+
+    @Override
+    protected ExportRequest castRequest(Request request)
+    {
+        ExportRequest exportRequest;
+        if (request instanceof ExportRequest) {
+            exportRequest = (ExportRequest) request;
+        } else {
+            exportRequest = new ExportRequest(request);
+        }
+
+        return exportRequest;
+    }
+
+    @Override
+    public String getType()
+    {
+        return JOBTYPE;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        File exportFile = getExportFile(this.environment, this.request.getExportId(), this.request.getFormat());
+        if (exportFile == null) {
+            throw new IOException(String.format("Invalid export identifier [%s]", this.request.getExportId()));
+        }
+
+        File exportDirectory = exportFile.getParentFile();
+        FileUtils.forceMkdir(exportDirectory);
+        cleanExpiredExports(exportDirectory);
+
+        // Write in a temporary file first to make sure an incomplete package is never downloaded
+        File tmpFile = new File(exportDirectory, exportFile.getName() + ".tmp");
+
+        try {
+            try (OutputStream out = FileUtils.openOutputStream(tmpFile)) {
+                if (FORMAT_HTML.equals(this.request.getFormat())) {
+                    exportHTML(out);
+                } else {
+                    exportXAR(out);
+                }
+            }
+
+            Files.move(tmpFile.toPath(), exportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
+        }
+    }
+
+    private void cleanExpiredExports(File exportDirectory)
+    {
+        File[] files = exportDirectory.listFiles();
+        if (files != null) {
+            long expiration = System.currentTimeMillis() - EXPORT_FILE_TTL;
+            for (File file : files) {
+                if (file.lastModified() < expiration && !file.delete()) {
+                    this.logger.warn("Failed to delete expired export file [{}]", file);
+                }
+            }
+        }
+    }
+
+    private void exportHTML(OutputStream out) throws Exception
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        // The URL factories need the URL of the request which triggered the export
+        if (xcontext.getURL() == null && xcontext.getRequest() != null) {
+            xcontext.setURL(XWiki.getRequestURL(xcontext.getRequest()));
+        }
+
+        HtmlPackager packager = new HtmlPackager();
+
+        if (StringUtils.isNotBlank(this.request.getName())) {
+            packager.setName(this.request.getName());
+        }
+
+        if (this.request.getDescription() != null) {
+            packager.setDescription(this.request.getDescription());
+        }
+
+        packager.addPageReferences(this.request.getPages());
+        packager.setThreads(this.request.getThreads());
+
+        packager.export(out, xcontext);
+    }
+
+    private void exportXAR(OutputStream out) throws Exception
+    {
+        // Create input wiki stream
+        DocumentInstanceInputProperties inputProperties = new DocumentInstanceInputProperties();
+
+        // We don't want to log the details
+        inputProperties.setVerbose(false);
+
+        inputProperties.setWithJRCSRevisions(this.request.isHistory());
+        inputProperties.setWithRevisions(false);
+
+        EntityReferenceSet entities = new EntityReferenceSet();
+
+        if (this.request.getWiki() != null) {
+            entities.includes(this.request.getWiki());
+        } else {
+            for (DocumentReference page : this.request.getPages()) {
+                entities.includes(page);
+            }
+        }
+
+        inputProperties.setEntities(entities);
+
+        ComponentManager componentManager = this.componentManagerProvider.get();
+
+        InputFilterStreamFactory inputFilterStreamFactory = componentManager
+            .getInstance(InputFilterStreamFactory.class, FilterStreamType.XWIKI_INSTANCE.serialize());
+
+        // Create output wiki stream
+        XAROutputProperties xarProperties = new XAROutputProperties();
+
+        // We don't want to log the details
+        xarProperties.setVerbose(false);
+
+        xarProperties.setTarget(new DefaultOutputStreamOutputTarget(out));
+        xarProperties.setPackageName(this.request.getName());
+        if (this.request.getDescription() != null) {
+            xarProperties.setPackageDescription(this.request.getDescription());
+        }
+        if (this.request.getLicense() != null) {
+            xarProperties.setPackageLicense(this.request.getLicense());
+        }
+        if (this.request.getAuthor() != null) {
+            xarProperties.setPackageAuthor(this.request.getAuthor());
+        }
+        if (this.request.getVersion() != null) {
+            xarProperties.setPackageVersion(this.request.getVersion());
+        }
+        xarProperties.setPackageBackupPack(this.request.isBackup());
+        xarProperties.setPreserveVersion(this.request.isBackup() || this.request.isHistory());
+
+        BeanOutputFilterStreamFactory<XAROutputProperties> xarFilterStreamFactory = componentManager
+            .getInstance((Type) OutputFilterStreamFactory.class, FilterStreamType.XWIKI_XAR_CURRENT.serialize());
+
+        try (InputFilterStream inputFilterStream = inputFilterStreamFactory.createInputFilterStream(inputProperties);
+            OutputFilterStream outputFilterStream = xarFilterStreamFactory.createOutputFilterStream(xarProperties)) {
+            inputFilterStream.read(outputFilterStream.getFilter());
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.export;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.xwiki.job.AbstractRequest;
+import org.xwiki.job.Request;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.WikiReference;
+
+/**
+ * Request for an {@link ExportJob}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class ExportRequest extends AbstractRequest
+{
+    /**
+     * The prefix of the identifier of all the export jobs.
+     */
+    public static final String JOBID_PREFIX = "export";
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_FORMAT = "format";
+
+    private static final String PROPERTY_NAME = "name";
+
+    private static final String PROPERTY_DESCRIPTION = "description";
+
+    private static final String PROPERTY_PAGES = "pages";
+
+    private static final String PROPERTY_WIKI = "wiki";
+
+    private static final String PROPERTY_HISTORY = "history";
+
+    private static final String PROPERTY_BACKUP = "backup";
+
+    private static final String PROPERTY_AUTHOR = "author";
+
+    private static final String PROPERTY_LICENSE = "license";
+
+    private static final String PROPERTY_VERSION = "version";
+
+    private static final String PROPERTY_THREADS = "threads";
+
+    /**
+     * @param exportId the unique identifier of the export
+     */
+    public ExportRequest(String exportId)
+    {
+        setId(getJobId(exportId));
+        setInteractive(false);
+    }
+
+    /**
+     * @param request the request to copy
+     */
+    public ExportRequest(Request request)
+    {
+        super(request);
+    }
+
+    /**
+     * @param exportId the unique identifier of the export
+     * @return the identifier of the job in charge of the export
+     */
+    public static List<String> getJobId(String exportId)
+    {
+        return Arrays.asList(JOBID_PREFIX, exportId);
+    }
+
+    /**
+     * @return the unique identifier of the export
+     */
+    public String getExportId()
+    {
+        return getId().get(getId().size() - 1);
+    }
+
+    /**
+     * @return the format of the export ("xar" or "html")
+     */
+    public String getFormat()
+    {
+        return getProperty(PROPERTY_FORMAT);
+    }
+
+    /**
+     * @param format the format of the export ("xar" or "html")
+     */
+    public void setFormat(String format)
+    {
+        setProperty(PROPERTY_FORMAT, format);
+    }
+
+    /**
+     * @return the name of the exported package
+     */
+    public String getName()
+    {
+        return getProperty(PROPERTY_NAME);
+    }
+
+    /**
+     * @param name the name of the exported package
+     */
+    public void setName(String name)
+    {
+        setProperty(PROPERTY_NAME, name);
+    }
+
+    /**
+     * @return the description of the exported package
+     */
+    public String getDescription()
+    {
+        return getProperty(PROPERTY_DESCRIPTION);
+    }
+
+    /**
+     * @param description the description of the exported package
+     */
+    public void setDescription(String description)
+    {
+        setProperty(PROPERTY_DESCRIPTION, description);
+    }
+
+    /**
+     * @return the pages to export, ignored when {@link #getWiki()} is set
+     */
+    public Collection<DocumentReference> getPages()
+    {
+        return getProperty(PROPERTY_PAGES, Collections.<DocumentReference>emptyList());
+    }
+
+    /**
+     * @param pages the pages to export
+     */
+    public void setPages(Collection<DocumentReference> pages)
+    {
+        setProperty(PROPERTY_PAGES, pages);
+    }
+
+    /**
+     * @return the wiki to export entirely (XAR backup), null when only {@link #getPages()} are exported
+     */
+    public WikiReference getWiki()
+    {
+        return getProperty(PROPERTY_WIKI);
+    }
+
+    /**
+     * @param wiki the wiki to export entirely (XAR backup)
+     */
+    public void setWiki(WikiReference wiki)
+    {
+        setProperty(PROPERTY_WIKI, wiki);
+    }
+
+    /**
+     * @return true if the history of the pages should be exported
+     */
+    public boolean isHistory()
+    {
+        return getProperty(PROPERTY_HISTORY, false);
+    }
+
+    /**
+     * @param history true if the history of the pages should be exported
+     */
+    public void setHistory(boolean history)
+    {
+        setProperty(PROPERTY_HISTORY, history);
+    }
+
+    /**
+     * @return true if the exported XAR is a backup package
+     */
+    public boolean isBackup()
+    {
+        return getProperty(PROPERTY_BACKUP, false);
+    }
+
+    /**
+     * @param backup true if the exported XAR is a backup package
+     */
+    public void setBackup(boolean backup)
+    {
+        setProperty(PROPERTY_BACKUP, backup);
+    }
+
+    /**
+     * @return the author of the exported package
+     */
+    public String getAuthor()
+    {
+        return getProperty(PROPERTY_AUTHOR);
+    }
+
+    /**
+     * @param author the author of the exported package
+     */
+    public void setAuthor(String author)
+    {
+        setProperty(PROPERTY_AUTHOR, author);
+    }
+
+    /**
+     * @return the license of the exported package
+     */
+    public String getLicense()
+    {
+        return getProperty(PROPERTY_LICENSE);
+    }
+
+    /**
+     * @param license the license of the exported package
+     */
+    public void setLicense(String license)
+    {
+        setProperty(PROPERTY_LICENSE, license);
+    }
+
+    /**
+     * @return the version of the exported package
+     */
+    public String getVersion()
+    {
+        return getProperty(PROPERTY_VERSION);
+    }
+
+    /**
+     * @param version the version of the exported package
+     */
+    public void setVersion(String version)
+    {
+        setProperty(PROPERTY_VERSION, version);
+    }
+
+    /**
+     * @return the maximum number of pages rendered at the same time (HTML export)
+     */
+    public int getThreads()
+    {
+        return getProperty(PROPERTY_THREADS, 1);
+    }
+
+    /**
+     * @param threads the maximum number of pages rendered at the same time (HTML export)
+     */
+    public void setThreads(int threads)
+    {
+        setProperty(PROPERTY_THREADS, threads);
+    }
+}
@@ -20,13 +20,16 @@
 package com.xpn.xwiki.internal.filter.output;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.annotation.InstantiationStrategy;
@@ -36,6 +39,7 @@
 import org.xwiki.filter.FilterEventParameters;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.event.model.WikiDocumentFilter;
+import org.xwiki.filter.event.model.WikiSpaceFilter;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
 import org.xwiki.filter.output.AbstractBeanOutputFilterStream;
 import org.xwiki.logging.marker.TranslationMarker;
@@ -46,6 +50,7 @@
 import org.xwiki.model.reference.WikiReference;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.doc.XWikiDocumentArchive;
@@ -58,7 +63,7 @@
 @Named(DocumentInstanceOutputFilterStreamFactory.ROLEHINT)
 @InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
 public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilterStream<DocumentInstanceOutputProperties>
-    implements WikiDocumentFilter
+    implements WikiDocumentFilter, WikiSpaceFilter
 {
     private static final TranslationMarker LOG_DOCUMENT_CREATED =
         new TranslationMarker("filter.instance.log.document.created", WikiDocumentFilter.LOG_DOCUMENT_CREATED);
@@ -99,6 +104,20 @@ public class DocumentInstanceOutputFilterStream extends AbstractBeanOutputFilter
 
     private FilterEventParameters currentRevisionParameters;
 
+    /**
+     * The documents waiting to be saved when the save batch size is greater than 1.
+     */
+    private final List<XWikiDocument> pendingDocuments = new ArrayList<>();
+
+    /**
+     * Indicate if each pending document is a creation or an update.
+     */
+    private final List<Boolean> pendingCreations = new ArrayList<>();
+
+    private boolean pendingMinorEdit;
+
+    private int saveBatchSize;
+
     private XWikiDocumentOutputFilterStream getXWikiDocumentOutputFilterStream()
     {
         return (XWikiDocumentOutputFilterStream) this.documentListener;
@@ -113,7 +132,11 @@ protected Object createFilter() throws FilterException
     @Override
     public void close() throws IOException
     {
-        // Nothing to close
+        try {
+            flushPendingDocuments();
+        } catch (FilterException e) {
+            throw new IOException("Failed to save the remaining documents", e);
+        }
     }
 
     @Override
@@ -121,11 +144,26 @@ public void setProperties(DocumentInstanceOutputProperties properties) throws Fi
     {
         super.setProperties(properties);
 
+        this.saveBatchSize = 0;
+
         this.documentListener.setProperties(properties);
     }
 
     // Events
 
+    @Override
+    public void beginWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        // Nothing to do
+    }
+
+    @Override
+    public void endWikiSpace(String name, FilterEventParameters parameters) throws FilterException
+    {
+        // Don't keep documents waiting once the space they belong to is finished
+        flushPendingDocuments();
+    }
+
     @Override
     public void beginWikiDocument(String name, FilterEventParameters parameters) throws FilterException
     {
@@ -186,6 +224,11 @@ private void maybeSaveDocument() throws FilterException
             return;
         }
 
+        // Make sure the previous version of the document is actually saved before looking at it
+        if (isPending(inputDocument.getDocumentReference())) {
+            flushPendingDocuments();
+        }
+
         XWikiContext xcontext = this.xcontextProvider.get();
 
         try {
@@ -273,23 +316,12 @@ private void maybeSaveDocument() throws FilterException
                 document.setMetaDataDirty(false);
                 document.setContentDirty(false);
 
-                xcontext.getWiki().saveDocument(document, inputDocument.getComment(), inputDocument.isMinorEdit(),
-                    xcontext);
+                saveDocument(document, inputDocument.getComment(), inputDocument.isMinorEdit(), isnew, xcontext);
             } else {
                 // Forget the input history to let the store do its standard job
                 document.setDocumentArchive((XWikiDocumentArchive) null);
 
-                xcontext.getWiki().saveDocument(document, this.properties.getSaveComment(), xcontext);
-            }
-
-            if (this.properties.isVerbose()) {
-                if (isnew) {
-                    this.logger.info(LOG_DOCUMENT_CREATED, "Created document [{}]",
-                        document.getDocumentReferenceWithLocale());
-                } else {
-                    this.logger.info(LOG_DOCUMENT_UPDATED, "Updated document [{}]",
-                        document.getDocumentReferenceWithLocale());
-                }
+                saveDocument(document, this.properties.getSaveComment(), false, isnew, xcontext);
             }
         } catch (Exception e) {
             this.logger.error(LOG_DOCUMENT_FAILSAVE, "Failed to save document [{}]",
@@ -299,6 +331,108 @@ private void maybeSaveDocument() throws FilterException
                 throw new FilterException("Failed to save document", e);
             }
         }
+
+        if (this.pendingDocuments.size() >= getSaveBatchSize()) {
+            flushPendingDocuments();
+        }
+    }
+
+    private void saveDocument(XWikiDocument document, String comment, boolean minorEdit, boolean isnew,
+        XWikiContext xcontext) throws XWikiException, FilterException
+    {
+        if (getSaveBatchSize() > 1) {
+            // A batch is saved with a single minor edit flag
+            if (!this.pendingDocuments.isEmpty() && this.pendingMinorEdit != minorEdit) {
+                flushPendingDocuments();
+            }
+
+            // The batch keeps the comment of each document
+            document.setComment(StringUtils.defaultString(comment));
+
+            this.pendingDocuments.add(document);
+            this.pendingCreations.add(isnew);
+            this.pendingMinorEdit = minorEdit;
+        } else {
+            xcontext.getWiki().saveDocument(document, comment, minorEdit, xcontext);
+
+            logSavedDocument(document, isnew);
+        }
+    }
+
+    private int getSaveBatchSize()
+    {
+        if (this.saveBatchSize == 0) {
+            this.saveBatchSize = this.properties.getSaveBatchSize();
+            if (this.saveBatchSize <= 0) {
+                // Use the size of the batches saved by the store
+                this.saveBatchSize = this.xcontextProvider.get().getWiki().getSaveBatchSize();
+            }
+        }
+
+        return this.saveBatchSize;
+    }
+
+    private boolean isPending(DocumentReference documentReference)
+    {
+        for (XWikiDocument pendingDocument : this.pendingDocuments) {
+            if (pendingDocument.getDocumentReference().equals(documentReference)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void flushPendingDocuments() throws FilterException
+    {
+        if (this.pendingDocuments.isEmpty()) {
+            return;
+        }
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+
+        try {
+            xcontext.getWiki().saveDocuments(this.pendingDocuments, null, this.pendingMinorEdit, xcontext);
+
+            for (int i = 0; i < this.pendingDocuments.size(); ++i) {
+                logSavedDocument(this.pendingDocuments.get(i), this.pendingCreations.get(i));
+            }
+        } catch (Exception e) {
+            // Don't lose the whole batch because of a single document
+            for (int i = 0; i < this.pendingDocuments.size(); ++i) {
+                XWikiDocument pendingDocument = this.pendingDocuments.get(i);
+
+                try {
+                    xcontext.getWiki().saveDocument(pendingDocument, pendingDocument.getComment(),
+                        this.pendingMinorEdit, xcontext);
+
+                    logSavedDocument(pendingDocument, this.pendingCreations.get(i));
+                } catch (Exception documentException) {
+                    this.logger.error(LOG_DOCUMENT_FAILSAVE, "Failed to save document [{}]",
+                        pendingDocument.getDocumentReferenceWithLocale(), documentException);
+
+                    if (this.properties.isStoppedWhenSaveFail()) {
+                        throw new FilterException("Failed to save document", documentException);
+                    }
+                }
+            }
+        } finally {
+            this.pendingDocuments.clear();
+            this.pendingCreations.clear();
+        }
+    }
+
+    private void logSavedDocument(XWikiDocument document, boolean isnew)
+    {
+        if (this.properties.isVerbose()) {
+            if (isnew) {
+                this.logger.info(LOG_DOCUMENT_CREATED, "Created document [{}]",
+                    document.getDocumentReferenceWithLocale());
+            } else {
+                this.logger.info(LOG_DOCUMENT_UPDATED, "Updated document [{}]",
+                    document.getDocumentReferenceWithLocale());
+            }
+        }
     }
 
     private void setAuthorReference(XWikiDocument document, DocumentReference authorReference)
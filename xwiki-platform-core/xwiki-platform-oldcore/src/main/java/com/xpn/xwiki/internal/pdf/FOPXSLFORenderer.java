@@ -23,6 +23,7 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.Semaphore;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -53,6 +54,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.environment.Environment;
 
 import com.xpn.xwiki.XWikiContext;
@@ -84,6 +86,12 @@ public class FOPXSLFORenderer implements XSLFORenderer, Initializable
 
     private static final String FONTS = "fonts";
 
+    /**
+     * The name of the configuration property containing the maximum number of XSL-FO documents rendered at the same
+     * time.
+     */
+    private static final String CONFIGURATION_MAXCONCURRENT = "xwiki.export.pdf.maxConcurrentRenderings";
+
     @Inject
     private Logger logger;
 
@@ -96,6 +104,10 @@ public class FOPXSLFORenderer implements XSLFORenderer, Initializable
     @Inject
     private Provider<XWikiContext> xcontextProvider;
 
+    @Inject
+    @Named("xwikicfg")
+    private ConfigurationSource xwikicfg;
+
     /**
      * XSLT transformer factory.
      */
@@ -106,6 +118,11 @@ public class FOPXSLFORenderer implements XSLFORenderer, Initializable
      */
     private FopFactory fopFactory;
 
+    /**
+     * Limit the number of documents rendered at the same time since each of them can use a lot of memory.
+     */
+    private Semaphore renderingPermits;
+
     @Override
     public void initialize() throws InitializationException
     {
@@ -119,10 +136,37 @@ public void initialize() throws InitializationException
         }
 
         this.fopFactory = builder.build();
+
+        int maxConcurrentRenderings = this.xwikicfg.getProperty(CONFIGURATION_MAXCONCURRENT,
+            Runtime.getRuntime().availableProcessors());
+        if (maxConcurrentRenderings > 0) {
+            this.renderingPermits = new Semaphore(maxConcurrentRenderings, true);
+        }
     }
 
     @Override
     public void render(InputStream input, OutputStream output, String outputFormat) throws Exception
+    {
+        render(new StreamSource(input), output, outputFormat);
+    }
+
+    @Override
+    public void render(Source source, OutputStream output, String outputFormat) throws Exception
+    {
+        if (this.renderingPermits != null) {
+            this.renderingPermits.acquire();
+        }
+
+        try {
+            renderInternal(source, output, outputFormat);
+        } finally {
+            if (this.renderingPermits != null) {
+                this.renderingPermits.release();
+            }
+        }
+    }
+
+    private void renderInternal(Source source, OutputStream output, String outputFormat) throws Exception
     {
         FOUserAgent foUserAgent = this.fopFactory.newFOUserAgent();
 
@@ -135,9 +179,6 @@ public void render(InputStream input, OutputStream output, String outputFormat)
         // Identity transformer
         Transformer transformer = this.transformerFactory.newTransformer();
 
-        // Setup input stream.
-        Source source = new StreamSource(input);
-
         // Resulting SAX events (the generated FO) must be piped through to FOP.
         Result result = new SAXResult(fop.getDefaultHandler());
 
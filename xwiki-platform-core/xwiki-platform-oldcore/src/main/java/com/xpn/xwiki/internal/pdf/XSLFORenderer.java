@@ -19,9 +19,15 @@
  */
 package com.xpn.xwiki.internal.pdf;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+
 import org.xwiki.component.annotation.Role;
 
 /**
@@ -42,4 +48,26 @@
      * @throws Exception if XSL-FO rendering fails
      */
     void render(InputStream input, OutputStream output, String outputFormat) throws Exception;
+
+    /**
+     * Renders the XSL-FO provided by the passed source to the specified output format. The source is consumed as it is
+     * rendered, which allows to pipe the result of XSLT transformations directly into the renderer without storing
+     * the XSL-FO document.
+     * <p>
+     * The default implementation stores the whole XSL-FO document in memory and calls
+     * {@link #render(InputStream, OutputStream, String)}, for the implementations which don't support streaming.
+     *
+     * @param input the XSL-FO input
+     * @param output where to write the output
+     * @param outputFormat the output format
+     * @throws Exception if XSL-FO rendering fails
+     * @since 11.3RC1
+     */
+    default void render(Source input, OutputStream output, String outputFormat) throws Exception
+    {
+        ByteArrayOutputStream xslfo = new ByteArrayOutputStream();
+        TransformerFactory.newInstance().newTransformer().transform(input, new StreamResult(xslfo));
+
+        render(new ByteArrayInputStream(xslfo.toByteArray()), output, outputFormat);
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheException;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.LRUCacheConfiguration;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Initializable;
+import org.xwiki.component.phase.InitializationException;
+import org.xwiki.xml.EntityResolver;
+import org.xwiki.xml.XMLReaderFactory;
+
+/**
+ * Keep the compiled version of the XSLT stylesheets used by the exports so that they are not parsed and compiled again
+ * for each export. {@link Templates} are thread safe and can be shared between concurrent exports.
+ * <p>
+ * Stylesheets coming from wiki pages (PDF templates) are identified by a hash of their content so that a modified
+ * template automatically gets a new entry and the old one ends up evicted.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = XSLTTemplatesCache.class)
+@Singleton
+public class XSLTTemplatesCache implements Initializable
+{
+    private static final String RESOURCE_KEY_PREFIX = "resource:";
+
+    private static final String CONTENT_KEY_PREFIX = "content:";
+
+    @Inject
+    private CacheManager cacheManager;
+
+    @Inject
+    private XMLReaderFactory xmlReaderFactory;
+
+    @Inject
+    private EntityResolver entityResolver;
+
+    private SAXTransformerFactory transformerFactory;
+
+    private Cache<Templates> cache;
+
+    @Override
+    public void initialize() throws InitializationException
+    {
+        TransformerFactory factory = TransformerFactory.newInstance();
+        if (!factory.getFeature(SAXTransformerFactory.FEATURE)) {
+            throw new InitializationException(
+                String.format("The transformer factory [%s] does not support SAX", factory.getClass().getName()));
+        }
+        this.transformerFactory = (SAXTransformerFactory) factory;
+
+        try {
+            this.cache = this.cacheManager.createNewCache(new LRUCacheConfiguration("xwiki.export.xslt", 50));
+        } catch (CacheException e) {
+            throw new InitializationException("Failed to initialize the XSLT cache", e);
+        }
+    }
+
+    /**
+     * @return the factory to use to create transformers and filters from the cached {@link Templates}
+     */
+    public SAXTransformerFactory getTransformerFactory()
+    {
+        return this.transformerFactory;
+    }
+
+    /**
+     * @param xslt the content of the XSLT stylesheet
+     * @return the compiled stylesheet
+     * @throws TransformerConfigurationException when failing to compile the stylesheet
+     */
+    public Templates getTemplates(String xslt) throws TransformerConfigurationException
+    {
+        String key = CONTENT_KEY_PREFIX + DigestUtils.sha256Hex(xslt);
+
+        Templates templates = this.cache.get(key);
+        if (templates == null) {
+            templates = compile(new InputSource(new StringReader(xslt)));
+            this.cache.set(key, templates);
+        }
+
+        return templates;
+    }
+
+    /**
+     * @param resourceName the name of the class loader resource containing the XSLT stylesheet
+     * @return the compiled stylesheet
+     * @throws TransformerConfigurationException when failing to compile the stylesheet
+     */
+    public Templates getResourceTemplates(String resourceName) throws TransformerConfigurationException
+    {
+        String key = RESOURCE_KEY_PREFIX + resourceName;
+
+        Templates templates = this.cache.get(key);
+        if (templates == null) {
+            try (InputStream stream = getClass().getClassLoader().getResourceAsStream(resourceName)) {
+                if (stream == null) {
+                    throw new TransformerConfigurationException(
+                        String.format("Cannot find XSLT resource [%s]", resourceName));
+                }
+                templates = compile(new InputSource(stream));
+            } catch (IOException e) {
+                throw new TransformerConfigurationException(
+                    String.format("Failed to read XSLT resource [%s]", resourceName), e);
+            }
+            this.cache.set(key, templates);
+        }
+
+        return templates;
+    }
+
+    private Templates compile(InputSource xslt) throws TransformerConfigurationException
+    {
+        try {
+            XMLReader xmlReader = this.xmlReaderFactory.createXMLReader();
+            xmlReader.setEntityResolver(this.entityResolver);
+
+            return this.transformerFactory.newTemplates(new SAXSource(xmlReader, xslt));
+        } catch (TransformerConfigurationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new TransformerConfigurationException("Failed to create XML reader", e);
+        }
+    }
+}
@@ -33,7 +33,11 @@
 import java.util.HashMap;
 import java.util.List;
 
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -49,6 +53,7 @@
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.css.CSSStyleDeclaration;
 import org.xml.sax.InputSource;
+import org.xml.sax.XMLFilter;
 import org.xml.sax.XMLReader;
 import org.xwiki.bridge.DocumentAccessBridge;
 import org.xwiki.environment.Environment;
@@ -69,6 +74,7 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.pdf.XSLFORenderer;
+import com.xpn.xwiki.internal.pdf.XSLTTemplatesCache;
 import com.xpn.xwiki.pdf.api.PdfExport;
 import com.xpn.xwiki.web.Utils;
 
@@ -118,6 +124,11 @@ public class PdfExportImpl implements PdfExport
      */
     private XSLFORenderer xslFORenderer = Utils.getComponent(XSLFORenderer.class, "fop");
 
+    /**
+     * Used to get compiled XSLT stylesheets.
+     */
+    private XSLTTemplatesCache templatesCache = Utils.getComponent(XSLTTemplatesCache.class);
+
     @Override
     public void exportToPDF(XWikiDocument doc, OutputStream out, XWikiContext context) throws XWikiException
     {
@@ -208,13 +219,48 @@ protected void exportXHTML(String xhtml, OutputStream out, ExportType type, XWik
     {
         LOGGER.debug("Final XHTML for export:\n{}", xhtml);
 
-        // XSL Transformation to XML-FO
-        String xmlfo = convertXHtmlToXMLFO(xhtml, context);
+        if (LOGGER.isDebugEnabled()) {
+            // XSL Transformation to XML-FO
+            String xmlfo = convertXHtmlToXMLFO(xhtml, context);
 
-        // Debug output
-        LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
+            // Debug output
+            LOGGER.debug("Final XSL-FO source:\n{}", xmlfo);
 
-        renderXSLFO(xmlfo, out, type, context);
+            renderXSLFO(xmlfo, out, type, context);
+        } else {
+            // Stream the XHTML through the XSL transformations directly into the XSL-FO renderer so that the (big)
+            // intermediate XSL-FO documents are never stored in memory as a whole
+            XSLFOTransformationFilter xmlfo = getXMLFOFilter(context);
+            renderXSLFO(new SAXSource(xmlfo, new InputSource(new StringReader(xhtml))), xmlfo, out, type, context);
+        }
+    }
+
+    /**
+     * Create a reader producing the XSL-FO document corresponding to the parsed XHTML document. The same
+     * transformations as in {@link #convertXHtmlToXMLFO(String, XWikiContext)} are applied as a chain of SAX filters.
+     *
+     * @param context the current request context
+     * @return the reader producing the resulting XML-FO document
+     * @throws XWikiException if the XSLT stylesheets cannot be compiled
+     */
+    private XSLFOTransformationFilter getXMLFOFilter(XWikiContext context) throws XWikiException
+    {
+        try {
+            XMLReader xmlReader = Utils.getComponent(XMLReaderFactory.class).createXMLReader();
+            xmlReader.setEntityResolver(Utils.getComponent(EntityResolver.class));
+
+            SAXTransformerFactory transformerFactory = this.templatesCache.getTransformerFactory();
+
+            XMLFilter xhtml2fo = transformerFactory.newXMLFilter(getXhtml2FopTemplates(context));
+            xhtml2fo.setParent(xmlReader);
+            XMLFilter cleanup = transformerFactory.newXMLFilter(getFopCleanupTemplates(context));
+            cleanup.setParent(xhtml2fo);
+
+            return new XSLFOTransformationFilter(cleanup);
+        } catch (Exception e) {
+            throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT, XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED,
+                "XSL Transformation Failed", e);
+        }
     }
 
     /**
@@ -239,6 +285,34 @@ private String convertXHtmlToXMLFO(String xhtml, XWikiContext context) throws XW
         return applyXSLT(xmlfo, getFopCleanupXslt(context));
     }
 
+    /**
+     * Convert an XSL-FO document into PDF.
+     *
+     * @param xmlfo the source providing the FO to render
+     * @param transformations the filter applying the XSLT transformations producing the FO, used to tell the
+     *            transformation failures from the rendering failures
+     * @param out where to write the resulting document
+     * @param type the type of the output: PDF or RTF
+     * @param context the XWiki Context used by the custom URI Resolver we use to locate image attachment data
+     * @throws XWikiException if the conversion fails for any reason
+     */
+    private void renderXSLFO(Source xmlfo, XSLFOTransformationFilter transformations, OutputStream out,
+        ExportType type, final XWikiContext context) throws XWikiException
+    {
+        try {
+            this.xslFORenderer.render(xmlfo, out, type.getMimeType());
+        } catch (Exception e) {
+            if (transformations.isTransformationFailed()) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_EXPORT,
+                    XWikiException.ERROR_XWIKI_EXPORT_XSL_FAILED, "XSL Transformation Failed", e);
+            } else if (e instanceof IllegalStateException) {
+                throw createException(e, type, XWikiException.ERROR_XWIKI_APP_SEND_RESPONSE_EXCEPTION);
+            }
+
+            throw createException(e, type, XWikiException.ERROR_XWIKI_EXPORT_PDF_FOP_FAILED);
+        }
+    }
+
     /**
      * Convert an XSL-FO document into PDF.
      *
@@ -410,6 +484,54 @@ private InputStream getFopCleanupXslt(XWikiContext context)
         return getXslt("fopxsl", DEFAULT_CLEANUP_XSLT, context);
     }
 
+    /**
+     * Get the compiled XSLT for converting (valid) XHTML to XSL-FO.
+     *
+     * @param context the current request context
+     * @return the compiled XSLT
+     * @throws TransformerConfigurationException if the XSLT cannot be compiled
+     * @see #getXhtml2FopXslt(XWikiContext)
+     */
+    private Templates getXhtml2FopTemplates(XWikiContext context) throws TransformerConfigurationException
+    {
+        return getXsltTemplates("xhtmlxsl", DEFAULT_XHTML2FOP_XSLT, context);
+    }
+
+    /**
+     * Get the compiled XSLT for post-processing the XSL-FO file.
+     *
+     * @param context the current request context
+     * @return the compiled XSLT
+     * @throws TransformerConfigurationException if the XSLT cannot be compiled
+     * @see #getFopCleanupXslt(XWikiContext)
+     */
+    private Templates getFopCleanupTemplates(XWikiContext context) throws TransformerConfigurationException
+    {
+        return getXsltTemplates("fopxsl", DEFAULT_CLEANUP_XSLT, context);
+    }
+
+    /**
+     * Get a compiled XSLT file, from the cache when the same XSLT was already compiled.
+     *
+     * @param propertyName the name of the xproperty from which to read the XSLT file, see
+     *            {@link #getXslt(String, String, XWikiContext)}
+     * @param fallbackFile the name of a resource file to use when no XSLT content was found using the passed
+     *            {@code propertyName}
+     * @param context the current request context
+     * @return the compiled XSLT
+     * @throws TransformerConfigurationException if the XSLT cannot be compiled
+     * @since 11.3RC1
+     */
+    protected Templates getXsltTemplates(String propertyName, String fallbackFile, XWikiContext context)
+        throws TransformerConfigurationException
+    {
+        String xsl = getPDFTemplateProperty(propertyName, context);
+        if (!StringUtils.isBlank(xsl)) {
+            return this.templatesCache.getTemplates(xsl);
+        }
+        return this.templatesCache.getResourceTemplates(fallbackFile);
+    }
+
     /**
      * Get an XSLT file.
      *
@@ -0,0 +1,148 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.pdf.impl;
+
+import java.io.IOException;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Last filter of the chain of XSLT transformations producing the XSL-FO document read by the XSL-FO renderer. Since
+ * the transformations are executed while the renderer reads the document, it keeps track of where a failure comes
+ * from: the renderer (which receives the events sent by this filter) or the transformations.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+class XSLFOTransformationFilter extends XMLFilterImpl
+{
+    @FunctionalInterface
+    private interface SAXCall
+    {
+        void call() throws SAXException;
+    }
+
+    private boolean rendererFailed;
+
+    private boolean transformationFailed;
+
+    /**
+     * @param parent the last XSLT transformation of the chain
+     */
+    XSLFOTransformationFilter(XMLReader parent)
+    {
+        super(parent);
+    }
+
+    /**
+     * @return {@code true} if the XSLT transformations failed while the XSL-FO document was read
+     */
+    boolean isTransformationFailed()
+    {
+        return this.transformationFailed;
+    }
+
+    @Override
+    public void parse(InputSource input) throws SAXException, IOException
+    {
+        try {
+            super.parse(input);
+        } catch (SAXException | IOException | RuntimeException e) {
+            this.transformationFailed = !this.rendererFailed;
+
+            throw e;
+        }
+    }
+
+    private void forward(SAXCall call) throws SAXException
+    {
+        try {
+            call.call();
+        } catch (SAXException | RuntimeException e) {
+            this.rendererFailed = true;
+
+            throw e;
+        }
+    }
+
+    @Override
+    public void startDocument() throws SAXException
+    {
+        forward(() -> super.startDocument());
+    }
+
+    @Override
+    public void endDocument() throws SAXException
+    {
+        forward(() -> super.endDocument());
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException
+    {
+        forward(() -> super.startPrefixMapping(prefix, uri));
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException
+    {
+        forward(() -> super.endPrefixMapping(prefix));
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException
+    {
+        forward(() -> super.startElement(uri, localName, qName, atts));
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException
+    {
+        forward(() -> super.endElement(uri, localName, qName));
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException
+    {
+        forward(() -> super.characters(ch, start, length));
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException
+    {
+        forward(() -> super.ignorableWhitespace(ch, start, length));
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException
+    {
+        forward(() -> super.processingInstruction(target, data));
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException
+    {
+        forward(() -> super.skippedEntity(name));
+    }
+}
@@ -20,6 +20,7 @@
 package com.xpn.xwiki.store;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -234,6 +235,28 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
         }
     }
 
+    @Override
+    public void saveXWikiDocs(Collection<XWikiDocument> docs, XWikiContext inputxcontext) throws XWikiException
+    {
+        // Make sure to use the right XWikiContext instance to avoid issues
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            this.store.saveXWikiDocs(docs, context);
+
+            for (XWikiDocument doc : docs) {
+                doc.setStore(this.store);
+
+                // We need to flush so that caches on the cluster are informed about the change
+                String key = getKey(doc, context);
+                getCache().remove(key);
+                getPageExistCache().remove(key);
+            }
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
     @Override
     public void flushCache()
     {
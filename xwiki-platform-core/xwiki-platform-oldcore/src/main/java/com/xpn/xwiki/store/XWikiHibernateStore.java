@@ -43,6 +43,7 @@
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.EntityMode;
@@ -118,6 +119,16 @@
 @Singleton
 public class XWikiHibernateStore extends XWikiHibernateBaseStore implements XWikiStoreInterface
 {
+    /**
+     * The name of the context property holding the state of the batch of documents currently being saved.
+     */
+    static final String SAVE_BATCH_CONTEXT_KEY = "hibernatestore.savebatch";
+
+    /**
+     * The maximum number of identifiers passed to a single {@code in} clause when prefetching a batch.
+     */
+    private static final int SAVE_BATCH_IN_SIZE = 500;
+
     @Inject
     private Logger logger;
 
@@ -633,14 +644,19 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                     }
                 }
 
-                // Verify if the document already exists
-                Query query =
-                    session.createQuery("select xwikidoc.id from XWikiDocument as xwikidoc where xwikidoc.id = :id");
-                query.setLong("id", doc.getId());
+                // Verify if the document already exists (the batch, if any, already knows it)
+                SaveBatch saveBatch = (SaveBatch) context.get(SAVE_BATCH_CONTEXT_KEY);
+                Boolean exists = saveBatch != null ? saveBatch.documentExists(doc.getId()) : null;
+                if (exists == null) {
+                    Query query = session
+                        .createQuery("select xwikidoc.id from XWikiDocument as xwikidoc where xwikidoc.id = :id");
+                    query.setLong("id", doc.getId());
+                    exists = query.uniqueResult() != null;
+                }
 
                 // Note: we don't use session.saveOrUpdate(doc) because it used to be slower in Hibernate than calling
                 // session.save() and session.update() separately.
-                if (query.uniqueResult() == null) {
+                if (!exists) {
                     if (doc.isContentDirty() || doc.isMetaDataDirty()) {
                         // Reset the creationDate to reflect the date of the first save, not the date of the object
                         // creation
@@ -650,6 +666,9 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                 } else {
                     session.update(doc);
                 }
+                if (saveBatch != null) {
+                    saveBatch.documentSaved(doc.getId());
+                }
 
                 // Remove objects planned for removal
                 if (doc.getXObjectsToRemove().size() > 0) {
@@ -657,6 +676,10 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext, boolean
                         deleteXWikiCollection(removedObject, context, false, false);
                     }
                     doc.setXObjectsToRemove(new ArrayList<BaseObject>());
+
+                    // Nothing is flushed before the commit and Hibernate executes the deletes after the inserts and
+                    // updates, so execute them now in case an object is added again with the same number.
+                    session.flush();
                 }
 
                 if (bclass != null) {
@@ -891,6 +914,104 @@ public void saveXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiEx
         saveXWikiDoc(doc, context, true);
     }
 
+    @Override
+    public void saveXWikiDocs(Collection<XWikiDocument> docs, XWikiContext inputxcontext) throws XWikiException
+    {
+        XWikiContext context = getExecutionXContext(inputxcontext, true);
+
+        try {
+            // Dynamic custom mappings require a dedicated session factory for each document
+            if (context.getWiki().hasDynamicCustomMappings()) {
+                for (XWikiDocument doc : docs) {
+                    saveXWikiDoc(doc, context, true);
+                }
+
+                return;
+            }
+
+            boolean bTransaction = true;
+            try {
+                checkHibernate(context);
+                bTransaction = beginTransaction(context);
+                Session session = getSession(context);
+                session.setFlushMode(FlushMode.COMMIT);
+
+                // Load once what already exists in the database instead of checking each entity separately. Since
+                // nothing is flushed before the commit, the inserts and updates are then sent in JDBC batches.
+                context.put(SAVE_BATCH_CONTEXT_KEY, prefetchSaveBatch(docs, session));
+
+                for (XWikiDocument doc : docs) {
+                    saveXWikiDoc(doc, context, false);
+                }
+
+                if (bTransaction) {
+                    endTransaction(context, true);
+                }
+            } catch (XWikiException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                    XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC, "Exception while saving documents", e);
+            } finally {
+                context.remove(SAVE_BATCH_CONTEXT_KEY);
+
+                try {
+                    if (bTransaction) {
+                        endTransaction(context, false);
+                    }
+                } catch (Exception e) {
+                }
+            }
+        } finally {
+            restoreExecutionXContext();
+        }
+    }
+
+    private SaveBatch prefetchSaveBatch(Collection<XWikiDocument> docs, Session session)
+    {
+        SaveBatch saveBatch = new SaveBatch();
+
+        for (XWikiDocument doc : docs) {
+            saveBatch.documentIds.add(doc.getId());
+            for (List<BaseObject> objects : doc.getXObjects().values()) {
+                for (BaseObject obj : objects) {
+                    if (obj != null) {
+                        // Make sure the identifier is the one used when saving the object
+                        obj.setDocumentReference(doc.getDocumentReference());
+                        saveBatch.objectIds.add(obj.getId());
+                    }
+                }
+            }
+        }
+
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(saveBatch.documentIds), SAVE_BATCH_IN_SIZE)) {
+            Query query =
+                session.createQuery("select xwikidoc.id from XWikiDocument as xwikidoc where xwikidoc.id in (:ids)");
+            query.setParameterList("ids", ids);
+            for (Object id : query.list()) {
+                saveBatch.existingDocumentIds.add((Long) id);
+            }
+        }
+
+        for (List<Long> ids : ListUtils.partition(new ArrayList<>(saveBatch.objectIds), SAVE_BATCH_IN_SIZE)) {
+            Query query = session.createQuery("select obj.id from BaseObject as obj where obj.id in (:ids)");
+            query.setParameterList("ids", ids);
+            for (Object id : query.list()) {
+                saveBatch.existingObjectIds.add((Long) id);
+            }
+
+            query = session.createQuery(
+                "select prop.id.id, prop.id.name, prop.classType from BaseProperty as prop where prop.id.id in (:ids)");
+            query.setParameterList("ids", ids);
+            for (Object result : query.list()) {
+                Object[] row = (Object[]) result;
+                saveBatch.propertySaved((Long) row[0], (String) row[1], (String) row[2]);
+            }
+        }
+
+        return saveBatch;
+    }
+
     @Override
     public XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext inputxcontext) throws XWikiException
     {
@@ -1232,16 +1353,24 @@ public void saveXWikiCollection(BaseCollection object, XWikiContext inputxcontex
             }
             Session session = getSession(context);
 
-            // Verify if the property already exists
+            // Verify if the property already exists (the batch, if any, already knows the objects of its documents)
+            SaveBatch saveBatch = stats ? null : (SaveBatch) context.get(SAVE_BATCH_CONTEXT_KEY);
+            Boolean exists = saveBatch != null ? saveBatch.objectExists(object.getId()) : null;
             Query query;
-            if (stats) {
-                query = session
-                    .createQuery("select obj.id from " + object.getClass().getName() + " as obj where obj.id = :id");
-            } else {
-                query = session.createQuery("select obj.id from BaseObject as obj where obj.id = :id");
+            if (exists == null) {
+                if (stats) {
+                    query = session.createQuery(
+                        "select obj.id from " + object.getClass().getName() + " as obj where obj.id = :id");
+                } else {
+                    query = session.createQuery("select obj.id from BaseObject as obj where obj.id = :id");
+                }
+                query.setLong("id", object.getId());
+                exists = query.uniqueResult() != null;
             }
-            query.setLong("id", object.getId());
-            if (query.uniqueResult() == null) {
+            if (saveBatch != null) {
+                saveBatch.objectSaved(object.getId());
+            }
+            if (!exists) {
                 if (stats) {
                     session.save(object);
                 } else {
@@ -1523,6 +1652,12 @@ public void deleteXWikiCollection(BaseCollection object, XWikiContext inputxcont
             }
             Session session = getSession(context);
 
+            // The object may be saved again in the same batch (with the same number) and it won't exist anymore then
+            SaveBatch saveBatch = (SaveBatch) context.get(SAVE_BATCH_CONTEXT_KEY);
+            if (saveBatch != null) {
+                saveBatch.objectDeleted(object.getId());
+            }
+
             // Let's check if the class has a custom mapping
             BaseClass bclass = object.getXClass(context);
             List<String> handledProps = new ArrayList<String>();
@@ -1659,13 +1794,23 @@ private void saveXWikiPropertyInternal(final PropertyInterface property, final X
 
             final Session session = this.getSession(context);
 
-            Query query = session.createQuery(
-                "select prop.classType from BaseProperty as prop " + "where prop.id.id = :id and prop.id.name= :name");
-            query.setLong("id", property.getId());
-            query.setString("name", property.getName());
+            Query query;
+            String oldClassType;
+            SaveBatch saveBatch = (SaveBatch) context.get(SAVE_BATCH_CONTEXT_KEY);
+            if (saveBatch != null && saveBatch.knowsProperties(property.getId())) {
+                oldClassType = saveBatch.getPropertyClassType(property.getId(), property.getName());
+            } else {
+                query = session.createQuery("select prop.classType from BaseProperty as prop "
+                    + "where prop.id.id = :id and prop.id.name= :name");
+                query.setLong("id", property.getId());
+                query.setString("name", property.getName());
 
-            String oldClassType = (String) query.uniqueResult();
+                oldClassType = (String) query.uniqueResult();
+            }
             String newClassType = ((BaseProperty) property).getClassType();
+            if (saveBatch != null) {
+                saveBatch.propertySaved(property.getId(), property.getName(), newClassType);
+            }
             if (oldClassType == null) {
                 session.save(property);
             } else if (oldClassType.equals(newClassType)) {
@@ -3254,4 +3399,73 @@ private XWikiAttachmentStoreInterface getXWikiAttachmentStoreInterface(XWikiAtta
 
         return this.attachmentContentStore;
     }
+
+    /**
+     * What is known about the database content for the documents saved by {@link #saveXWikiDocs}, so that the
+     * existence of each document, object and property does not have to be checked with a dedicated query.
+     */
+    static final class SaveBatch
+    {
+        private final Set<Long> documentIds = new HashSet<>();
+
+        private final Set<Long> existingDocumentIds = new HashSet<>();
+
+        private final Set<Long> objectIds = new HashSet<>();
+
+        private final Set<Long> existingObjectIds = new HashSet<>();
+
+        private final Map<Long, Map<String, String>> propertyClassTypes = new HashMap<>();
+
+        /**
+         * @return {@code null} if the document is not part of the batch
+         */
+        Boolean documentExists(long id)
+        {
+            return this.documentIds.contains(id) ? this.existingDocumentIds.contains(id) : null;
+        }
+
+        void documentSaved(long id)
+        {
+            this.documentIds.add(id);
+            this.existingDocumentIds.add(id);
+        }
+
+        /**
+         * @return {@code null} if the object is not part of the batch
+         */
+        Boolean objectExists(long id)
+        {
+            return this.objectIds.contains(id) ? this.existingObjectIds.contains(id) : null;
+        }
+
+        void objectSaved(long id)
+        {
+            this.objectIds.add(id);
+            this.existingObjectIds.add(id);
+        }
+
+        void objectDeleted(long id)
+        {
+            this.objectIds.add(id);
+            this.existingObjectIds.remove(id);
+            this.propertyClassTypes.remove(id);
+        }
+
+        boolean knowsProperties(long objectId)
+        {
+            return this.objectIds.contains(objectId);
+        }
+
+        String getPropertyClassType(long objectId, String name)
+        {
+            Map<String, String> classTypes = this.propertyClassTypes.get(objectId);
+
+            return classTypes != null ? classTypes.get(name) : null;
+        }
+
+        void propertySaved(long objectId, String name, String classType)
+        {
+            this.propertyClassTypes.computeIfAbsent(objectId, key -> new HashMap<>()).put(name, classType);
+        }
+    }
 }
@@ -19,11 +19,13 @@
  */
 package com.xpn.xwiki.store;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.query.QueryManager;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -39,6 +41,23 @@
 
     void saveXWikiDoc(XWikiDocument doc, XWikiContext context, boolean bTransaction) throws XWikiException;
 
+    /**
+     * Save several documents of the current wiki at once. Stores which support it save them all in a single
+     * transaction, in which case either all the documents are saved or none of them.
+     *
+     * @param docs the documents to save
+     * @param context the XWiki context
+     * @throws XWikiException when failing to save the documents
+     * @since 11.3RC1
+     */
+    @Unstable
+    default void saveXWikiDocs(Collection<XWikiDocument> docs, XWikiContext context) throws XWikiException
+    {
+        for (XWikiDocument doc : docs) {
+            saveXWikiDoc(doc, context);
+        }
+    }
+
     XWikiDocument loadXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
 
     void deleteXWikiDoc(XWikiDocument doc, XWikiContext context) throws XWikiException;
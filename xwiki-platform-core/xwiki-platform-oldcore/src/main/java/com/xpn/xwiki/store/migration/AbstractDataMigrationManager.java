@@ -30,9 +30,20 @@
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.slf4j.Logger;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.manager.ComponentLookupException;
@@ -41,6 +52,8 @@
 import org.xwiki.component.phase.InitializationException;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.context.ExecutionContextException;
+import org.xwiki.context.ExecutionContextManager;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
@@ -58,6 +71,8 @@
  */
 public abstract class AbstractDataMigrationManager implements DataMigrationManager, Initializable
 {
+    private static final String MIGRATION_THREADS_PROPERTY = "xwiki.store.migration.threads";
+
     /**
      * Component manager used to access stores and data migrations.
      */
@@ -118,6 +133,12 @@ public XWikiMigration(DataMigration dataMigration, boolean isForced)
     @Inject
     private Execution execution;
 
+    /**
+     * Used to initialize the execution context of the migration threads.
+     */
+    @Inject
+    private ExecutionContextManager executionContextManager;
+
     /**
      * Internal class used to prevent double checking of the database during migration operation.
      */
@@ -242,7 +263,13 @@ public Exception getLastMigrationException()
     /**
      * A cache of wiki database version.
      */
-    private final Map<String, MigrationStatus> statusCache = new HashMap<String, MigrationStatus>();
+    private final Map<String, MigrationStatus> statusCache = new ConcurrentHashMap<String, MigrationStatus>();
+
+    /**
+     * Used to execute the data migrations which are not parallelizable on one database at a time when the databases
+     * are migrated in parallel.
+     */
+    private final ReentrantLock sequentialMigrationLock = new ReentrantLock();
 
     /**
      * The final database version when the migration process finishes. This is use to compute the DBVersion of an empty
@@ -501,7 +528,7 @@ private void updateMigrationStatus(XWikiDBVersion version, Exception e) throws D
      * @param e exception thrown by the last migration or null if the migration was successful
      * @throws DataMigrationException if any error
      */
-    private synchronized void updateMigrationStatus(XWikiDBVersion version, boolean migrationAttempted, Exception e)
+    private void updateMigrationStatus(XWikiDBVersion version, boolean migrationAttempted, Exception e)
         throws DataMigrationException
     {
         String wikiName = getXWikiContext().getWikiId();
@@ -667,15 +694,21 @@ protected void startMigrations() throws DataMigrationException
                 throw new DataMigrationException(message);
             }
 
-            int errorCount = 0;
-            for (String database : databasesToMigrate) {
-                this.progress.startStep(this);
+            int threads = getMigrationThreads();
+            int errorCount;
+            if (threads > 1 && databasesToMigrate.size() > 1) {
+                errorCount = migrateDatabases(databasesToMigrate, threads);
+            } else {
+                errorCount = 0;
+                for (String database : databasesToMigrate) {
+                    this.progress.startStep(this);
 
-                if (!migrateDatabase(database)) {
-                    errorCount++;
-                }
+                    if (!migrateDatabase(database)) {
+                        errorCount++;
+                    }
 
-                this.progress.endStep(this);
+                    this.progress.endStep(this);
+                }
             }
 
             if (errorCount > 0) {
@@ -688,6 +721,104 @@ protected void startMigrations() throws DataMigrationException
         }
     }
 
+    /**
+     * @return the maximum number of wiki databases to migrate at the same time, configured with the
+     *         "xwiki.store.migration.threads" property in xwiki.cfg (1 when the value is missing or invalid)
+     */
+    private int getMigrationThreads()
+    {
+        String value = getXWikiConfig().getProperty(MIGRATION_THREADS_PROPERTY, "1");
+        int threads = NumberUtils.toInt(StringUtils.trim(value), 1);
+        if (threads < 1) {
+            this.logger.warn("Invalid value [{}] for [{}], the wiki databases are migrated one at a time", value,
+                MIGRATION_THREADS_PROPERTY);
+
+            threads = 1;
+        }
+
+        return threads;
+    }
+
+    /**
+     * Migrate the given databases in a bounded pool of threads. The databases are independent so they can be migrated
+     * at the same time, but the data migrations which are not parallelizable are still executed on one database at a
+     * time. A progress step is reported each time a database has been migrated.
+     *
+     * @param databases the databases to migrate
+     * @param threads the maximum number of databases to migrate at the same time
+     * @return the number of databases which failed to be migrated
+     * @throws DataMigrationException if the migration threads cannot be initialized
+     */
+    private int migrateDatabases(Set<String> databases, int threads) throws DataMigrationException
+    {
+        ExecutionContext parentContext = this.execution.getContext();
+        XWikiContext parentXContext = getXWikiContext();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads,
+            new BasicThreadFactory.Builder().namingPattern("XWiki data migration thread %d").daemon(true).build());
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executor);
+        try {
+            Map<Future<Boolean>, String> futures = new HashMap<>();
+            for (String database : databases) {
+                futures.put(completionService.submit(
+                    () -> migrateDatabase(database, parentContext, parentXContext)), database);
+            }
+
+            int errorCount = 0;
+            for (int i = 0; i < databases.size(); i++) {
+                this.progress.startStep(this);
+
+                String database = null;
+                try {
+                    Future<Boolean> future = completionService.take();
+                    database = futures.get(future);
+                    if (!future.get()) {
+                        errorCount++;
+                    }
+                    this.logger.info("Database [{}] processed ({}/{})", database, i + 1, databases.size());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DataMigrationException("Interrupted while migrating the wiki databases", e);
+                } catch (ExecutionException e) {
+                    this.logger.error("Failed to migrate database [{}]", database, e.getCause());
+                    errorCount++;
+                }
+
+                this.progress.endStep(this);
+            }
+
+            return errorCount;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Migrate a given database from a migration thread.
+     *
+     * @param database name of the database to migrate
+     * @param parentContext the execution context of the thread which started the migrations
+     * @param parentXContext the XWiki context of the thread which started the migrations
+     * @return false if there is an error updating the database
+     * @throws ExecutionContextException if the execution context of the migration thread cannot be initialized
+     */
+    private boolean migrateDatabase(String database, ExecutionContext parentContext, XWikiContext parentXContext)
+        throws ExecutionContextException
+    {
+        ExecutionContext executionContext = this.executionContextManager.clone(parentContext);
+        parentXContext.clone().declareInExecutionContext(executionContext);
+        this.execution.setContext(executionContext);
+
+        // Don't check the database from the migration thread when accessing the store, the migration is in progress.
+        this.lock.lock();
+        try {
+            return migrateDatabase(database);
+        } finally {
+            this.lock.unlock();
+            this.execution.removeContext();
+        }
+    }
+
     /**
      * Returns the names of the databases that should be migrated. The main wiki database should have been migrated and
      * is never returned. This is controlled through the "xwiki.store.migration.databases" configuration property in
@@ -845,7 +976,7 @@ protected void startMigrations(Collection<XWikiMigration> migrations) throws Dat
                         migration.dataMigration.getName(), migration.dataMigration.getVersion(), database);
                 }
 
-                migration.dataMigration.migrate();
+                migrate(migration.dataMigration);
 
                 if (migration.dataMigration.getVersion().compareTo(curversion) > 0) {
                     curversion = migration.dataMigration.getVersion();
@@ -870,6 +1001,28 @@ protected void startMigrations(Collection<XWikiMigration> migrations) throws Dat
         setDatabaseToLastestVersion(curversion);
     }
 
+    /**
+     * Run a data migration, making sure the migrations which are not parallelizable are executed on one database at a
+     * time.
+     *
+     * @param dataMigration the data migration to execute
+     * @throws DataMigrationException if any error
+     */
+    private void migrate(DataMigration dataMigration) throws DataMigrationException
+    {
+        boolean sequential = !dataMigration.isParallelizable();
+        if (sequential) {
+            this.sequentialMigrationLock.lock();
+        }
+        try {
+            dataMigration.migrate();
+        } finally {
+            if (sequential) {
+                this.sequentialMigrationLock.unlock();
+            }
+        }
+    }
+
     /**
      * Set the database to the latest version when migration has all been processed. If migration is launch on an empty
      * DB or latest migration was unneeded, this method ensure that the database is properly set the latest DB version.
@@ -20,6 +20,7 @@
 package com.xpn.xwiki.store.migration;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Interface for data migration. New data migration should be named like "R"+vernum+issuenumber+"DataMigration" to
@@ -61,4 +62,18 @@
      * @return true if the migration should be executed or false otherwise
      */
     boolean shouldExecute(XWikiDBVersion startupVersion);
+
+    /**
+     * Indicate if the migration can be executed on several databases at the same time, when the data migration
+     * manager is configured to migrate the wikis in parallel. Migrations which keep some state between the calls to
+     * {@link #migrate()} are executed on one database at a time.
+     *
+     * @return true if the migration can be executed on several databases at the same time
+     * @since 11.3RC1
+     */
+    @Unstable
+    default boolean isParallelizable()
+    {
+        return false;
+    }
 }
@@ -24,14 +24,18 @@
 import javax.inject.Named;
 import javax.inject.Provider;
 
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
 import org.xwiki.component.manager.ComponentLookupException;
 import org.xwiki.component.manager.ComponentManager;
 import org.xwiki.context.Execution;
 import org.xwiki.context.ExecutionContext;
+import org.xwiki.stability.Unstable;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 import com.xpn.xwiki.store.migration.DataMigrationException;
 import com.xpn.xwiki.store.migration.DataMigrationManager;
@@ -46,6 +50,28 @@
  */
 public abstract class AbstractHibernateDataMigration implements HibernateDataMigration
 {
+    private static final long DEFAULT_BATCH_SIZE = 1000;
+
+    /**
+     * Callback migrating a batch of rows, used with {@link AbstractHibernateDataMigration#executeInBatches}.
+     *
+     * @version $Id$
+     * @since 11.3RC1
+     */
+    @Unstable
+    @FunctionalInterface
+    protected interface BatchHibernateCallback
+    {
+        /**
+         * @param session the Hibernate session of the transaction of this batch
+         * @param batchSize the maximum number of rows to load and update in this batch
+         * @return true if there are more rows to migrate, false otherwise
+         * @throws HibernateException if the batch fails to be migrated
+         * @throws XWikiException if the batch fails to be migrated
+         */
+        boolean doInHibernate(Session session, int batchSize) throws HibernateException, XWikiException;
+    }
+
     /**
      * Component manager used to access stores.
      */
@@ -133,6 +159,40 @@ public String getLiquibaseChangeLog() throws DataMigrationException
         return null;
     }
 
+    /**
+     * @return the maximum number of rows a migration should load and update in a single transaction, configured with
+     *         the "xwiki.store.migration.batchSize" property in xwiki.cfg
+     * @since 11.3RC1
+     */
+    @Unstable
+    protected int getBatchSize()
+    {
+        return (int) getXWikiContext().getWiki().ParamAsLong("xwiki.store.migration.batchSize", DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Execute the given callback in successive transactions until it indicates there is nothing left to migrate. This
+     * allows to migrate large tables without loading the whole result set in memory nor keeping a single huge
+     * transaction open: each call is expected to load and update at most {@link #getBatchSize()} rows.
+     *
+     * @param callback the callback migrating the next batch of rows
+     * @throws DataMigrationException if the store could not be reached
+     * @throws XWikiException if the store fails to migrate a batch
+     * @since 11.3RC1
+     */
+    @Unstable
+    protected void executeInBatches(BatchHibernateCallback callback) throws DataMigrationException, XWikiException
+    {
+        XWikiHibernateBaseStore store = getStore();
+        int batchSize = getBatchSize();
+        HibernateCallback<Boolean> batch = session -> callback.doInHibernate(session, batchSize);
+        boolean more;
+        do {
+            // Each batch is committed in its own transaction.
+            more = store.executeWrite(getXWikiContext(), batch);
+        } while (more);
+    }
+
     /**
      * @return the current DB version (after executing the previous migrations)
      * @throws DataMigrationException when failing to get the current DB version
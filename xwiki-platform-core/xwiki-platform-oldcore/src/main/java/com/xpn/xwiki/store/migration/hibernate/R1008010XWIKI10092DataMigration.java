@@ -28,7 +28,6 @@
 import javax.inject.Named;
 import javax.inject.Singleton;
 
-import org.hibernate.HibernateException;
 import org.hibernate.Query;
 import org.hibernate.Session;
 import org.xwiki.component.annotation.Component;
@@ -41,7 +40,6 @@
 import com.xpn.xwiki.objects.classes.BaseClass;
 import com.xpn.xwiki.objects.classes.PropertyClass;
 import com.xpn.xwiki.store.XWikiCacheStoreInterface;
-import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
 import com.xpn.xwiki.store.XWikiStoreInterface;
 import com.xpn.xwiki.store.migration.DataMigrationException;
 import com.xpn.xwiki.store.migration.XWikiDBVersion;
@@ -74,6 +72,12 @@ public XWikiDBVersion getVersion()
         return new XWikiDBVersion(1008010);
     }
 
+    @Override
+    public boolean isParallelizable()
+    {
+        return true;
+    }
+
     @Override
     protected void hibernateMigrate() throws DataMigrationException, XWikiException
     {
@@ -99,33 +103,35 @@ protected void hibernateMigrate() throws DataMigrationException, XWikiException
 
     private void migrateObjectsOfType(String className, BaseClass xclass) throws DataMigrationException, XWikiException
     {
-        getStore().executeWrite(getXWikiContext(), new HibernateCallback<Void>()
-        {
-            @Override
-            public Void doInHibernate(Session session) throws HibernateException, XWikiException
-            {
-                List<Long> objectIds = getObjectsWithMissingProperties(className, xclass.getPropertyList(), session);
-                for (Long objectId : objectIds) {
-                    addMissingProperties(objectId, xclass, session);
-                }
-
-                return null;
+        // Migrate the objects in batches (ordered by id) so that we don't load all the object ids in memory.
+        long[] lastObjectId = {Long.MIN_VALUE};
+        executeInBatches((session, batchSize) -> {
+            List<Long> objectIds = getObjectsWithMissingProperties(className, xclass.getPropertyList(),
+                lastObjectId[0], batchSize, session);
+            for (Long objectId : objectIds) {
+                addMissingProperties(objectId, xclass, session);
+                lastObjectId[0] = objectId;
             }
+
+            return objectIds.size() == batchSize;
         });
     }
 
     @SuppressWarnings("unchecked")
     private List<Long> getObjectsWithMissingProperties(String className, Set<String> expectedProperties,
-        Session session)
+        long afterObjectId, int batchSize, Session session)
     {
         // Get all the objects that have less properties than what their class declares (the expected property count).
         // Note that we count only the expected properties (those declared by the class).
         Query query = session.createQuery("select obj.id from BaseObject as obj, BaseProperty as prop "
             + "where obj.id = prop.id.id and obj.className = :className and prop.id.name in :expectedProperties "
-            + "group by obj.id having count(prop) < :expectedPropertyCount");
+            + "and obj.id > :afterObjectId "
+            + "group by obj.id having count(prop) < :expectedPropertyCount order by obj.id");
         query.setString("className", className);
         query.setParameterList("expectedProperties", expectedProperties);
+        query.setLong("afterObjectId", afterObjectId);
         query.setLong("expectedPropertyCount", expectedProperties.size());
+        query.setMaxResults(batchSize);
         return query.list();
     }
 
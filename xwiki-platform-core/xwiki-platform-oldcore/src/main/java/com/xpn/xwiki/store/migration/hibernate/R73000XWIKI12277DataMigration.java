@@ -63,6 +63,12 @@ public XWikiDBVersion getVersion()
         return new XWikiDBVersion(73000);
     }
 
+    @Override
+    public boolean isParallelizable()
+    {
+        return true;
+    }
+
     @Override
     public void hibernateMigrate() throws DataMigrationException, XWikiException
     {
@@ -19,7 +19,9 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Type;
 import java.net.URLDecoder;
@@ -30,8 +32,18 @@
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.xwiki.environment.Environment;
 import org.xwiki.filter.FilterException;
 import org.xwiki.filter.input.InputFilterStream;
 import org.xwiki.filter.input.InputFilterStreamFactory;
@@ -42,6 +54,10 @@
 import org.xwiki.filter.output.OutputFilterStreamFactory;
 import org.xwiki.filter.type.FilterStreamType;
 import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.JobStatusStore;
+import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReferenceSerializer;
@@ -59,8 +75,11 @@
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.export.html.HtmlPackager;
+import com.xpn.xwiki.internal.export.ExportJob;
+import com.xpn.xwiki.internal.export.ExportRequest;
 import com.xpn.xwiki.internal.export.OfficeExporter;
 import com.xpn.xwiki.internal.export.OfficeExporterURLFactory;
+import com.xpn.xwiki.job.JobRequestContext;
 import com.xpn.xwiki.pdf.api.PdfExport;
 import com.xpn.xwiki.pdf.api.PdfExport.ExportType;
 import com.xpn.xwiki.pdf.impl.PdfExportImpl;
@@ -80,6 +99,24 @@ public class ExportAction extends XWikiAction
      */
     private static String PAGE_SEPARATOR = "&";
 
+    /**
+     * The request parameter used to start the export in background.
+     */
+    private static final String PARAMETER_ASYNC = "async";
+
+    /**
+     * The request parameter used to download the result of an export started in background.
+     */
+    private static final String PARAMETER_EXPORTID = "exportId";
+
+    private static final String EXCEPTION = "exception";
+
+    private static final String FORMAT_XAR = ExportJob.FORMAT_XAR;
+
+    private static final String FORMAT_HTML = ExportJob.FORMAT_HTML;
+
+    private static final Pattern RANGE_HEADER_PATTERN = Pattern.compile("bytes=([0-9]+)?-([0-9]+)?");
+
     /**
      * Define the different format supported by the export.
      */
@@ -183,7 +220,12 @@ public String render(XWikiContext context) throws XWikiException
             XWikiRequest request = context.getRequest();
             String format = request.get("format");
 
-            if ((format == null) || (format.equals("xar"))) {
+            if (request.get(PARAMETER_EXPORTID) != null) {
+                defaultPage = downloadExport(request.get(PARAMETER_EXPORTID), context);
+            } else if (Boolean.valueOf(request.get(PARAMETER_ASYNC))
+                && (format == null || format.equals(FORMAT_XAR) || format.equals(FORMAT_HTML))) {
+                defaultPage = startExport(StringUtils.defaultString(format, FORMAT_XAR), context);
+            } else if ((format == null) || (format.equals("xar"))) {
                 defaultPage = exportXAR(context);
             } else if (format.equals("html")) {
                 defaultPage = exportHTML(context);
@@ -198,6 +240,162 @@ public String render(XWikiContext context) throws XWikiException
         return defaultPage;
     }
 
+    /**
+     * Start a XAR or HTML export in background and answer with the identifier of the export. The progress of the
+     * export can be followed using the job status of the job with identifier {@code export/<exportId>} and the result
+     * downloaded with the {@code exportId} request parameter once the export is finished.
+     *
+     * @param format the format of the export
+     * @param context the XWiki context
+     * @return always return null or "exception" if the user is not allowed to export
+     * @throws Exception when failing to start the export
+     */
+    private String startExport(String format, XWikiContext context) throws Exception
+    {
+        XWikiRequest request = context.getRequest();
+
+        ExportArguments exportArguments =
+            new ExportArguments(context, FORMAT_HTML.equals(format) ? ExportFormat.HTML : ExportFormat.XAR);
+
+        ExportRequest exportRequest = new ExportRequest(UUID.randomUUID().toString());
+        exportRequest.setFormat(format);
+        exportRequest.setDescription(exportArguments.description);
+
+        if (FORMAT_XAR.equals(format)) {
+            if (!context.getWiki().getRightService().hasWikiAdminRights(context)) {
+                context.put("message", "needadminrights");
+                return EXCEPTION;
+            }
+
+            boolean all = exportArguments.exportPages.isEmpty();
+            exportRequest.setName(StringUtils.defaultIfEmpty(exportArguments.name, all ? "backup" : "export"));
+            if (all) {
+                exportRequest.setWiki(new WikiReference(context.getWikiId()));
+            } else {
+                exportRequest.setPages(new ArrayList<>(resolvePages(exportArguments, context)));
+            }
+            exportRequest.setHistory(Boolean.valueOf(request.get("history")));
+            exportRequest.setBackup(Boolean.valueOf(request.get("backup")));
+            exportRequest.setAuthor(request.get("author"));
+            exportRequest.setLicense(request.get("licence"));
+            exportRequest.setVersion(request.get("version"));
+        } else {
+            exportRequest.setName(exportArguments.name);
+            exportRequest.setPages(new ArrayList<>(resolvePages(exportArguments, context)));
+            exportRequest.setThreads((int) context.getWiki().ParamAsLong("xwiki.action.export.html.threads", 4));
+        }
+
+        // Give a few context related values to the job (wiki, user, request URL)
+        JobRequestContext.set(exportRequest, context);
+
+        Utils.getComponent(JobExecutor.class).execute(ExportJob.JOBTYPE, exportRequest);
+
+        Map<String, String> answer = new LinkedHashMap<>();
+        answer.put(PARAMETER_EXPORTID, exportRequest.getExportId());
+        answer.put("jobId", StringUtils.join(exportRequest.getId(), '/'));
+        answerJSON(context, HttpServletResponse.SC_ACCEPTED, answer);
+
+        return null;
+    }
+
+    /**
+     * Send the result of an export started in background. A {@code 202 Accepted} JSON answer is sent when the export
+     * is not finished yet.
+     *
+     * @param exportId the identifier of the export
+     * @param context the XWiki context
+     * @return always return null or "exception" if the export cannot be found
+     * @throws XWikiException when failing to send the export
+     * @throws IOException when failing to send the export
+     */
+    private String downloadExport(String exportId, XWikiContext context) throws XWikiException, IOException
+    {
+        List<String> jobId = ExportRequest.getJobId(exportId);
+
+        Job job = Utils.getComponent(JobExecutor.class).getJob(jobId);
+        JobStatus status = job != null ? job.getStatus() : Utils.getComponent(JobStatusStore.class).getJobStatus(jobId);
+
+        // Only the user who started the export is allowed to download it
+        JobRequestContext jobContext = status != null ? status.getRequest().getProperty(JobRequestContext.KEY) : null;
+        if (jobContext == null || !Objects.equals(jobContext.getUserReference(), context.getUserReference())) {
+            context.put("message", "core.export.notFound");
+            return EXCEPTION;
+        }
+
+        ExportRequest exportRequest = new ExportRequest(status.getRequest());
+        File exportFile = ExportJob.getExportFile(Utils.getComponent(Environment.class), exportRequest.getExportId(),
+            exportRequest.getFormat());
+
+        if (status.getState() != JobStatus.State.FINISHED || exportFile == null || !exportFile.exists()) {
+            Map<String, String> answer = new LinkedHashMap<>();
+            answer.put(PARAMETER_EXPORTID, exportId);
+            answer.put("state", String.valueOf(status.getState()));
+            answer.put("progress", String.valueOf(status.getProgress().getOffset()));
+            answerJSON(context, status.getState() == JobStatus.State.FINISHED
+                ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : HttpServletResponse.SC_ACCEPTED, answer);
+        } else {
+            String name = StringUtils.defaultIfEmpty(exportRequest.getName(), exportId);
+            sendExportFile(exportFile, name + '.' + ExportJob.getExtension(exportRequest.getFormat()), context);
+            context.setFinished(true);
+        }
+
+        return null;
+    }
+
+    /**
+     * Send the passed file in the response, supporting single byte range requests so that large exports can be
+     * downloaded in several parts or resumed.
+     *
+     * @param file the file to send
+     * @param fileName the name of the file proposed to the client
+     * @param context the XWiki context
+     * @throws IOException when failing to send the file
+     */
+    private void sendExportFile(File file, String fileName, XWikiContext context) throws IOException
+    {
+        XWikiRequest request = context.getRequest();
+        XWikiResponse response = context.getResponse();
+
+        long length = file.length();
+        long start = 0;
+        long end = length - 1;
+
+        String range = request.getHeader("Range");
+        Matcher matcher = range != null ? RANGE_HEADER_PATTERN.matcher(range) : null;
+        if (matcher != null && matcher.matches() && (matcher.group(1) != null || matcher.group(2) != null)) {
+            Long rangeStart = NumberUtils.createLong(matcher.group(1));
+            Long rangeEnd = NumberUtils.createLong(matcher.group(2));
+            if (rangeStart == null) {
+                // Tail request, output the last <end> bytes
+                start = Math.max(length - rangeEnd, 0L);
+            } else {
+                start = rangeStart;
+                end = rangeEnd != null ? Math.min(rangeEnd, length - 1) : end;
+            }
+
+            if (start >= length || start > end) {
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + '-' + end + '/' + length);
+        }
+
+        response.setContentType("application/zip");
+        response.addHeader("Content-disposition", "attachment; filename=" + Util.encodeURI(fileName, context));
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setDateHeader("Last-Modified", file.lastModified());
+        if (end - start + 1 < Integer.MAX_VALUE) {
+            response.setContentLength((int) (end - start + 1));
+        }
+
+        try (InputStream stream = FileUtils.openInputStream(file)) {
+            IOUtils.copyLarge(stream, response.getOutputStream(), start, end - start + 1);
+        }
+    }
+
     /**
      * Create ZIP archive containing wiki pages rendered in HTML, attached files and used skins.
      *
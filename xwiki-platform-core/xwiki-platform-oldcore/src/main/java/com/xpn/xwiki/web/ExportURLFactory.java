@@ -280,9 +280,8 @@ public URL createSkinURL(String fileName, String spaces, String name, String wik
 
             String filePath = filePathBuffer.toString();
 
-            if (!getFilesystemExportContext().hasExportedSkinFile(filePath)) {
-                getFilesystemExportContext().addExportedSkinFile(filePath);
-
+            // Several pages might be rendered in parallel so make sure only one of them exports a given skin file
+            if (getFilesystemExportContext().markExportedSkinFile(filePath)) {
                 File file = new File(getFilesystemExportContext().getExportDir(), filePath);
                 if (!file.exists()) {
                     // Make sure the folder exists
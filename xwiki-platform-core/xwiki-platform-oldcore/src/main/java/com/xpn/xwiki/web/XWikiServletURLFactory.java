@@ -31,6 +31,8 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -56,6 +58,27 @@ public class XWikiServletURLFactory extends XWikiDefaultURLFactory
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(XWikiServletURLFactory.class);
 
+    private static final Pattern JSESSIONID_PATTERN = Pattern.compile(";jsessionid=.*?(?=\\?|$)");
+
+    private static final String JSESSIONID = ";jsessionid=";
+
+    /**
+     * The maximum number of entries kept in the encoded segments and server prefixes caches.
+     */
+    private static final int CACHE_MAX_SIZE = 1000;
+
+    /**
+     * Cache of the URL-encoded space and page names (the same names are encoded over and over again when rendering a
+     * page containing many links).
+     */
+    private static final Map<String, String> ENCODED_SEGMENTS = new ConcurrentHashMap<>();
+
+    /**
+     * Empty string used in {@link #serverPrefixes} to remember that the context path resolved against a server URL
+     * cannot be used as a simple prefix.
+     */
+    private static final String NO_PREFIX = "";
+
     private EntityReferenceResolver<String> relativeEntityReferenceResolver;
 
     private EntityResourceActionLister actionLister;
@@ -72,6 +95,12 @@ public class XWikiServletURLFactory extends XWikiDefaultURLFactory
 
     protected String contextPath;
 
+    /**
+     * The context path resolved against the server URLs, indexed by server URL. This allows to generate most URLs by
+     * simple concatenation instead of parsing again the whole URL.
+     */
+    private final Map<String, String> serverPrefixes = new ConcurrentHashMap<>();
+
     public XWikiServletURLFactory()
     {
     }
@@ -99,6 +128,7 @@ public XWikiServletURLFactory(XWikiContext context)
     public void init(XWikiContext context)
     {
         this.defaultURLs = null;
+        this.serverPrefixes.clear();
 
         this.contextPath = context.getWiki().getWebAppPath(context);
 
@@ -292,7 +322,7 @@ public URL createURL(String spaces, String name, String action, String querystri
 
         URL result;
         try {
-            result = normalizeURL(new URL(getServerURL(xwikidb, context), path.toString()), context);
+            result = createURL(getServerURL(xwikidb, context), path, context);
         } catch (MalformedURLException e) {
             // This should not happen
             result = null;
@@ -301,6 +331,97 @@ public URL createURL(String spaces, String name, String action, String querystri
         return result;
     }
 
+    /**
+     * Resolve the passed path (starting with the context path) against the passed server URL and normalize the result.
+     * <p>
+     * This produces the same result as {@code normalizeURL(new URL(serverURL, path.toString()), context)} but reuses
+     * the already resolved context path when possible to avoid parsing the whole URL twice.
+     *
+     * @param serverURL the server URL
+     * @param path the path to resolve, starting with the context path
+     * @param context the XWiki context
+     * @return the normalized URL
+     * @throws MalformedURLException if the resulting URL is invalid
+     */
+    private URL createURL(URL serverURL, StringBuilder path, XWikiContext context) throws MalformedURLException
+    {
+        if (serverURL != null && this.contextPath != null && isAppendablePath(path)) {
+            String prefix = getServerPrefix(serverURL);
+            if (prefix != NO_PREFIX) {
+                path.replace(0, this.contextPath.length(), prefix);
+
+                return normalizeURL(path.toString(), context);
+            }
+        }
+
+        return normalizeURL(new URL(serverURL, path.toString()), context);
+    }
+
+    private String getServerPrefix(URL serverURL)
+    {
+        String serverURLString = serverURL.toExternalForm();
+
+        String prefix = this.serverPrefixes.get(serverURLString);
+        if (prefix == null) {
+            prefix = NO_PREFIX;
+            try {
+                String resolved = new URL(serverURL, this.contextPath).toExternalForm();
+                // The prefix can only be concatenated to the rest of the path if it's a clean directory URL
+                if (resolved.endsWith("/") && resolved.indexOf('?') < 0 && resolved.indexOf('#') < 0
+                    && !resolved.contains("/./") && !resolved.contains("/../")) {
+                    prefix = resolved;
+                }
+            } catch (MalformedURLException e) {
+                // Let the standard resolution report the problem
+            }
+
+            if (this.serverPrefixes.size() >= CACHE_MAX_SIZE) {
+                this.serverPrefixes.clear();
+            }
+            this.serverPrefixes.put(serverURLString, prefix);
+        }
+
+        return prefix;
+    }
+
+    /**
+     * @param path the path to check, starting with the context path
+     * @return {@code true} if resolving the path against a URL is the same as concatenating the part following the
+     *         context path to the resolved context path
+     */
+    private boolean isAppendablePath(CharSequence path)
+    {
+        int length = path.length();
+        int start = this.contextPath.length();
+        if (length == 0 || length < start || path.charAt(0) <= ' ' || path.charAt(length - 1) <= ' '
+            || (start == 0 && path.charAt(0) == '/')) {
+            return false;
+        }
+
+        boolean segmentStart = start == 0 || path.charAt(start - 1) == '/';
+        boolean slashFound = false;
+        for (int i = 0; i < length; ++i) {
+            char c = path.charAt(i);
+            if (c == '?' || c == '#') {
+                break;
+            } else if (c == ':' && !slashFound) {
+                // Could be interpreted as a scheme
+                return false;
+            } else if (c == '/') {
+                slashFound = true;
+            }
+            if (i >= start) {
+                if (c == '.' && segmentStart) {
+                    // Potential dot segment
+                    return false;
+                }
+                segmentStart = c == '/';
+            }
+        }
+
+        return true;
+    }
+
     private void addServletPath(StringBuilder path, String xwikidb, XWikiContext context)
     {
         if (xwikidb == null) {
@@ -404,16 +525,23 @@ private String encodeWithinPath(String name)
         // }
         // return encodedName;
 
-        String encodedName;
-        try {
-            encodedName = URLEncoder.encode(name, "UTF-8");
-        } catch (Exception e) {
-            // Should not happen (UTF-8 is always available)
-            throw new RuntimeException("Missing charset [UTF-8]", e);
-        }
+        String encodedName = ENCODED_SEGMENTS.get(name);
+        if (encodedName == null) {
+            try {
+                encodedName = URLEncoder.encode(name, "UTF-8");
+            } catch (Exception e) {
+                // Should not happen (UTF-8 is always available)
+                throw new RuntimeException("Missing charset [UTF-8]", e);
+            }
 
-        // The previous call will convert " " into "+" (and "+" into "%2B") so we need to convert "+" into "%20"
-        encodedName = encodedName.replaceAll("\\+", "%20");
+            // The previous call will convert " " into "+" (and "+" into "%2B") so we need to convert "+" into "%20"
+            encodedName = StringUtils.replace(encodedName, "+", "%20");
+
+            if (ENCODED_SEGMENTS.size() >= CACHE_MAX_SIZE) {
+                ENCODED_SEGMENTS.clear();
+            }
+            ENCODED_SEGMENTS.put(name, encodedName);
+        }
 
         return encodedName;
     }
@@ -685,7 +813,7 @@ private URL internalCreateAttachmentURL(String filename, String spaces, String n
         }
 
         try {
-            return normalizeURL(new URL(getServerURL(xwikidb, context), path.toString()), context);
+            return createURL(getServerURL(xwikidb, context), path, context);
         } catch (Exception e) {
             return null;
         }
@@ -909,7 +1037,9 @@ protected static URL normalizeURL(String url, XWikiContext context) throws Malfo
         String encodedURLAsString = context.getResponse().encodeURL(url);
 
         // Remove a potential jsessionid in the URL
-        encodedURLAsString = encodedURLAsString.replaceAll(";jsessionid=.*?(?=\\?|$)", "");
+        if (encodedURLAsString.contains(JSESSIONID)) {
+            encodedURLAsString = JSESSIONID_PATTERN.matcher(encodedURLAsString).replaceAll("");
+        }
 
         return new URL(encodedURLAsString);
     }
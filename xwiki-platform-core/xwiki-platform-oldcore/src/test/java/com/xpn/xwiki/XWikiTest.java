@@ -23,10 +23,12 @@
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -42,11 +44,15 @@
 import org.xwiki.bridge.event.DocumentCreatingEvent;
 import org.xwiki.bridge.event.DocumentDeletedEvent;
 import org.xwiki.bridge.event.DocumentDeletingEvent;
+import org.xwiki.bridge.event.DocumentUpdatingEvent;
 import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.localization.LocalizationContext;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.observation.AbstractEventListener;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.ObservationManager;
+import org.xwiki.observation.event.CancelableEvent;
+import org.xwiki.observation.event.Event;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
@@ -386,6 +392,100 @@ public void testSaveDocumentSendsObservationEvents() throws Exception
         this.xwiki.saveDocument(document, getContext());
     }
 
+    /**
+     * Verify that saveDocuments saves all the documents at once and sends the events around that save.
+     */
+    public void testSaveDocumentsSendsObservationEventsAroundSave() throws Exception
+    {
+        final List<String> calls = new ArrayList<>();
+        this.mockXWikiStore.stubs().method("saveXWikiDocs").will(
+            new CustomStub("Implements XWikiStoreInterface.saveXWikiDocs")
+            {
+                @Override
+                public Object invoke(Invocation invocation) throws Throwable
+                {
+                    for (Object document : (Collection<?>) invocation.parameterValues.get(0)) {
+                        calls.add("save " + ((XWikiDocument) document).getDocumentReference().getName());
+                    }
+                    return null;
+                }
+            });
+
+        ObservationManager om = getComponentManager().getInstance(ObservationManager.class);
+        om.addListener(new AbstractEventListener("testlistener", new DocumentCreatingEvent(),
+            new DocumentCreatedEvent())
+        {
+            @Override
+            public void onEvent(Event event, Object source, Object data)
+            {
+                calls.add(event.getClass().getSimpleName() + ' '
+                    + ((XWikiDocument) source).getDocumentReference().getName());
+            }
+        });
+
+        XWikiDocument document1 = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document1"));
+        XWikiDocument document2 = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document2"));
+
+        this.xwiki.saveDocuments(Arrays.asList(document1, document2), "comment", false, getContext());
+
+        assertEquals(Arrays.asList("DocumentCreatingEvent Document1", "DocumentCreatingEvent Document2",
+            "save Document1", "save Document2", "DocumentCreatedEvent Document1", "DocumentCreatedEvent Document2"),
+            calls);
+        assertEquals("comment", document1.getComment());
+    }
+
+    /**
+     * Verify that saveDocuments doesn't modify anything when the save of a document of the batch is canceled.
+     */
+    public void testSaveDocumentsCanceledPartwayThroughBatch() throws Exception
+    {
+        // The first document of the batch replaces an existing document
+        XWikiDocument existingDocument = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document1"));
+        this.xwiki.saveDocument(existingDocument, getContext());
+
+        final List<String> calls = new ArrayList<>();
+        this.mockXWikiStore.stubs().method("saveXWikiDocs").will(
+            new CustomStub("Implements XWikiStoreInterface.saveXWikiDocs")
+            {
+                @Override
+                public Object invoke(Invocation invocation) throws Throwable
+                {
+                    calls.add("save");
+                    return null;
+                }
+            });
+
+        ObservationManager om = getComponentManager().getInstance(ObservationManager.class);
+        om.addListener(new AbstractEventListener("testlistener", new DocumentCreatingEvent(),
+            new DocumentUpdatingEvent())
+        {
+            @Override
+            public void onEvent(Event event, Object source, Object data)
+            {
+                String name = ((XWikiDocument) source).getDocumentReference().getName();
+                calls.add(event.getClass().getSimpleName() + ' ' + name);
+                if (name.equals("Document2")) {
+                    ((CancelableEvent) event).cancel("canceled");
+                }
+            }
+        });
+
+        XWikiDocument document1 = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document1"));
+        XWikiDocument document2 = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document2"));
+        XWikiDocument document3 = new XWikiDocument(new DocumentReference("xwikitest", "Some", "Document3"));
+
+        try {
+            this.xwiki.saveDocuments(Arrays.asList(document1, document2, document3), "comment", false, getContext());
+            fail("The save should have been canceled");
+        } catch (XWikiException expected) {
+            assertEquals(XWikiException.ERROR_XWIKI_STORE_HIBERNATE_SAVING_DOC, expected.getCode());
+        }
+
+        assertEquals(Arrays.asList("DocumentUpdatingEvent Document1", "DocumentCreatingEvent Document2"), calls);
+        // The replaced document has not been deleted
+        assertSame(existingDocument, this.docs.get("Document1"));
+    }
+
     /**
      * We only verify here that the deleteDocument API calls the Observation component.
      */
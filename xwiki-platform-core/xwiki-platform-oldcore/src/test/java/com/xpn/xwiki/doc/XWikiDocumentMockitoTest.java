@@ -518,6 +518,66 @@ public void testCloneNullObjects()
         assertEquals(2, duplicatedDocument.getXObjects(duplicatedClassReference).size());
     }
 
+    @Test
+    public void lazyClone() throws XWikiException
+    {
+        DocumentReference otherClassReference = new DocumentReference(DOCWIKI, DOCSPACE, "OtherClass");
+        BaseObject otherObject = this.document.newXObject(otherClassReference, this.oldcore.getXWikiContext());
+        XWikiAttachment attachment = new XWikiAttachment(this.document, "file.txt");
+        this.document.setAttachment(attachment);
+
+        XWikiDocument clonedDocument = this.document.lazyClone();
+
+        BaseObject clonedObject = clonedDocument.getXObject(CLASS_REFERENCE, 0);
+        assertNotSame(this.baseObject, clonedObject);
+        assertEquals(this.baseObject, clonedObject);
+        assertSame(clonedDocument, clonedObject.getOwnerDocument());
+        assertEquals(2, clonedDocument.getXObjects(CLASS_REFERENCE).size());
+
+        clonedObject.setStringValue("string", "modified");
+        assertEquals("string", this.baseObject.getStringValue("string"));
+
+        BaseObject clonedOtherObject = clonedDocument.getXObject(otherClassReference);
+        assertNotSame(otherObject, clonedOtherObject);
+        assertSame(clonedDocument, clonedOtherObject.getOwnerDocument());
+
+        XWikiAttachment clonedAttachment = clonedDocument.getAttachment("file.txt");
+        assertNotSame(attachment, clonedAttachment);
+        assertSame(clonedDocument, clonedAttachment.getDoc());
+
+        // Modifying the clone does not affect the source document
+        clonedDocument.removeXObjects(otherClassReference);
+        assertSame(otherObject, this.document.getXObject(otherClassReference));
+        assertNull(clonedDocument.getXObject(otherClassReference));
+    }
+
+    @Test
+    public void lazyCloneIsNotAffectedBySourceModifications() throws XWikiException
+    {
+        DocumentReference otherClassReference = new DocumentReference(DOCWIKI, DOCSPACE, "OtherClass");
+        this.document.newXObject(otherClassReference, this.oldcore.getXWikiContext());
+        XWikiAttachment attachment = new XWikiAttachment(this.document, "file.txt");
+        attachment.setComment("comment");
+        this.document.setAttachment(attachment);
+
+        XWikiDocument clonedDocument = this.document.lazyClone();
+
+        // Modify the source document after the clone has been created
+        this.document.getXObject(CLASS_REFERENCE, 0).setStringValue("string", "modified");
+        this.document.getAttachment("file.txt").setComment("modified");
+        this.document.removeXObjects(otherClassReference);
+
+        BaseObject clonedObject = clonedDocument.getXObject(CLASS_REFERENCE, 0);
+        assertEquals("string", clonedObject.getStringValue("string"));
+        assertSame(clonedDocument, clonedObject.getOwnerDocument());
+        assertEquals("comment", clonedDocument.getAttachment("file.txt").getComment());
+        assertNotNull(clonedDocument.getXObject(otherClassReference));
+
+        // And the other way around
+        clonedObject.setStringValue("string", "modified in clone");
+        assertEquals("modified", this.document.getXObject(CLASS_REFERENCE, 0).getStringValue("string"));
+    }
+
     @Test
     public void testToStringReturnsFullName()
     {
@@ -38,6 +38,7 @@
 import org.mockito.stubbing.Answer;
 import org.xwiki.context.Execution;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.configuration.ExtendedRenderingConfiguration;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.test.annotation.AllComponents;
@@ -219,6 +220,23 @@ public void getUniqueLinkedPages10()
             new HashSet<String>(linkedPages));
     }
 
+    @Test
+    public void getReadOnlyXDOM()
+    {
+        this.document.setSyntax(Syntax.XWIKI_2_1);
+        this.document.setContent("content");
+
+        XDOM xdom = this.document.getReadOnlyXDOM();
+
+        assertSame(xdom, this.document.getReadOnlyXDOM());
+        assertNotSame(xdom, this.document.getXDOM());
+        assertEquals(xdom.getChildren().size(), this.document.getXDOM().getChildren().size());
+
+        this.document.setContent("other content");
+
+        assertNotSame(xdom, this.document.getReadOnlyXDOM());
+    }
+
     @Test
     public void getUniqueLinkedPages20()
     {
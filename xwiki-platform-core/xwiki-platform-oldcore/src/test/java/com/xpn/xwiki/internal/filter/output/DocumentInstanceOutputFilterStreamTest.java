@@ -19,19 +19,33 @@
  */
 package com.xpn.xwiki.internal.filter.output;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.junit.jupiter.api.Test;
 import org.xwiki.filter.FilterException;
+import org.xwiki.filter.input.BeanInputFilterStreamFactory;
+import org.xwiki.filter.input.DefaultInputStreamInputSource;
+import org.xwiki.filter.input.InputFilterStream;
+import org.xwiki.filter.input.InputFilterStreamFactory;
 import org.xwiki.filter.instance.output.DocumentInstanceOutputProperties;
+import org.xwiki.filter.output.OutputFilterStream;
+import org.xwiki.filter.type.FilterStreamType;
+import org.xwiki.filter.xar.input.XARInputProperties;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.rendering.syntax.Syntax;
 import org.xwiki.rendering.syntax.SyntaxType;
 
+import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
 import com.xpn.xwiki.doc.XWikiAttachment;
 import com.xpn.xwiki.doc.XWikiDocument;
@@ -44,6 +58,15 @@
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 /**
  * Validate {@link DocumentInstanceOutputFilterStream}.
@@ -432,4 +455,138 @@ public void testDocumentwithobjectwithoutnumberandclass() throws FilterException
         assertEquals(1, documentObject.getFieldList().size());
         assertEquals("propvalue", documentObject.getStringValue("prop"));
     }
+
+    @Test
+    public void testImportDocumentsInBatches() throws FilterException, XWikiException
+    {
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+
+        outputProperties.setVersionPreserved(true);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveBatchSize(10);
+
+        importFromXML("document1", outputProperties);
+
+        // One batch by finished space containing pending documents
+        verify(this.oldcore.getSpyXWiki(), times(2)).saveDocuments(any(), isNull(), anyBoolean(),
+            any(XWikiContext.class));
+
+        XWikiDocument document = this.oldcore.getSpyXWiki().getDocument(new DocumentReference("wiki", "space", "page"),
+            this.oldcore.getXWikiContext());
+
+        assertFalse(document.isNew());
+        assertEquals("1.42", document.getVersion());
+        assertEquals("comment", document.getComment());
+        assertEquals("content", document.getContent());
+
+        XWikiDocument nestedDocument = this.oldcore.getSpyXWiki().getDocument(
+            new DocumentReference("wiki", Arrays.asList("space", "nestedspace"), "page"),
+            this.oldcore.getXWikiContext());
+
+        assertFalse(nestedDocument.isNew());
+        assertEquals("1.52", nestedDocument.getVersion());
+    }
+
+    private void addXAREntry(ZipArchiveOutputStream xar, String page) throws IOException
+    {
+        xar.putArchiveEntry(new ZipArchiveEntry("space/" + page + ".xml"));
+        xar.write(("<xwikidoc version=\"1.1\" reference=\"space." + page + "\" locale=\"\">"
+            + "<web>space</web><name>" + page + "</name><language></language><defaultLanguage>en</defaultLanguage>"
+            + "<translation>0</translation><content>" + page + " content</content></xwikidoc>")
+                .getBytes(StandardCharsets.UTF_8));
+        xar.closeArchiveEntry();
+    }
+
+    private void importFromXAR(DocumentInstanceOutputProperties outputProperties, String... pages) throws Exception
+    {
+        ByteArrayOutputStream xar = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(xar)) {
+            for (String page : pages) {
+                addXAREntry(zip, page);
+            }
+        }
+
+        XARInputProperties xarProperties = new XARInputProperties();
+        xarProperties.setSource(new DefaultInputStreamInputSource(new ByteArrayInputStream(xar.toByteArray())));
+
+        BeanInputFilterStreamFactory<XARInputProperties> xarInputFilterStreamFactory = this.oldcore.getMocker()
+            .getInstance(InputFilterStreamFactory.class, FilterStreamType.XWIKI_XAR_CURRENT.serialize());
+
+        try (InputFilterStream inputFilterStream = xarInputFilterStreamFactory.createInputFilterStream(xarProperties);
+            OutputFilterStream outputFilterStream =
+                this.outputFilterStreamFactory.createOutputFilterStream(outputProperties)) {
+            inputFilterStream.read(outputFilterStream.getFilter());
+        }
+    }
+
+    @Test
+    public void testImportXARInBatchesOfTheStoreByDefault() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.save.batchSize", 2L);
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVersionPreserved(false);
+        outputProperties.setVerbose(false);
+
+        importFromXAR(outputProperties, "page1", "page2", "page3");
+
+        // Two full batches: the first when the batch size is reached and the second at the end of the space
+        verify(this.oldcore.getSpyXWiki(), times(2)).saveDocuments(any(), isNull(), anyBoolean(),
+            any(XWikiContext.class));
+
+        for (String page : Arrays.asList("page1", "page2", "page3")) {
+            XWikiDocument document = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference("wiki", "space", page), this.oldcore.getXWikiContext());
+
+            assertFalse(document.isNew());
+            assertEquals(page + " content", document.getContent());
+        }
+    }
+
+    @Test
+    public void testImportXARDocumentByDocument() throws Exception
+    {
+        this.oldcore.getMockXWikiCfg().setProperty("xwiki.store.save.batchSize", 10L);
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVersionPreserved(false);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveBatchSize(1);
+
+        importFromXAR(outputProperties, "page1", "page2");
+
+        verify(this.oldcore.getSpyXWiki(), never()).saveDocuments(any(), any(), anyBoolean(),
+            any(XWikiContext.class));
+        verify(this.oldcore.getSpyXWiki(), times(2)).saveDocument(any(XWikiDocument.class), eq("Import"),
+            anyBoolean(), any(XWikiContext.class));
+    }
+
+    @Test
+    public void testImportXARDocumentByDocumentWhenBatchSaveFails() throws Exception
+    {
+        doThrow(new XWikiException()).when(this.oldcore.getSpyXWiki()).saveDocuments(any(), any(), anyBoolean(),
+            any(XWikiContext.class));
+        doThrow(new XWikiException()).when(this.oldcore.getSpyXWiki()).saveDocument(
+            argThat(document -> document.getDocumentReference().getName().equals("page2")), any(), anyBoolean(),
+            any(XWikiContext.class));
+
+        DocumentInstanceOutputProperties outputProperties = new DocumentInstanceOutputProperties();
+        outputProperties.setVersionPreserved(false);
+        outputProperties.setVerbose(false);
+        outputProperties.setSaveBatchSize(10);
+        outputProperties.setStoppedWhenSaveFail(false);
+
+        importFromXAR(outputProperties, "page1", "page2", "page3");
+
+        // The documents of the failed batch are saved one by one so that only the failing document is lost
+        verify(this.oldcore.getSpyXWiki(), times(3)).saveDocument(any(XWikiDocument.class), eq("Import"),
+            anyBoolean(), any(XWikiContext.class));
+
+        for (String page : Arrays.asList("page1", "page2", "page3")) {
+            XWikiDocument document = this.oldcore.getSpyXWiki()
+                .getDocument(new DocumentReference("wiki", "space", page), this.oldcore.getXWikiContext());
+
+            assertEquals(!page.equals("page2"), !document.isNew());
+        }
+    }
 }
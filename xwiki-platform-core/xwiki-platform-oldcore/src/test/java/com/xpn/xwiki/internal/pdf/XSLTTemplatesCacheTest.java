@@ -0,0 +1,115 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.internal.pdf;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.cache.Cache;
+import org.xwiki.cache.CacheManager;
+import org.xwiki.cache.config.CacheConfiguration;
+import org.xwiki.test.annotation.BeforeComponent;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.xml.XMLReaderFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link XSLTTemplatesCache}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class XSLTTemplatesCacheTest
+{
+    private static final String XSLT = "<xsl:stylesheet version=\"1.0\" "
+        + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:output method=\"text\"/>"
+        + "<xsl:template match=\"/\">%s<xsl:value-of select=\"/root\"/></xsl:template>"
+        + "</xsl:stylesheet>";
+
+    @MockComponent
+    private CacheManager cacheManager;
+
+    @MockComponent
+    private XMLReaderFactory xmlReaderFactory;
+
+    @InjectMockComponents
+    private XSLTTemplatesCache templatesCache;
+
+    private Map<String, Templates> cacheContent = new HashMap<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.xmlReaderFactory.createXMLReader())
+            .then(invocation -> SAXParserFactory.newInstance().newSAXParser().getXMLReader());
+    }
+
+    @BeforeComponent
+    public void beforeComponent() throws Exception
+    {
+        Cache<Templates> cache = mock(Cache.class);
+        when(this.cacheManager.<Templates>createNewCache(any(CacheConfiguration.class))).thenReturn(cache);
+        when(cache.get(anyString())).then(invocation -> this.cacheContent.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> this.cacheContent.put(invocation.getArgument(0), invocation.getArgument(1)))
+            .when(cache).set(anyString(), any(Templates.class));
+    }
+
+    @Test
+    public void getTemplates() throws Exception
+    {
+        Templates templates = this.templatesCache.getTemplates(String.format(XSLT, "Hello "));
+
+        assertSame(templates, this.templatesCache.getTemplates(String.format(XSLT, "Hello ")));
+        assertNotSame(templates, this.templatesCache.getTemplates(String.format(XSLT, "Bye ")));
+
+        StringWriter writer = new StringWriter();
+        templates.newTransformer().transform(new StreamSource(new StringReader("<root>world</root>")),
+            new StreamResult(writer));
+        assertEquals("Hello world", writer.toString());
+    }
+
+    @Test
+    public void getResourceTemplates() throws Exception
+    {
+        Templates templates = this.templatesCache.getResourceTemplates("fop.xsl");
+
+        assertSame(templates, this.templatesCache.getResourceTemplates("fop.xsl"));
+    }
+}
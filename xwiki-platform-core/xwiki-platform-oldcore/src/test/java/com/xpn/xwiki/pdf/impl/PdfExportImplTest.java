@@ -31,6 +31,7 @@
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
 import com.xpn.xwiki.internal.pdf.XSLFORenderer;
+import com.xpn.xwiki.internal.pdf.XSLTTemplatesCache;
 import com.xpn.xwiki.test.MockitoOldcoreRule;
 
 import static org.junit.Assert.assertEquals;
@@ -65,6 +66,7 @@ public void applyCSSWhenExistingStyleDefinedUsingShorthandNotation() throws Exce
         this.oldcoreRule.getMocker().registerMockComponent(Environment.class);
         this.oldcoreRule.getMocker().registerMockComponent(VelocityManager.class);
         this.oldcoreRule.getMocker().registerMockComponent(XSLFORenderer.class, "fop");
+        this.oldcoreRule.getMocker().registerMockComponent(XSLTTemplatesCache.class);
 
         PdfExportImpl pdfExport = new PdfExportImpl();
 
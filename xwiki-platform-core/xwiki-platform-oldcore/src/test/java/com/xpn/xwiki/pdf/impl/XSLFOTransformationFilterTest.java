@@ -0,0 +1,112 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.pdf.impl;
+
+import java.io.StringReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Unit tests for {@link XSLFOTransformationFilter}.
+ *
+ * @version $Id$
+ */
+public class XSLFOTransformationFilterTest
+{
+    private static final String XSLT = "<xsl:stylesheet version=\"1.0\" "
+        + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+        + "<xsl:template match=\"/\">%s</xsl:template>"
+        + "</xsl:stylesheet>";
+
+    private XSLFOTransformationFilter createFilter(String template) throws Exception
+    {
+        SAXParserFactory parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+        XMLReader xmlReader = parserFactory.newSAXParser().getXMLReader();
+
+        SAXTransformerFactory transformerFactory = (SAXTransformerFactory) TransformerFactory.newInstance();
+        XMLFilter transformation =
+            transformerFactory.newXMLFilter(new StreamSource(new StringReader(String.format(XSLT, template))));
+        transformation.setParent(xmlReader);
+
+        return new XSLFOTransformationFilter(transformation);
+    }
+
+    private void render(XSLFOTransformationFilter filter, DefaultHandler renderer) throws Exception
+    {
+        TransformerFactory.newInstance().newTransformer()
+            .transform(new SAXSource(filter, new InputSource(new StringReader("<root/>"))), new SAXResult(renderer));
+    }
+
+    @Test
+    public void transformationFailure() throws Exception
+    {
+        XSLFOTransformationFilter filter = createFilter("<xsl:message terminate=\"yes\">failure</xsl:message>");
+
+        assertThrows(Exception.class, () -> render(filter, new DefaultHandler()));
+
+        assertTrue(filter.isTransformationFailed());
+    }
+
+    @Test
+    public void rendererFailure() throws Exception
+    {
+        XSLFOTransformationFilter filter = createFilter("<fo/>");
+
+        assertThrows(Exception.class, () -> render(filter, new DefaultHandler()
+        {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException
+            {
+                throw new SAXException("Rendering failure");
+            }
+        }));
+
+        assertFalse(filter.isTransformationFailed());
+    }
+
+    @Test
+    public void success() throws Exception
+    {
+        XSLFOTransformationFilter filter = createFilter("<fo/>");
+
+        render(filter, new DefaultHandler());
+
+        assertFalse(filter.isTransformationFailed());
+    }
+}
@@ -50,6 +50,7 @@
 import com.xpn.xwiki.objects.BaseProperty;
 import com.xpn.xwiki.objects.LargeStringProperty;
 import com.xpn.xwiki.objects.StringProperty;
+import com.xpn.xwiki.objects.classes.BaseClass;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -266,6 +267,55 @@ public void saveObjectWithPropertyTypeChange() throws Exception
         verify(session).save(property);
     }
 
+    /**
+     * An object removed and added again with the same number in a batch of documents must be inserted again and not
+     * updated, even though the batch found it in the database before the save.
+     */
+    @Test
+    public void saveObjectRemovedAndAddedAgainInBatch() throws Exception
+    {
+        DocumentReference classReference = new DocumentReference("myWiki", "mySpace", "myClass");
+        when(xcontext.getWikiId()).thenReturn(classReference.getWikiReference().getName());
+        when(xcontext.get("hibsession")).thenReturn(session);
+
+        BaseClass xclass = mock(BaseClass.class);
+        when(xclass.getCustomClass()).thenReturn("");
+
+        long objectId = 123456789L;
+        String propertyName = "query";
+        BaseObject removedObject = mock(BaseObject.class, "removed");
+        when(removedObject.getId()).thenReturn(objectId);
+        when(removedObject.getXClassReference()).thenReturn(classReference);
+        when(removedObject.getXClass(xcontext)).thenReturn(xclass);
+        BaseObject addedObject = mock(BaseObject.class, "added");
+        when(addedObject.getId()).thenReturn(objectId);
+        when(addedObject.getXClassReference()).thenReturn(classReference);
+        when(addedObject.getXClass(xcontext)).thenReturn(xclass);
+        when(addedObject.getPropertyList()).thenReturn(Collections.singleton(propertyName));
+        BaseProperty property = mock(BaseProperty.class);
+        when(addedObject.getField(propertyName)).thenReturn(property);
+        when(property.getId()).thenReturn(objectId);
+        when(property.getName()).thenReturn(propertyName);
+        when(property.getClassType()).thenReturn(StringProperty.class.getName());
+
+        // The batch found the object and its property in the database
+        XWikiHibernateStore.SaveBatch saveBatch = new XWikiHibernateStore.SaveBatch();
+        saveBatch.objectSaved(objectId);
+        saveBatch.propertySaved(objectId, propertyName, StringProperty.class.getName());
+        when(xcontext.get(XWikiHibernateStore.SAVE_BATCH_CONTEXT_KEY)).thenReturn(saveBatch);
+
+        store.deleteXWikiCollection(removedObject, xcontext, false, false);
+        store.saveXWikiCollection(addedObject, xcontext, false);
+
+        verify(session).delete(removedObject);
+        verify(session).save("com.xpn.xwiki.objects.BaseObject", addedObject);
+        verify(session, never()).update(any(String.class), any());
+        verify(session).save(property);
+        verify(session, never()).update(property);
+        // The existence is known from the batch
+        verify(session, never()).createQuery(any(String.class));
+    }
+
     @Test
     public void existsWithRootLocale() throws Exception
     {
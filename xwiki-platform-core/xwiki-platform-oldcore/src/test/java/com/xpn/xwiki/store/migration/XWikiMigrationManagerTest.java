@@ -23,6 +23,8 @@
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -98,6 +100,8 @@ protected List<DataMigration> getAllMigrations()
 
         XWikiDBVersion curversion;
 
+        Map<String, XWikiDBVersion> versions = new ConcurrentHashMap<>();
+
         @Override
         protected void initializeEmptyDB() throws DataMigrationException
         {
@@ -107,6 +111,7 @@ protected void initializeEmptyDB() throws DataMigrationException
         protected void setDBVersionToDatabase(XWikiDBVersion version)
         {
             this.curversion = version;
+            this.versions.put(getXWikiContext().getWikiId(), version);
         }
 
         @Override
@@ -151,6 +156,55 @@ public void testMigrationWhenNoVersion() throws Exception
         assertEquals(456, mm.curversion.getVersion());
     }
 
+    /** test parameter "xwiki.store.migration.threads" */
+    public void testParallelMigrations() throws Exception
+    {
+        getConfigurationSource().setProperty("xwiki.store.migration.threads", "2");
+        getContext().setWiki(new XWiki()
+        {
+            @Override
+            public List<String> getVirtualWikisDatabaseNames(XWikiContext context) throws XWikiException
+            {
+                return Arrays.asList("xwiki", "wiki1", "wiki2", "wiki3");
+            }
+        });
+
+        TestDataMigrationManager mm = (TestDataMigrationManager) getComponentManager().getInstance(
+            DataMigrationManager.class, "TestDataMigration");
+        mm.startMigrations();
+
+        assertEquals(4, mm.versions.size());
+        for (String wiki : Arrays.asList("xwiki", "wiki1", "wiki2", "wiki3")) {
+            assertEquals(456, mm.versions.get(wiki).getVersion());
+        }
+        assertEquals("xwiki", getContext().getWikiId());
+    }
+
+    /** test an invalid value of the parameter "xwiki.store.migration.threads" */
+    public void testInvalidMigrationThreads() throws Exception
+    {
+        getContext().setWiki(new XWiki()
+        {
+            @Override
+            public List<String> getVirtualWikisDatabaseNames(XWikiContext context) throws XWikiException
+            {
+                return Arrays.asList("xwiki", "wiki1", "wiki2");
+            }
+        });
+
+        getConfigurationSource().setProperty("xwiki.store.migration.threads", "many");
+
+        TestDataMigrationManager mm = (TestDataMigrationManager) getComponentManager().getInstance(
+            DataMigrationManager.class, "TestDataMigration");
+        // The databases are migrated one at a time
+        mm.startMigrations();
+
+        assertEquals(3, mm.versions.size());
+        for (String wiki : Arrays.asList("xwiki", "wiki1", "wiki2")) {
+            assertEquals(456, mm.versions.get(wiki).getVersion());
+        }
+    }
+
     /**
      * test parameters "xwiki.store.migration.version", "xwiki.store.migration.ignored" and migrations order
      */
@@ -521,6 +521,24 @@ public Void answer(InvocationOnMock invocation) throws Throwable
             }
         }).when(getSpyXWiki()).saveDocument(anyXWikiDocument(), any(String.class), anyBoolean(), anyXWikiContext());
         doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable
+            {
+                List<XWikiDocument> batch = invocation.getArgument(0);
+                String comment = invocation.getArgument(1);
+                boolean minorEdit = invocation.getArgument(2);
+                XWikiContext xcontext = invocation.getArgument(3);
+
+                for (XWikiDocument document : batch) {
+                    getSpyXWiki().saveDocument(document, comment != null ? comment : document.getComment(),
+                        minorEdit, xcontext);
+                }
+
+                return null;
+            }
+        }).when(getSpyXWiki()).saveDocuments(any(), any(), anyBoolean(), anyXWikiContext());
+        doAnswer(new Answer<Void>()
         {
             @Override
             public Void answer(InvocationOnMock invocation) throws Throwable
@@ -19,13 +19,20 @@
  */
 package com.xpn.xwiki.web;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.List;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.xwiki.environment.Environment;
 import org.xwiki.filter.input.InputFilterStream;
 import org.xwiki.filter.input.InputFilterStreamFactory;
 import org.xwiki.filter.instance.input.DocumentInstanceInputProperties;
@@ -34,6 +41,9 @@
 import org.xwiki.filter.output.OutputFilterStreamFactory;
 import org.xwiki.filter.type.FilterStreamType;
 import org.xwiki.filter.xar.output.XAROutputProperties;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobExecutor;
+import org.xwiki.job.event.status.JobStatus;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.WikiReference;
@@ -44,6 +54,9 @@
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.export.ExportJob;
+import com.xpn.xwiki.internal.export.ExportRequest;
+import com.xpn.xwiki.job.JobRequestContext;
 import com.xpn.xwiki.test.MockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.InjectMockitoOldcore;
 import com.xpn.xwiki.test.junit5.mockito.OldcoreTest;
@@ -59,6 +72,7 @@
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -251,4 +265,111 @@ public void exportXARSpaceUsingUncheckedPagesAndOtherPagesArgument() throws Exce
         assertFalse(properties.getValue().getEntities().matches(page1Ref));
         assertFalse(properties.getValue().getEntities().matches(page2Ref));
     }
+
+    @Test
+    public void startBackgroundXARExport() throws Exception
+    {
+        ExportAction action = new ExportAction();
+
+        XWikiContext context = oldcore.getXWikiContext();
+
+        XWikiRequest request = mock(XWikiRequest.class);
+        when(request.get("format")).thenReturn("xar");
+        when(request.get("async")).thenReturn("true");
+        when(request.get("history")).thenReturn("true");
+        context.setRequest(request);
+
+        XWikiResponse response = mock(XWikiResponse.class);
+        StringWriter answer = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(answer));
+        context.setResponse(response);
+
+        when(oldcore.getMockRightService().hasWikiAdminRights(context)).thenReturn(true);
+
+        JobExecutor jobExecutor = oldcore.getMocker().registerMockComponent(JobExecutor.class);
+
+        assertNull(action.render(context));
+
+        ArgumentCaptor<ExportRequest> exportRequest = ArgumentCaptor.forClass(ExportRequest.class);
+        verify(jobExecutor).execute(eq(ExportJob.JOBTYPE), exportRequest.capture());
+
+        assertEquals("xar", exportRequest.getValue().getFormat());
+        assertEquals("backup", exportRequest.getValue().getName());
+        assertEquals(new WikiReference("xwiki"), exportRequest.getValue().getWiki());
+        assertTrue(exportRequest.getValue().isHistory());
+        assertEquals(Arrays.asList("export", exportRequest.getValue().getExportId()), exportRequest.getValue().getId());
+
+        verify(response).setStatus(202);
+        assertTrue(answer.toString().contains(exportRequest.getValue().getExportId()));
+    }
+
+    @Test
+    public void downloadBackgroundExportRange() throws Exception
+    {
+        oldcore.registerMockEnvironment();
+
+        ExportAction action = new ExportAction();
+
+        XWikiContext context = oldcore.getXWikiContext();
+        context.setUserReference(new DocumentReference("xwiki", "XWiki", "Admin"));
+
+        ExportRequest exportRequest = new ExportRequest("1234");
+        exportRequest.setFormat("xar");
+        exportRequest.setName("myexport");
+        JobRequestContext.set(exportRequest, context);
+
+        File exportFile =
+            ExportJob.getExportFile(oldcore.getMocker().getInstance(Environment.class), "1234", "xar");
+        FileUtils.write(exportFile, "0123456789", "UTF-8");
+
+        JobStatus status = mock(JobStatus.class);
+        when(status.getRequest()).thenReturn(exportRequest);
+        when(status.getState()).thenReturn(JobStatus.State.FINISHED);
+        Job job = mock(Job.class);
+        when(job.getStatus()).thenReturn(status);
+        JobExecutor jobExecutor = oldcore.getMocker().registerMockComponent(JobExecutor.class);
+        when(jobExecutor.getJob(Arrays.asList("export", "1234"))).thenReturn(job);
+
+        XWikiRequest request = mock(XWikiRequest.class);
+        when(request.get("exportId")).thenReturn("1234");
+        when(request.getHeader("Range")).thenReturn("bytes=2-5");
+        context.setRequest(request);
+
+        XWikiResponse response = mock(XWikiResponse.class);
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+                content.write(b);
+            }
+
+            @Override
+            public boolean isReady()
+            {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener)
+            {
+            }
+        });
+        context.setResponse(response);
+
+        assertNull(action.render(context));
+
+        verify(response).setStatus(206);
+        verify(response).setHeader("Content-Range", "bytes 2-5/10");
+        assertEquals("2345", content.toString("UTF-8"));
+
+        // Another user is not allowed to download the export
+        context.setUserReference(new DocumentReference("xwiki", "XWiki", "Other"));
+        XWikiResponse otherResponse = mock(XWikiResponse.class);
+        context.setResponse(otherResponse);
+
+        assertEquals("exception", action.render(context));
+        verifyZeroInteractions(otherResponse);
+    }
 }
@@ -182,6 +182,21 @@ public void createURLOnSubWiki()
         assertEquals("http://127.0.0.1/xwiki/wiki/wiki1server/view/Space/Page?param1=1#anchor", url.toString());
     }
 
+    @Test
+    public void createURLWithDotSegments()
+    {
+        URL url = this.urlFactory.createURL("Space", "Page", "view", "param1=1", "anchor", "xwiki",
+            this.oldcore.getXWikiContext());
+        assertEquals("http://127.0.0.1/xwiki/bin/view/Space/Page?param1=1#anchor", url.toString());
+
+        url = this.urlFactory.createURL("Space", "..", "view", null, null, "xwiki", this.oldcore.getXWikiContext());
+        assertEquals("http://127.0.0.1/xwiki/bin/view/", url.toString());
+
+        url = this.urlFactory.createURL("Space", ".Page", "view", null, null, "xwiki",
+            this.oldcore.getXWikiContext());
+        assertEquals("http://127.0.0.1/xwiki/bin/view/Space/.Page", url.toString());
+    }
+
     @Test
     public void createURLOnMainWikiInPathMode()
     {
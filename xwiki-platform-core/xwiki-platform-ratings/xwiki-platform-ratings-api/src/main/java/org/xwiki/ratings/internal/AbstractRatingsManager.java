@@ -47,6 +47,8 @@
  */
 public abstract class AbstractRatingsManager implements RatingsManager
 {
+    private static final int VOTE_LOCK_COUNT = 64;
+
     @Inject
     protected ObservationManager observationManager;
 
@@ -59,6 +61,22 @@ public abstract class AbstractRatingsManager implements RatingsManager
     @Inject
     private RatingsConfiguration ratingsConfiguration;
 
+    /**
+     * The locks used to apply the votes of a same document one at a time so that its stored average rating is updated
+     * consistently.
+     */
+    private final Object[] voteLocks = new Object[VOTE_LOCK_COUNT];
+
+    /**
+     * Default constructor.
+     */
+    public AbstractRatingsManager()
+    {
+        for (int i = 0; i < this.voteLocks.length; ++i) {
+            this.voteLocks[i] = new Object();
+        }
+    }
+
     @Override
     public String getRatingsClassName()
     {
@@ -85,6 +103,18 @@ protected RatingsConfiguration getRatingsConfiguration()
         return ratingsConfiguration;
     }
 
+    /**
+     * Gets the lock to hold while applying a vote to the passed document.
+     *
+     * @param documentRef the document being rated
+     * @return the lock of the document
+     * @since 11.3RC1
+     */
+    protected Object getVoteLock(DocumentReference documentRef)
+    {
+        return this.voteLocks[Math.floorMod(documentRef.hashCode(), this.voteLocks.length)];
+    }
+
     /**
      * Retrieves the XWiki context from the current execution context.
      * 
@@ -269,18 +299,53 @@ public void updateAverageRating(DocumentReference documentRef, Rating rating, in
     {
         // we only update if we are in stored mode and if the vote changed
         if (isAverageRatingStored(documentRef) && oldVote != rating.getVote()) {
-            AverageRating aRating = calcAverageRating(documentRef, method);
-            AverageRating averageRating = getAverageRating(documentRef, method, true);
-            averageRating.setAverageVote(aRating.getAverageVote());
-            averageRating.setNbVotes(aRating.getNbVotes());
+            // The balanced average depends on the reputation of each voter so it cannot be updated incrementally
+            if (method.equals(RATING_REPUTATION_METHOD_BALANCED)
+                || !updateStoredAverageRating(documentRef, method, rating.getVote() - oldVote, oldVote == 0 ? 1 : 0)) {
+                AverageRating aRating = calcAverageRating(documentRef, method);
+                AverageRating averageRating = getAverageRating(documentRef, method, true);
+                averageRating.setAverageVote(aRating.getAverageVote());
+                averageRating.setNbVotes(aRating.getNbVotes());
+                averageRating.save();
+            }
+        }
+    }
+
+    /**
+     * Update the existing stored average rating from the difference introduced by a vote, without going through all
+     * the votes of the document.
+     *
+     * @param documentRef the rated document
+     * @param method the method used to compute the average rating
+     * @param voteDelta the difference between the new vote and the previous one
+     * @param nbVotesDelta 1 for a new vote, 0 for a modified vote
+     * @return {@code false} if the document has no stored average rating for the passed method yet
+     * @throws RatingsException when failing to update the stored average rating
+     */
+    private boolean updateStoredAverageRating(DocumentReference documentRef, String method, int voteDelta,
+        int nbVotesDelta) throws RatingsException
+    {
+        try {
+            XWikiDocument doc = getXWiki().getDocument(documentRef, getXWikiContext());
+            BaseObject averageRatingObject = doc.getObject(getAverageRatingsClassName(),
+                RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD, method, false);
+            if (averageRatingObject == null) {
+                return false;
+            }
+
+            AverageRating averageRating = new StoredAverageRating(doc, averageRatingObject, getXWikiContext());
+            int nbVotes = averageRating.getNbVotes();
+            // The votes are integers so their sum is recovered exactly by rounding, which prevents the rounding errors
+            // of the stored float average from accumulating over the updates
+            long totalVote = Math.round((double) averageRating.getAverageVote() * nbVotes) + voteDelta;
+            int newNbVotes = nbVotes + nbVotesDelta;
+            averageRating.setNbVotes(newNbVotes);
+            averageRating.setAverageVote(newNbVotes > 0 ? (float) ((double) totalVote / newNbVotes) : 0);
             averageRating.save();
-            /*
-             * StoredAverageRating averageRating = (StoredAverageRating) getAverageRating(container, method, true,
-             * context); int diffTotal = rating.getVote() - oldVote; int diffNbVotes = (oldVote==0) ? 1 : 0; int
-             * oldNbVotes = averageRating.getNbVotes(); averageRating.setNbVotes(oldNbVotes + diffNbVotes);
-             * averageRating.setAverageVote((averageRating.getAverageVote()*oldNbVotes + diffTotal) / (oldNbVotes +
-             * diffNbVotes));
-             */
+
+            return true;
+        } catch (XWikiException e) {
+            throw new RatingsException(e);
         }
     }
 
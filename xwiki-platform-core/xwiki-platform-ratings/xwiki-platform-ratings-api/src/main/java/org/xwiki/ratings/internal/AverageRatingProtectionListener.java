@@ -25,6 +25,7 @@
 
 import org.xwiki.bridge.event.DocumentUpdatingEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.job.JobContext;
 import org.xwiki.observation.AbstractEventListener;
 import org.xwiki.observation.ObservationContext;
 import org.xwiki.observation.event.Event;
@@ -50,6 +51,9 @@ public class AverageRatingProtectionListener extends AbstractEventListener
     @Inject
     private ObservationContext observationContext;
 
+    @Inject
+    private JobContext jobContext;
+
     /**
      * Default constructor.
      */
@@ -65,8 +69,9 @@ public void onEvent(Event event, Object source, Object data)
         BaseObject ratingObject = document.getXObject(RatingsManager.AVERAGE_RATINGS_CLASSREFERENCE);
 
         if (ratingObject != null) {
-            // If the modification is not part of an official rating cancel it
-            if (!this.observationContext.isIn(PARENT)) {
+            // If the modification is not part of an official rating (or of the averages recomputation) cancel it
+            if (!this.observationContext.isIn(PARENT)
+                && !(this.jobContext.getCurrentJob() instanceof AverageRatingsRecomputeJob)) {
                 XWikiDocument previousDocument = document.getOriginalDocument();
                 BaseObject previousObject = previousDocument.getXObject(RatingsManager.AVERAGE_RATINGS_CLASSREFERENCE);
 
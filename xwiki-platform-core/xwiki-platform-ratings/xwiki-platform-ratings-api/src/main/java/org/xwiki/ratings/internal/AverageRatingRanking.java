@@ -0,0 +1,117 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+import org.xwiki.ratings.RatingsManager;
+
+/**
+ * Ranks the documents of a wiki using their stored average ratings, so that the votes themselves don't have to be
+ * loaded. The documents whose average rating is not stored are not taken into account.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = AverageRatingRanking.class)
+@Singleton
+public class AverageRatingRanking
+{
+    private static final String STATEMENT = "select doc.fullName, nbvotes.value, avgvote.value"
+        + " from XWikiDocument as doc, BaseObject as obj, IntegerProperty as nbvotes, FloatProperty as avgvote,"
+        + " StringProperty as avgmethod where doc.translation = 0 and obj.name = doc.fullName"
+        + " and obj.className = :className and nbvotes.id.id = obj.id and nbvotes.id.name = :nbVotesField"
+        + " and avgvote.id.id = obj.id and avgvote.id.name = :averageVoteField"
+        + " and avgmethod.id.id = obj.id and avgmethod.id.name = :methodField and avgmethod.value = :method";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    /**
+     * @param wikiId the wiki in which to rank the documents
+     * @param method the method used to compute the average ratings
+     * @param offset the index of the first average rating to return
+     * @param limit the maximum number of average ratings to return
+     * @return the stored average ratings sorted by decreasing average vote
+     * @throws QueryException when failing to query the average ratings
+     */
+    public List<MemoryAverageRating> getBestRated(String wikiId, String method, int offset, int limit)
+        throws QueryException
+    {
+        return getRanking(wikiId, method, " order by avgvote.value desc, nbvotes.value desc, doc.fullName", offset,
+            limit);
+    }
+
+    /**
+     * @param wikiId the wiki in which to rank the documents
+     * @param method the method used to compute the average ratings
+     * @param offset the index of the first average rating to return
+     * @param limit the maximum number of average ratings to return
+     * @return the stored average ratings sorted by decreasing number of votes
+     * @throws QueryException when failing to query the average ratings
+     */
+    public List<MemoryAverageRating> getMostRated(String wikiId, String method, int offset, int limit)
+        throws QueryException
+    {
+        return getRanking(wikiId, method, " order by nbvotes.value desc, avgvote.value desc, doc.fullName", offset,
+            limit);
+    }
+
+    private List<MemoryAverageRating> getRanking(String wikiId, String method, String orderBy, int offset, int limit)
+        throws QueryException
+    {
+        Query query = this.queryManager.createQuery(STATEMENT + orderBy, Query.HQL);
+        query.setWiki(wikiId);
+        query.bindValue("className", RatingsManager.AVERAGE_RATINGS_CLASSNAME);
+        query.bindValue("nbVotesField", RatingsManager.AVERAGERATING_CLASS_FIELDNAME_NBVOTES);
+        query.bindValue("averageVoteField", RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE);
+        query.bindValue("methodField", RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD);
+        query.bindValue("method", method);
+        query.setOffset(offset);
+        query.setLimit(limit);
+
+        List<Object[]> results = query.execute();
+
+        WikiReference wikiReference = new WikiReference(wikiId);
+        List<MemoryAverageRating> averageRatings = new ArrayList<>(results.size());
+        for (Object[] result : results) {
+            averageRatings.add(new MemoryAverageRating(
+                this.documentReferenceResolver.resolve((String) result[0], wikiReference),
+                ((Number) result[1]).intValue(), ((Number) result[2]).floatValue(), method));
+        }
+
+        return averageRatings;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.xwiki.component.annotation.Component;
+import org.xwiki.component.annotation.InstantiationStrategy;
+import org.xwiki.component.descriptor.ComponentInstantiationStrategy;
+import org.xwiki.job.AbstractJob;
+import org.xwiki.job.DefaultJobStatus;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.ratings.AverageRating;
+import org.xwiki.ratings.ConfiguredProvider;
+import org.xwiki.ratings.RatingsException;
+import org.xwiki.ratings.RatingsManager;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Job that recomputes from all the votes the stored average ratings of the documents of a wiki, e.g. to fix the
+ * averages after the votes have been imported or modified directly.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@InstantiationStrategy(ComponentInstantiationStrategy.PER_LOOKUP)
+@Named(AverageRatingsRecomputeJob.JOB_TYPE)
+public class AverageRatingsRecomputeJob
+    extends AbstractJob<AverageRatingsRecomputeRequest, DefaultJobStatus<AverageRatingsRecomputeRequest>>
+{
+    /**
+     * Type of the job.
+     */
+    public static final String JOB_TYPE = "ratings.recomputeAverageRatings";
+
+    private static final String METHOD_FIELD = RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD;
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> documentReferenceResolver;
+
+    @Inject
+    private ConfiguredProvider<RatingsManager> ratingsManagerProvider;
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Override
+    public String getType()
+    {
+        return JOB_TYPE;
+    }
+
+    @Override
+    protected void runInternal() throws Exception
+    {
+        String wikiId = this.request.getWikiId();
+
+        Query query = this.queryManager
+            .createQuery("select distinct obj.name from BaseObject as obj where obj.className = :className", Query.HQL);
+        query.setWiki(wikiId);
+        query.bindValue("className", RatingsManager.AVERAGE_RATINGS_CLASSNAME);
+        List<String> documentNames = query.execute();
+
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String currentWikiId = xcontext.getWikiId();
+        WikiReference wikiReference = new WikiReference(wikiId);
+
+        this.progressManager.pushLevelProgress(documentNames.size(), this);
+
+        try {
+            xcontext.setWikiId(wikiId);
+
+            for (String documentName : documentNames) {
+                this.progressManager.startStep(this);
+
+                DocumentReference documentRef = this.documentReferenceResolver.resolve(documentName, wikiReference);
+                try {
+                    recompute(documentRef, xcontext);
+                } catch (Exception e) {
+                    this.logger.error("Failed to recompute the average ratings of document [{}].", documentRef, e);
+                }
+
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            xcontext.setWikiId(currentWikiId);
+
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private void recompute(DocumentReference documentRef, XWikiContext xcontext)
+        throws RatingsException, XWikiException
+    {
+        RatingsManager ratingsManager = this.ratingsManagerProvider.get(documentRef);
+
+        // Don't miss the votes given while recomputing the averages
+        Object lock = ratingsManager instanceof AbstractRatingsManager
+            ? ((AbstractRatingsManager) ratingsManager).getVoteLock(documentRef) : new Object();
+        synchronized (lock) {
+            XWikiDocument document = xcontext.getWiki().getDocument(documentRef, xcontext);
+
+            boolean modified = false;
+            for (BaseObject averageRatingObject : document.getXObjects(RatingsManager.AVERAGE_RATINGS_CLASSREFERENCE)) {
+                if (averageRatingObject != null) {
+                    String method = averageRatingObject.getStringValue(METHOD_FIELD);
+                    AverageRating computedRating = ratingsManager.calcAverageRating(documentRef, method);
+                    AverageRating storedRating = new StoredAverageRating(document, averageRatingObject, xcontext);
+                    if (computedRating != null && (storedRating.getNbVotes() != computedRating.getNbVotes()
+                        || Float.compare(storedRating.getAverageVote(), computedRating.getAverageVote()) != 0)) {
+                        storedRating.setNbVotes(computedRating.getNbVotes());
+                        storedRating.setAverageVote(computedRating.getAverageVote());
+                        modified = true;
+                    }
+                }
+            }
+
+            if (modified) {
+                xcontext.getWiki().saveDocument(document, "Recomputed the average ratings", true, xcontext);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import java.util.Arrays;
+
+import org.xwiki.job.AbstractRequest;
+
+/**
+ * Request for the creation of a {@link AverageRatingsRecomputeJob}.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class AverageRatingsRecomputeRequest extends AbstractRequest
+{
+    private static final String WIKI_ID = "wikiId";
+
+    /**
+     * Create a request for the given wiki.
+     *
+     * @param wikiId the id of the wiki in which to recompute the stored average ratings
+     */
+    public AverageRatingsRecomputeRequest(String wikiId)
+    {
+        setId(Arrays.asList(AverageRatingsRecomputeJob.JOB_TYPE, wikiId));
+        setWikiId(wikiId);
+    }
+
+    /**
+     * @param wikiId the id of the wiki in which to recompute the stored average ratings
+     */
+    public void setWikiId(String wikiId)
+    {
+        setProperty(WIKI_ID, wikiId);
+    }
+
+    /**
+     * @return the id of the wiki in which to recompute the stored average ratings
+     */
+    public String getWikiId()
+    {
+        return getProperty(WIKI_ID);
+    }
+}
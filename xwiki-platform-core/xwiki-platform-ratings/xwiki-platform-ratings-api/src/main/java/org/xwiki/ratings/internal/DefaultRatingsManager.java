@@ -64,6 +64,15 @@ public class DefaultRatingsManager extends AbstractRatingsManager
 
     @Override
     public Rating setRating(DocumentReference documentRef, DocumentReference author, int vote) throws RatingsException
+    {
+        // Apply the votes of a document one at a time to keep its stored average rating consistent
+        synchronized (getVoteLock(documentRef)) {
+            return setRatingInternal(documentRef, author, vote);
+        }
+    }
+
+    private Rating setRatingInternal(DocumentReference documentRef, DocumentReference author, int vote)
+        throws RatingsException
     {
         Rating rating = getRating(documentRef, author);
         int oldVote;
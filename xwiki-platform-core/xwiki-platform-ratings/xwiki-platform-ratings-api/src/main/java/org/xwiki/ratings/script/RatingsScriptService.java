@@ -20,7 +20,9 @@
 package org.xwiki.ratings.script;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -28,6 +30,8 @@
 import javax.inject.Singleton;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.job.Job;
+import org.xwiki.job.JobExecutor;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
 import org.xwiki.model.reference.EntityReference;
@@ -36,7 +40,13 @@
 import org.xwiki.ratings.Rating;
 import org.xwiki.ratings.RatingsConfiguration;
 import org.xwiki.ratings.RatingsManager;
+import org.xwiki.ratings.internal.AverageRatingRanking;
+import org.xwiki.ratings.internal.AverageRatingsRecomputeJob;
+import org.xwiki.ratings.internal.AverageRatingsRecomputeRequest;
+import org.xwiki.ratings.internal.MemoryAverageRating;
 import org.xwiki.script.service.ScriptService;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.api.Document;
@@ -73,6 +83,15 @@ public class RatingsScriptService implements ScriptService
     @Inject
     private RatingsConfiguration ratingsConfiguration;
 
+    @Inject
+    private AverageRatingRanking averageRatingRanking;
+
+    @Inject
+    private ContextualAuthorizationManager authorization;
+
+    @Inject
+    private JobExecutor jobExecutor;
+
     /**
      * Retrieve the XWiki context from the current execution context.
      * 
@@ -413,4 +432,86 @@ public Document getConfigurationDocument(DocumentReference documentReference)
     {
         return ratingsConfiguration.getConfigurationDocument(documentReference).newDocument(getXWikiContext());
     }
+
+    /**
+     * Get the viewable documents of the current wiki with the best stored average ratings.
+     *
+     * @param method the method of calculating the average
+     * @param count the maximum number of documents to return
+     * @return the average ratings of the best rated documents, sorted by decreasing average vote
+     * @since 11.3RC1
+     */
+    public Map<DocumentReference, AverageRatingApi> getBestRated(String method, int count)
+    {
+        return getRanking(method, count, false);
+    }
+
+    /**
+     * Get the viewable documents of the current wiki with the highest number of votes.
+     *
+     * @param method the method of calculating the average
+     * @param count the maximum number of documents to return
+     * @return the average ratings of the most rated documents, sorted by decreasing number of votes
+     * @since 11.3RC1
+     */
+    public Map<DocumentReference, AverageRatingApi> getMostRated(String method, int count)
+    {
+        return getRanking(method, count, true);
+    }
+
+    private Map<DocumentReference, AverageRatingApi> getRanking(String method, int count, boolean mostRated)
+    {
+        setError(null);
+
+        String wikiId = getXWikiContext().getWikiId();
+        Map<DocumentReference, AverageRatingApi> ranking = new LinkedHashMap<>();
+        if (count <= 0) {
+            return ranking;
+        }
+
+        try {
+            // Skip the documents the current user is not allowed to see
+            int offset = 0;
+            List<MemoryAverageRating> averageRatings;
+            do {
+                averageRatings = mostRated ? this.averageRatingRanking.getMostRated(wikiId, method, offset, count)
+                    : this.averageRatingRanking.getBestRated(wikiId, method, offset, count);
+                for (MemoryAverageRating averageRating : averageRatings) {
+                    if (ranking.size() < count
+                        && this.authorization.hasAccess(Right.VIEW, averageRating.getDocumentReference())) {
+                        ranking.put(averageRating.getDocumentReference(), new AverageRatingApi(averageRating));
+                    }
+                }
+                offset += averageRatings.size();
+            } while (ranking.size() < count && averageRatings.size() == count);
+        } catch (Exception e) {
+            setError(e);
+            return null;
+        }
+
+        return ranking;
+    }
+
+    /**
+     * Recompute from all the votes the stored average ratings of the current wiki. Requires administration right on
+     * the current wiki.
+     *
+     * @return the job recomputing the average ratings
+     * @since 11.3RC1
+     */
+    public Job recomputeAverageRatings()
+    {
+        setError(null);
+
+        try {
+            XWikiContext xcontext = getXWikiContext();
+            this.authorization.checkAccess(Right.ADMIN, xcontext.getWikiReference());
+
+            return this.jobExecutor.execute(AverageRatingsRecomputeJob.JOB_TYPE,
+                new AverageRatingsRecomputeRequest(xcontext.getWikiId()));
+        } catch (Exception e) {
+            setError(e);
+            return null;
+        }
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.ratings.RatingsManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AverageRatingRanking}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class AverageRatingRankingTest
+{
+    @InjectMockComponents
+    private AverageRatingRanking ranking;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @Test
+    public void getBestRated() throws Exception
+    {
+        Query query = mock(Query.class);
+        when(this.queryManager.createQuery(endsWith("order by avgvote.value desc, nbvotes.value desc, doc.fullName"),
+            eq(Query.HQL))).thenReturn(query);
+        when(query.execute()).thenReturn(
+            Arrays.<Object>asList(new Object[] { "Main.A", 3, 4.5F }, new Object[] { "Main.B", 10, 4F }));
+
+        WikiReference wikiReference = new WikiReference("wiki");
+        DocumentReference documentA = new DocumentReference("wiki", "Main", "A");
+        DocumentReference documentB = new DocumentReference("wiki", "Main", "B");
+        when(this.resolver.resolve("Main.A", wikiReference)).thenReturn(documentA);
+        when(this.resolver.resolve("Main.B", wikiReference)).thenReturn(documentB);
+
+        List<MemoryAverageRating> averageRatings = this.ranking.getBestRated("wiki", "average", 5, 2);
+
+        assertEquals(2, averageRatings.size());
+        assertEquals(documentA, averageRatings.get(0).getDocumentReference());
+        assertEquals(3, averageRatings.get(0).getNbVotes());
+        assertEquals(4.5F, averageRatings.get(0).getAverageVote());
+        assertEquals("average", averageRatings.get(0).getMethod());
+        assertEquals(documentB, averageRatings.get(1).getDocumentReference());
+        assertEquals(10, averageRatings.get(1).getNbVotes());
+
+        verify(query).setWiki("wiki");
+        verify(query).bindValue("className", RatingsManager.AVERAGE_RATINGS_CLASSNAME);
+        verify(query).bindValue("method", "average");
+        verify(query).setOffset(5);
+        verify(query).setLimit(2);
+    }
+}
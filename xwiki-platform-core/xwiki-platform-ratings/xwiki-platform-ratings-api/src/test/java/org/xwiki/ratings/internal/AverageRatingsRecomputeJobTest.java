@@ -0,0 +1,146 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import java.util.Arrays;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.ratings.ConfiguredProvider;
+import org.xwiki.ratings.RatingsManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link AverageRatingsRecomputeJob}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class AverageRatingsRecomputeJobTest
+{
+    @InjectMockComponents
+    private AverageRatingsRecomputeJob job;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private ConfiguredProvider<RatingsManager> ratingsManagerProvider;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    private BaseObject createAverageRatingObject(String method, int nbVotes, float averageVote)
+    {
+        BaseObject averageRatingObject = new BaseObject();
+        averageRatingObject.setStringValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD, method);
+        averageRatingObject.setIntValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_NBVOTES, nbVotes);
+        averageRatingObject.setFloatValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE, averageVote);
+
+        return averageRatingObject;
+    }
+
+    @Test
+    public void recompute() throws Exception
+    {
+        Query query = mock(Query.class);
+        when(this.queryManager.createQuery(anyString(), anyString())).thenReturn(query);
+        when(query.execute()).thenReturn(Arrays.<Object>asList("Main.A", "Main.B"));
+
+        DocumentReference documentA = new DocumentReference("wiki", "Main", "A");
+        DocumentReference documentB = new DocumentReference("wiki", "Main", "B");
+        when(this.resolver.resolve("Main.A", new WikiReference("wiki"))).thenReturn(documentA);
+        when(this.resolver.resolve("Main.B", new WikiReference("wiki"))).thenReturn(documentB);
+
+        XWikiContext xcontext = mock(XWikiContext.class);
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontextProvider.get()).thenReturn(xcontext);
+        when(xcontext.getWiki()).thenReturn(xwiki);
+        when(xcontext.getWikiId()).thenReturn("current");
+
+        RatingsManager ratingsManager = mock(RatingsManager.class);
+        when(this.ratingsManagerProvider.get(documentA)).thenReturn(ratingsManager);
+        when(this.ratingsManagerProvider.get(documentB)).thenReturn(ratingsManager);
+
+        // The average of document A has drifted, the one of document B is right
+        BaseObject averageA = createAverageRatingObject(RatingsManager.RATING_REPUTATION_METHOD_AVERAGE, 3, 4.1F);
+        BaseObject averageB = createAverageRatingObject(RatingsManager.RATING_REPUTATION_METHOD_AVERAGE, 2, 3.5F);
+        XWikiDocument documentAWithAverage = mock(XWikiDocument.class);
+        XWikiDocument documentBWithAverage = mock(XWikiDocument.class);
+        when(xwiki.getDocument(documentA, xcontext)).thenReturn(documentAWithAverage);
+        when(xwiki.getDocument(documentB, xcontext)).thenReturn(documentBWithAverage);
+        when(documentAWithAverage.getXObjects(RatingsManager.AVERAGE_RATINGS_CLASSREFERENCE))
+            .thenReturn(Arrays.asList(null, averageA));
+        when(documentBWithAverage.getXObjects(RatingsManager.AVERAGE_RATINGS_CLASSREFERENCE))
+            .thenReturn(Arrays.asList(averageB));
+        when(ratingsManager.calcAverageRating(documentA, RatingsManager.RATING_REPUTATION_METHOD_AVERAGE))
+            .thenReturn(new MemoryAverageRating(documentA, 4, 4F, RatingsManager.RATING_REPUTATION_METHOD_AVERAGE));
+        when(ratingsManager.calcAverageRating(documentB, RatingsManager.RATING_REPUTATION_METHOD_AVERAGE))
+            .thenReturn(new MemoryAverageRating(documentB, 2, 3.5F, RatingsManager.RATING_REPUTATION_METHOD_AVERAGE));
+
+        this.job.initialize(new AverageRatingsRecomputeRequest("wiki"));
+        this.job.run();
+
+        assertNull(this.job.getStatus().getError());
+
+        verify(query).setWiki("wiki");
+        verify(query).bindValue("className", RatingsManager.AVERAGE_RATINGS_CLASSNAME);
+
+        assertEquals(4, averageA.getIntValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_NBVOTES));
+        assertEquals(4F, averageA.getFloatValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE));
+        verify(xwiki).saveDocument(documentAWithAverage, "Recomputed the average ratings", true, xcontext);
+
+        // Only the modified documents are saved
+        verify(xwiki, never()).saveDocument(documentBWithAverage, "Recomputed the average ratings", true, xcontext);
+
+        // The current wiki is restored at the end
+        InOrder inOrder = inOrder(xcontext);
+        inOrder.verify(xcontext).setWikiId("wiki");
+        inOrder.verify(xcontext).setWikiId("current");
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.ratings.internal;
+
+import javax.inject.Provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.ratings.Rating;
+import org.xwiki.ratings.RatingsConfiguration;
+import org.xwiki.ratings.RatingsManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link DefaultRatingsManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class DefaultRatingsManagerTest
+{
+    @InjectMockComponents
+    private DefaultRatingsManager ratingsManager;
+
+    @MockComponent
+    private Provider<XWikiContext> xcontextProvider;
+
+    @MockComponent
+    private RatingsConfiguration ratingsConfiguration;
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private XWikiDocument document = mock(XWikiDocument.class);
+
+    private DocumentReference documentReference = new DocumentReference("wiki", "Main", "A");
+
+    private Rating rating = mock(Rating.class);
+
+    private BaseObject averageRatingObject = new BaseObject();
+
+    @BeforeEach
+    public void configure() throws Exception
+    {
+        when(this.xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+        when(this.xwiki.getDocument(this.documentReference, this.xcontext)).thenReturn(this.document);
+
+        // Store the average ratings
+        when(this.ratingsConfiguration.getConfigurationParameter(eq(this.documentReference),
+            eq(RatingsManager.RATINGS_CONFIG_CLASS_FIELDNAME_STORE_AVERAGE_RATING), any())).thenReturn("1");
+
+        // 254 votes with a total of 1251
+        this.averageRatingObject.setIntValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_NBVOTES, 254);
+        this.averageRatingObject.setFloatValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE,
+            (float) (1251D / 254));
+    }
+
+    private void setStoredAverageRating(String method)
+    {
+        this.averageRatingObject.setStringValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD,
+            method);
+        when(this.document.getObject(RatingsManager.AVERAGE_RATINGS_CLASSNAME,
+            RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE_METHOD, method, false))
+                .thenReturn(this.averageRatingObject);
+    }
+
+    private int getNbVotes()
+    {
+        return this.averageRatingObject.getIntValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_NBVOTES);
+    }
+
+    private float getAverageVote()
+    {
+        return this.averageRatingObject.getFloatValue(RatingsManager.AVERAGERATING_CLASS_FIELDNAME_AVERAGEVOTE);
+    }
+
+    @Test
+    public void updateAverageRatingWithNewVote() throws Exception
+    {
+        setStoredAverageRating(RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+        when(this.rating.getVote()).thenReturn(5);
+
+        this.ratingsManager.updateAverageRating(this.documentReference, this.rating, 0,
+            RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+
+        assertEquals(255, getNbVotes());
+        // Computed from the exact total of the votes and not from the rounded average
+        assertEquals((float) (1256D / 255), getAverageVote());
+        verify(this.xwiki).saveDocument(this.document, "Update rating", true, this.xcontext);
+        // The votes are not loaded
+        verify(this.document, never()).getObjects(anyString());
+    }
+
+    @Test
+    public void updateAverageRatingWithChangedVote() throws Exception
+    {
+        setStoredAverageRating(RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+        when(this.rating.getVote()).thenReturn(2);
+
+        this.ratingsManager.updateAverageRating(this.documentReference, this.rating, 5,
+            RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+
+        assertEquals(254, getNbVotes());
+        assertEquals((float) (1248D / 254), getAverageVote());
+        verify(this.xwiki).saveDocument(this.document, "Update rating", true, this.xcontext);
+        verify(this.document, never()).getObjects(anyString());
+    }
+
+    @Test
+    public void updateAverageRatingWithBalancedMethod() throws Exception
+    {
+        setStoredAverageRating(RatingsManager.RATING_REPUTATION_METHOD_BALANCED);
+        when(this.rating.getVote()).thenReturn(5);
+
+        // The balanced average depends on the reputation of the voters so it's computed from all the votes
+        DefaultRatingsManager manager = spy(this.ratingsManager);
+        doReturn(new MemoryAverageRating(this.documentReference, 255, 4.5F,
+            RatingsManager.RATING_REPUTATION_METHOD_BALANCED)).when(manager)
+                .calcAverageRating(this.documentReference, RatingsManager.RATING_REPUTATION_METHOD_BALANCED);
+
+        manager.updateAverageRating(this.documentReference, this.rating, 0,
+            RatingsManager.RATING_REPUTATION_METHOD_BALANCED);
+
+        assertEquals(255, getNbVotes());
+        assertEquals(4.5F, getAverageVote());
+        verify(this.xwiki).saveDocument(this.document, "Update rating", true, this.xcontext);
+    }
+
+    @Test
+    public void updateAverageRatingWithUnchangedVote() throws Exception
+    {
+        setStoredAverageRating(RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+        when(this.rating.getVote()).thenReturn(3);
+
+        this.ratingsManager.updateAverageRating(this.documentReference, this.rating, 3,
+            RatingsManager.RATING_REPUTATION_METHOD_AVERAGE);
+
+        assertEquals(254, getNbVotes());
+        verify(this.xwiki, never()).saveDocument(any(XWikiDocument.class), anyString(), anyBoolean(),
+            any(XWikiContext.class));
+    }
+}
@@ -19,6 +19,9 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.Collection;
+import java.util.Map;
+
 import org.xwiki.component.annotation.Role;
 import org.xwiki.model.reference.DocumentReference;
 
@@ -41,6 +44,18 @@
     void renameLinks(DocumentReference documentReference, DocumentReference oldLinkTarget,
         DocumentReference newLinkTarget);
 
+    /**
+     * Renames the links targeting several renamed documents from the content of the specified documents. Each document
+     * is updated and saved only once, whatever the number of renamed documents it links to, and the modified documents
+     * are saved in groups.
+     *
+     * @param documentReferences the documents whose content needs to be updated
+     * @param renamedReferences the new link targets, indexed by the link targets that need to be replaced
+     * @since 11.3RC1
+     */
+    void renameLinks(Collection<DocumentReference> documentReferences,
+        Map<DocumentReference, DocumentReference> renamedReferences);
+
     /**
      * Updates the relative links from the content of a document after it has been renamed or moved. This ensures that
      * the links from the content of the renamed/moved document are relative to the new reference.
@@ -19,9 +19,15 @@
  */
 package org.xwiki.refactoring.internal.listener;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Predicate;
 
 import javax.inject.Inject;
@@ -30,12 +36,15 @@
 
 import org.slf4j.Logger;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.job.event.JobFinishedEvent;
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.observation.AbstractEventListener;
 import org.xwiki.observation.event.Event;
 import org.xwiki.refactoring.event.DocumentRenamedEvent;
+import org.xwiki.refactoring.event.EntitiesRenamedEvent;
+import org.xwiki.refactoring.event.EntitiesRenamingEvent;
 import org.xwiki.refactoring.internal.LinkRefactoring;
 import org.xwiki.refactoring.internal.ModelBridge;
 import org.xwiki.refactoring.internal.job.MoveJob;
@@ -47,6 +56,10 @@
 
 /**
  * Updates the back-links after a document has been renamed.
+ * <p>
+ * When the documents are renamed by a {@link MoveJob}, the back-links are updated once all the documents have been
+ * renamed, so that a document linking to several renamed documents is updated and saved only once. If the job fails or
+ * is canceled before the end, the back-links of the documents renamed so far are updated when the job finishes.
  * 
  * @version $Id$
  * @since 11.1RC1
@@ -79,18 +92,35 @@ public class BackLinkUpdaterListener extends AbstractEventListener
     @Inject
     private JobProgressManager progressManager;
 
+    /**
+     * The documents renamed by the running move jobs, indexed by job. The back-links are updated when the job is done.
+     */
+    private final Map<Object, Map<DocumentReference, DocumentReference>> pendingRenames =
+        Collections.synchronizedMap(new WeakHashMap<>());
+
     /**
      * Default constructor.
      */
     public BackLinkUpdaterListener()
     {
-        super(NAME, new DocumentRenamedEvent());
+        super(NAME, new DocumentRenamedEvent(), new EntitiesRenamingEvent(), new EntitiesRenamedEvent(),
+            new JobFinishedEvent());
     }
 
     @Override
     public void onEvent(Event event, Object source, Object data)
     {
-        if (event instanceof DocumentRenamedEvent) {
+        if (event instanceof EntitiesRenamingEvent) {
+            if (source instanceof MoveJob && ((MoveRequest) data).isUpdateLinks()) {
+                // Wait for the end of the job to update the back-links
+                this.pendingRenames.put(source, new LinkedHashMap<>());
+            }
+        } else if (event instanceof EntitiesRenamedEvent || event instanceof JobFinishedEvent) {
+            // The entities renamed event is not sent when the job fails or is canceled
+            if (source instanceof MoveJob) {
+                updatePendingBackLinks((MoveJob) source);
+            }
+        } else if (event instanceof DocumentRenamedEvent) {
             boolean updateLinks = true;
             boolean updateLinksOnFarm = true;
             Predicate<EntityReference> canEdit =
@@ -105,23 +135,91 @@ public void onEvent(Event event, Object source, Object data)
             }
 
             if (updateLinks) {
-                updateBackLinks((DocumentRenamedEvent) event, canEdit, updateLinksOnFarm);
+                DocumentRenamedEvent documentRenamedEvent = (DocumentRenamedEvent) event;
+                Map<DocumentReference, DocumentReference> renames = this.pendingRenames.get(source);
+                if (renames != null) {
+                    renames.put(documentRenamedEvent.getSourceReference(), documentRenamedEvent.getTargetReference());
+                } else {
+                    updateBackLinks(documentRenamedEvent, canEdit, updateLinksOnFarm);
+                }
             }
         }
     }
 
-    private void updateBackLinks(DocumentRenamedEvent event, Predicate<EntityReference> canEdit,
-        boolean updateLinksOnFarm)
+    private void updatePendingBackLinks(MoveJob job)
+    {
+        Map<DocumentReference, DocumentReference> renames = this.pendingRenames.remove(job);
+        if (renames != null && !renames.isEmpty()) {
+            updateBackLinks(renames, entityReference -> job.hasAccess(Right.EDIT, entityReference),
+                job.getRequest().isUpdateLinksOnFarm());
+        }
+    }
+
+    private Collection<String> getWikiIds(Collection<DocumentReference> renamedReferences, boolean updateLinksOnFarm)
     {
-        Collection<String> wikiIds = Collections.singleton(event.getSourceReference().getWikiReference().getName());
         if (updateLinksOnFarm) {
             try {
-                wikiIds = this.wikiDescriptorManager.getAllIds();
+                return this.wikiDescriptorManager.getAllIds();
             } catch (WikiManagerException e) {
                 this.logger.error("Failed to retrieve the list of wikis.", e);
             }
         }
 
+        Set<String> wikiIds = new LinkedHashSet<>();
+        for (DocumentReference renamedReference : renamedReferences) {
+            wikiIds.add(renamedReference.getWikiReference().getName());
+        }
+
+        return wikiIds;
+    }
+
+    private void updateBackLinks(Map<DocumentReference, DocumentReference> renames,
+        Predicate<EntityReference> canEdit, boolean updateLinksOnFarm)
+    {
+        Collection<String> wikiIds = getWikiIds(renames.keySet(), updateLinksOnFarm);
+
+        this.progressManager.pushLevelProgress(wikiIds.size(), this);
+
+        try {
+            for (String wikiId : wikiIds) {
+                this.progressManager.startStep(this);
+                updateBackLinks(renames, canEdit, wikiId);
+                this.progressManager.endStep(this);
+            }
+        } finally {
+            this.progressManager.popLevelProgress(this);
+        }
+    }
+
+    private void updateBackLinks(Map<DocumentReference, DocumentReference> renames,
+        Predicate<EntityReference> canEdit, String wikiId)
+    {
+        this.logger.info("Updating the back-links for [{}] renamed documents in wiki [{}].", renames.size(), wikiId);
+
+        // Gather all the documents to update first so that each of them is updated only once
+        Set<DocumentReference> backlinkDocumentReferences = new LinkedHashSet<>();
+        for (DocumentReference renamedReference : renames.keySet()) {
+            backlinkDocumentReferences.addAll(this.modelBridge.getBackLinkedReferences(renamedReference, wikiId));
+        }
+
+        List<DocumentReference> editableDocumentReferences = new ArrayList<>(backlinkDocumentReferences.size());
+        for (DocumentReference backlinkDocumentReference : backlinkDocumentReferences) {
+            if (canEdit.test(backlinkDocumentReference)) {
+                editableDocumentReferences.add(backlinkDocumentReference);
+            }
+        }
+
+        if (!editableDocumentReferences.isEmpty()) {
+            this.linkRefactoring.renameLinks(editableDocumentReferences, renames);
+        }
+    }
+
+    private void updateBackLinks(DocumentRenamedEvent event, Predicate<EntityReference> canEdit,
+        boolean updateLinksOnFarm)
+    {
+        Collection<String> wikiIds =
+            getWikiIds(Collections.singleton(event.getSourceReference()), updateLinksOnFarm);
+
         if (!wikiIds.isEmpty()) {
             this.progressManager.pushLevelProgress(wikiIds.size(), this);
 
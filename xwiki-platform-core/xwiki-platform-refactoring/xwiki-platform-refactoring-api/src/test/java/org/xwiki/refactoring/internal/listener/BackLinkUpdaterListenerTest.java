@@ -20,13 +20,19 @@
 package org.xwiki.refactoring.internal.listener;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.mockito.Mock;
+import org.xwiki.job.event.JobFinishedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.refactoring.event.DocumentRenamedEvent;
+import org.xwiki.refactoring.event.EntitiesRenamedEvent;
+import org.xwiki.refactoring.event.EntitiesRenamingEvent;
 import org.xwiki.refactoring.internal.LinkRefactoring;
 import org.xwiki.refactoring.internal.ModelBridge;
 import org.xwiki.refactoring.internal.job.RenameJob;
@@ -94,6 +100,7 @@ public void configure() throws Exception
         when(wikiDescriptorManager.getAllIds()).thenReturn(Arrays.asList("foo", "bar"));
         when(this.modelBridge.getBackLinkedReferences(aliceReference, "foo")).thenReturn(Arrays.asList(carolReference));
         when(this.modelBridge.getBackLinkedReferences(aliceReference, "bar")).thenReturn(Arrays.asList(denisReference));
+        when(this.renameJob.getRequest()).thenReturn(renameRequest);
     }
 
     @Test
@@ -189,6 +196,80 @@ public void onDocumentRenamedWithoutRenameJobAndNoEditRight()
         assertEquals("Updating the back-links for document [foo:Users.Alice] in wiki [bar].", logCapture.getMessage(1));
     }
 
+    @Test
+    public void onEntitiesRenamedWithUpdateLinksOnFarm()
+    {
+        renameRequest.setUpdateLinks(true);
+        renameRequest.setUpdateLinksOnFarm(true);
+
+        DocumentReference emmaReference = new DocumentReference("foo", "Users", "Emma");
+        DocumentReference frankReference = new DocumentReference("foo", "Users", "Frank");
+        when(this.modelBridge.getBackLinkedReferences(emmaReference, "foo"))
+            .thenReturn(Arrays.asList(carolReference, denisReference));
+
+        when(this.renameJob.hasAccess(Right.EDIT, carolReference)).thenReturn(true);
+        when(this.renameJob.hasAccess(Right.EDIT, denisReference)).thenReturn(false);
+
+        this.listener.onEvent(new EntitiesRenamingEvent(), renameJob, renameRequest);
+        this.listener.onEvent(documentRenamedEvent, renameJob, renameRequest);
+        this.listener.onEvent(new DocumentRenamedEvent(emmaReference, frankReference), renameJob, renameRequest);
+
+        // The back-links are updated only when all the documents have been renamed.
+        verify(this.linkRefactoring, never()).renameLinks(any(), any(), any());
+        verify(this.linkRefactoring, never()).renameLinks(any(), any());
+
+        this.listener.onEvent(new EntitiesRenamedEvent(), renameJob, renameRequest);
+
+        Map<DocumentReference, DocumentReference> renames = new LinkedHashMap<>();
+        renames.put(aliceReference, bobReference);
+        renames.put(emmaReference, frankReference);
+        verify(this.linkRefactoring).renameLinks(Arrays.asList(carolReference), renames);
+        verify(this.linkRefactoring, never()).renameLinks(eq(Arrays.asList(denisReference)), any());
+        verify(this.linkRefactoring, never()).renameLinks(any(), any(), any());
+
+        assertEquals("Updating the back-links for [2] renamed documents in wiki [foo].", logCapture.getMessage(0));
+        assertEquals("Updating the back-links for [2] renamed documents in wiki [bar].", logCapture.getMessage(1));
+    }
+
+    @Test
+    public void onJobFinishedWithoutEntitiesRenamed()
+    {
+        renameRequest.setUpdateLinks(true);
+        renameRequest.setUpdateLinksOnFarm(false);
+
+        when(this.renameJob.hasAccess(Right.EDIT, carolReference)).thenReturn(true);
+
+        this.listener.onEvent(new EntitiesRenamingEvent(), renameJob, renameRequest);
+        this.listener.onEvent(documentRenamedEvent, renameJob, renameRequest);
+
+        // The job fails before the end so the entities renamed event is not sent.
+        this.listener.onEvent(new JobFinishedEvent(), renameJob, new RuntimeException("Move failure"));
+
+        verify(this.linkRefactoring).renameLinks(Arrays.asList(carolReference),
+            Collections.singletonMap(aliceReference, bobReference));
+
+        // The back-links are not updated twice.
+        this.listener.onEvent(new EntitiesRenamedEvent(), renameJob, renameRequest);
+        this.listener.onEvent(new JobFinishedEvent(), renameJob, null);
+
+        verify(this.linkRefactoring).renameLinks(any(), any());
+
+        assertEquals("Updating the back-links for [1] renamed documents in wiki [foo].", logCapture.getMessage(0));
+    }
+
+    @Test
+    public void onEntitiesRenamedWithoutUpdateLinks()
+    {
+        renameRequest.setUpdateLinks(false);
+
+        this.listener.onEvent(new EntitiesRenamingEvent(), renameJob, renameRequest);
+        this.listener.onEvent(documentRenamedEvent, renameJob, renameRequest);
+        this.listener.onEvent(new EntitiesRenamedEvent(), renameJob, renameRequest);
+
+        verify(this.linkRefactoring, never()).renameLinks(any(), any(), any());
+        verify(this.linkRefactoring, never()).renameLinks(any(), any());
+    }
+
     @Test
     public void onOtherEvents()
     {
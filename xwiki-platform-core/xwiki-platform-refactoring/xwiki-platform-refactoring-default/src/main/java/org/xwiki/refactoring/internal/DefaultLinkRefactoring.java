@@ -19,8 +19,13 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -59,6 +64,13 @@
 @Singleton
 public class DefaultLinkRefactoring implements LinkRefactoring
 {
+    private static final String BACKLINKS_COMMENT = "Renamed back-links.";
+
+    /**
+     * The maximum number of documents with updated back-links to keep in memory before saving them.
+     */
+    private static final int SAVE_GROUP_SIZE = 100;
+
     @Inject
     private Logger logger;
 
@@ -127,51 +139,145 @@ public void renameLinks(DocumentReference documentReference, DocumentReference o
         }
     }
 
-    private void renameLinks(XWikiDocument document, DocumentReference oldTarget, DocumentReference newTarget,
-        XWikiContext xcontext, boolean relative) throws XWikiException
+    @Override
+    public void renameLinks(Collection<DocumentReference> documentReferences,
+        Map<DocumentReference, DocumentReference> renamedReferences)
     {
-        DocumentReference currentDocumentReference = document.getDocumentReference();
+        XWikiContext xcontext = this.xcontextProvider.get();
+        String previousWikiId = xcontext.getWikiId();
+        List<XWikiDocument> modifiedDocuments = new ArrayList<>();
+
+        this.progressManager.pushLevelProgress(documentReferences.size(), this);
+
+        try {
+            for (DocumentReference documentReference : documentReferences) {
+                this.progressManager.startStep(this);
+
+                try {
+                    xcontext.setWikiId(documentReference.getWikiReference().getName());
+                    XWikiDocument document = xcontext.getWiki().getDocument(documentReference, xcontext);
+
+                    // Update the default locale instance and the translations.
+                    maybeAddModifiedDocument(document, renamedReferences, modifiedDocuments, xcontext);
+                    for (Locale locale : document.getTranslationLocales(xcontext)) {
+                        maybeAddModifiedDocument(document.getTranslatedDocument(locale, xcontext), renamedReferences,
+                            modifiedDocuments, xcontext);
+                    }
+                } catch (XWikiException e) {
+                    this.logger.error("Failed to rename the links that target [{}] from [{}].",
+                        renamedReferences.keySet(), documentReference, e);
+                }
+
+                if (modifiedDocuments.size() >= SAVE_GROUP_SIZE) {
+                    saveBackLinkedDocuments(modifiedDocuments, xcontext);
+                }
+
+                this.progressManager.endStep(this);
+            }
+
+            saveBackLinkedDocuments(modifiedDocuments, xcontext);
+        } finally {
+            this.progressManager.popLevelProgress(this);
+            xcontext.setWikiId(previousWikiId);
+        }
+    }
+
+    private void maybeAddModifiedDocument(XWikiDocument document,
+        Map<DocumentReference, DocumentReference> renamedReferences, List<XWikiDocument> modifiedDocuments,
+        XWikiContext xcontext) throws XWikiException
+    {
+        BlockRenderer renderer = getRenderer(document);
+
+        if (renderer != null) {
+            if (renameLinks(document, renamedReferences, renderer, xcontext, false)) {
+                prepareDocumentPreservingContentAuthor(document, xcontext);
+                modifiedDocuments.add(document);
+            } else {
+                this.logger.info("No back-links to update in [{}].", document.getDocumentReference());
+            }
+        }
+    }
+
+    private void saveBackLinkedDocuments(List<XWikiDocument> documents, XWikiContext xcontext)
+    {
+        if (!documents.isEmpty()) {
+            try {
+                xcontext.getWiki().saveDocuments(documents, BACKLINKS_COMMENT, false, xcontext);
+
+                for (XWikiDocument document : documents) {
+                    this.logger.info("The back-links from [{}] have been updated.",
+                        document.getDocumentReferenceWithLocale());
+                }
+            } catch (XWikiException e) {
+                this.logger.warn("Failed to save the documents [{}] with updated back-links together, saving them"
+                    + " one by one. Root cause is [{}].",
+                    documents.stream().map(XWikiDocument::getDocumentReferenceWithLocale).collect(Collectors.toList()),
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                // Don't lose the updated back-links of the whole group because of a single document
+                for (XWikiDocument document : documents) {
+                    saveBackLinkedDocument(document, xcontext);
+                }
+            } finally {
+                documents.clear();
+            }
+        }
+    }
+
+    private void saveBackLinkedDocument(XWikiDocument document, XWikiContext xcontext)
+    {
+        try {
+            xcontext.getWiki().saveDocument(document, BACKLINKS_COMMENT, false, xcontext);
 
+            this.logger.info("The back-links from [{}] have been updated.", document.getDocumentReferenceWithLocale());
+        } catch (XWikiException e) {
+            this.logger.error("Failed to save the document [{}] with updated back-links.",
+                document.getDocumentReferenceWithLocale(), e);
+        }
+    }
+
+    private BlockRenderer getRenderer(XWikiDocument document)
+    {
         ComponentManager componentManager = this.contextComponentManagerProvider.get();
 
         // We support only the syntaxes for which there is an available renderer.
         if (!componentManager.hasComponent(BlockRenderer.class, document.getSyntax().toIdString())) {
             this.logger.warn(
                 "We can't rename the links from [{}] because there is no renderer available for its syntax [{}].",
-                currentDocumentReference, document.getSyntax());
+                document.getDocumentReference(), document.getSyntax());
 
-            return;
+            return null;
         }
 
         // Load the renderer
-        BlockRenderer renderer;
         try {
-            renderer = componentManager.getInstance(BlockRenderer.class, document.getSyntax().toIdString());
+            return componentManager.getInstance(BlockRenderer.class, document.getSyntax().toIdString());
         } catch (ComponentLookupException e) {
             this.logger.error(
                 "We can't rename the links from [{}] because the renderer for syntax [{}] cannot be loaded.",
-                currentDocumentReference, document.getSyntax(), e);
+                document.getDocumentReference(), document.getSyntax(), e);
 
-            return;
+            return null;
         }
+    }
 
-        // Document content
-        boolean modified = renameLinks(document, oldTarget, newTarget, relative);
+    private void renameLinks(XWikiDocument document, DocumentReference oldTarget, DocumentReference newTarget,
+        XWikiContext xcontext, boolean relative) throws XWikiException
+    {
+        DocumentReference currentDocumentReference = document.getDocumentReference();
 
-        // XObjects properties
-        for (List<BaseObject> xobjects : document.getXObjects().values()) {
-            for (BaseObject xobject : xobjects) {
-                modified |= renameLinks(xobject, document, oldTarget, newTarget, renderer, xcontext, relative);
-            }
+        BlockRenderer renderer = getRenderer(document);
+        if (renderer == null) {
+            return;
         }
 
-        if (modified) {
+        if (renameLinks(document, Collections.singletonMap(oldTarget, newTarget), renderer, xcontext, relative)) {
             if (relative) {
                 saveDocumentPreservingContentAuthor(document, "Updated the relative links.", true);
 
                 this.logger.info("Updated the relative links from [{}].", currentDocumentReference);
             } else {
-                saveDocumentPreservingContentAuthor(document, "Renamed back-links.", false);
+                saveDocumentPreservingContentAuthor(document, BACKLINKS_COMMENT, false);
 
                 this.logger.info("The links from [{}] that were targeting [{}] have been updated to target [{}].",
                     document.getDocumentReferenceWithLocale(), oldTarget, newTarget);
@@ -185,12 +291,28 @@ private void renameLinks(XWikiDocument document, DocumentReference oldTarget, Do
         }
     }
 
-    private boolean renameLinks(XWikiDocument document, DocumentReference oldTarget, DocumentReference newTarget,
+    private boolean renameLinks(XWikiDocument document, Map<DocumentReference, DocumentReference> renamedReferences,
+        BlockRenderer renderer, XWikiContext xcontext, boolean relative) throws XWikiException
+    {
+        // Document content
+        boolean modified = renameLinks(document, renamedReferences, relative);
+
+        // XObjects properties
+        for (List<BaseObject> xobjects : document.getXObjects().values()) {
+            for (BaseObject xobject : xobjects) {
+                modified |= renameLinks(xobject, document, renamedReferences, renderer, xcontext, relative);
+            }
+        }
+
+        return modified;
+    }
+
+    private boolean renameLinks(XWikiDocument document, Map<DocumentReference, DocumentReference> renamedReferences,
         boolean relative) throws XWikiException
     {
         XDOM xdom = document.getXDOM();
 
-        if (renameLinks(xdom, document.getDocumentReference(), oldTarget, newTarget, relative)) {
+        if (renameLinks(xdom, document.getDocumentReference(), renamedReferences, relative)) {
             document.setContent(xdom);
 
             return true;
@@ -199,18 +321,23 @@ private boolean renameLinks(XWikiDocument document, DocumentReference oldTarget,
         return false;
     }
 
-    private boolean renameLinks(XDOM xdom, DocumentReference currentDocumentReference, DocumentReference oldTarget,
-        DocumentReference newTarget, boolean relative)
+    private boolean renameLinks(XDOM xdom, DocumentReference currentDocumentReference,
+        Map<DocumentReference, DocumentReference> renamedReferences, boolean relative)
     {
         if (relative) {
-            return this.renamer.updateRelativeReferences(xdom, oldTarget, newTarget);
+            // Only the document itself is renamed when updating relative links
+            Map.Entry<DocumentReference, DocumentReference> renamedReference =
+                renamedReferences.entrySet().iterator().next();
+
+            return this.renamer.updateRelativeReferences(xdom, renamedReference.getKey(), renamedReference.getValue());
         }
 
-        return this.renamer.renameReferences(xdom, currentDocumentReference, oldTarget, newTarget);
+        return this.renamer.renameReferences(xdom, currentDocumentReference, renamedReferences);
     }
 
-    private boolean renameLinks(BaseObject xobject, XWikiDocument document, DocumentReference oldTarget,
-        DocumentReference newTarget, BlockRenderer renderer, XWikiContext xcontext, boolean relative)
+    private boolean renameLinks(BaseObject xobject, XWikiDocument document,
+        Map<DocumentReference, DocumentReference> renamedReferences, BlockRenderer renderer, XWikiContext xcontext,
+        boolean relative)
     {
         boolean modified = false;
 
@@ -232,7 +359,7 @@ private boolean renameLinks(BaseObject xobject, XWikiDocument document, Document
                             document.getDocumentReference());
 
                         // Rename references
-                        if (renameLinks(xdom, document.getDocumentReference(), oldTarget, newTarget, relative)) {
+                        if (renameLinks(xdom, document.getDocumentReference(), renamedReferences, relative)) {
                             // Serialize property content
                             largeField.setValue(renderXDOM(xdom, renderer));
 
@@ -284,11 +411,16 @@ private void saveDocumentPreservingContentAuthor(XWikiDocument document, String
         throws XWikiException
     {
         XWikiContext xcontext = this.xcontextProvider.get();
+        prepareDocumentPreservingContentAuthor(document, xcontext);
+        xcontext.getWiki().saveDocument(document, comment, minorEdit, xcontext);
+    }
+
+    private void prepareDocumentPreservingContentAuthor(XWikiDocument document, XWikiContext xcontext)
+    {
         // Preserve the content author.
         document.setContentDirty(false);
         // Make sure the version is incremented.
         document.setMetaDataDirty(true);
         document.setAuthorReference(xcontext.getUserReference());
-        xcontext.getWiki().saveDocument(document, comment, minorEdit, xcontext);
     }
 }
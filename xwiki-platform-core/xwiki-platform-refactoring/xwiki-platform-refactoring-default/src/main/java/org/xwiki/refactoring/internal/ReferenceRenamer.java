@@ -20,8 +20,10 @@
 package org.xwiki.refactoring.internal;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
@@ -84,20 +86,35 @@
      */
     public boolean renameReferences(XDOM xdom, DocumentReference currentDocumentReference, DocumentReference oldTarget,
         DocumentReference newTarget)
+    {
+        return renameReferences(xdom, currentDocumentReference, Collections.singletonMap(oldTarget, newTarget));
+    }
+
+    /**
+     * Rename the references to several renamed documents in a single pass on the {@link XDOM}.
+     *
+     * @param xdom the {@link XDOM} to modify
+     * @param currentDocumentReference the current document reference
+     * @param renamedReferences the new references of the renamed documents, indexed by their previous reference
+     * @return true if the passed {@link XDOM} was modified
+     * @since 11.3RC1
+     */
+    public boolean renameReferences(XDOM xdom, DocumentReference currentDocumentReference,
+        Map<DocumentReference, DocumentReference> renamedReferences)
     {
         List<Block> blocks = this.linkedResourceHelper.getBlocks(xdom);
 
         boolean modified = false;
 
         for (Block block : blocks) {
-            modified |= renameReference(block, currentDocumentReference, oldTarget, newTarget);
+            modified |= renameReference(block, currentDocumentReference, renamedReferences);
         }
 
         return modified;
     }
 
     private boolean renameReference(Block block, DocumentReference currentDocumentReference,
-        DocumentReference oldTarget, DocumentReference newTarget)
+        Map<DocumentReference, DocumentReference> renamedReferences)
     {
         ResourceReference resourceReference = this.linkedResourceHelper.getResourceReference(block);
         if (resourceReference == null) {
@@ -118,11 +135,12 @@ private boolean renameReference(Block block, DocumentReference currentDocumentRe
         // Resolve the document of the reference.
         DocumentReference linkTargetDocumentReference =
             this.defaultReferenceDocumentReferenceResolver.resolve(linkEntityReference);
+        DocumentReference newTarget = renamedReferences.get(linkTargetDocumentReference);
         EntityReference newTargetReference = newTarget;
         ResourceType newResourceType = resourceType;
 
-        // If the link targets the old (renamed) document reference, we must update it.
-        if (linkTargetDocumentReference.equals(oldTarget)) {
+        // If the link targets an old (renamed) document reference, we must update it.
+        if (newTarget != null) {
             // If the link was resolved to a space...
             if (EntityType.SPACE.equals(linkEntityReference.getType())) {
                 if (XWiki.DEFAULT_SPACE_HOMEPAGE.equals(newTarget.getName())) {
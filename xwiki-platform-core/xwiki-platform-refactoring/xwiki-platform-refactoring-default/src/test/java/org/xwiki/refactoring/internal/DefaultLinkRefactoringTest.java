@@ -19,9 +19,11 @@
  */
 package org.xwiki.refactoring.internal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -78,8 +80,10 @@
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -332,6 +336,112 @@ public void renameLinks() throws Exception
         verifyDocumentSave(document, "Renamed back-links.", false, false);
     }
 
+    @Test
+    public void renameLinksOfSeveralDocuments() throws Exception
+    {
+        DocumentReference firstReference = new DocumentReference("wiki", "Space", "First");
+        XWikiDocument firstDocument = mock(XWikiDocument.class);
+        when(this.xcontext.getWiki().getDocument(firstReference, this.xcontext)).thenReturn(firstDocument);
+        when(firstDocument.getDocumentReference()).thenReturn(firstReference);
+        when(firstDocument.getDocumentReferenceWithLocale()).thenReturn(firstReference);
+        when(firstDocument.getSyntax()).thenReturn(Syntax.XWIKI_2_1);
+
+        DocumentReference secondReference = new DocumentReference("wiki", "Space", "Second");
+        XWikiDocument secondDocument = mock(XWikiDocument.class);
+        when(this.xcontext.getWiki().getDocument(secondReference, this.xcontext)).thenReturn(secondDocument);
+        when(secondDocument.getDocumentReference()).thenReturn(secondReference);
+        when(secondDocument.getSyntax()).thenReturn(Syntax.XWIKI_2_1);
+
+        DocumentReference oldTarget1 = new DocumentReference("wiki", "A", "B");
+        DocumentReference newTarget1 = new DocumentReference("wiki", "X", "Y");
+        DocumentReference oldTarget2 = new DocumentReference("wiki", "A", "C");
+        DocumentReference newTarget2 = new DocumentReference("wiki", "X", "Z");
+        Map<DocumentReference, DocumentReference> renamedReferences = new LinkedHashMap<>();
+        renamedReferences.put(oldTarget1, newTarget1);
+        renamedReferences.put(oldTarget2, newTarget2);
+
+        // The first document links to both renamed documents.
+        ResourceReference linkReference1 = new ResourceReference("A.B", ResourceType.DOCUMENT);
+        LinkBlock linkBlock1 = new LinkBlock(Collections.<Block>emptyList(), linkReference1, false);
+        ResourceReference linkReference2 = new ResourceReference("A.C", ResourceType.DOCUMENT);
+        LinkBlock linkBlock2 = new LinkBlock(Collections.<Block>emptyList(), linkReference2, false);
+        when(firstDocument.getXDOM()).thenReturn(new XDOM(Arrays.<Block>asList(linkBlock1, linkBlock2)));
+
+        // The second document doesn't link to any renamed document.
+        ResourceReference otherLinkReference = new ResourceReference("A.D", ResourceType.DOCUMENT);
+        LinkBlock otherLinkBlock = new LinkBlock(Collections.<Block>emptyList(), otherLinkReference, false);
+        when(secondDocument.getXDOM()).thenReturn(new XDOM(Collections.singletonList(otherLinkBlock)));
+
+        DocumentReference otherTarget = new DocumentReference("wiki", "A", "D");
+        when(this.resourceReferenceResolver.resolve(linkReference1, null, firstReference)).thenReturn(oldTarget1);
+        when(this.resourceReferenceResolver.resolve(linkReference2, null, firstReference)).thenReturn(oldTarget2);
+        when(this.resourceReferenceResolver.resolve(otherLinkReference, null, secondReference))
+            .thenReturn(otherTarget);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(oldTarget1)).thenReturn(oldTarget1);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(oldTarget2)).thenReturn(oldTarget2);
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(otherTarget)).thenReturn(otherTarget);
+
+        when(this.compactEntityReferenceSerializer.serialize(newTarget1, firstReference)).thenReturn("X.Y");
+        when(this.compactEntityReferenceSerializer.serialize(newTarget2, firstReference)).thenReturn("X.Z");
+
+        this.refactoring.renameLinks(Arrays.asList(firstReference, secondReference), renamedReferences);
+
+        assertEquals("X.Y", linkBlock1.getReference().getReference());
+        assertEquals("X.Z", linkBlock2.getReference().getReference());
+        assertEquals("A.D", otherLinkBlock.getReference().getReference());
+
+        // Only the modified document is saved.
+        verify(firstDocument).setContentDirty(false);
+        verify(firstDocument).setMetaDataDirty(true);
+        verify(this.xcontext.getWiki()).saveDocuments(Collections.singletonList(firstDocument), "Renamed back-links.",
+            false, this.xcontext);
+        assertEquals("No back-links to update in [wiki:Space.Second].", this.logCapture.getMessage(0));
+        assertEquals("The back-links from [wiki:Space.First] have been updated.", this.logCapture.getMessage(1));
+    }
+
+    @Test
+    public void renameLinksWhenSavingTheDocumentsTogetherFails() throws Exception
+    {
+        DocumentReference oldTarget = new DocumentReference("wiki", "A", "B");
+        DocumentReference newTarget = new DocumentReference("wiki", "X", "Y");
+        when(this.defaultReferenceDocumentReferenceResolver.resolve(oldTarget)).thenReturn(oldTarget);
+
+        List<XWikiDocument> documents = new ArrayList<>();
+        for (String name : Arrays.asList("First", "Second")) {
+            DocumentReference reference = new DocumentReference("wiki", "Space", name);
+            XWikiDocument document = mock(XWikiDocument.class);
+            when(this.xcontext.getWiki().getDocument(reference, this.xcontext)).thenReturn(document);
+            when(document.getDocumentReference()).thenReturn(reference);
+            when(document.getDocumentReferenceWithLocale()).thenReturn(reference);
+            when(document.getSyntax()).thenReturn(Syntax.XWIKI_2_1);
+
+            ResourceReference linkReference = new ResourceReference("A.B", ResourceType.DOCUMENT);
+            LinkBlock linkBlock = new LinkBlock(Collections.<Block>emptyList(), linkReference, false);
+            when(document.getXDOM()).thenReturn(new XDOM(Collections.singletonList(linkBlock)));
+            when(this.resourceReferenceResolver.resolve(linkReference, null, reference)).thenReturn(oldTarget);
+            when(this.compactEntityReferenceSerializer.serialize(newTarget, reference)).thenReturn("X.Y");
+
+            documents.add(document);
+        }
+
+        doThrow(new XWikiException()).when(this.xcontext.getWiki()).saveDocuments(documents, "Renamed back-links.",
+            false, this.xcontext);
+        doThrow(new XWikiException()).when(this.xcontext.getWiki()).saveDocument(documents.get(1),
+            "Renamed back-links.", false, this.xcontext);
+
+        this.refactoring.renameLinks(
+            Arrays.asList(documents.get(0).getDocumentReference(), documents.get(1).getDocumentReference()),
+            Collections.singletonMap(oldTarget, newTarget));
+
+        // The documents are saved one by one when they can't be saved together.
+        verify(this.xcontext.getWiki()).saveDocument(documents.get(0), "Renamed back-links.", false, this.xcontext);
+        assertTrue(this.logCapture.getMessage(0).startsWith("Failed to save the documents "
+            + "[[wiki:Space.First, wiki:Space.Second]] with updated back-links together, saving them one by one."));
+        assertEquals("The back-links from [wiki:Space.First] have been updated.", this.logCapture.getMessage(1));
+        assertEquals("Failed to save the document [wiki:Space.Second] with updated back-links.",
+            this.logCapture.getMessage(2));
+    }
+
     @Test
     public void renameImage() throws Exception
     {
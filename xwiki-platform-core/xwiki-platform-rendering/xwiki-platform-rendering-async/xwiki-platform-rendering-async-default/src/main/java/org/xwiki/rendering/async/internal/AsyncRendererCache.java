@@ -20,13 +20,17 @@
 package org.xwiki.rendering.async.internal;
 
 import java.lang.reflect.Type;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.xwiki.cache.Cache;
@@ -41,10 +45,16 @@
 import org.xwiki.component.descriptor.DefaultComponentRole;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.rendering.async.internal.block.BlockAsyncRendererResult;
 
 /**
  * Share cache containing the results of the {@link AsyncRenderer} executions.
+ * <p>
+ * On top of the maximum number of entries of the underlying cache, the long lived cache is bounded by the approximate
+ * memory taken by the results it contains (see {@code rendering.async.cache.maxWeight} in xwiki.properties): when the
+ * limit is reached the least recently used results are evicted.
  * 
  * @version $Id$
  * @since 10.10RC1
@@ -53,9 +63,25 @@
 @Singleton
 public class AsyncRendererCache implements Initializable, CacheEntryListener<AsyncRendererJobStatus>
 {
+    private static final String CONFIGURATION_MAXWEIGHT = "rendering.async.cache.maxWeight";
+
+    /**
+     * The default maximum approximate weight (in bytes) of the long lived cache.
+     */
+    private static final long DEFAULT_MAXWEIGHT = 50L * 1024 * 1024;
+
+    /**
+     * The approximate weight of an entry, not counting its result.
+     */
+    private static final long ENTRY_WEIGHT = 1024;
+
     @Inject
     private CacheManager cacheManager;
 
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     private Cache<AsyncRendererJobStatus> asyncCache;
 
     private Cache<AsyncRendererJobStatus> longCache;
@@ -68,6 +94,21 @@ public class AsyncRendererCache implements Initializable, CacheEntryListener<Asy
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * The weight of each entry of the long lived cache, in access order.
+     */
+    private final LinkedHashMap<String, Long> weights = new LinkedHashMap<>(16, 0.75F, true);
+
+    private long totalWeight;
+
+    private long maxWeight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
     /**
      * @return the lock the lock
      * @since 10.11.5
@@ -96,10 +137,12 @@ public static String toCacheKey(List<String> jobId)
     @Override
     public void initialize() throws InitializationException
     {
+        this.maxWeight = this.configuration.getProperty(CONFIGURATION_MAXWEIGHT, DEFAULT_MAXWEIGHT);
+
         try {
-            // Standard cache (long lived but small by default)
-            this.longCache =
-                this.cacheManager.createNewCache(new LRUCacheConfiguration("rendering.asyncrenderer.long", 100, 86400));
+            // Standard cache (long lived and bounded by the weight of its entries)
+            this.longCache = this.cacheManager
+                .createNewCache(new LRUCacheConfiguration("rendering.asyncrenderer.long", 10000, 86400));
 
             // Cache to store asynchronous result kept only for the small period between which the job is finished
             // but it was not been asked yet by the client (short live but big size)
@@ -120,7 +163,58 @@ public AsyncRendererJobStatus getSync(List<String> id)
     {
         String cacheKey = toCacheKey(id);
 
-        return this.longCache.get(cacheKey);
+        AsyncRendererJobStatus status = this.longCache.get(cacheKey);
+
+        if (status != null) {
+            this.hitCount.incrementAndGet();
+
+            // Remember the entry was used recently
+            synchronized (this.weights) {
+                this.weights.get(cacheKey);
+            }
+        } else {
+            this.missCount.incrementAndGet();
+        }
+
+        return status;
+    }
+
+    /**
+     * @return the number of times a result was found in the long lived cache
+     * @since 11.3RC1
+     */
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * @return the number of times a result was not found in the long lived cache
+     * @since 11.3RC1
+     */
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * @return the number of results evicted from the long lived cache to respect its maximum weight
+     * @since 11.3RC1
+     */
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+
+    /**
+     * @return the approximate weight (in bytes) of the results stored in the long lived cache
+     * @since 11.3RC1
+     */
+    public long getWeight()
+    {
+        synchronized (this.weights) {
+            return this.totalWeight;
+        }
     }
 
     /**
@@ -160,6 +254,8 @@ public void put(AsyncRendererJobStatus status)
             // If cache is enabled, store the status in the long cache
             if (cacheAllowed) {
                 this.longCache.set(cacheKey, status);
+
+                evict();
             }
 
             // Asynchronous statuses are stored in a short lived cache to avoid race condition (result invalidated
@@ -180,6 +276,11 @@ public void flush()
     {
         this.longCache.removeAll();
         this.asyncCache.removeAll();
+
+        synchronized (this.weights) {
+            this.weights.clear();
+            this.totalWeight = 0;
+        }
     }
 
     @Override
@@ -200,6 +301,58 @@ public void cacheEntryAdded(CacheEntryEvent<AsyncRendererJobStatus> event)
         for (ComponentRole<?> role : status.getRoles()) {
             this.roleMapping.computeIfAbsent(role, k -> ConcurrentHashMap.newKeySet()).add(key);
         }
+
+        long weight = getWeight(status);
+        synchronized (this.weights) {
+            Long previousWeight = this.weights.put(key, weight);
+            this.totalWeight += weight - (previousWeight != null ? previousWeight : 0);
+        }
+    }
+
+    private long getWeight(AsyncRendererJobStatus status)
+    {
+        long weight = ENTRY_WEIGHT;
+
+        AsyncRendererResult result = status.getResult();
+        if (result != null && result.getResult() != null) {
+            // Java characters take 2 bytes
+            long resultWeight = 2L * result.getResult().length();
+            weight += resultWeight;
+
+            // Assume the XDOM takes about as much memory as its rendering
+            if (result instanceof BlockAsyncRendererResult && ((BlockAsyncRendererResult) result).getBlock() != null) {
+                weight += resultWeight;
+            }
+        }
+
+        return weight;
+    }
+
+    /**
+     * Remove the least recently used entries until the cache weight is back below the maximum weight.
+     */
+    private void evict()
+    {
+        while (true) {
+            String eldestKey;
+            synchronized (this.weights) {
+                // Always keep at least the last entry
+                if (this.totalWeight <= this.maxWeight || this.weights.size() <= 1) {
+                    return;
+                }
+
+                Iterator<Map.Entry<String, Long>> iterator = this.weights.entrySet().iterator();
+                Map.Entry<String, Long> eldest = iterator.next();
+                eldestKey = eldest.getKey();
+
+                // Forget the weight right away in case the cache does not send any event for this entry
+                iterator.remove();
+                this.totalWeight -= eldest.getValue();
+            }
+
+            this.longCache.remove(eldestKey);
+            this.evictionCount.incrementAndGet();
+        }
     }
 
     @Override
@@ -212,6 +365,13 @@ public void cacheEntryRemoved(CacheEntryEvent<AsyncRendererJobStatus> event)
         remove(key, status.getReferences(), this.referenceMapping);
         remove(key, status.getRoleTypes(), this.roleTypeMapping);
         remove(key, status.getRoles(), this.roleMapping);
+
+        synchronized (this.weights) {
+            Long weight = this.weights.remove(key);
+            if (weight != null) {
+                this.totalWeight -= weight;
+            }
+        }
     }
 
     private <T> void remove(String key, Set<T> values, Map<T, Set<String>> mapping)
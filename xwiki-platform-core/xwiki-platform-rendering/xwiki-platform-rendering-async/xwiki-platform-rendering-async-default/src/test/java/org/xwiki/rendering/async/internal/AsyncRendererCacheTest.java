@@ -24,6 +24,8 @@
 import java.util.HashSet;
 import java.util.List;
 
+import javax.inject.Named;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.xwiki.cache.CacheException;
@@ -31,6 +33,7 @@
 import org.xwiki.cache.internal.MapCache;
 import org.xwiki.component.descriptor.ComponentRole;
 import org.xwiki.component.descriptor.DefaultComponentRole;
+import org.xwiki.configuration.ConfigurationSource;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
 import org.xwiki.model.reference.ObjectReference;
@@ -39,9 +42,12 @@
 import org.xwiki.test.junit5.mockito.InjectMockComponents;
 import org.xwiki.test.junit5.mockito.MockComponent;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -56,6 +62,10 @@
     @MockComponent
     private CacheManager cacheManager;
 
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
     @InjectMockComponents
     private AsyncRendererCache asyncCache;
 
@@ -67,6 +77,8 @@
     public void beforeComponent() throws CacheException
     {
         when(this.cacheManager.<AsyncRendererJobStatus>createNewCache(any())).thenReturn(new MapCache<>());
+        // Enough for 2 entries with a small result
+        when(this.configuration.getProperty(eq("rendering.async.cache.maxWeight"), anyLong())).thenReturn(2100L);
     }
 
     @BeforeEach
@@ -225,4 +237,41 @@ public void getAsyncSeveralClients()
 
         assertNull(this.asyncCache.getAsync("2"));
     }
+
+    @Test
+    public void getSyncEvictsLeastRecentlyUsedWhenTooHeavy()
+    {
+        AsyncRendererJobStatus status2 = newStatus("id2");
+        AsyncRendererJobStatus status3 = newStatus("id3");
+
+        this.asyncCache.put(this.status);
+        this.asyncCache.put(status2);
+
+        // Use the first entry so that the second one is the least recently used
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+
+        this.asyncCache.put(status3);
+
+        assertNull(this.asyncCache.getSync(status2.getRequest().getId()));
+        assertSame(this.status, this.asyncCache.getSync(getId()));
+        assertSame(status3, this.asyncCache.getSync(status3.getRequest().getId()));
+
+        assertEquals(3, this.asyncCache.getHitCount());
+        assertEquals(1, this.asyncCache.getMissCount());
+        assertEquals(1, this.asyncCache.getEvictionCount());
+        assertEquals(2 * (1024 + 2 * "result".length()), this.asyncCache.getWeight());
+
+        this.asyncCache.flush();
+
+        assertEquals(0, this.asyncCache.getWeight());
+    }
+
+    private AsyncRendererJobStatus newStatus(String id)
+    {
+        AsyncRendererJobRequest request = new AsyncRendererJobRequest();
+        request.setId(Arrays.asList("entry", id));
+        request.setRenderer(this.renderer);
+
+        return new AsyncRendererJobStatus(request, new AsyncRendererResult("result"));
+    }
 }
@@ -152,9 +152,12 @@ public List<Block> execute(ContextMacroParameters parameters, String content, Ma
                     // the toc for the passed document instead of the current document).
                     DocumentModelBridge referencedDoc =
                         this.documentAccessBridge.getTranslatedDocumentInstance(referencedDocReference);
-                    XDOM referencedXDOM = referencedDoc.getXDOM();
+                    XDOM referencedXDOM;
 
                     if (parameters.getTransformationContext() == TransformationContextMode.TRANSFORMATIONS) {
+                        // The transformations modify the XDOM so work on a copy.
+                        referencedXDOM = referencedDoc.getXDOM();
+
                         // Get the XDOM from the referenced doc but with Transformations applied so that all macro are
                         // executed and contribute XDOM elements.
                         // IMPORTANT: This can be dangerous since it means executing macros, and thus also script macros
@@ -162,6 +165,9 @@ public List<Block> execute(ContextMacroParameters parameters, String content, Ma
                         TransformationContext referencedTxContext =
                             new TransformationContext(referencedXDOM, referencedDoc.getSyntax());
                         this.transformationManager.performTransformations(referencedXDOM, referencedTxContext);
+                    } else {
+                        // Only read by the macros of the content.
+                        referencedXDOM = referencedDoc.getReadOnlyXDOM();
                     }
 
                     // Now execute transformation on the context macro content but with the referenced XDOM in the
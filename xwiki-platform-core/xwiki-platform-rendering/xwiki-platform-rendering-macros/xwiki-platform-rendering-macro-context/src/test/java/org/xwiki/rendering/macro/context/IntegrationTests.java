@@ -67,5 +67,6 @@ public void initialize(MockitoComponentManager componentManager) throws Exceptio
         Parser parser = componentManager.getInstance(Parser.class, "xwiki/2.1");
         XDOM xdom = parser.parse(new StringReader("= heading1 =\n==heading2=="));
         when(dmb.getXDOM()).thenReturn(xdom);
+        when(dmb.getReadOnlyXDOM()).thenReturn(xdom);
     }
 }
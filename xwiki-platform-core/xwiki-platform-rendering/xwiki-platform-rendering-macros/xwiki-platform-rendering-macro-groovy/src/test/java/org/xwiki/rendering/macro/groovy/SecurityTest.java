@@ -167,6 +167,9 @@ private void testExecution(final boolean hasCustomizer, final boolean isRestrict
                 allowing(configurationSource).getProperty("groovy.compilationCustomizers", Collections.emptyList());
                 will(returnValue(customizers));
 
+                // Compiled scripts cache
+                allowing(configurationSource).getProperty("rendering.macro.script.compiledScripts.cacheSize", 100);
+                will(returnValue(100));
             }
         });
 
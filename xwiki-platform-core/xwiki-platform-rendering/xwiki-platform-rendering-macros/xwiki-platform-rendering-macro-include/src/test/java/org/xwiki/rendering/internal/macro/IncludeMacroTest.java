@@ -397,7 +397,7 @@ public void testIncludeMacroInsideSourceMetaDataBlockAndWithRelativeDocumentRefe
                 will(returnValue(mockDocument));
                 oneOf(mockSetup.bridge).getCurrentDocumentReference();
                 will(returnValue(sourceReference));
-                oneOf(mockDocument).getXDOM();
+                oneOf(mockDocument).getReadOnlyXDOM();
                 will(returnValue(getXDOM("content")));
                 oneOf(mockDocument).getSyntax();
                 will(returnValue(Syntax.XWIKI_2_0));
@@ -454,7 +454,7 @@ public void testIncludeMacroWhenSectionSpecified() throws Exception
                 will(returnValue(resolvedReference));
                 oneOf(mockDocument).getSyntax();
                 will(returnValue(Syntax.XWIKI_2_0));
-                oneOf(mockDocument).getXDOM();
+                oneOf(mockDocument).getReadOnlyXDOM();
                 will(returnValue(getXDOM("content1\n\n= section =\ncontent2")));
                 allowing(mockDocument).getRealLanguage();
                 will(returnValue(""));
@@ -492,7 +492,7 @@ public void testIncludeMacroWhenInvalidSectionSpecified() throws Exception
                 will(returnValue(new DocumentReference("wiki", "Space", "IncludingPage")));
                 oneOf(mockDocument).getSyntax();
                 will(returnValue(Syntax.XWIKI_2_0));
-                oneOf(mockDocument).getXDOM();
+                oneOf(mockDocument).getReadOnlyXDOM();
                 will(returnValue(getXDOM("content")));
                 allowing(mockDocument).getDocumentReference();
                 will(returnValue(resolvedReference));
@@ -535,7 +535,7 @@ private void setUpDocumentMock(final String resolve, final DocumentReference ref
                 will(returnValue(mockDocument));
                 allowing(mockDocument).getSyntax();
                 will(returnValue(Syntax.XWIKI_2_0));
-                allowing(mockDocument).getXDOM();
+                allowing(mockDocument).getReadOnlyXDOM();
                 will(returnValue(getXDOM(content)));
                 allowing(mockDocument).getDocumentReference();
                 will(returnValue(reference));
@@ -0,0 +1,313 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.rss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+/**
+ * Keeps the raw content of the feeds and refresh it in the background using a bounded pool of threads.
+ * <p>
+ * A feed which is not yet cached is fetched synchronously (but still through the pool, so that the number of
+ * connections stays bounded). A cached feed is always returned directly, and when it's older than the configured
+ * maximum age a conditional request ({@code If-None-Match}/{@code If-Modified-Since}) is sent in the background to
+ * refresh it.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class CachedFeedFetcher
+{
+    private static final String USER_AGENT_HEADER = "User-Agent";
+
+    private static final String ETAG_HEADER = "ETag";
+
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Map<String, CachedFeed> feeds = new ConcurrentHashMap<>();
+
+    private final Map<String, FutureTask<CachedFeed>> pendingFetches = new ConcurrentHashMap<>();
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private final int timeout;
+
+    private final long maxAge;
+
+    private final int maxEntries;
+
+    private final int maxConnectionsPerHost;
+
+    private final String userAgent;
+
+    /**
+     * The raw content of a feed, with the information needed to revalidate it.
+     */
+    private static final class CachedFeed
+    {
+        private final byte[] content;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final long date = System.currentTimeMillis();
+
+        CachedFeed(byte[] content, String etag, String lastModified)
+        {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        CachedFeed revalidated()
+        {
+            return new CachedFeed(this.content, this.etag, this.lastModified);
+        }
+    }
+
+    /**
+     * @param timeout the maximum number of milliseconds to wait when connecting to and reading from a feed provider
+     * @param maxAge the number of milliseconds after which a cached feed is refreshed
+     * @param maxEntries the maximum number of cached feeds
+     * @param poolSize the maximum number of feeds fetched at the same time
+     * @param maxConnectionsPerHost the maximum number of feeds fetched at the same time from the same host
+     * @param userAgent the value of the User-Agent header sent to the feed providers
+     */
+    public CachedFeedFetcher(int timeout, long maxAge, int maxEntries, int poolSize, int maxConnectionsPerHost,
+        String userAgent)
+    {
+        this.timeout = timeout;
+        this.maxAge = maxAge;
+        this.maxEntries = maxEntries;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.userAgent = userAgent;
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(maxEntries),
+            new BasicThreadFactory.Builder().namingPattern("XWiki RSS feed fetcher %d").daemon(true).build());
+        // Don't keep idle threads when there is no feed to fetch
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param url the URL of the feed
+     * @return the raw content of the feed, as cached or fetched
+     * @throws IOException when failing to fetch the feed
+     */
+    public byte[] getContent(URL url) throws IOException
+    {
+        String key = url.toExternalForm();
+
+        CachedFeed cachedFeed = this.feeds.get(key);
+        if (cachedFeed != null) {
+            if (System.currentTimeMillis() - cachedFeed.date >= this.maxAge) {
+                // Serve the stale content while it's being revalidated
+                try {
+                    scheduleFetch(key, url, cachedFeed);
+                } catch (RejectedExecutionException e) {
+                    // Too many fetches already in progress, try again next time
+                }
+            }
+
+            return cachedFeed.content;
+        }
+
+        FutureTask<CachedFeed> fetch;
+        try {
+            fetch = scheduleFetch(key, url, null);
+        } catch (RejectedExecutionException e) {
+            throw new IOException(MessageFormat.format("Too many feeds are being fetched to fetch [{0}]", url), e);
+        }
+
+        try {
+            // Give enough time for both the connection and the reading
+            return fetch.get(2L * this.timeout, TimeUnit.MILLISECONDS).content;
+        } catch (TimeoutException e) {
+            throw new SocketTimeoutException(MessageFormat.format("Timeout when waiting for [{0}]", url));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new InterruptedIOException(MessageFormat.format("Interrupted when waiting for [{0}]", url));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(MessageFormat.format("Failed to fetch [{0}]", url), e.getCause());
+        }
+    }
+
+    /**
+     * Forget the cached content of the passed feed (for example because it's not a valid feed).
+     *
+     * @param url the URL of the feed
+     */
+    public void invalidate(URL url)
+    {
+        this.feeds.remove(url.toExternalForm());
+    }
+
+    /**
+     * Stop the background threads.
+     */
+    public void dispose()
+    {
+        this.executor.shutdownNow();
+    }
+
+    private FutureTask<CachedFeed> scheduleFetch(String key, URL url, CachedFeed cachedFeed)
+    {
+        FutureTask<CachedFeed> task = new FutureTask<>(() -> {
+            try {
+                return fetchAndCache(key, url, cachedFeed);
+            } finally {
+                this.pendingFetches.remove(key);
+            }
+        });
+
+        // Make sure to fetch each feed only once at the same time
+        FutureTask<CachedFeed> pendingFetch = this.pendingFetches.putIfAbsent(key, task);
+        if (pendingFetch != null) {
+            return pendingFetch;
+        }
+
+        try {
+            this.executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            this.pendingFetches.remove(key);
+
+            throw e;
+        }
+
+        return task;
+    }
+
+    private CachedFeed fetchAndCache(String key, URL url, CachedFeed cachedFeed)
+        throws IOException, InterruptedException
+    {
+        // Limit the number of connections to the same host
+        Semaphore permits =
+            this.hostPermits.computeIfAbsent(url.getHost(), host -> new Semaphore(this.maxConnectionsPerHost));
+        if (!permits.tryAcquire(this.timeout, TimeUnit.MILLISECONDS)) {
+            throw new SocketTimeoutException(
+                MessageFormat.format("Too many connections to [{0}] when trying to reach [{1}]", url.getHost(), url));
+        }
+
+        CachedFeed newCachedFeed;
+        try {
+            newCachedFeed = fetch(url, cachedFeed);
+        } catch (IOException e) {
+            if (cachedFeed != null) {
+                // Keep serving the stale content for now instead of retrying on each request
+                cache(key, cachedFeed.revalidated());
+            }
+
+            throw e;
+        } finally {
+            permits.release();
+        }
+
+        cache(key, newCachedFeed);
+
+        return newCachedFeed;
+    }
+
+    private CachedFeed fetch(URL url, CachedFeed cachedFeed) throws IOException
+    {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(this.timeout);
+        connection.setReadTimeout(this.timeout);
+        connection.setRequestProperty(USER_AGENT_HEADER, this.userAgent);
+
+        if (connection instanceof HttpURLConnection) {
+            HttpURLConnection httpConnection = (HttpURLConnection) connection;
+
+            if (cachedFeed != null) {
+                if (cachedFeed.etag != null) {
+                    httpConnection.setRequestProperty("If-None-Match", cachedFeed.etag);
+                }
+                if (cachedFeed.lastModified != null) {
+                    httpConnection.setRequestProperty("If-Modified-Since", cachedFeed.lastModified);
+                }
+
+                if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    httpConnection.disconnect();
+
+                    return cachedFeed.revalidated();
+                }
+            }
+        }
+
+        try (InputStream stream = connection.getInputStream()) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) {
+                content.write(buffer, 0, read);
+            }
+
+            return new CachedFeed(content.toByteArray(), connection.getHeaderField(ETAG_HEADER),
+                connection.getHeaderField(LAST_MODIFIED_HEADER));
+        }
+    }
+
+    private void cache(String key, CachedFeed cachedFeed)
+    {
+        if (this.feeds.size() >= this.maxEntries && !this.feeds.containsKey(key)) {
+            // Evict the oldest feed
+            String oldestKey = null;
+            long oldestDate = Long.MAX_VALUE;
+            for (Map.Entry<String, CachedFeed> entry : this.feeds.entrySet()) {
+                if (entry.getValue().date < oldestDate) {
+                    oldestKey = entry.getKey();
+                    oldestDate = entry.getValue().date;
+                }
+            }
+            if (oldestKey != null) {
+                this.feeds.remove(oldestKey);
+            }
+        }
+
+        this.feeds.put(key, cachedFeed);
+    }
+}
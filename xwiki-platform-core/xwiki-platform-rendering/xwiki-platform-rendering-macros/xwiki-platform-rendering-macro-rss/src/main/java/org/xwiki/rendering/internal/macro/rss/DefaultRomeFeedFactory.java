@@ -19,9 +19,9 @@
  */
 package org.xwiki.rendering.internal.macro.rss;
 
-import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayInputStream;
 import java.net.SocketTimeoutException;
-import java.net.URLConnection;
+import java.net.URL;
 import java.text.MessageFormat;
 
 import org.xwiki.rendering.macro.MacroExecutionException;
@@ -34,6 +34,10 @@
 
 /**
  * Factory implementation using Rome to return the feed's data.
+ * <p>
+ * The content of the feeds is cached and refreshed in the background (see {@link CachedFeedFetcher}) so that a slow
+ * feed provider does not block the rendering of the pages using it. The background threads are stopped with
+ * {@link #dispose()}.
  *
  * @version $Id$
  * @since 1.9
@@ -44,10 +48,51 @@ public class DefaultRomeFeedFactory implements RomeFeedFactory
      * The maximum number of milliseconds to wait when inquiring the RSS feed provider.
      */
     private static final int TIMEOUT_MILLISECONDS = 5000;
-    private static final String USER_AGENT_HEADER = "User-Agent";
+
+    /**
+     * The number of milliseconds after which the content of a feed is refreshed.
+     */
+    private static final long MAX_AGE_MILLISECONDS = 5L * 60 * 1000;
+
+    private static final int MAX_FEEDS = 100;
+
+    private static final int MAX_FETCH_THREADS = 4;
+
+    private static final int MAX_CONNECTIONS_PER_HOST = 2;
+
     private static final String VERSION = DefaultRomeFeedFactory.class.getPackage().getImplementationVersion();
     private static final String USER_AGENT = "XWiki/" + VERSION;
 
+    private final CachedFeedFetcher fetcher;
+
+    /**
+     * Use a new feed cache.
+     */
+    public DefaultRomeFeedFactory()
+    {
+        this(new CachedFeedFetcher(TIMEOUT_MILLISECONDS, MAX_AGE_MILLISECONDS, MAX_FEEDS, MAX_FETCH_THREADS,
+            MAX_CONNECTIONS_PER_HOST, USER_AGENT));
+    }
+
+    /**
+     * @param fetcher the fetcher to use to get the content of the feeds
+     * @since 11.3RC1
+     */
+    public DefaultRomeFeedFactory(CachedFeedFetcher fetcher)
+    {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Stop fetching the feeds in the background.
+     *
+     * @since 11.3RC1
+     */
+    public void dispose()
+    {
+        this.fetcher.dispose();
+    }
+
     @Override
     public SyndFeed createFeed(RssMacroParameters parameters) throws MacroExecutionException
     {
@@ -59,18 +104,16 @@ public SyndFeed createFeed(RssMacroParameters parameters) throws MacroExecutionE
 
         SyndFeed feed;
         try {
-            if (StringUtils.startsWith(parameters.getFeed().toLowerCase(), "https")) {
-                HttpsURLConnection httpsURLConnection = (HttpsURLConnection) parameters.getFeedURL().openConnection();
-                httpsURLConnection.setConnectTimeout(TIMEOUT_MILLISECONDS);
-                httpsURLConnection.setRequestProperty(USER_AGENT_HEADER, USER_AGENT);
-                feed = syndFeedInput.build(new XmlReader(httpsURLConnection.getInputStream(), true,
-                    parameters.getEncoding()));
-            } else {
-                URLConnection httpURLConnection = parameters.getFeedURL().openConnection();
-                httpURLConnection.setConnectTimeout(TIMEOUT_MILLISECONDS);
-                httpURLConnection.setRequestProperty(USER_AGENT_HEADER, USER_AGENT);
-                feed = syndFeedInput.build(new XmlReader(httpURLConnection.getInputStream(), true,
+            URL feedURL = parameters.getFeedURL();
+            byte[] content = this.fetcher.getContent(feedURL);
+            try {
+                feed = syndFeedInput.build(new XmlReader(new ByteArrayInputStream(content), true,
                     parameters.getEncoding()));
+            } catch (Exception e) {
+                // Don't keep serving an invalid feed
+                this.fetcher.invalidate(feedURL);
+
+                throw e;
             }
         } catch (SocketTimeoutException ex) {
             throw new MacroExecutionException(MessageFormat.format("Connection timeout when trying to reach [{0}]",
@@ -31,6 +31,7 @@
 import org.apache.commons.lang3.StringUtils;
 import org.xwiki.bridge.SkinAccessBridge;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.component.phase.Disposable;
 import org.xwiki.context.Execution;
 import org.xwiki.rendering.block.Block;
 import org.xwiki.rendering.block.GroupBlock;
@@ -61,7 +62,7 @@
 @Component
 @Named("rss")
 @Singleton
-public class RssMacro extends AbstractBoxMacro<RssMacroParameters>
+public class RssMacro extends AbstractBoxMacro<RssMacroParameters> implements Disposable
 {
     /**
      * The name of the CSS class attribute.
@@ -289,9 +290,20 @@ private void generateEntries(Block parentBlock, SyndFeed feed, RssMacroParameter
      */
     protected void setFeedFactory(RomeFeedFactory romeFeedFactory)
     {
+        dispose();
+
         this.romeFeedFactory = romeFeedFactory;
     }
 
+    @Override
+    public void dispose()
+    {
+        // Stop the threads fetching the feeds in the background
+        if (this.romeFeedFactory instanceof DefaultRomeFeedFactory) {
+            ((DefaultRomeFeedFactory) this.romeFeedFactory).dispose();
+        }
+    }
+
     /**
      * Convenience method to not have to handle exceptions in several places.
      * 
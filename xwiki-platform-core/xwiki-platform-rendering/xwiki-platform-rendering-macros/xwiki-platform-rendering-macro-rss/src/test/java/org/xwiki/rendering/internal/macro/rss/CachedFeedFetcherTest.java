@@ -0,0 +1,136 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.rss;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link CachedFeedFetcher}, using a local HTTP server.
+ *
+ * @version $Id$
+ */
+public class CachedFeedFetcherTest
+{
+    private static final byte[] CONTENT = "<rss/>".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+
+    private BlockingQueue<Headers> requests = new LinkedBlockingQueue<>();
+
+    private volatile int status = 200;
+
+    private URL feedURL;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/feed", exchange -> {
+            this.requests.add(exchange.getRequestHeaders());
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            if (this.status == 200) {
+                exchange.sendResponseHeaders(200, CONTENT.length);
+                try (OutputStream stream = exchange.getResponseBody()) {
+                    stream.write(CONTENT);
+                }
+            } else {
+                exchange.sendResponseHeaders(this.status, -1);
+                exchange.close();
+            }
+        });
+        this.server.start();
+
+        this.feedURL = new URL("http://localhost:" + this.server.getAddress().getPort() + "/feed");
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        this.server.stop(0);
+    }
+
+    @Test
+    public void getContentIsCached() throws Exception
+    {
+        CachedFeedFetcher fetcher = new CachedFeedFetcher(1000, 60000, 10, 2, 1, "test");
+
+        assertArrayEquals(CONTENT, fetcher.getContent(this.feedURL));
+        assertArrayEquals(CONTENT, fetcher.getContent(this.feedURL));
+
+        assertEquals("test", this.requests.take().getFirst("User-Agent"));
+        assertNull(this.requests.poll(100, TimeUnit.MILLISECONDS));
+
+        fetcher.dispose();
+    }
+
+    @Test
+    public void getContentRevalidatesStaleContentInBackground() throws Exception
+    {
+        CachedFeedFetcher fetcher = new CachedFeedFetcher(1000, 0, 10, 2, 1, "test");
+
+        assertArrayEquals(CONTENT, fetcher.getContent(this.feedURL));
+        assertNull(this.requests.take().getFirst("If-None-Match"));
+
+        // The stale content is served while revalidated
+        this.status = 304;
+        assertArrayEquals(CONTENT, fetcher.getContent(this.feedURL));
+
+        Headers revalidation = this.requests.poll(5, TimeUnit.SECONDS);
+        assertEquals("\"v1\"", revalidation.getFirst("If-None-Match"));
+
+        fetcher.dispose();
+    }
+
+    @Test
+    public void getContentWhenServerFails() throws Exception
+    {
+        CachedFeedFetcher fetcher = new CachedFeedFetcher(1000, 60000, 10, 2, 1, "test");
+
+        this.status = 500;
+        assertThrows(IOException.class, () -> fetcher.getContent(this.feedURL));
+
+        // Nothing is cached
+        this.status = 200;
+        assertArrayEquals(CONTENT, fetcher.getContent(this.feedURL));
+        assertEquals(2, this.requests.size());
+
+        fetcher.dispose();
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.script;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+
+import org.slf4j.Logger;
+import org.xwiki.classloader.ExtendedURLStreamHandler;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.AttachmentReferenceResolver;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+
+/**
+ * Keep the last compiled scripts to avoid compiling (and, for some engines like Groovy, generating and loading a new
+ * class for) the same script content each time a script macro is executed.
+ * <p>
+ * A compiled script can only be executed by the engine instance which compiled it (e.g. Groovy only defines the script
+ * classes in the class loader of the engine) while the script macros use a new engine for each request. So the scripts
+ * are compiled by engines kept by this cache, shared by all the requests, and only for the engines which declare (with
+ * the {@code THREADING} parameter of their factory) that they can be used by several threads. The other engines (e.g.
+ * Jython which executes the compiled scripts with the interpreter of the engine) keep compiling the scripts on each
+ * execution.
+ * <p>
+ * A compiled script depends on the content, the classes visible from the context class loader (i.e. the JARs passed
+ * with the {@code jars} parameter) and the programming right of the current author (some engines apply security
+ * restrictions at compilation time), so all of them are part of the key. The compiling engine itself depends on the
+ * class loader and the programming right so there is one for each of their combinations. Since an engine can keep all
+ * the classes it generated (that's the case of Groovy), it is replaced, together with its scripts, once it has compiled
+ * as many scripts as the cache can hold, so that the number of classes kept in memory remains bounded.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = CompiledScriptCache.class)
+@Singleton
+public class CompiledScriptCache
+{
+    /**
+     * The name of the configuration property containing the maximum number of compiled scripts to remember.
+     */
+    private static final String CONFIGURATION_CACHE_SIZE = "rendering.macro.script.compiledScripts.cacheSize";
+
+    /**
+     * The default maximum number of compiled scripts to remember.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 100;
+
+    /**
+     * The algorithm used to compute the hash of the scripts in the keys.
+     */
+    private static final String KEY_ALGORITHM = "SHA-256";
+
+    /**
+     * The script engine factory parameter indicating if the engines can be used by several threads.
+     */
+    private static final String THREADING_PARAMETER = "THREADING";
+
+    /**
+     * An engine compiling the scripts of all the requests using the same class loader and programming right.
+     */
+    private static final class Compiler
+    {
+        private final Compilable engine;
+
+        private final Set<DocumentReference> jarDocuments;
+
+        private int compiledScriptCount;
+
+        Compiler(Compilable engine, Set<DocumentReference> jarDocuments)
+        {
+            this.engine = engine;
+            this.jarDocuments = jarDocuments;
+        }
+    }
+
+    private static final class CachedScript
+    {
+        private final CompiledScript script;
+
+        private final Compiler compiler;
+
+        CachedScript(CompiledScript script, Compiler compiler)
+        {
+            this.script = script;
+            this.compiler = compiler;
+        }
+    }
+
+    @Inject
+    private ContextualAuthorizationManager authorizationManager;
+
+    @Inject
+    @Named("current")
+    private AttachmentReferenceResolver<String> attachmentReferenceResolver;
+
+    /**
+     * Used to recognize the JARs attached to wiki pages in the class loader URLs.
+     */
+    @Inject
+    @Named("attachmentjar")
+    private ExtendedURLStreamHandler attachmentJarHandler;
+
+    @Inject
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The maximum number of compiled scripts to remember, -1 until the configuration is read.
+     */
+    private int cacheSize = -1;
+
+    /**
+     * The compiled scripts, the least recently used ones being evicted first.
+     */
+    private Map<List<Object>, CachedScript> scripts;
+
+    /**
+     * The engines used to compile the scripts, indexed by engine factory, class loader URLs and programming right.
+     */
+    private final Map<List<Object>, Compiler> compilers = new HashMap<>();
+
+    /**
+     * @param content the script to compile
+     * @param engine the script engine
+     * @return the compiled version of the script, coming from the cache when possible
+     * @throws ScriptException failed to compile the script
+     */
+    public CompiledScript getCompiledScript(String content, Compilable engine) throws ScriptException
+    {
+        ScriptEngineFactory factory = engine instanceof ScriptEngine ? ((ScriptEngine) engine).getFactory() : null;
+        if (getCacheSize() <= 0 || factory == null || factory.getParameter(THREADING_PARAMETER) == null) {
+            return engine.compile(content);
+        }
+
+        URL[] urls = getClassLoaderURLs();
+        List<Object> compilerKey =
+            Arrays.<Object>asList(factory, this.authorizationManager.hasAccess(Right.PROGRAM), Arrays.asList(urls));
+        List<Object> key = Arrays.<Object>asList(compilerKey, getHash(content));
+
+        Compiler compiler;
+        synchronized (this) {
+            CachedScript cachedScript = this.scripts.get(key);
+            if (cachedScript != null) {
+                return cachedScript.script;
+            }
+
+            compiler = getCompiler(compilerKey, factory, urls);
+        }
+
+        if (compiler == null) {
+            return engine.compile(content);
+        }
+
+        // Don't block the other scripts while compiling
+        CompiledScript script = compiler.engine.compile(content);
+
+        synchronized (this) {
+            // Make sure the compiler has not been replaced or invalidated in the meantime
+            if (this.compilers.get(compilerKey) == compiler) {
+                this.scripts.put(key, new CachedScript(script, compiler));
+
+                if (++compiler.compiledScriptCount >= this.cacheSize) {
+                    // Release the classes generated by the compiler
+                    this.compilers.remove(compilerKey);
+                    this.scripts.values().removeIf(cachedScript -> cachedScript.compiler == compiler);
+                }
+            }
+        }
+
+        return script;
+    }
+
+    /**
+     * Forget the compiled scripts depending on JARs attached to the passed document.
+     * 
+     * @param documentReference the reference of the modified document
+     */
+    public synchronized void invalidate(DocumentReference documentReference)
+    {
+        this.compilers.values().removeIf(compiler -> compiler.jarDocuments.contains(documentReference));
+        if (this.scripts != null) {
+            this.scripts.values()
+                .removeIf(cachedScript -> cachedScript.compiler.jarDocuments.contains(documentReference));
+        }
+    }
+
+    private synchronized int getCacheSize()
+    {
+        if (this.cacheSize < 0) {
+            int size = this.configuration.getProperty(CONFIGURATION_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+            this.cacheSize = Math.max(size, 0);
+            this.scripts = new LinkedHashMap<List<Object>, CachedScript>(16, 0.75F, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, CachedScript> eldest)
+                {
+                    return size() > cacheSize;
+                }
+            };
+        }
+
+        return this.cacheSize;
+    }
+
+    /**
+     * Must be called while holding the lock of the cache.
+     */
+    private Compiler getCompiler(List<Object> compilerKey, ScriptEngineFactory factory, URL[] urls)
+    {
+        Compiler compiler = this.compilers.get(compilerKey);
+        if (compiler == null) {
+            // The engine is created with the current context class loader (which contains the JARs of the script)
+            ScriptEngine compilerEngine = factory.getScriptEngine();
+            if (!(compilerEngine instanceof Compilable)) {
+                return null;
+            }
+
+            compiler = new Compiler((Compilable) compilerEngine, getJarDocuments(urls));
+            this.compilers.put(compilerKey, compiler);
+        }
+
+        return compiler;
+    }
+
+    private String getHash(String content)
+    {
+        try {
+            return Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance(KEY_ALGORITHM).digest(content.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Should never happen since SHA-256 is supported by all Java platforms, the script itself is used instead
+            this.logger.warn("Failed to compute the hash of the script: {}", e.getMessage());
+
+            return content;
+        }
+    }
+
+    private URL[] getClassLoaderURLs()
+    {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+
+        if (classLoader instanceof URLClassLoader) {
+            return ((URLClassLoader) classLoader).getURLs();
+        }
+
+        return new URL[0];
+    }
+
+    private Set<DocumentReference> getJarDocuments(URL[] urls)
+    {
+        Set<DocumentReference> documents = new HashSet<>();
+
+        String prefix = this.attachmentJarHandler.getProtocol() + "://";
+        for (URL url : urls) {
+            String urlAsString = url.toString();
+            if (urlAsString.startsWith(prefix)) {
+                try {
+                    String reference = URLDecoder.decode(urlAsString.substring(prefix.length()), "UTF-8");
+                    documents.add(this.attachmentReferenceResolver.resolve(reference).getDocumentReference());
+                } catch (UnsupportedEncodingException e) {
+                    // Not supporting UTF-8 as a valid encoding for some reasons. We consider XWiki cannot work
+                    // without that encoding.
+                    throw new RuntimeException("Failed to URL decode [" + urlAsString + "] using UTF-8.", e);
+                }
+            }
+        }
+
+        return documents.isEmpty() ? Collections.<DocumentReference>emptySet() : documents;
+    }
+}
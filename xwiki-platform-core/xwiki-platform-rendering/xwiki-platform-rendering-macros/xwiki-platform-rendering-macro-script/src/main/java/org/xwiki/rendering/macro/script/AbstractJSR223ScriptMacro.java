@@ -44,6 +44,7 @@
 import org.xwiki.rendering.block.MetaDataBlock;
 import org.xwiki.rendering.block.XDOM;
 import org.xwiki.rendering.block.match.MetadataBlockMatcher;
+import org.xwiki.rendering.internal.macro.script.CompiledScriptCache;
 import org.xwiki.rendering.listener.MetaData;
 import org.xwiki.rendering.macro.MacroExecutionException;
 import org.xwiki.rendering.macro.descriptor.ContentDescriptor;
@@ -93,6 +94,9 @@
     @Inject
     private ConverterManager converterManager;
 
+    @Inject
+    private CompiledScriptCache compiledScriptCache;
+
     /**
      * @param macroName the name of the macro (eg "groovy")
      */
@@ -348,6 +352,10 @@ private ScriptEngine getScriptEngine(String engineName)
      */
     protected Object eval(String content, ScriptEngine engine, ScriptContext scriptContext) throws ScriptException
     {
+        if (engine instanceof Compilable) {
+            return getCompiledScript(content, (Compilable) engine).eval(scriptContext);
+        }
+
         return engine.eval(content, scriptContext);
     }
 
@@ -355,7 +363,8 @@ protected Object eval(String content, ScriptEngine engine, ScriptContext scriptC
     // Compiled scripts management
 
     /**
-     * Return a compiled version of the provided script.
+     * Return a compiled version of the provided script. The compiled scripts are cached across the requests for the
+     * engines which can be used by several threads, so that the same script is not compiled again each time.
      * 
      * @param content the script to compile.
      * @param engine the script engine.
@@ -364,8 +373,6 @@ protected Object eval(String content, ScriptEngine engine, ScriptContext scriptC
      */
     protected CompiledScript getCompiledScript(String content, Compilable engine) throws ScriptException
     {
-        // TODO: add caching
-
-        return engine.compile(content);
+        return this.compiledScriptCache.getCompiledScript(content, engine);
     }
 }
@@ -0,0 +1,217 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rendering.internal.macro.script;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLStreamHandler;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Named;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.classloader.ExtendedURLStreamHandler;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.AttachmentReferenceResolver;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.security.authorization.ContextualAuthorizationManager;
+import org.xwiki.security.authorization.Right;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Validate {@link CompiledScriptCache}.
+ * 
+ * @version $Id$
+ */
+@ComponentTest
+public class CompiledScriptCacheTest
+{
+    private static final String SCRIPT = "script";
+
+    @MockComponent
+    private ContextualAuthorizationManager authorizationManager;
+
+    @MockComponent
+    @Named("current")
+    private AttachmentReferenceResolver<String> attachmentReferenceResolver;
+
+    @MockComponent
+    @Named("attachmentjar")
+    private ExtendedURLStreamHandler attachmentJarHandler;
+
+    @MockComponent
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private CompiledScriptCache cache;
+
+    private ScriptEngineFactory factory = mock(ScriptEngineFactory.class);
+
+    /**
+     * The engines created by the factory.
+     */
+    private List<ScriptEngine> engines = new ArrayList<>();
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.factory.getParameter("THREADING")).thenReturn("MULTITHREADED");
+        when(this.factory.getScriptEngine()).then(invocation -> createEngine());
+        when(this.configuration.getProperty("rendering.macro.script.compiledScripts.cacheSize", 100)).thenReturn(100);
+        when(this.attachmentJarHandler.getProtocol()).thenReturn("attachmentjar");
+    }
+
+    private ScriptEngine createEngine() throws Exception
+    {
+        ScriptEngine engine = mock(ScriptEngine.class, withSettings().extraInterfaces(Compilable.class));
+        when(engine.getFactory()).thenReturn(this.factory);
+        when(((Compilable) engine).compile(anyString())).then(invocation -> mock(CompiledScript.class));
+        this.engines.add(engine);
+
+        return engine;
+    }
+
+    /**
+     * @return the engine of a new request, created the same way the script macros do
+     */
+    private Compilable getRequestEngine()
+    {
+        return (Compilable) this.factory.getScriptEngine();
+    }
+
+    @Test
+    public void getCompiledScript() throws Exception
+    {
+        Compilable requestEngine = getRequestEngine();
+        CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, requestEngine);
+
+        assertSame(compiledScript, this.cache.getCompiledScript(new String(SCRIPT), requestEngine));
+
+        // The compiled script is reused by the next requests
+        Compilable otherRequestEngine = getRequestEngine();
+        assertSame(compiledScript, this.cache.getCompiledScript(SCRIPT, otherRequestEngine));
+
+        // The script is compiled once by an engine kept by the cache
+        assertEquals(3, this.engines.size());
+        verify((Compilable) this.engines.get(1), times(1)).compile(SCRIPT);
+        verify(requestEngine, never()).compile(SCRIPT);
+        verify(otherRequestEngine, never()).compile(SCRIPT);
+    }
+
+    @Test
+    public void getCompiledScriptWithSingleThreadEngine() throws Exception
+    {
+        when(this.factory.getParameter("THREADING")).thenReturn(null);
+
+        Compilable requestEngine = getRequestEngine();
+        CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, requestEngine);
+
+        assertNotSame(compiledScript, this.cache.getCompiledScript(SCRIPT, requestEngine));
+        verify(requestEngine, times(2)).compile(SCRIPT);
+    }
+
+    @Test
+    public void getCompiledScriptWithoutCache() throws Exception
+    {
+        when(this.configuration.getProperty("rendering.macro.script.compiledScripts.cacheSize", 100)).thenReturn(0);
+
+        Compilable requestEngine = getRequestEngine();
+        CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, requestEngine);
+
+        assertNotSame(compiledScript, this.cache.getCompiledScript(SCRIPT, requestEngine));
+        verify(requestEngine, times(2)).compile(SCRIPT);
+    }
+
+    @Test
+    public void getCompiledScriptWithProgrammingRight() throws Exception
+    {
+        CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, getRequestEngine());
+
+        when(this.authorizationManager.hasAccess(Right.PROGRAM)).thenReturn(true);
+
+        assertNotSame(compiledScript, this.cache.getCompiledScript(SCRIPT, getRequestEngine()));
+    }
+
+    @Test
+    public void getCompiledScriptWhenTheCompilerIsFull() throws Exception
+    {
+        when(this.configuration.getProperty("rendering.macro.script.compiledScripts.cacheSize", 100)).thenReturn(2);
+
+        Compilable requestEngine = getRequestEngine();
+        CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, requestEngine);
+
+        assertSame(compiledScript, this.cache.getCompiledScript(SCRIPT, requestEngine));
+
+        // The compiler is replaced together with its scripts once it has compiled 2 scripts
+        this.cache.getCompiledScript("other script", requestEngine);
+
+        assertNotSame(compiledScript, this.cache.getCompiledScript(SCRIPT, requestEngine));
+        // The request engine and 2 compilers
+        assertEquals(3, this.engines.size());
+    }
+
+    @Test
+    public void invalidateWhenJarAttachmentIsModified() throws Exception
+    {
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        when(this.attachmentReferenceResolver.resolve("Space.Page@file.jar"))
+            .thenReturn(new AttachmentReference("file.jar", documentReference));
+
+        URL url = new URL(null, "attachmentjar://Space.Page%40file.jar", mock(URLStreamHandler.class));
+
+        ClassLoader currentClassLoader = Thread.currentThread().getContextClassLoader();
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] { url }, currentClassLoader)) {
+            Thread.currentThread().setContextClassLoader(classLoader);
+
+            CompiledScript compiledScript = this.cache.getCompiledScript(SCRIPT, getRequestEngine());
+
+            this.cache.invalidate(new DocumentReference("wiki", "Space", "OtherPage"));
+
+            assertSame(compiledScript, this.cache.getCompiledScript(SCRIPT, getRequestEngine()));
+
+            // The invalidation is not limited to the current request
+            this.cache.invalidate(documentReference);
+
+            assertNotSame(compiledScript, this.cache.getCompiledScript(SCRIPT, getRequestEngine()));
+        } finally {
+            Thread.currentThread().setContextClassLoader(currentClassLoader);
+        }
+    }
+}
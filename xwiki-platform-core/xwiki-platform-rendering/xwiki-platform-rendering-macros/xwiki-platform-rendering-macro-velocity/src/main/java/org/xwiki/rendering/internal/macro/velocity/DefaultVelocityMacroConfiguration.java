@@ -57,4 +57,10 @@ public String getFilter()
     {
         return this.configuration.getProperty(PREFIX + "filter", DEFAULT_FILTER);
     }
+
+    @Override
+    public int getHTMLFilterCacheSize()
+    {
+        return this.configuration.getProperty(PREFIX + "filter.html.cacheSize", DEFAULT_HTML_FILTER_CACHE_SIZE);
+    }
 }
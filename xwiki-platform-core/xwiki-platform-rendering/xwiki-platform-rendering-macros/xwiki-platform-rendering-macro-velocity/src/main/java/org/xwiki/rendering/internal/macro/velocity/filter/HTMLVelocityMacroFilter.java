@@ -19,6 +19,13 @@
  */
 package org.xwiki.rendering.internal.macro.velocity.filter;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
@@ -30,6 +37,7 @@
 import org.xwiki.component.annotation.Component;
 import org.xwiki.component.phase.Initializable;
 import org.xwiki.component.phase.InitializationException;
+import org.xwiki.rendering.macro.velocity.VelocityMacroConfiguration;
 import org.xwiki.rendering.macro.velocity.filter.VelocityMacroFilter;
 import org.xwiki.velocity.internal.util.InvalidVelocityException;
 import org.xwiki.velocity.internal.util.VelocityParser;
@@ -74,21 +82,50 @@ public class HTMLVelocityMacroFilter implements VelocityMacroFilter, Initializab
      */
     private static final Pattern MSNEWLINE_PATTERN = Pattern.compile("\\r\\n|\\r");
 
+    /**
+     * The algorithm used to compute the keys of the cleaned contents.
+     */
+    private static final String KEY_ALGORITHM = "SHA-256";
+
     /**
      * The logger to use for logging.
      */
     @Inject
     private Logger logger;
 
+    /**
+     * Used to get the maximum number of cleaned contents to remember.
+     */
+    @Inject
+    private VelocityMacroConfiguration configuration;
+
     /**
      * Used to parser content to clean and match system directives and $nl variables.
      */
     private VelocityParser velocityParser;
 
+    /**
+     * Cleaning big scripts is expensive and the result only depends on the content so we remember the last results,
+     * indexed by the hash of the content (to not keep the source of big scripts in memory).
+     */
+    private Map<String, String> cleanedContents;
+
     @Override
     public void initialize() throws InitializationException
     {
         this.velocityParser = new VelocityParser();
+
+        int cacheSize = this.configuration.getHTMLFilterCacheSize();
+        if (cacheSize > 0) {
+            this.cleanedContents = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75F, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest)
+                {
+                    return size() > cacheSize;
+                }
+            });
+        }
     }
 
     @Override
@@ -98,7 +135,37 @@ public String before(String content, VelocityContext velocityContext)
         velocityContext.put(BINDING_NEWLINE, NEWLINE);
         velocityContext.put(BINDING_SPACE, SPACE);
 
-        return clean(content);
+        String key = getKey(content);
+        if (key == null) {
+            return clean(content);
+        }
+
+        String cleanedContent = this.cleanedContents.get(key);
+        if (cleanedContent == null) {
+            cleanedContent = clean(content);
+            this.cleanedContents.put(key, cleanedContent);
+        }
+
+        return cleanedContent;
+    }
+
+    /**
+     * @param content the content to clean
+     * @return the key of the cleaned content in the cache, or {@code null} if it should not be cached
+     */
+    private String getKey(String content)
+    {
+        if (this.cleanedContents != null) {
+            try {
+                return Base64.getEncoder().encodeToString(
+                    MessageDigest.getInstance(KEY_ALGORITHM).digest(content.getBytes(StandardCharsets.UTF_8)));
+            } catch (NoSuchAlgorithmException e) {
+                // Should never happen since SHA-256 is supported by all Java platforms
+                this.logger.warn("Failed to compute the hash of the velocity content: {}", e.getMessage());
+            }
+        }
+
+        return null;
     }
 
     /**
@@ -34,9 +34,27 @@
 @Role
 public interface VelocityMacroConfiguration
 {
+    /**
+     * The default maximum number of cleaned macro contents remembered by the html
+     * {@link org.xwiki.rendering.macro.velocity.filter.VelocityMacroFilter}.
+     *
+     * @since 11.3RC1
+     */
+    int DEFAULT_HTML_FILTER_CACHE_SIZE = 100;
+
     /**
      * @return the hint of the {@link org.xwiki.rendering.macro.velocity.filter.VelocityMacroFilter} component to use
      *         to modify velocity content before or after script execution.
      */
     String getFilter();
+
+    /**
+     * @return the maximum number of cleaned macro contents remembered by the html
+     *         {@link org.xwiki.rendering.macro.velocity.filter.VelocityMacroFilter}
+     * @since 11.3RC1
+     */
+    default int getHTMLFilterCacheSize()
+    {
+        return DEFAULT_HTML_FILTER_CACHE_SIZE;
+    }
 }
@@ -64,6 +64,18 @@ public void testFilter()
         assertFilter("T", "  T");
     }
 
+    @Test
+    public void testFilterCache()
+    {
+        String content = "T  $nl  T";
+
+        String cleanedContent = this.filter.before(content, this.context);
+
+        Assert.assertEquals("T${nl}T", cleanedContent);
+        Assert.assertSame(cleanedContent, this.filter.before(new String(content), this.context));
+        Assert.assertEquals("\n", this.context.get("nl"));
+    }
+
     @Test
     public void testFilterSP()
     {
@@ -37,6 +37,7 @@
     @GET Spaces getSpaces(
             @PathParam("wikiName") String wikiName,
             @QueryParam("start") @DefaultValue("0") Integer start,
-            @QueryParam("number") @DefaultValue("-1") Integer number
+            @QueryParam("number") @DefaultValue("-1") Integer number,
+            @QueryParam("cursor") @DefaultValue("") String cursor
     ) throws XWikiRestException;
 }
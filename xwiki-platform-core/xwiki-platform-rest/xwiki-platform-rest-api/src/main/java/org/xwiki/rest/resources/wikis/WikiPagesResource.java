@@ -40,6 +40,7 @@
             @QueryParam("name") @DefaultValue("") String name,
             @QueryParam("space") @DefaultValue("") String space,
             @QueryParam("author") @DefaultValue("") String author,
-            @QueryParam("number") @DefaultValue("25") Integer number
+            @QueryParam("number") @DefaultValue("25") Integer number,
+            @QueryParam("cursor") @DefaultValue("") String cursor
     ) throws XWikiRestException;
 }
@@ -167,6 +167,13 @@
      */
     public static final String SYNTAXES = "http://www.xwiki.org/rel/syntaxes";
 
+    /**
+     * Relation for links pointing to the next page of a paginated list.
+     *
+     * @since 11.3RC1
+     */
+    public static final String NEXT = "next";
+
     /**
      * Avoid instantiation.
      */
@@ -0,0 +1,117 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.rest.Relations;
+import org.xwiki.rest.model.jaxb.Link;
+import org.xwiki.rest.model.jaxb.LinkCollection;
+import org.xwiki.rest.model.jaxb.ObjectFactory;
+
+/**
+ * Opaque cursor used for keyset pagination: it contains the sort key of the last element returned by the previous
+ * request so that the next request can continue right after it instead of skipping {@code start} elements.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public final class PaginationCursor
+{
+    /**
+     * The name of the query parameter holding the cursor.
+     */
+    public static final String PARAMETER = "cursor";
+
+    private static final String SEPARATOR = ".";
+
+    private PaginationCursor()
+    {
+        // Utility class
+    }
+
+    /**
+     * @param values the sort key of the last returned element
+     * @return the cursor
+     */
+    public static String encode(String... values)
+    {
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        List<String> parts = new ArrayList<>(values.length);
+        for (String value : values) {
+            parts.add(encoder.encodeToString(StringUtils.defaultString(value).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return StringUtils.join(parts, SEPARATOR);
+    }
+
+    /**
+     * @param cursor the cursor received from the client
+     * @param size the expected number of values
+     * @return the sort key contained in the cursor
+     * @throws WebApplicationException with status {@link Status#BAD_REQUEST} when the cursor is invalid
+     */
+    public static List<String> decode(String cursor, int size)
+    {
+        String[] parts = StringUtils.splitPreserveAllTokens(cursor, SEPARATOR);
+        if (parts.length != size) {
+            throw new WebApplicationException(Status.BAD_REQUEST);
+        }
+
+        List<String> values = new ArrayList<>(size);
+        try {
+            for (String part : parts) {
+                values.add(new String(Base64.getUrlDecoder().decode(part), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new WebApplicationException(e, Status.BAD_REQUEST);
+        }
+
+        return values;
+    }
+
+    /**
+     * Add a link to the next page of results, identified by the passed cursor.
+     *
+     * @param collection the representation to add the link to
+     * @param cursor the cursor pointing to the next page
+     * @param objectFactory the factory used to create the link
+     * @param uriInfo the information about the current request
+     */
+    public static void addNextLink(LinkCollection collection, String cursor, ObjectFactory objectFactory,
+        UriInfo uriInfo)
+    {
+        Link link = objectFactory.createLink();
+        link.setHref(
+            uriInfo.getRequestUriBuilder().replaceQueryParam("start").replaceQueryParam(PARAMETER, cursor).build()
+                .toString());
+        link.setRel(Relations.NEXT);
+        collection.getLinks().add(link);
+    }
+}
@@ -22,12 +22,15 @@
 import java.util.List;
 
 import javax.inject.Named;
+import javax.ws.rs.WebApplicationException;
 
 import org.xwiki.component.annotation.Component;
+import org.xwiki.query.Query;
 import org.xwiki.query.QueryFilter;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
 import org.xwiki.rest.internal.DomainObjectFactory;
+import org.xwiki.rest.internal.PaginationCursor;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Spaces;
 import org.xwiki.rest.resources.spaces.SpacesResource;
@@ -43,13 +46,23 @@
 public class SpacesResourceImpl extends XWikiResource implements SpacesResource
 {
     @Override
-    public Spaces getSpaces(String wikiName, Integer start, Integer number)
+    public Spaces getSpaces(String wikiName, Integer start, Integer number, String cursor)
             throws XWikiRestException
     {
         Spaces spaces = objectFactory.createSpaces();
 
         try {
-            List<String> spaceNames = queryManager.getNamedQuery("getSpaces").addFilter(
+            Query query;
+            if (cursor.equals("")) {
+                query = queryManager.getNamedQuery("getSpaces");
+            } else {
+                // Keyset pagination: continue right after the last space returned by the previous request
+                query = queryManager.createQuery("select distinct doc.space from XWikiDocument doc"
+                    + " where doc.space > :cursor order by doc.space asc", Query.HQL);
+                query.bindValue(PaginationCursor.PARAMETER, PaginationCursor.decode(cursor, 1).get(0));
+            }
+
+            List<String> spaceNames = query.addFilter(
                     componentManager.<QueryFilter>getInstance(QueryFilter.class, "hidden")).setOffset(start)
                     .setLimit(number).setWiki(wikiName).execute();
 
@@ -67,6 +80,14 @@ public Spaces getSpaces(String wikiName, Integer start, Integer number)
                             .createSpace(objectFactory, uriInfo.getBaseUri(), wikiName, spaceList, home));
                 }
             }
+
+            // Give access to the next page of results
+            if (number > 0 && spaceNames.size() == number) {
+                PaginationCursor.addNextLink(spaces, PaginationCursor.encode(spaceNames.get(spaceNames.size() - 1)),
+                    objectFactory, uriInfo);
+            }
+        } catch (WebApplicationException e) {
+            throw e;
         } catch (Exception e) {
             throw new XWikiRestException(e);
         }
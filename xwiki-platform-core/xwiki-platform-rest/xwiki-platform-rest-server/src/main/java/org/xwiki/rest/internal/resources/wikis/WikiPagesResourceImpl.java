@@ -20,6 +20,7 @@
 package org.xwiki.rest.internal.resources.wikis;
 
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Formatter;
 import java.util.HashMap;
 import java.util.List;
@@ -27,12 +28,14 @@
 
 import javax.inject.Named;
 
+import org.apache.commons.lang3.StringUtils;
 import org.xwiki.component.annotation.Component;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.rest.Relations;
 import org.xwiki.rest.XWikiResource;
 import org.xwiki.rest.XWikiRestException;
+import org.xwiki.rest.internal.PaginationCursor;
 import org.xwiki.rest.internal.Utils;
 import org.xwiki.rest.model.jaxb.Link;
 import org.xwiki.rest.model.jaxb.PageSummary;
@@ -40,8 +43,7 @@
 import org.xwiki.rest.resources.pages.PageResource;
 import org.xwiki.rest.resources.wikis.WikiPagesResource;
 
-import com.xpn.xwiki.api.Document;
-import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.XWikiContext;
 
 /**
  * @version $Id$
@@ -50,9 +52,22 @@
 @Named("org.xwiki.rest.internal.resources.wikis.WikiPagesResourceImpl")
 public class WikiPagesResourceImpl extends XWikiResource implements WikiPagesResource
 {
+    private static final String CURSOR_FULLNAME = "cursorFullName";
+
+    private static final String CURSOR_LANGUAGE = "cursorLanguage";
+
+    /**
+     * Replaces the empty language of the default translations in the keyset condition and the sort. The empty string
+     * can't be used since it's the same as {@code null} on some databases (e.g. Oracle), on which any comparison with it
+     * is never true. A single space is sorted before any actual language code.
+     */
+    private static final String DEFAULT_LANGUAGE_KEY = " ";
+
+    private static final String LANGUAGE_KEY = "coalesce(doc.language, '" + DEFAULT_LANGUAGE_KEY + "')";
+
     @Override
-    public Pages getPages(String wikiName, Integer start, String name, String space, String author, Integer number)
-            throws XWikiRestException
+    public Pages getPages(String wikiName, Integer start, String name, String space, String author, Integer number,
+            String cursor) throws XWikiRestException
     {
         String database = Utils.getXWikiContext(componentManager).getWikiId();
 
@@ -71,43 +86,54 @@ public Pages getPages(String wikiName, Integer start, String name, String space,
                 filters.put("author", author);
             }
 
-            /* Build the query */
-            Formatter f = new Formatter();
-            f.format("select doc from XWikiDocument as doc");
-
-            if (filters.keySet().size() > 0) {
-                f.format(" where (");
-
-                int i = 0;
-                for (String param : filters.keySet()) {
-                    if (param.equals("name")) {
-                        f.format(" upper(doc.fullName) like :name ");
-                    }
+            List<String> cursorValues = cursor.equals("") ? null : PaginationCursor.decode(cursor, 2);
 
-                    if (param.equals("space")) {
-                        f.format(" upper(doc.space) like :space ");
-                    }
+            /*
+             * Build the query. Only the needed columns are selected (instead of complete documents) and the results are
+             * sorted by unique key so that the next page can be retrieved with a cursor (keyset pagination) instead of
+             * an offset which requires the database to go through all the previous results.
+             */
+            Formatter f = new Formatter();
+            f.format("select doc.fullName, doc.space, doc.name, doc.title, doc.parent, doc.language"
+                + " from XWikiDocument as doc");
 
-                    if (param.equals("author")) {
-                        f.format(" upper(doc.contentAuthor) like :author ");
-                    }
+            List<String> conditions = new ArrayList<>();
+            for (String param : filters.keySet()) {
+                if (param.equals("name")) {
+                    conditions.add(" upper(doc.fullName) like :name ");
+                }
 
-                    i++;
+                if (param.equals("space")) {
+                    conditions.add(" upper(doc.space) like :space ");
+                }
 
-                    if (i < filters.keySet().size()) {
-                        f.format(" and ");
-                    }
+                if (param.equals("author")) {
+                    conditions.add(" upper(doc.contentAuthor) like :author ");
                 }
+            }
+            if (cursorValues != null) {
+                conditions.add(" (doc.fullName > :cursorFullName or (doc.fullName = :cursorFullName"
+                    + " and " + LANGUAGE_KEY + " > :cursorLanguage)) ");
+            }
 
-                f.format(")");
+            if (!conditions.isEmpty()) {
+                f.format(" where (%s)", StringUtils.join(conditions, "and"));
             }
 
+            f.format(" order by doc.fullName, %s", LANGUAGE_KEY);
+
             String queryString = f.toString();
 
             /* Execute the query by filling the parameters */
-            List<Object> queryResult = null;
+            List<Object[]> queryResult = null;
             try {
-                Query query = queryManager.createQuery(queryString, Query.XWQL).setLimit(number).setOffset(start);
+                Query query = queryManager.createQuery(queryString, Query.HQL).setLimit(number);
+                if (cursorValues != null) {
+                    query.bindValue(CURSOR_FULLNAME, cursorValues.get(0));
+                    query.bindValue(CURSOR_LANGUAGE,
+                        StringUtils.defaultIfEmpty(cursorValues.get(1), DEFAULT_LANGUAGE_KEY));
+                }
+                query.setOffset(start);
                 for (String param : filters.keySet()) {
                     query.bindValue(param, String.format("%%%s%%", filters.get(param).toUpperCase()));
                 }
@@ -117,35 +143,34 @@ public Pages getPages(String wikiName, Integer start, String name, String space,
                 throw new XWikiRestException(e);
             }
 
-            /* Get the results and populate the returned representation */
-            for (Object object : queryResult) {
-                XWikiDocument xwikiDocument = (XWikiDocument) object;
-                xwikiDocument.setDatabase(wikiName);
+            XWikiContext xcontext = Utils.getXWikiContext(componentManager);
 
-                Document doc = new Document(xwikiDocument, Utils.getXWikiContext(componentManager));
+            /* Get the results and populate the returned representation */
+            for (Object[] row : queryResult) {
+                String fullName = (String) row[0];
+                String spaceId = (String) row[1];
+                String pageName = (String) row[2];
 
                 /*
                  * We manufacture page summaries in place because we don't have all the data for calling the
                  * DomainObjectFactory method (doing so would require to retrieve an actual Document)
                  */
                 PageSummary pageSummary = objectFactory.createPageSummary();
-                pageSummary.setId(doc.getPrefixedFullName());
-                pageSummary.setFullName(doc.getFullName());
+                pageSummary.setId(wikiName + ':' + fullName);
+                pageSummary.setFullName(fullName);
                 pageSummary.setWiki(wikiName);
-                pageSummary.setSpace(doc.getSpace());
-                pageSummary.setName(doc.getDocumentReference().getName());
-                pageSummary.setTitle(doc.getTitle());
-                pageSummary.setParent(doc.getParent());
-
-                URL absoluteUrl = Utils.getXWikiContext(componentManager).getURLFactory().createExternalURL(
-                    doc.getSpace(), doc.getDocumentReference().getName(), "view", null, null,
-                    Utils.getXWikiContext(componentManager));
+                pageSummary.setSpace(spaceId);
+                pageSummary.setName(pageName);
+                pageSummary.setTitle(StringUtils.defaultString((String) row[3]));
+                pageSummary.setParent(StringUtils.defaultString((String) row[4]));
+
+                URL absoluteUrl = xcontext.getURLFactory().createExternalURL(spaceId, pageName, "view", null, null,
+                    xcontext);
                 pageSummary.setXwikiAbsoluteUrl(absoluteUrl.toString());
-                pageSummary.setXwikiRelativeUrl(Utils.getXWikiContext(componentManager).getURLFactory().getURL(
-                    absoluteUrl, Utils.getXWikiContext(componentManager)));
+                pageSummary.setXwikiRelativeUrl(xcontext.getURLFactory().getURL(absoluteUrl, xcontext));
 
-                String pageUri = Utils.createURI(uriInfo.getBaseUri(), PageResource.class, doc.getWiki(),
-                    Utils.getSpacesFromSpaceId(doc.getSpace()), doc.getDocumentReference().getName()).toString();
+                String pageUri = Utils.createURI(uriInfo.getBaseUri(), PageResource.class, wikiName,
+                    Utils.getSpacesFromSpaceId(spaceId), pageName).toString();
                 Link pageLink = objectFactory.createLink();
                 pageLink.setHref(pageUri);
                 pageLink.setRel(Relations.PAGE);
@@ -153,6 +178,14 @@ public Pages getPages(String wikiName, Integer start, String name, String space,
 
                 pages.getPageSummaries().add(pageSummary);
             }
+
+            // Give access to the next page of results
+            if (number > 0 && queryResult.size() == number) {
+                Object[] last = queryResult.get(queryResult.size() - 1);
+                PaginationCursor.addNextLink(pages,
+                    PaginationCursor.encode((String) last[0], StringUtils.defaultString((String) last[5])),
+                    objectFactory, uriInfo);
+            }
         } finally {
             Utils.getXWikiContext(componentManager).setWikiId(database);
         }
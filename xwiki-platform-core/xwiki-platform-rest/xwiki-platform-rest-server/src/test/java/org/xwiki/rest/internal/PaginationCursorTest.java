@@ -0,0 +1,52 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.rest.internal;
+
+import java.util.Arrays;
+
+import javax.ws.rs.WebApplicationException;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for {@link PaginationCursor}.
+ *
+ * @version $Id$
+ */
+public class PaginationCursorTest
+{
+    @Test
+    public void encodeDecode()
+    {
+        String cursor = PaginationCursor.encode("Space.Pa.ge", "");
+
+        assertEquals(Arrays.asList("Space.Pa.ge", ""), PaginationCursor.decode(cursor, 2));
+    }
+
+    @Test
+    public void decodeInvalidCursor()
+    {
+        assertThrows(WebApplicationException.class, () -> PaginationCursor.decode("invalid", 2));
+        assertThrows(WebApplicationException.class, () -> PaginationCursor.decode("!!!", 1));
+    }
+}
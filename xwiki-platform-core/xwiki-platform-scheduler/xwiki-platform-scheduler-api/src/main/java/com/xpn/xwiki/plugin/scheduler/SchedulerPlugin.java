@@ -63,7 +63,9 @@
 import com.xpn.xwiki.objects.BaseObject;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
+import com.xpn.xwiki.plugin.scheduler.internal.ClusterTriggerListener;
 import com.xpn.xwiki.plugin.scheduler.internal.SchedulerJobClassDocumentInitializer;
+import com.xpn.xwiki.plugin.scheduler.internal.SchedulerLeaseManager;
 import com.xpn.xwiki.plugin.scheduler.internal.StatusListener;
 import com.xpn.xwiki.web.Utils;
 import com.xpn.xwiki.web.XWikiResponse;
@@ -156,6 +158,7 @@ private void initAsync()
 
             setScheduler(getDefaultSchedulerInstance());
             setStatusListener();
+            setClusterListener();
             getScheduler().start();
 
             // Restore jobs
@@ -278,13 +281,15 @@ private XWikiContext prepareJobStubContext(BaseObject job, XWikiContext context)
      * Restore the existing job, by looking up for such job in the database and re-scheduling those according to their
      * stored status. If a Job is stored with the status "Normal", it is just scheduled If a Job is stored with the
      * status "Paused", then it is both scheduled and paused. Jobs with other status (None, Complete) are not
-     * rescheduled.
+     * rescheduled, and their documents are not even loaded.
      * 
      * @param context The XWikiContext when initializing the plugin
      */
     private void restoreExistingJobs(XWikiContext context)
     {
-        String hql = ", BaseObject as obj where obj.name=doc.fullName and obj.className='XWiki.SchedulerJobClass'";
+        String hql = ", BaseObject as obj, StringProperty as status where obj.name=doc.fullName"
+            + " and obj.className='XWiki.SchedulerJobClass' and status.id.id=obj.id and status.id.name='status'"
+            + " and status.value in ('" + JobState.STATE_NORMAL + "', '" + JobState.STATE_PAUSED + "')";
         try {
             List<DocumentReference> jobDocReferences =
                 context.getWiki().getStore().searchDocumentReferences(hql, context);
@@ -623,6 +628,26 @@ private void setStatusListener() throws SchedulerPluginException
         }
     }
 
+    /**
+     * Associates the scheduler with a {@link ClusterTriggerListener} when the jobs should be executed only once per
+     * cluster.
+     * 
+     * @throws SchedulerPluginException if the cluster listener failed to be set properly
+     */
+    private void setClusterListener() throws SchedulerPluginException
+    {
+        SchedulerLeaseManager leaseManager = Utils.getComponent(SchedulerLeaseManager.class);
+        if (leaseManager.isEnabled()) {
+            try {
+                getScheduler().getListenerManager().addTriggerListener(new ClusterTriggerListener(leaseManager));
+            } catch (SchedulerException e) {
+                throw new SchedulerPluginException(
+                    SchedulerPluginException.ERROR_SCHEDULERPLUGIN_INITIALIZE_STATUS_LISTENER,
+                    "Error while initializing the cluster listener", e);
+            }
+        }
+    }
+
     private void saveStatus(String status, BaseObject object, XWikiContext context) throws XWikiException
     {
         XWikiDocument jobHolder = context.getWiki().getDocument(object.getDocumentReference(), context);
@@ -631,6 +656,11 @@ private void saveStatus(String status, BaseObject object, XWikiContext context)
         // and returns the BaseObject from the clone)
         // TODO refactor the plugin in order to stop passing BaseObject around, passing document references instead.
         BaseObject job = jobHolder.getXObject(XWIKI_JOB_CLASSREFERENCE);
+        if (status.equals(job.getStringValue("status"))) {
+            // Don't save the document when the status is unchanged (e.g. when restoring the jobs at startup, or when
+            // registering a job saved on another cluster member)
+            return;
+        }
         job.setStringValue("status", status);
         jobHolder.setMinorEdit(true);
         context.getWiki().saveDocument(jobHolder, context);
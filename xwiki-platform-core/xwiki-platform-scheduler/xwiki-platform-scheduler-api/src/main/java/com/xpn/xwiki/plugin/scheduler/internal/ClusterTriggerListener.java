@@ -0,0 +1,97 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.xpn.xwiki.XWikiContext;
+
+/**
+ * Vetoes the firings of the scheduled triggers for which another cluster member took the lease, so that each job is
+ * executed only once per cluster. Jobs triggered manually are always executed on the member where they were triggered.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class ClusterTriggerListener implements TriggerListener
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClusterTriggerListener.class);
+
+    private final SchedulerLeaseManager leaseManager;
+
+    /**
+     * @param leaseManager used to take the lease on the triggers
+     */
+    public ClusterTriggerListener(SchedulerLeaseManager leaseManager)
+    {
+        this.leaseManager = leaseManager;
+    }
+
+    @Override
+    public String getName()
+    {
+        return "ClusterTriggerListener";
+    }
+
+    @Override
+    public void triggerFired(Trigger trigger, JobExecutionContext context)
+    {
+    }
+
+    @Override
+    public boolean vetoJobExecution(Trigger trigger, JobExecutionContext context)
+    {
+        // The triggers of the scheduled jobs have the same name as the job, the ones created by Scheduler#triggerJob()
+        // have a generated name.
+        if (!trigger.getKey().getName().equals(trigger.getJobKey().getName())
+            || context.getScheduledFireTime() == null) {
+            return false;
+        }
+
+        XWikiContext xcontext = (XWikiContext) context.getJobDetail().getJobDataMap().get("xcontext");
+        if (xcontext == null) {
+            return false;
+        }
+
+        boolean acquired =
+            this.leaseManager.acquire(trigger.getKey().getName(), context.getScheduledFireTime(), xcontext.clone());
+        if (!acquired) {
+            LOGGER.debug("Task [{}] is executed by another cluster member", trigger.getKey());
+        }
+
+        return !acquired;
+    }
+
+    @Override
+    public void triggerMisfired(Trigger trigger)
+    {
+    }
+
+    @Override
+    public void triggerComplete(Trigger trigger, JobExecutionContext context,
+        CompletedExecutionInstruction triggerInstructionCode)
+    {
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import java.util.Date;
+
+/**
+ * The lease taken by a cluster member on a scheduled trigger, to make sure each firing of the trigger is executed by
+ * only one member of the cluster.
+ * <p>
+ * Note that we need this class so that Hibernate can persist and read the lease.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+public class SchedulerJobLease
+{
+    private String triggerId;
+
+    private String owner;
+
+    private Date fireTime;
+
+    private Date date;
+
+    /**
+     * Default constructor. It is need for Hibernate.
+     */
+    public SchedulerJobLease()
+    {
+    }
+
+    /**
+     * @param triggerId the identifier of the leased trigger
+     * @param owner the identifier of the cluster member owning the lease
+     * @param fireTime the scheduled fire time of the last firing claimed by the owner
+     * @param date the date when the lease has been taken
+     */
+    public SchedulerJobLease(String triggerId, String owner, Date fireTime, Date date)
+    {
+        this.triggerId = triggerId;
+        this.owner = owner;
+        this.fireTime = fireTime;
+        this.date = date;
+    }
+
+    /**
+     * @return the identifier of the leased trigger
+     */
+    public String getTriggerId()
+    {
+        return this.triggerId;
+    }
+
+    /**
+     * @param triggerId the identifier of the leased trigger
+     */
+    public void setTriggerId(String triggerId)
+    {
+        this.triggerId = triggerId;
+    }
+
+    /**
+     * @return the identifier of the cluster member owning the lease
+     */
+    public String getOwner()
+    {
+        return this.owner;
+    }
+
+    /**
+     * @param owner the identifier of the cluster member owning the lease
+     */
+    public void setOwner(String owner)
+    {
+        this.owner = owner;
+    }
+
+    /**
+     * @return the scheduled fire time of the last firing claimed by the owner
+     */
+    public Date getFireTime()
+    {
+        return this.fireTime;
+    }
+
+    /**
+     * @param fireTime the scheduled fire time of the last firing claimed by the owner
+     */
+    public void setFireTime(Date fireTime)
+    {
+        this.fireTime = fireTime;
+    }
+
+    /**
+     * @return the date when the lease has been taken
+     */
+    public Date getDate()
+    {
+        return this.date;
+    }
+
+    /**
+     * @param date the date when the lease has been taken
+     */
+    public void setDate(Date date)
+    {
+        this.date = date;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import java.util.Date;
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+/**
+ * Makes sure each firing of a scheduled trigger is executed by only one member of the cluster, by taking a lease on
+ * the trigger in the database of the main wiki before executing it. The lease is taken per firing so when the member
+ * which executed the previous firing is down another member takes the lease on the next one.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = SchedulerLeaseManager.class)
+@Singleton
+public class SchedulerLeaseManager
+{
+    private static final String PARAMETER_FIRE_TIME = "fireTime";
+
+    private static final String UPDATE_LEASE = "update " + SchedulerJobLease.class.getName()
+        + " set owner = :owner, fireTime = :fireTime, date = :date where triggerId = :triggerId"
+        + " and fireTime < :fireTime";
+
+    /**
+     * Note that we use a Provider so that this component can be used before the store is ready.
+     */
+    @Inject
+    @Named("hibernate")
+    private Provider<XWikiStoreInterface> hibernateStoreProvider;
+
+    @Inject
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @Inject
+    private Logger logger;
+
+    /**
+     * The identifier of this cluster member, used to know who executed a firing.
+     */
+    private final String owner = UUID.randomUUID().toString();
+
+    /**
+     * @return {@code true} if the scheduled jobs should be executed only once per cluster, {@code false} otherwise;
+     *         disabled by default, and disabled when the Hibernate mapping of the leases is missing
+     */
+    public boolean isEnabled()
+    {
+        if (!this.configuration.getProperty("scheduler.cluster.enabled", Boolean.FALSE)) {
+            return false;
+        }
+
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStoreProvider.get();
+        if (store.getConfiguration().getClassMapping(SchedulerJobLease.class.getName()) == null) {
+            this.logger.error("The scheduled jobs will be executed by every cluster member even though "
+                + "[scheduler.cluster.enabled] is true: the Hibernate mapping of [{}] is missing. "
+                + "Add [scheduler.hbm.xml] to the Hibernate configuration to enable it.",
+                SchedulerJobLease.class.getName());
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Try to take the lease on the given firing of a trigger.
+     *
+     * @param triggerId the identifier of the trigger
+     * @param fireTime the scheduled fire time of the firing
+     * @param xcontext the XWiki context to use to access the database
+     * @return {@code true} if the current cluster member should execute the firing, {@code false} if another member
+     *         already took the lease for it; when the leases can't be accessed the firing is executed so that the jobs
+     *         are never skipped because of a database failure
+     */
+    public boolean acquire(String triggerId, Date fireTime, XWikiContext xcontext)
+    {
+        XWikiHibernateBaseStore store = (XWikiHibernateBaseStore) this.hibernateStoreProvider.get();
+
+        // The leases are stored only on the main wiki
+        String currentWiki = xcontext.getWikiId();
+        xcontext.setWikiId(xcontext.getMainXWiki());
+
+        try {
+            return store.executeWrite(xcontext, session -> {
+                Date now = new Date();
+                SchedulerJobLease lease = (SchedulerJobLease) session.get(SchedulerJobLease.class, triggerId);
+                if (lease == null) {
+                    // Two members inserting the same lease at the same time is handled by the primary key constraint
+                    session.save(new SchedulerJobLease(triggerId, this.owner, fireTime, now));
+
+                    return true;
+                }
+
+                // Only one member can move the lease to the new fire time
+                return session.createQuery(UPDATE_LEASE).setParameter("owner", this.owner)
+                    .setParameter(PARAMETER_FIRE_TIME, fireTime).setParameter("date", now)
+                    .setParameter("triggerId", triggerId).executeUpdate() > 0;
+            });
+        } catch (XWikiException | RuntimeException e) {
+            if (ExceptionUtils.indexOfType(e, ConstraintViolationException.class) >= 0) {
+                // Another member inserted the lease first
+                return false;
+            }
+
+            this.logger.warn("Failed to take the lease on trigger [{}] for fire time [{}], executing it anyway: {}",
+                triggerId, fireTime, ExceptionUtils.getRootCauseMessage(e));
+
+            return true;
+        } finally {
+            xcontext.setWikiId(currentWiki);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDataMap;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+
+import com.xpn.xwiki.XWikiContext;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link ClusterTriggerListener}.
+ *
+ * @version $Id$
+ */
+public class ClusterTriggerListenerTest
+{
+    private static final String JOB_NAME = "xwiki:Scheduler.WatchListDailyNotifier_0";
+
+    private static final Date FIRE_TIME = new Date(1000L);
+
+    private SchedulerLeaseManager leaseManager = mock(SchedulerLeaseManager.class);
+
+    private ClusterTriggerListener listener = new ClusterTriggerListener(this.leaseManager);
+
+    private Trigger trigger = mock(Trigger.class);
+
+    private JobExecutionContext context = mock(JobExecutionContext.class);
+
+    private JobDataMap data = new JobDataMap();
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private XWikiContext clonedXContext = mock(XWikiContext.class);
+
+    @BeforeEach
+    public void beforeEach()
+    {
+        when(this.trigger.getKey()).thenReturn(new TriggerKey(JOB_NAME, "xwiki"));
+        when(this.trigger.getJobKey()).thenReturn(new JobKey(JOB_NAME, "xwiki"));
+
+        JobDetail jobDetail = mock(JobDetail.class);
+        when(this.context.getJobDetail()).thenReturn(jobDetail);
+        when(this.context.getScheduledFireTime()).thenReturn(FIRE_TIME);
+        when(jobDetail.getJobDataMap()).thenReturn(this.data);
+
+        this.data.put("xcontext", this.xcontext);
+        when(this.xcontext.clone()).thenReturn(this.clonedXContext);
+    }
+
+    @Test
+    public void vetoJobExecutionWhenLeaseAcquired()
+    {
+        when(this.leaseManager.acquire(JOB_NAME, FIRE_TIME, this.clonedXContext)).thenReturn(true);
+
+        assertFalse(this.listener.vetoJobExecution(this.trigger, this.context));
+    }
+
+    @Test
+    public void vetoJobExecutionWhenLeaseTakenByAnotherMember()
+    {
+        when(this.leaseManager.acquire(JOB_NAME, FIRE_TIME, this.clonedXContext)).thenReturn(false);
+
+        assertTrue(this.listener.vetoJobExecution(this.trigger, this.context));
+    }
+
+    @Test
+    public void vetoJobExecutionWhenTriggeredManually()
+    {
+        when(this.trigger.getKey()).thenReturn(new TriggerKey("MT_123456", "xwiki"));
+
+        assertFalse(this.listener.vetoJobExecution(this.trigger, this.context));
+
+        verify(this.leaseManager, never()).acquire(any(), any(), any());
+    }
+
+    @Test
+    public void vetoJobExecutionWithoutScheduledFireTime()
+    {
+        when(this.context.getScheduledFireTime()).thenReturn(null);
+
+        assertFalse(this.listener.vetoJobExecution(this.trigger, this.context));
+
+        verify(this.leaseManager, never()).acquire(any(), any(), any());
+    }
+
+    @Test
+    public void vetoJobExecutionWithoutContext()
+    {
+        this.data.remove("xcontext");
+
+        assertFalse(this.listener.vetoJobExecution(this.trigger, this.context));
+
+        verify(this.leaseManager, never()).acquire(any(), any(), any());
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.scheduler.internal;
+
+import java.sql.SQLException;
+import java.util.Date;
+
+import javax.inject.Named;
+import javax.inject.Provider;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.mapping.PersistentClass;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link SchedulerLeaseManager}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class SchedulerLeaseManagerTest
+{
+    private static final String ENABLED_PROPERTY = "scheduler.cluster.enabled";
+
+    private static final String TRIGGER_ID = "Scheduler.WatchListDailyNotifier";
+
+    private static final Date FIRE_TIME = new Date(1000L);
+
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @MockComponent
+    @Named("hibernate")
+    private Provider<XWikiStoreInterface> hibernateStoreProvider;
+
+    @MockComponent
+    @Named("xwikiproperties")
+    private ConfigurationSource configuration;
+
+    @InjectMockComponents
+    private SchedulerLeaseManager leaseManager;
+
+    private XWikiHibernateBaseStore store = mock(XWikiHibernateBaseStore.class);
+
+    private Configuration hibernateConfiguration = mock(Configuration.class);
+
+    private Session session = mock(Session.class);
+
+    private Query query = mock(Query.class, RETURNS_SELF);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        when(this.hibernateStoreProvider.get()).thenReturn(this.store);
+        when(this.store.getConfiguration()).thenReturn(this.hibernateConfiguration);
+        when(this.store.executeWrite(same(this.xcontext), any()))
+            .then(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session));
+        when(this.session.createQuery(anyString())).thenReturn(this.query);
+
+        when(this.xcontext.getWikiId()).thenReturn("subwiki");
+        when(this.xcontext.getMainXWiki()).thenReturn("xwiki");
+    }
+
+    @Test
+    public void isEnabled()
+    {
+        when(this.configuration.getProperty(ENABLED_PROPERTY, Boolean.FALSE)).thenReturn(false);
+        assertFalse(this.leaseManager.isEnabled());
+
+        when(this.configuration.getProperty(ENABLED_PROPERTY, Boolean.FALSE)).thenReturn(true);
+        when(this.hibernateConfiguration.getClassMapping(SchedulerJobLease.class.getName()))
+            .thenReturn(mock(PersistentClass.class));
+        assertTrue(this.leaseManager.isEnabled());
+    }
+
+    @Test
+    public void isEnabledWithoutMapping()
+    {
+        when(this.configuration.getProperty(ENABLED_PROPERTY, Boolean.FALSE)).thenReturn(true);
+
+        assertFalse(this.leaseManager.isEnabled());
+
+        assertEquals("The scheduled jobs will be executed by every cluster member even though "
+            + "[scheduler.cluster.enabled] is true: the Hibernate mapping of "
+            + "[com.xpn.xwiki.plugin.scheduler.internal.SchedulerJobLease] is missing. "
+            + "Add [scheduler.hbm.xml] to the Hibernate configuration to enable it.", this.logCapture.getMessage(0));
+    }
+
+    @Test
+    public void acquireNewLease() throws Exception
+    {
+        assertTrue(this.leaseManager.acquire(TRIGGER_ID, FIRE_TIME, this.xcontext));
+
+        // The lease is taken on the main wiki and the current wiki is restored
+        verify(this.xcontext).setWikiId("xwiki");
+        verify(this.xcontext).setWikiId("subwiki");
+        verify(this.session).save(any(SchedulerJobLease.class));
+        verify(this.session, never()).createQuery(anyString());
+    }
+
+    @Test
+    public void acquireExistingLease() throws Exception
+    {
+        when(this.session.get(SchedulerJobLease.class, TRIGGER_ID)).thenReturn(new SchedulerJobLease());
+        when(this.query.executeUpdate()).thenReturn(1);
+
+        assertTrue(this.leaseManager.acquire(TRIGGER_ID, FIRE_TIME, this.xcontext));
+
+        verify(this.query).setParameter("fireTime", FIRE_TIME);
+        verify(this.query).setParameter("triggerId", TRIGGER_ID);
+    }
+
+    @Test
+    public void acquireLeaseTakenByAnotherMember() throws Exception
+    {
+        when(this.session.get(SchedulerJobLease.class, TRIGGER_ID)).thenReturn(new SchedulerJobLease());
+        when(this.query.executeUpdate()).thenReturn(0);
+
+        assertFalse(this.leaseManager.acquire(TRIGGER_ID, FIRE_TIME, this.xcontext));
+    }
+
+    @Test
+    public void acquireLeaseInsertedByAnotherMember() throws Exception
+    {
+        when(this.session.save(any(SchedulerJobLease.class)))
+            .thenThrow(new ConstraintViolationException("duplicate", new SQLException(), "PRIMARY"));
+
+        assertFalse(this.leaseManager.acquire(TRIGGER_ID, FIRE_TIME, this.xcontext));
+    }
+
+    @Test
+    public void acquireWhenTheStoreFails() throws Exception
+    {
+        when(this.store.executeWrite(same(this.xcontext), any()))
+            .thenThrow(new XWikiException(XWikiException.MODULE_XWIKI_STORE,
+                XWikiException.ERROR_XWIKI_STORE_HIBERNATE_READING_DOC, "Table not found"));
+
+        // The job is executed rather than skipped by all the members
+        assertTrue(this.leaseManager.acquire(TRIGGER_ID, FIRE_TIME, this.xcontext));
+
+        assertTrue(this.logCapture.getMessage(0).startsWith("Failed to take the lease on trigger "
+            + "[Scheduler.WatchListDailyNotifier] for fire time [" + FIRE_TIME + "], executing it anyway: "));
+        verify(this.xcontext).setWikiId("subwiki");
+    }
+}
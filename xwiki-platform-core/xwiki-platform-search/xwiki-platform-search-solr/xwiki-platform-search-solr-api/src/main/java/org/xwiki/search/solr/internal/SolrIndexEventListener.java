@@ -35,11 +35,15 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.bridge.event.WikiDeletedEvent;
 import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
 import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.LocalDocumentReference;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.observation.event.Event;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -56,6 +60,7 @@
 import com.xpn.xwiki.internal.event.XObjectPropertyDeletedEvent;
 import com.xpn.xwiki.internal.event.XObjectPropertyUpdatedEvent;
 import com.xpn.xwiki.internal.event.XObjectUpdatedEvent;
+import com.xpn.xwiki.objects.BaseObjectReference;
 
 /**
  * Event listener that monitors changes in the wiki and updates the Solr index accordingly.
@@ -77,6 +82,18 @@ public class SolrIndexEventListener implements EventListener
         new XObjectUpdatedEvent(), new XObjectPropertyAddedEvent(), new XObjectPropertyDeletedEvent(),
         new XObjectPropertyUpdatedEvent(), new WikiDeletedEvent());
 
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final LocalDocumentReference RIGHTS_CLASS = new LocalDocumentReference(XWIKI_SPACE, "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiGlobalRights");
+
+    private static final LocalDocumentReference WIKI_PREFERENCES =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiPreferences");
+
+    private static final String SPACE_PREFERENCES = "WebPreferences";
+
     /**
      * Logging framework.
      */
@@ -91,6 +108,9 @@ public class SolrIndexEventListener implements EventListener
     @Inject
     private Provider<SolrIndexer> solrIndexer;
 
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
     @Override
     public List<Event> getEvents()
     {
@@ -158,10 +178,12 @@ public void onEvent(Event event, Object source, Object data)
                 EntityEvent entityEvent = (EntityEvent) event;
 
                 this.solrIndexer.get().index(entityEvent.getReference(), false);
+                indexRightsScope(entityEvent.getReference());
             } else if (event instanceof XObjectDeletedEvent) {
                 EntityEvent entityEvent = (EntityEvent) event;
 
                 this.solrIndexer.get().delete(entityEvent.getReference(), false);
+                indexRightsScope(entityEvent.getReference());
             } else if (event instanceof XObjectPropertyUpdatedEvent || event instanceof XObjectPropertyAddedEvent) {
                 EntityEvent entityEvent = (EntityEvent) event;
 
@@ -181,6 +203,39 @@ public void onEvent(Event event, Object source, Object data)
         }
     }
 
+    /**
+     * The users and groups that may view a document are indexed with all the entities it holds, so they need to be
+     * indexed again when a rights object is modified. Note that group membership changes don't require any index
+     * update because the groups of the current user are resolved at query time. The rules of the main wiki apply to
+     * the whole farm.
+     * 
+     * @param objectReference the reference of the modified object
+     */
+    private void indexRightsScope(EntityReference objectReference)
+    {
+        BaseObjectReference reference = new BaseObjectReference(objectReference);
+        LocalDocumentReference classReference = new LocalDocumentReference(reference.getXClassReference());
+        DocumentReference documentReference =
+            new DocumentReference(reference.extractReference(EntityType.DOCUMENT));
+
+        if (RIGHTS_CLASS.equals(classReference)) {
+            // The document row is updated by the document event but not its attachments and objects.
+            this.solrIndexer.get().index(documentReference, true);
+        } else if (GLOBAL_RIGHTS_CLASS.equals(classReference)) {
+            if (SPACE_PREFERENCES.equals(documentReference.getName())) {
+                this.solrIndexer.get().index(documentReference.getLastSpaceReference(), true);
+            } else if (WIKI_PREFERENCES.equals(documentReference.getLocalDocumentReference())) {
+                WikiReference wikiReference = documentReference.getWikiReference();
+                if (this.wikiDescriptorManager.getMainWikiId().equals(wikiReference.getName())) {
+                    // The rules of the main wiki apply to all the wikis of the farm.
+                    this.solrIndexer.get().index(null, true);
+                } else {
+                    this.solrIndexer.get().index(wikiReference, true);
+                }
+            }
+        }
+    }
+
     /**
      * Helper method to index all the translations of a document. We don't rely on the {@code recurse} parameter of the
      * {@link SolrIndexer#index(org.xwiki.model.reference.EntityReference, boolean)} because we want to update only the
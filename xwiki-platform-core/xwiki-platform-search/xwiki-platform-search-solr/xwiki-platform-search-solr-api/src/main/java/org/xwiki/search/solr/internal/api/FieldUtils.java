@@ -227,6 +227,14 @@
      */
     public static final String HIDDEN = "hidden";
 
+    /**
+     * The serialized references of the users and groups that may be allowed to view the document (a superset of the
+     * principals that actually have the view right), or {@code *} when the view right is not restricted.
+     * 
+     * @since 11.3RC1
+     */
+    public static final String VIEW_PRINCIPALS = "view_principals";
+
     /**
      * Document score, not an actual field. It's only computed at query time.
      */
@@ -114,6 +114,12 @@ public abstract class AbstractSolrMetadataExtractor implements SolrMetadataExtra
     @Inject
     protected ComponentManager componentManager;
 
+    /**
+     * Used to compute the users and groups that may view the indexed entity.
+     */
+    @Inject
+    protected ViewPrincipalsExtractor viewPrincipalsExtractor;
+
     @Override
     public LengthSolrInputDocument getSolrDocument(EntityReference entityReference)
         throws SolrIndexerException, IllegalArgumentException
@@ -234,6 +240,7 @@ protected boolean setDocumentFields(DocumentReference documentReference, SolrInp
         }
 
         solrDocument.setField(FieldUtils.HIDDEN, originalDocument.isHidden());
+        setViewPrincipals(solrDocument, originalDocument);
 
         solrDocument.setField(FieldUtils.WIKI, documentReference.getWikiReference().getName());
         solrDocument.setField(FieldUtils.NAME, documentReference.getName());
@@ -248,6 +255,20 @@ protected boolean setDocumentFields(DocumentReference documentReference, SolrInp
         return true;
     }
 
+    /**
+     * Indexes the users and groups that may view the passed document, so that search queries can be restricted before
+     * the results are ranked and counted.
+     * 
+     * @param solrDocument the Solr document to which to add the field
+     * @param document the document holding the indexed entity (the default translation)
+     * @throws XWikiException if problems occur
+     * @since 11.3RC1
+     */
+    protected void setViewPrincipals(SolrInputDocument solrDocument, XWikiDocument document) throws XWikiException
+    {
+        solrDocument.setField(FieldUtils.VIEW_PRINCIPALS, this.viewPrincipalsExtractor.getViewPrincipals(document));
+    }
+
     protected Set<Locale> getLocales(DocumentReference documentReference, Locale entityLocale)
         throws XWikiException, SolrIndexerException
     {
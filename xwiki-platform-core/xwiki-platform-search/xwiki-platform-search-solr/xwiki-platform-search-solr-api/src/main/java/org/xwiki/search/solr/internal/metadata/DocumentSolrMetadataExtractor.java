@@ -109,7 +109,7 @@ public boolean setFieldsInternal(LengthSolrInputDocument solrDocument, EntityRef
 
         // Rendered content
         WikiPrinter plainContentPrinter = new DefaultWikiPrinter();
-        this.renderer.render(translatedDocument.getXDOM(), plainContentPrinter);
+        this.renderer.render(translatedDocument.getReadOnlyXDOM(), plainContentPrinter);
         solrDocument.setField(FieldUtils.getFieldName(FieldUtils.DOCUMENT_RENDERED_CONTENT, locale),
             plainContentPrinter.toString());
 
@@ -131,6 +131,9 @@ public boolean setFieldsInternal(LengthSolrInputDocument solrDocument, EntityRef
         // Document translations have their own hidden fields
         solrDocument.setField(FieldUtils.HIDDEN, translatedDocument.isHidden());
 
+        // The rights are shared by all the translations of a document.
+        setViewPrincipals(solrDocument, getDocument(documentReference));
+
         // Add any extra fields (about objects, etc.) that can improve the findability of the document.
         setExtras(documentReference, solrDocument, locale);
 
@@ -0,0 +1,209 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.EntityType;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.model.reference.SpaceReference;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+/**
+ * Computes the users and groups that may be allowed to view a document, based on the allow rules found on the
+ * document and on its parent spaces and wiki (and on the main wiki, which is the security parent of all the
+ * subwikis). The result is indexed so that search queries can be restricted to the
+ * documents the current user may see before the results are ranked and counted.
+ * <p>
+ * The computed list is a superset of the principals actually allowed to view the document: deny rules and rule
+ * priorities are ignored, so the exact view right must still be checked on the returned results.
+ * 
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = ViewPrincipalsExtractor.class)
+@Singleton
+public class ViewPrincipalsExtractor
+{
+    /**
+     * The value indexed when no allow rule restricts the view right of the document, i.e. when anyone may view it.
+     */
+    public static final String ANYONE = "*";
+
+    /**
+     * The wiki independent value indexed for the guest user.
+     */
+    public static final String GUEST = "XWiki.XWikiGuest";
+
+    /**
+     * The wiki independent value indexed for the group holding all the users of a wiki.
+     */
+    public static final String ALL_GROUP = "XWiki.XWikiAllGroup";
+
+    private static final String XWIKI_SPACE = "XWiki";
+
+    private static final LocalDocumentReference RIGHTS_CLASS = new LocalDocumentReference(XWIKI_SPACE, "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiGlobalRights");
+
+    private static final LocalDocumentReference WIKI_PREFERENCES =
+        new LocalDocumentReference(XWIKI_SPACE, "XWikiPreferences");
+
+    private static final String SPACE_PREFERENCES = "WebPreferences";
+
+    private static final Pattern LIST_SEPARATOR = Pattern.compile("[,|]");
+
+    private static final String VIEW = "view";
+
+    @Inject
+    private Provider<XWikiContext> xcontextProvider;
+
+    @Inject
+    @Named("explicit")
+    private DocumentReferenceResolver<String> explicitResolver;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    @Inject
+    private WikiDescriptorManager wikiDescriptorManager;
+
+    /**
+     * @param document the document for which to compute the principals
+     * @return the serialized references of the users and groups that may view the passed document, including
+     *         {@link #ANYONE} when the view right is not restricted by any allow rule
+     * @throws XWikiException when failing to load the documents holding the rules
+     */
+    public List<String> getViewPrincipals(XWikiDocument document) throws XWikiException
+    {
+        XWikiContext xcontext = this.xcontextProvider.get();
+        XWiki xwiki = xcontext.getWiki();
+        DocumentReference documentReference = document.getDocumentReference();
+
+        Set<String> principals = new LinkedHashSet<>();
+
+        // Document rules.
+        boolean restricted = addPrincipals(document, RIGHTS_CLASS, principals);
+
+        // Space rules, including the ones of the parent spaces.
+        for (EntityReference parent = documentReference.getParent(); parent.getType() == EntityType.SPACE;
+            parent = parent.getParent()) {
+            DocumentReference preferencesReference =
+                new DocumentReference(SPACE_PREFERENCES, new SpaceReference(parent));
+            restricted |= addPrincipals(xwiki.getDocument(preferencesReference, xcontext), GLOBAL_RIGHTS_CLASS,
+                principals);
+        }
+
+        // Wiki rules.
+        WikiReference wikiReference = documentReference.getWikiReference();
+        // Note that users having programming right on the main wiki can view all the documents of the farm so they
+        // are not taken into account here (the search queries shouldn't be restricted for them).
+        restricted |= addWikiPrincipals(wikiReference, principals, xcontext);
+
+        // Main wiki rules, which apply to all the documents of the farm.
+        WikiReference mainWikiReference = new WikiReference(this.wikiDescriptorManager.getMainWikiId());
+        if (!mainWikiReference.equals(wikiReference)) {
+            restricted |= addWikiPrincipals(mainWikiReference, principals, xcontext);
+        }
+
+        if (!restricted) {
+            principals.add(ANYONE);
+        }
+
+        return new ArrayList<>(principals);
+    }
+
+    private boolean addWikiPrincipals(WikiReference wikiReference, Set<String> principals, XWikiContext xcontext)
+        throws XWikiException
+    {
+        XWikiDocument preferences =
+            xcontext.getWiki().getDocument(new DocumentReference(WIKI_PREFERENCES, wikiReference), xcontext);
+
+        addPrincipal(xcontext.getWiki().getWikiOwner(wikiReference.getName(), xcontext), wikiReference, principals);
+
+        return addPrincipals(preferences, GLOBAL_RIGHTS_CLASS, principals);
+    }
+
+    private boolean addPrincipals(XWikiDocument document, LocalDocumentReference rightsClass, Set<String> principals)
+    {
+        boolean restricted = false;
+
+        WikiReference wikiReference = document.getDocumentReference().getWikiReference();
+        for (BaseObject rule : document.getXObjects(rightsClass)) {
+            if (rule != null && rule.getIntValue("allow", 1) == 1) {
+                for (String level : LIST_SEPARATOR.split(rule.getStringValue("levels"))) {
+                    restricted |= VIEW.equals(level.trim());
+                }
+                for (String user : LIST_SEPARATOR.split(rule.getLargeStringValue("users"))) {
+                    addPrincipal(user, wikiReference, principals);
+                }
+                for (String group : LIST_SEPARATOR.split(rule.getLargeStringValue("groups"))) {
+                    addPrincipal(group, wikiReference, principals);
+                }
+            }
+        }
+
+        return restricted;
+    }
+
+    private void addPrincipal(String principal, WikiReference wikiReference, Set<String> principals)
+    {
+        if (StringUtils.isNotBlank(principal)) {
+            // Users and groups are resolved relative to the XWiki space of the wiki holding the rule, just like the
+            // security module does.
+            DocumentReference principalReference = this.explicitResolver.resolve(principal.trim(),
+                new DocumentReference(WIKI_PREFERENCES, wikiReference));
+            principals.add(this.serializer.serialize(principalReference));
+
+            // The guest user and the all group are matched whatever the wiki they belong to.
+            String localPrincipal = this.localSerializer.serialize(principalReference);
+            if (GUEST.equals(localPrincipal) || ALL_GROUP.equals(localPrincipal)) {
+                principals.add(localPrincipal);
+            }
+        }
+    }
+}
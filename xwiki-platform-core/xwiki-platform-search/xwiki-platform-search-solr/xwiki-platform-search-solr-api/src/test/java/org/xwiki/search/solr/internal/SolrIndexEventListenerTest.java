@@ -29,14 +29,20 @@
 import org.xwiki.bridge.event.DocumentUpdatedEvent;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.WikiReference;
 import org.xwiki.observation.EventListener;
 import org.xwiki.search.solr.internal.api.SolrIndexer;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.internal.event.XObjectAddedEvent;
+import com.xpn.xwiki.objects.BaseObjectReference;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -59,6 +65,9 @@
     public void setUp() throws Exception
     {
         indexer = mocker.registerMockComponent(SolrIndexer.class);
+
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
     }
 
     @Test
@@ -107,4 +116,32 @@ public void onDocumentDefaultTranslationUpdated() throws Exception
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.FRENCH), false);
         verify(this.indexer).index(new DocumentReference(documentReference, Locale.GERMAN), false);
     }
+
+    @Test
+    public void onWikiRightsAdded() throws Exception
+    {
+        DocumentReference preferencesReference = new DocumentReference("wiki", "XWiki", "XWikiPreferences");
+        BaseObjectReference ruleReference = new BaseObjectReference(
+            new DocumentReference("wiki", "XWiki", "XWikiGlobalRights"), 0, preferencesReference);
+
+        this.mocker.getComponentUnderTest().onEvent(new XObjectAddedEvent(ruleReference), null, null);
+
+        verify(this.indexer).index(ruleReference, false);
+        verify(this.indexer).index(new WikiReference("wiki"), true);
+    }
+
+    @Test
+    public void onMainWikiRightsAdded() throws Exception
+    {
+        DocumentReference preferencesReference = new DocumentReference("xwiki", "XWiki", "XWikiPreferences");
+        BaseObjectReference ruleReference = new BaseObjectReference(
+            new DocumentReference("xwiki", "XWiki", "XWikiGlobalRights"), 0, preferencesReference);
+
+        this.mocker.getComponentUnderTest().onEvent(new XObjectAddedEvent(ruleReference), null, null);
+
+        // The rules of the main wiki apply to the whole farm.
+        verify(this.indexer).index(ruleReference, false);
+        verify(this.indexer).index(isNull(), eq(true));
+        verify(this.indexer, times(2)).index(any(), any(Boolean.class));
+    }
 }
@@ -0,0 +1,195 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.search.solr.internal.metadata;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.inject.Provider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.descriptor.WikiDescriptorManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ViewPrincipalsExtractor}.
+ * 
+ * @version $Id$
+ */
+public class ViewPrincipalsExtractorTest
+{
+    private static final LocalDocumentReference RIGHTS_CLASS = new LocalDocumentReference("XWiki", "XWikiRights");
+
+    private static final LocalDocumentReference GLOBAL_RIGHTS_CLASS =
+        new LocalDocumentReference("XWiki", "XWikiGlobalRights");
+
+    @Rule
+    public final MockitoComponentMockingRule<ViewPrincipalsExtractor> mocker =
+        new MockitoComponentMockingRule<>(ViewPrincipalsExtractor.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private XWiki xwiki = mock(XWiki.class);
+
+    private DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+
+    private XWikiDocument document = mockDocument(this.documentReference);
+
+    private XWikiDocument spacePreferences = mockDocument(new DocumentReference("wiki", "Space", "WebPreferences"));
+
+    private XWikiDocument wikiPreferences = mockDocument(new DocumentReference("wiki", "XWiki", "XWikiPreferences"));
+
+    private XWikiDocument mainWikiPreferences =
+        mockDocument(new DocumentReference("xwiki", "XWiki", "XWikiPreferences"));
+
+    @Before
+    public void setUp() throws Exception
+    {
+        Provider<XWikiContext> xcontextProvider = this.mocker.getInstance(XWikiContext.TYPE_PROVIDER);
+        when(xcontextProvider.get()).thenReturn(this.xcontext);
+        when(this.xcontext.getWiki()).thenReturn(this.xwiki);
+
+        when(this.xwiki.getDocument(this.spacePreferences.getDocumentReference(), this.xcontext))
+            .thenReturn(this.spacePreferences);
+        when(this.xwiki.getDocument(this.wikiPreferences.getDocumentReference(), this.xcontext))
+            .thenReturn(this.wikiPreferences);
+        when(this.xwiki.getDocument(this.mainWikiPreferences.getDocumentReference(), this.xcontext))
+            .thenReturn(this.mainWikiPreferences);
+        when(this.xwiki.getWikiOwner("wiki", this.xcontext)).thenReturn("xwiki:XWiki.Owner");
+
+        WikiDescriptorManager wikiDescriptorManager = this.mocker.getInstance(WikiDescriptorManager.class);
+        when(wikiDescriptorManager.getMainWikiId()).thenReturn("xwiki");
+
+        DocumentReferenceResolver<String> resolver = this.mocker.getInstance(DocumentReferenceResolver.TYPE_STRING,
+            "explicit");
+        when(resolver.resolve(anyString(), any(EntityReference.class))).then(invocation -> {
+            String reference = invocation.getArgument(0);
+            DocumentReference baseReference = invocation.getArgument(1);
+            String[] parts = reference.split("[:.]");
+            return parts.length > 2 ? new DocumentReference(parts[0], parts[1], parts[2])
+                : new DocumentReference(baseReference.getWikiReference().getName(), parts[0], parts[1]);
+        });
+
+        EntityReferenceSerializer<String> serializer = this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(any())).then(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            return reference.getWikiReference().getName() + ':' + reference.getLastSpaceReference().getName() + '.'
+                + reference.getName();
+        });
+
+        EntityReferenceSerializer<String> localSerializer =
+            this.mocker.getInstance(EntityReferenceSerializer.TYPE_STRING, "local");
+        when(localSerializer.serialize(any())).then(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            return reference.getLastSpaceReference().getName() + '.' + reference.getName();
+        });
+    }
+
+    private XWikiDocument mockDocument(DocumentReference reference)
+    {
+        XWikiDocument mock = mock(XWikiDocument.class, reference.toString());
+        when(mock.getDocumentReference()).thenReturn(reference);
+        when(mock.getXObjects(any(EntityReference.class))).thenReturn(Collections.emptyList());
+        return mock;
+    }
+
+    private BaseObject mockRule(String levels, String users, String groups, int allow)
+    {
+        BaseObject rule = mock(BaseObject.class);
+        when(rule.getIntValue("allow", 1)).thenReturn(allow);
+        when(rule.getStringValue("levels")).thenReturn(levels);
+        when(rule.getLargeStringValue("users")).thenReturn(users);
+        when(rule.getLargeStringValue("groups")).thenReturn(groups);
+        return rule;
+    }
+
+    @Test
+    public void getViewPrincipalsWithoutRules() throws Exception
+    {
+        assertEquals(Arrays.asList("xwiki:XWiki.Owner", ViewPrincipalsExtractor.ANYONE),
+            this.mocker.getComponentUnderTest().getViewPrincipals(this.document));
+    }
+
+    @Test
+    public void getViewPrincipalsWithRules() throws Exception
+    {
+        BaseObject documentRule = mockRule("view,edit", "XWiki.Alice", "XWiki.XWikiAllGroup", 1);
+        BaseObject denyRule = mockRule("view", "XWiki.Bob", "", 0);
+        when(this.document.getXObjects(RIGHTS_CLASS)).thenReturn(Arrays.asList(documentRule, null, denyRule));
+
+        BaseObject spaceRule = mockRule("edit", "", "xwiki:XWiki.Editors", 1);
+        when(this.spacePreferences.getXObjects(GLOBAL_RIGHTS_CLASS)).thenReturn(Arrays.asList(spaceRule));
+
+        BaseObject wikiRule = mockRule("admin", "XWiki.Admin", "", 1);
+        when(this.wikiPreferences.getXObjects(GLOBAL_RIGHTS_CLASS)).thenReturn(Arrays.asList(wikiRule));
+
+        assertEquals(
+            Arrays.asList("wiki:XWiki.Alice", "wiki:XWiki.XWikiAllGroup", ViewPrincipalsExtractor.ALL_GROUP,
+                "xwiki:XWiki.Editors", "xwiki:XWiki.Owner", "wiki:XWiki.Admin"),
+            this.mocker.getComponentUnderTest().getViewPrincipals(this.document));
+    }
+
+    @Test
+    public void getViewPrincipalsWithMainWikiRules() throws Exception
+    {
+        BaseObject mainWikiRule = mockRule("view", "", "XWiki.Admins", 1);
+        when(this.mainWikiPreferences.getXObjects(GLOBAL_RIGHTS_CLASS)).thenReturn(Arrays.asList(mainWikiRule));
+
+        // The rules of the main wiki apply to the documents of the subwikis.
+        assertEquals(Arrays.asList("xwiki:XWiki.Owner", "xwiki:XWiki.Admins"),
+            this.mocker.getComponentUnderTest().getViewPrincipals(this.document));
+    }
+
+    @Test
+    public void getViewPrincipalsOnMainWiki() throws Exception
+    {
+        XWikiDocument mainWikiDocument = mockDocument(new DocumentReference("xwiki", "Space", "Page"));
+        when(this.xwiki.getDocument(new DocumentReference("xwiki", "Space", "WebPreferences"), this.xcontext))
+            .thenReturn(mockDocument(new DocumentReference("xwiki", "Space", "WebPreferences")));
+        when(this.xwiki.getWikiOwner("xwiki", this.xcontext)).thenReturn("xwiki:XWiki.Admin");
+
+        assertEquals(Arrays.asList("xwiki:XWiki.Admin", ViewPrincipalsExtractor.ANYONE),
+            this.mocker.getComponentUnderTest().getViewPrincipals(mainWikiDocument));
+
+        // The main wiki rules are read only once.
+        verify(this.xwiki).getDocument(this.mainWikiPreferences.getDocumentReference(), this.xcontext);
+        verify(this.xwiki, never()).getDocument(this.wikiPreferences.getDocumentReference(), this.xcontext);
+    }
+}
@@ -31,8 +31,10 @@
 import javax.inject.Singleton;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.util.ClientUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.slf4j.Logger;
@@ -40,13 +42,18 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryExecutor;
 import org.xwiki.query.SecureQuery;
+import org.xwiki.search.solr.internal.api.FieldUtils;
 import org.xwiki.search.solr.internal.api.SolrInstance;
+import org.xwiki.search.solr.internal.metadata.ViewPrincipalsExtractor;
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
+import org.xwiki.user.group.GroupManager;
+import org.xwiki.user.group.WikiTarget;
 
 import com.xpn.xwiki.XWikiContext;
 
@@ -105,6 +112,15 @@ public class SolrQueryExecutor implements QueryExecutor
     @Inject
     private JobProgressManager progress;
 
+    /**
+     * Used to restrict the query to the entities the checked users may view.
+     */
+    @Inject
+    private GroupManager groupManager;
+
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
     @Override
     public <T> List<T> execute(Query query) throws QueryException
     {
@@ -117,6 +133,11 @@ public <T> List<T> execute(Query query) throws QueryException
             SolrInstance solrInstance = solrInstanceProvider.get();
             SolrQuery solrQuery = createSolrQuery(query);
 
+            List<DocumentReference> usersToCheck = getUsersToCheck(query);
+            for (DocumentReference user : usersToCheck) {
+                addViewPrincipalsFilter(solrQuery, user);
+            }
+
             this.progress.startStep(query, "query.solr.progress.execute.execute", "Execute");
 
             QueryResponse response = solrInstance.query(solrQuery);
@@ -124,24 +145,11 @@ public <T> List<T> execute(Query query) throws QueryException
             this.progress.startStep(query, "query.solr.progress.execute.filter", "Filter");
 
             // Check access rights need to be checked before returning the response.
-            // FIXME: this is not really the best way, mostly because at this point all grouping operations
-            // have already been performed and any change on the result will not ensure that the grouping
-            // information (facets, highlighting, maxScore, etc.) is still relevant.
-            // A better way would be using a PostFilter as described in this article:
-            // http://java.dzone.com/articles/custom-security-filtering-solr
-            // Basically, we would be asking
-            List<DocumentReference> usersToCheck = new ArrayList<>(2);
-            if (query instanceof SecureQuery) {
-                if (((SecureQuery) query).isCurrentUserChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getUserReference());
-                }
-                if (((SecureQuery) query).isCurrentAuthorChecked()) {
-                    usersToCheck.add(xcontextProvider.get().getAuthorReference());
-                }
-            } else {
-                usersToCheck.add(xcontextProvider.get().getUserReference());
-                usersToCheck.add(xcontextProvider.get().getAuthorReference());
-            }
+            // The filter queries added above only exclude the entities that the checked users are not allowed to view
+            // for sure (the indexed view principals are a superset of the users and groups having the view right) so
+            // the exact right still needs to be checked on the returned results. The good news is that this filtering
+            // rarely removes anything so the grouping information (facets, highlighting, maxScore, etc.) computed by
+            // Solr remains relevant in most cases.
             if (!usersToCheck.isEmpty()) {
                 filterResponse(response, usersToCheck);
             }
@@ -194,6 +202,73 @@ private SolrQuery createSolrQuery(Query query)
         return solrQuery;
     }
 
+    private List<DocumentReference> getUsersToCheck(Query query)
+    {
+        List<DocumentReference> usersToCheck = new ArrayList<>(2);
+        if (query instanceof SecureQuery) {
+            if (((SecureQuery) query).isCurrentUserChecked()) {
+                usersToCheck.add(xcontextProvider.get().getUserReference());
+            }
+            if (((SecureQuery) query).isCurrentAuthorChecked()) {
+                usersToCheck.add(xcontextProvider.get().getAuthorReference());
+            }
+        } else {
+            usersToCheck.add(xcontextProvider.get().getUserReference());
+            usersToCheck.add(xcontextProvider.get().getAuthorReference());
+        }
+
+        return usersToCheck;
+    }
+
+    /**
+     * Restrict the query to the entities that the passed user may view, based on the view principals computed at index
+     * time. The users and groups are matched at query time so that group membership changes don't require to update
+     * the index.
+     * 
+     * @param solrQuery the query to restrict
+     * @param user the user that needs to be allowed to view the results
+     */
+    private void addViewPrincipalsFilter(SolrQuery solrQuery, DocumentReference user)
+    {
+        // Users with programming right can view everything.
+        if (this.authorization.hasAccess(Right.PROGRAM, user, null)) {
+            return;
+        }
+
+        List<String> principals = new ArrayList<>();
+        principals.add(ViewPrincipalsExtractor.ANYONE);
+        if (user == null) {
+            principals.add(ViewPrincipalsExtractor.GUEST);
+        } else {
+            principals.add(this.serializer.serialize(user));
+            principals.add(ViewPrincipalsExtractor.ALL_GROUP);
+            try {
+                for (DocumentReference group : this.groupManager.getGroups(user, WikiTarget.ALL, true)) {
+                    principals.add(this.serializer.serialize(group));
+                }
+            } catch (Exception e) {
+                // Rely only on the results filtering.
+                this.logger.warn("Failed to get the groups of user [{}]: {}", user,
+                    ExceptionUtils.getRootCauseMessage(e));
+
+                return;
+            }
+        }
+
+        StringBuilder filter = new StringBuilder();
+        filter.append(FieldUtils.VIEW_PRINCIPALS).append(":(");
+        for (int i = 0; i < principals.size(); i++) {
+            if (i > 0) {
+                filter.append(" OR ");
+            }
+            filter.append(ClientUtils.escapeQueryChars(principals.get(i)));
+        }
+        // Also match the entities indexed before the view principals were introduced.
+        filter.append(") OR (*:* -").append(FieldUtils.VIEW_PRINCIPALS).append(":[* TO *])");
+
+        solrQuery.addFilterQuery(filter.toString());
+    }
+
     /**
      * Converts an arbitrary array to an array containing its string representations.
      * 
@@ -21,6 +21,7 @@
 
 import java.lang.reflect.ParameterizedType;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Locale;
 
 import javax.inject.Provider;
@@ -40,6 +41,7 @@
 import org.xwiki.component.util.DefaultParameterizedType;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.query.QueryExecutor;
 import org.xwiki.query.QueryManager;
 import org.xwiki.query.internal.DefaultQuery;
@@ -50,6 +52,8 @@
 import org.xwiki.security.authorization.AuthorizationManager;
 import org.xwiki.security.authorization.Right;
 import org.xwiki.test.annotation.ComponentList;
+import org.xwiki.user.group.GroupManager;
+import org.xwiki.user.group.WikiTarget;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
 
 import com.xpn.xwiki.XWikiContext;
@@ -59,8 +63,10 @@
 
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -110,6 +116,14 @@ public void configure() throws Exception
         ParameterizedType solrProviderType = new DefaultParameterizedType(null, Provider.class, SolrInstance.class);
         Provider<SolrInstance> provider = this.componentManager.registerMockComponent(solrProviderType);
         when(provider.get()).thenReturn(this.solr);
+
+        EntityReferenceSerializer<String> serializer =
+            this.componentManager.getInstance(EntityReferenceSerializer.TYPE_STRING);
+        when(serializer.serialize(any())).then(invocation -> {
+            DocumentReference reference = invocation.getArgument(0);
+            return reference.getWikiReference().getName() + ':' + reference.getLastSpaceReference().getName() + '.'
+                + reference.getName();
+        });
     }
 
     @Test
@@ -232,4 +246,38 @@ public void filterResponse() throws Exception
         results = ((QueryResponse) this.componentManager.getComponentUnderTest().execute(query).get(0)).getResults();
         assertEquals(Arrays.asList(alice, bob), results);
     }
+
+    @Test
+    public void viewPrincipalsFilter() throws Exception
+    {
+        DocumentReference aliceReference = new DocumentReference("xwiki", "XWiki", "Alice");
+        this.oldCore.getXWikiContext().setUserReference(aliceReference);
+
+        GroupManager groupManager = this.componentManager.getInstance(GroupManager.class);
+        when(groupManager.getGroups(aliceReference, WikiTarget.ALL, true))
+            .thenReturn(Collections.singletonList(new DocumentReference("wiki", "XWiki", "Group")));
+
+        SolrDocumentList results = new SolrDocumentList();
+        QueryResponse response = mock(QueryResponse.class);
+        when(response.getResults()).thenReturn(results);
+        when(this.solr.query(any(SolrParams.class))).thenReturn(response);
+
+        DefaultQuery query = new DefaultQuery("", null);
+        query.checkCurrentUser(true);
+
+        this.componentManager.getComponentUnderTest().execute(query);
+
+        verify(this.solr).query(argThat((SolrParams params) -> Arrays.equals(
+            new String[] {"view_principals:(\\* OR xwiki\\:XWiki.Alice OR XWiki.XWikiAllGroup OR wiki\\:XWiki.Group)"
+                + " OR (*:* -view_principals:[* TO *])"},
+            params.getParams("fq"))));
+
+        // No restriction for users with programming right.
+        AuthorizationManager authorizationManager = this.componentManager.getInstance(AuthorizationManager.class);
+        when(authorizationManager.hasAccess(Right.PROGRAM, aliceReference, null)).thenReturn(true);
+
+        this.componentManager.getComponentUnderTest().execute(query);
+
+        verify(this.solr).query(argThat((SolrParams params) -> params.getParams("fq") == null));
+    }
 }
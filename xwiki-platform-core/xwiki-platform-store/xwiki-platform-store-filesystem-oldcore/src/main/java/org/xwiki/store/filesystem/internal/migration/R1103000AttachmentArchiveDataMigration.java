@@ -0,0 +1,260 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal.migration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.FileUtils;
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.store.filesystem.internal.AttachmentFileProvider;
+import org.xwiki.store.filesystem.internal.FilesystemStoreTools;
+import org.xwiki.store.internal.FileSystemStoreUtils;
+import org.xwiki.store.serialization.Serializer;
+
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.doc.XWikiAttachmentContent;
+import com.xpn.xwiki.internal.XWikiCfgConfigurationSource;
+import com.xpn.xwiki.store.XWikiCacheStoreInterface;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+import com.xpn.xwiki.store.migration.DataMigrationException;
+import com.xpn.xwiki.store.migration.XWikiDBVersion;
+
+/**
+ * Move the attachment histories still stored as JRCS archives in the database to the filesystem attachment versioning
+ * store, which stores each version in its own file. Adding or reading a version of a JRCS archive requires to load
+ * all the versions in memory.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Named("R1103000AttachmentArchive")
+@Singleton
+public class R1103000AttachmentArchiveDataMigration extends AbstractFileStoreDataMigration
+{
+    private static final String HIBERNATE_STORE = XWikiHibernateBaseStore.HINT;
+
+    @Inject
+    @Named(XWikiCfgConfigurationSource.ROLEHINT)
+    private ConfigurationSource configuration;
+
+    @Inject
+    private FilesystemStoreTools fstools;
+
+    @Inject
+    @Named("attachment-list-meta/1.0")
+    private Serializer<List<XWikiAttachment>, List<XWikiAttachment>> metaSerializer;
+
+    @Inject
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @Override
+    public String getDescription()
+    {
+        return "Move the attachment histories stored in the database to the filesystem store.";
+    }
+
+    @Override
+    public XWikiDBVersion getVersion()
+    {
+        return new XWikiDBVersion(1103000);
+    }
+
+    @Override
+    public boolean isParallelizable()
+    {
+        return true;
+    }
+
+    @Override
+    public void hibernateMigrate() throws DataMigrationException, XWikiException
+    {
+        // Only move the histories when the filesystem store is the one used for new attachments
+        if ("0".equals(this.configuration.getProperty("xwiki.store.attachment.versioning", "1"))
+            || !FileSystemStoreUtils.HINT.equals(
+                this.configuration.getProperty("xwiki.store.attachment.versioning.hint", FileSystemStoreUtils.HINT))) {
+            this.logger.info("Skipping the migration (the filesystem attachment versioning store is not enabled)");
+
+            return;
+        }
+
+        // Migrate the attachments in batches (ordered by id) so that we don't load all of them in memory.
+        long[] lastAttachmentId = {Long.MIN_VALUE};
+        executeInBatches((session, batchSize) -> {
+            List<Object[]> attachments = getHibernateAttachments(lastAttachmentId[0], batchSize, session);
+            List<Long> migratedAttachments = new ArrayList<>(attachments.size());
+            for (Object[] attachment : attachments) {
+                Long id = (Long) attachment[0];
+
+                DocumentReference documentReference =
+                    this.resolver.resolve((String) attachment[2], getXWikiContext().getWikiReference());
+                AttachmentReference attachmentReference =
+                    new AttachmentReference((String) attachment[1], documentReference);
+                try {
+                    migrateArchive(id, attachmentReference, session);
+
+                    migratedAttachments.add(id);
+                } catch (XWikiException | RuntimeException e) {
+                    // Don't block the migration of the other attachments because of a corrupted archive
+                    this.logger.error("Failed to move the history of attachment [{}] to the filesystem,"
+                        + " it's kept in the database", attachmentReference, e);
+                }
+                lastAttachmentId[0] = id;
+            }
+
+            if (!migratedAttachments.isEmpty()) {
+                Query query =
+                    session.createQuery("UPDATE XWikiAttachment SET archiveStore = :store WHERE id IN (:ids)");
+                query.setString("store", FileSystemStoreUtils.HINT);
+                query.setParameterList("ids", migratedAttachments);
+                query.executeUpdate();
+            }
+
+            return attachments.size() == batchSize;
+        });
+
+        // Make sure the cached attachments don't keep pointing to the database history
+        XWikiStoreInterface store = getXWikiContext().getWiki().getStore();
+        if (store instanceof XWikiCacheStoreInterface) {
+            ((XWikiCacheStoreInterface) store).flushCache();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> getHibernateAttachments(long afterAttachmentId, int batchSize, Session session)
+    {
+        Query query = session.createQuery("SELECT attachment.id, attachment.filename, document.fullName"
+            + " FROM XWikiAttachment as attachment, XWikiDocument as document WHERE attachment.docId = document.id"
+            + " AND (attachment.archiveStore IS NULL OR attachment.archiveStore = :store)"
+            + " AND attachment.id > :afterAttachmentId ORDER BY attachment.id");
+        query.setString("store", HIBERNATE_STORE);
+        query.setLong("afterAttachmentId", afterAttachmentId);
+        query.setMaxResults(batchSize);
+
+        return query.list();
+    }
+
+    private void migrateArchive(Long id, AttachmentReference attachmentReference, Session session)
+        throws XWikiException
+    {
+        XWikiAttachment attachment = new XWikiAttachment();
+        attachment.setFilename(attachmentReference.getName());
+        XWikiAttachmentArchive archive = new XWikiAttachmentArchive();
+        archive.setAttachment(attachment);
+
+        try {
+            try {
+                session.load(archive, id);
+            } catch (ObjectNotFoundException e) {
+                // No history to move
+                return;
+            }
+
+            if (archive.getRCSArchive() != null) {
+                saveArchive(archive, attachmentReference);
+            }
+        } finally {
+            // Don't keep the JRCS archive in the session
+            session.evict(archive);
+        }
+
+        Query query = session.createQuery("DELETE FROM XWikiAttachmentArchive WHERE id = :id");
+        query.setLong("id", id);
+        query.executeUpdate();
+    }
+
+    private void saveArchive(XWikiAttachmentArchive archive, AttachmentReference attachmentReference)
+        throws XWikiException
+    {
+        XWikiContext xcontext = getXWikiContext();
+        AttachmentFileProvider provider = this.fstools.getAttachmentFileProvider(attachmentReference);
+
+        // The versions are returned by number descending
+        Version[] versions = archive.getVersions();
+        List<XWikiAttachment> revisions = new ArrayList<>(versions.length);
+        List<File> files = new ArrayList<>(versions.length + 1);
+        try {
+            for (int i = versions.length - 1; i >= 0; --i) {
+                String version = versions[i].toString();
+                XWikiAttachment revision = archive.getRevision(archive.getAttachment(), version, xcontext);
+
+                // Write the content right away so that only the metadata of the previous versions stay in memory
+                XWikiAttachmentContent content = revision.getAttachment_content();
+                if (content != null) {
+                    File file = provider.getAttachmentVersionContentFile(version);
+                    files.add(file);
+                    try (InputStream stream = content.getContentInputStream()) {
+                        FileUtils.copyInputStreamToFile(stream, file);
+                    }
+                    revision.setAttachment_content(null);
+                } else {
+                    this.logger.warn("No content found for version [{}] of attachment [{}]", version,
+                        attachmentReference);
+                }
+
+                revisions.add(revision);
+            }
+
+            File metaFile = provider.getAttachmentVersioningMetaFile();
+            files.add(metaFile);
+            try (InputStream stream = this.metaSerializer.serialize(revisions)) {
+                FileUtils.copyInputStreamToFile(stream, metaFile);
+            }
+        } catch (IOException e) {
+            deleteFiles(files);
+
+            throw new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
+                "Failed to move the history of attachment [" + attachmentReference + "] to the filesystem", e);
+        } catch (XWikiException | RuntimeException e) {
+            // The history stays in the database
+            deleteFiles(files);
+
+            throw e;
+        }
+    }
+
+    private void deleteFiles(List<File> files)
+    {
+        for (File file : files) {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.xwiki.store.filesystem.internal.migration;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.suigeneris.jrcs.rcs.Archive;
+import org.suigeneris.jrcs.rcs.Version;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.context.Execution;
+import org.xwiki.context.ExecutionContext;
+import org.xwiki.model.reference.AttachmentReference;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.WikiReference;
+import org.xwiki.store.filesystem.internal.AttachmentFileProvider;
+import org.xwiki.store.filesystem.internal.FilesystemStoreTools;
+import org.xwiki.store.serialization.Serializer;
+import org.xwiki.test.LogLevel;
+import org.xwiki.test.junit5.LogCaptureExtension;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectComponentManager;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+import org.xwiki.test.mockito.MockitoComponentManager;
+
+import com.xpn.xwiki.XWiki;
+import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiAttachment;
+import com.xpn.xwiki.doc.XWikiAttachmentArchive;
+import com.xpn.xwiki.internal.filter.XWikiDocumentFilterUtils;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore;
+import com.xpn.xwiki.store.XWikiHibernateBaseStore.HibernateCallback;
+import com.xpn.xwiki.store.XWikiStoreInterface;
+import com.xpn.xwiki.web.Utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validate {@link R1103000AttachmentArchiveDataMigration}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class R1103000AttachmentArchiveDataMigrationTest
+{
+    @RegisterExtension
+    LogCaptureExtension logCapture = new LogCaptureExtension(LogLevel.WARN);
+
+    @InjectComponentManager
+    private MockitoComponentManager componentManager;
+
+    @MockComponent
+    @Named("xwikicfg")
+    private ConfigurationSource configuration;
+
+    @MockComponent
+    private Execution execution;
+
+    @MockComponent
+    private FilesystemStoreTools fstools;
+
+    @MockComponent
+    @Named("attachment-list-meta/1.0")
+    private Serializer<List<XWikiAttachment>, List<XWikiAttachment>> metaSerializer;
+
+    @MockComponent
+    @Named("current")
+    private DocumentReferenceResolver<String> resolver;
+
+    @MockComponent
+    private XWikiDocumentFilterUtils filterUtils;
+
+    @InjectMockComponents
+    private R1103000AttachmentArchiveDataMigration migration;
+
+    private XWikiHibernateBaseStore store = mock(XWikiHibernateBaseStore.class);
+
+    private XWikiContext xcontext = mock(XWikiContext.class);
+
+    private Session session = mock(Session.class);
+
+    private Query selectQuery = mock(Query.class, RETURNS_SELF);
+
+    private Query updateQuery = mock(Query.class, RETURNS_SELF);
+
+    private Query deleteQuery = mock(Query.class, RETURNS_SELF);
+
+    private File storeDirectory = new File("target/test-" + System.currentTimeMillis());
+
+    @BeforeEach
+    public void beforeEach() throws Exception
+    {
+        Utils.setComponentManager(this.componentManager);
+        this.componentManager.registerComponent(XWikiStoreInterface.class, XWikiHibernateBaseStore.HINT, this.store);
+
+        ExecutionContext executionContext = new ExecutionContext();
+        executionContext.setProperty("xwikicontext", this.xcontext);
+        when(this.execution.getContext()).thenReturn(executionContext);
+
+        XWiki xwiki = mock(XWiki.class);
+        when(this.xcontext.getWiki()).thenReturn(xwiki);
+        when(this.xcontext.getWikiReference()).thenReturn(new WikiReference("wiki"));
+        when(xwiki.ParamAsLong(eq("xwiki.store.migration.batchSize"), anyLong())).thenReturn(100L);
+
+        when(this.configuration.getProperty(anyString(), anyString()))
+            .then(invocation -> invocation.getArgument(1));
+
+        when(this.store.executeWrite(eq(this.xcontext), any()))
+            .then(invocation -> invocation.<HibernateCallback<?>>getArgument(1).doInHibernate(this.session));
+        when(this.session.createQuery(startsWith("SELECT"))).thenReturn(this.selectQuery);
+        when(this.session.createQuery(startsWith("UPDATE"))).thenReturn(this.updateQuery);
+        when(this.session.createQuery(startsWith("DELETE"))).thenReturn(this.deleteQuery);
+
+        DocumentReference documentReference = new DocumentReference("wiki", "Space", "Page");
+        when(this.resolver.resolve("Space.Page", new WikiReference("wiki"))).thenReturn(documentReference);
+
+        when(this.fstools.getAttachmentFileProvider(any(AttachmentReference.class))).then(invocation -> {
+            File directory = new File(this.storeDirectory, invocation.<AttachmentReference>getArgument(0).getName());
+            AttachmentFileProvider provider = mock(AttachmentFileProvider.class);
+            when(provider.getAttachmentVersioningMetaFile()).thenReturn(new File(directory, "meta.xml"));
+            when(provider.getAttachmentVersionContentFile(anyString()))
+                .then(versionInvocation -> new File(directory, versionInvocation.getArgument(0)));
+
+            return provider;
+        });
+        when(this.metaSerializer.serialize(any())).then(invocation -> new ByteArrayInputStream(new byte[] { 1 }));
+    }
+
+    @Test
+    public void migrateWithCorruptedArchive() throws Exception
+    {
+        when(this.selectQuery.list()).thenReturn(Arrays.asList(new Object[] { 1L, "valid.txt", "Space.Page" },
+            new Object[] { 2L, "corrupted.txt", "Space.Page" }));
+
+        Archive validArchive = new Archive(new Object[] { "<attachment/>" }, "valid.txt", "1.1");
+        Archive corruptedArchive = spy(new Archive(new Object[] { "<attachment/>" }, "corrupted.txt", "1.1"));
+        doThrow(new IllegalStateException("Corrupted archive")).when(corruptedArchive).getRevision(any(Version.class));
+        doAnswer(invocation -> {
+            XWikiAttachmentArchive archive = invocation.getArgument(0);
+            archive.setRCSArchive(invocation.<Long>getArgument(1) == 1L ? validArchive : corruptedArchive);
+
+            return null;
+        }).when(this.session).load(any(XWikiAttachmentArchive.class), any(Long.class));
+
+        try {
+            this.migration.hibernateMigrate();
+        } finally {
+            FileUtils.deleteQuietly(this.storeDirectory);
+        }
+
+        // The valid history is moved to the filesystem
+        assertEquals("No content found for version [1.1] of attachment [Attachment wiki:Space.Page@valid.txt]",
+            this.logCapture.getMessage(0));
+        verify(this.deleteQuery).setLong("id", 1L);
+        verify(this.updateQuery).setParameterList("ids", Collections.singletonList(1L));
+
+        // The corrupted history stays in the database
+        assertEquals("Failed to move the history of attachment [Attachment wiki:Space.Page@corrupted.txt] to the"
+            + " filesystem, it's kept in the database", this.logCapture.getMessage(1));
+        verify(this.deleteQuery, never()).setLong("id", 2L);
+    }
+
+    @Test
+    public void migrateWhenTheFilesystemVersioningStoreIsNotUsed() throws Exception
+    {
+        when(this.configuration.getProperty("xwiki.store.attachment.versioning", "1")).thenReturn("0");
+
+        this.migration.hibernateMigrate();
+
+        verify(this.store, never()).executeWrite(any(XWikiContext.class), any());
+        assertFalse(this.storeDirectory.exists());
+    }
+}
@@ -20,16 +20,17 @@
 package com.xpn.xwiki.plugin.tag;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xwiki.configuration.ConfigurationSource;
+import org.xwiki.query.QueryException;
 
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
@@ -42,6 +43,8 @@
 import com.xpn.xwiki.objects.classes.PropertyClass;
 import com.xpn.xwiki.plugin.XWikiDefaultPlugin;
 import com.xpn.xwiki.plugin.XWikiPluginInterface;
+import com.xpn.xwiki.plugin.tag.internal.TagIndex;
+import com.xpn.xwiki.web.Utils;
 
 /**
  * TagPlugin is a plugin that allows to manipulate tags easily. It allows to get, rename and delete tags.
@@ -74,12 +77,6 @@ public class TagPlugin extends XWikiDefaultPlugin implements XWikiPluginInterfac
      */
     public static final String DOC_COMMENT_TAG_ADDED = "plugin.tag.editcomment.added";
 
-    private static final Pattern LIKE_ESCAPE = Pattern.compile("[_%\\\\]");
-
-    private static final String LIKE_REPLACEMENT = "\\\\$0";
-
-    private static final String LIKE_APPEND = ".%";
-
     /**
      * Tag plugin constructor.
      * 
@@ -164,6 +161,31 @@ private BaseProperty createTagProperty(BaseObject tagObject, XWikiContext contex
         return tagProperty;
     }
 
+    /**
+     * @return the index of the tags of each wiki
+     */
+    private TagIndex getTagIndex()
+    {
+        return Utils.getComponent(TagIndex.class);
+    }
+
+    /**
+     * @return {@code true} if the current user wants to see the hidden documents
+     */
+    private boolean isDisplayHiddenDocuments()
+    {
+        ConfigurationSource userPreferences = Utils.getComponent(ConfigurationSource.class, "user");
+        Integer preference = userPreferences.getProperty("displayHiddenDocuments", Integer.class);
+
+        return preference != null && preference == 1;
+    }
+
+    private XWikiException newIndexException(QueryException e)
+    {
+        return new XWikiException(XWikiException.MODULE_XWIKI_STORE, XWikiException.ERROR_XWIKI_UNKNOWN,
+            "Failed to load the tags index", e);
+    }
+
     /**
      * Get all tags within the wiki.
      *
@@ -173,7 +195,30 @@ private BaseProperty createTagProperty(BaseObject tagObject, XWikiContext contex
      */
     public List<String> getAllTags(XWikiContext context) throws XWikiException
     {
-        return TagQueryUtils.getAllTags(context);
+        try {
+            return getTagIndex().getTags(context.getWikiId(), isDisplayHiddenDocuments());
+        } catch (QueryException e) {
+            throw newIndexException(e);
+        }
+    }
+
+    /**
+     * Get the tags starting with the passed prefix, typically to suggest tags while the user is typing.
+     *
+     * @param prefix the beginning of the tags to return, case is ignored
+     * @param limit the maximum number of tags to return, -1 to return all of them
+     * @param context XWiki context.
+     * @return list of tags (alphabetical order).
+     * @throws XWikiException if search query fails (possible failures: DB access problems, etc).
+     * @since 11.3RC1
+     */
+    public List<String> getTagsStartingWith(String prefix, int limit, XWikiContext context) throws XWikiException
+    {
+        try {
+            return getTagIndex().getTags(context.getWikiId(), prefix, isDisplayHiddenDocuments(), limit);
+        } catch (QueryException e) {
+            throw newIndexException(e);
+        }
     }
 
     /**
@@ -185,7 +230,17 @@ public List<String> getAllTags(XWikiContext context) throws XWikiException
      */
     public Map<String, Integer> getTagCount(XWikiContext context) throws XWikiException
     {
-        return this.getTagCountForQuery(null, null, context);
+        return getTagCountFromIndex(Collections.<String>emptyList(), context);
+    }
+
+    private Map<String, Integer> getTagCountFromIndex(List<String> spaceReferences, XWikiContext context)
+        throws XWikiException
+    {
+        try {
+            return getTagIndex().getTagCount(context.getWikiId(), spaceReferences, isDisplayHiddenDocuments());
+        } catch (QueryException e) {
+            throw newIndexException(e);
+        }
     }
 
     /**
@@ -201,18 +256,7 @@ public Map<String, Integer> getTagCount(XWikiContext context) throws XWikiExcept
     public Map<String, Integer> getTagCount(String spaceReference, XWikiContext context) throws XWikiException
     {
         if (!StringUtils.isBlank(spaceReference)) {
-            StringBuilder where = new StringBuilder();
-            where.append('(');
-            where.append("doc.space = ?");
-            where.append(" OR ");
-            where.append("doc.space LIKE ?");
-            where.append(')');
-
-            // Make sure to escape the LIKE syntax
-            String escapedSpaceReference = LIKE_ESCAPE.matcher(spaceReference).replaceAll(LIKE_REPLACEMENT);
-
-            return getTagCountForQuery("", where.toString(),
-                Arrays.asList(spaceReference, escapedSpaceReference + LIKE_APPEND), context);
+            return getTagCountFromIndex(Collections.singletonList(spaceReference), context);
         }
 
         return getTagCount(context);
@@ -232,30 +276,7 @@ public Map<String, Integer> getTagCount(String spaceReference, XWikiContext cont
      */
     public Map<String, Integer> getTagCountForSpaces(String spaces, XWikiContext context) throws XWikiException
     {
-        List<String> spaceRefList = TagParamUtils.spacesParameterToList(spaces);
-
-        List<Object> queryParameter = new ArrayList<>();
-        StringBuilder where = new StringBuilder();
-        boolean first = true;
-        for (String spaceReference : spaceRefList) {
-            if (first) {
-                where.append("(doc.space = ? ");
-                first = false;
-            } else {
-                where.append(" OR doc.space = ? ");
-            }
-            queryParameter.add(spaceReference);
-            where.append("OR doc.space LIKE ?");
-            String escapedSpaceReference = LIKE_ESCAPE.matcher(spaceReference).replaceAll(LIKE_REPLACEMENT);
-            queryParameter.add(escapedSpaceReference + LIKE_APPEND);
-        }
-        // if first is true the "for" loop never ran, and spaces is empty
-        // so only close brace if first is false
-        if (!first) {
-            where.append(')');
-        }
-
-        return getTagCountForQuery("", where.toString(), queryParameter, context);
+        return getTagCountFromIndex(TagParamUtils.spacesParameterToList(spaces), context);
     }
 
     /**
@@ -303,7 +324,7 @@ public Map<String, Integer> getTagCountForQuery(String fromHql, String whereHql,
      */
     public List<String> getDocumentsWithTag(String tag, XWikiContext context) throws XWikiException
     {
-        return TagQueryUtils.getDocumentsWithTag(tag, context);
+        return getDocumentsWithTag(tag, false, context);
     }
 
     /**
@@ -319,7 +340,30 @@ public List<String> getDocumentsWithTag(String tag, XWikiContext context) throws
     public List<String> getDocumentsWithTag(String tag, boolean includeHiddenDocuments, XWikiContext context)
         throws XWikiException
     {
-        return TagQueryUtils.getDocumentsWithTag(tag, includeHiddenDocuments, context);
+        return getDocumentsWithTag(tag, includeHiddenDocuments, 0, -1, context);
+    }
+
+    /**
+     * Get a page of the documents with the given tag.
+     *
+     * @param tag the tag to match, case is ignored
+     * @param includeHiddenDocuments if true then also include hidden documents
+     * @param offset the index of the first document to return
+     * @param limit the maximum number of documents to return, -1 to return all of them
+     * @param context XWiki context.
+     * @return list of docNames (alphabetical order).
+     * @throws XWikiException if search query fails (possible failures: DB access problems, etc).
+     * @since 11.3RC1
+     */
+    public List<String> getDocumentsWithTag(String tag, boolean includeHiddenDocuments, int offset, int limit,
+        XWikiContext context) throws XWikiException
+    {
+        try {
+            return getTagIndex().getDocuments(context.getWikiId(), tag,
+                includeHiddenDocuments || isDisplayHiddenDocuments(), offset, limit);
+        } catch (QueryException e) {
+            throw newIndexException(e);
+        }
     }
 
     /**
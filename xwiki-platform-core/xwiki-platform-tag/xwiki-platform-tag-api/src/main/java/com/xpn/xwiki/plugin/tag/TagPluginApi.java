@@ -68,6 +68,20 @@ public List<String> getAllTags() throws XWikiException
         return this.getProtectedPlugin().getAllTags(this.context);
     }
 
+    /**
+     * Get the tags starting with the given prefix, e.g. to suggest tags while the user is typing.
+     * 
+     * @param prefix the beginning of the tags, case is ignored
+     * @param limit the maximum number of tags to return, -1 to return all of them
+     * @return list of tags (alphabetical order).
+     * @throws XWikiException if search query fails (possible failures: DB access problems, etc).
+     * @since 11.3RC1
+     */
+    public List<String> getTagsStartingWith(String prefix, int limit) throws XWikiException
+    {
+        return this.getProtectedPlugin().getTagsStartingWith(prefix, limit, this.context);
+    }
+
     /**
      * Get cardinality map of tags within the wiki.
      * 
@@ -169,6 +183,21 @@ public List<String> getDocumentsWithTag(String tag) throws XWikiException
         return this.getProtectedPlugin().getDocumentsWithTag(tag, this.context);
     }
 
+    /**
+     * Get a page of the documents containing the given tag.
+     * 
+     * @param tag tag to match.
+     * @param offset the index of the first document to return
+     * @param limit the maximum number of documents to return, -1 to return all of them
+     * @return list of pages (alphabetical order).
+     * @throws XWikiException if search query fails (possible failures: DB access problems, etc).
+     * @since 11.3RC1
+     */
+    public List<String> getDocumentsWithTag(String tag, int offset, int limit) throws XWikiException
+    {
+        return this.getProtectedPlugin().getDocumentsWithTag(tag, false, offset, limit, this.context);
+    }
+
     /**
      * Get tags from a document.
      * 
@@ -0,0 +1,403 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.apache.commons.lang3.StringUtils;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryException;
+import org.xwiki.query.QueryManager;
+
+import com.xpn.xwiki.plugin.tag.TagPlugin;
+
+/**
+ * Keeps in memory, for each wiki, the documents having each tag so that the tag clouds and the documents with a tag
+ * don't require to query all the tag objects of the wiki. The index of a wiki is loaded from the database the first
+ * time it's needed and then updated when the tagged documents are saved or deleted (see {@link TagIndexListener}).
+ * <p>
+ * Like the database queries it replaces, the index takes into account only the default locale of the documents and
+ * ignores the case of the tags. The case variant of a tag returned is the alphabetically first one used by the
+ * documents having the tag.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component(roles = TagIndex.class)
+@Singleton
+public class TagIndex
+{
+    private static final String LOAD_STATEMENT = "select doc.fullName, doc.space, doc.hidden, item"
+        + " from XWikiDocument as doc, BaseObject as obj, DBStringListProperty as prop join prop.list item"
+        + " where obj.className = :className and obj.name = doc.fullName and obj.id = prop.id.id"
+        + " and prop.id.name = :propertyName and doc.translation = 0";
+
+    private static final String SPACE_SEPARATOR = ".";
+
+    @Inject
+    private QueryManager queryManager;
+
+    @Inject
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    private final ConcurrentMap<String, WikiTags> wikis = new ConcurrentHashMap<>();
+
+    /**
+     * A document having tags.
+     */
+    private static final class TaggedDocument
+    {
+        private final String fullName;
+
+        private final String space;
+
+        private final boolean hidden;
+
+        /**
+         * The case variant of each tag of the document, indexed by lower case tag.
+         */
+        private final Map<String, String> tags = new LinkedHashMap<>();
+
+        TaggedDocument(String fullName, String space, boolean hidden)
+        {
+            this.fullName = fullName;
+            this.space = space;
+            this.hidden = hidden;
+        }
+
+        boolean isInSpaces(Collection<String> spaces)
+        {
+            for (String spaceReference : spaces) {
+                if (this.space.equals(spaceReference) || this.space.startsWith(spaceReference + SPACE_SEPARATOR)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * The documents having a tag, whatever its case.
+     */
+    private static final class Tag
+    {
+        /**
+         * The case variants of the tag with the number of documents using them, sorted alphabetically.
+         */
+        private final TreeMap<String, Integer> variants = new TreeMap<>();
+
+        /**
+         * The documents having the tag, sorted by full name.
+         */
+        private final TreeMap<String, TaggedDocument> documents = new TreeMap<>();
+
+        private int visibleCount;
+
+        /**
+         * @return the case variant of the tag displayed in the results
+         */
+        String getName()
+        {
+            return this.variants.firstKey();
+        }
+
+        void add(TaggedDocument document, String variant)
+        {
+            this.documents.put(document.fullName, document);
+            this.variants.merge(variant, 1, Integer::sum);
+            if (!document.hidden) {
+                this.visibleCount++;
+            }
+        }
+
+        void remove(TaggedDocument document, String variant)
+        {
+            this.documents.remove(document.fullName);
+            this.variants.computeIfPresent(variant, (k, count) -> count > 1 ? count - 1 : null);
+            if (!document.hidden) {
+                this.visibleCount--;
+            }
+        }
+
+        int getCount(boolean includeHiddenDocuments)
+        {
+            return includeHiddenDocuments ? this.documents.size() : this.visibleCount;
+        }
+    }
+
+    /**
+     * The tags of a wiki, indexed by lower case tag.
+     */
+    private static final class WikiTags
+    {
+        private final Map<String, TaggedDocument> documents = new HashMap<>();
+
+        private final TreeMap<String, Tag> tags = new TreeMap<>();
+
+        private boolean loaded;
+
+        void setDocument(String fullName, String space, boolean hidden, Collection<String> documentTags)
+        {
+            removeDocument(fullName);
+
+            if (!documentTags.isEmpty()) {
+                TaggedDocument document = new TaggedDocument(fullName, space, hidden);
+                this.documents.put(fullName, document);
+                for (String tag : documentTags) {
+                    addTag(document, tag);
+                }
+            }
+        }
+
+        void addTag(TaggedDocument document, String tag)
+        {
+            if (StringUtils.isBlank(tag)) {
+                return;
+            }
+
+            String key = tag.toLowerCase(Locale.ROOT);
+            if (document.tags.putIfAbsent(key, tag) == null) {
+                this.tags.computeIfAbsent(key, k -> new Tag()).add(document, tag);
+            }
+        }
+
+        void removeDocument(String fullName)
+        {
+            TaggedDocument document = this.documents.remove(fullName);
+            if (document != null) {
+                for (Map.Entry<String, String> entry : document.tags.entrySet()) {
+                    Tag indexedTag = this.tags.get(entry.getKey());
+                    indexedTag.remove(document, entry.getValue());
+                    if (indexedTag.documents.isEmpty()) {
+                        this.tags.remove(entry.getKey());
+                    }
+                }
+            }
+        }
+
+        void clear()
+        {
+            this.documents.clear();
+            this.tags.clear();
+        }
+    }
+
+    /**
+     * @param wikiId the identifier of the wiki
+     * @param includeHiddenDocuments {@code true} to take into account the hidden documents
+     * @return all the tags of the wiki, sorted alphabetically ignoring the case
+     * @throws QueryException when failing to load the tags of the wiki
+     */
+    public List<String> getTags(String wikiId, boolean includeHiddenDocuments) throws QueryException
+    {
+        return getTags(wikiId, "", includeHiddenDocuments, -1);
+    }
+
+    /**
+     * @param wikiId the identifier of the wiki
+     * @param prefix the beginning of the tags to return, case is ignored
+     * @param includeHiddenDocuments {@code true} to take into account the hidden documents
+     * @param limit the maximum number of tags to return, -1 to return all of them
+     * @return the tags of the wiki starting with the passed prefix, sorted alphabetically ignoring the case
+     * @throws QueryException when failing to load the tags of the wiki
+     */
+    public List<String> getTags(String wikiId, String prefix, boolean includeHiddenDocuments, int limit)
+        throws QueryException
+    {
+        WikiTags wikiTags = getWikiTags(wikiId);
+
+        List<String> result = new ArrayList<>();
+        synchronized (wikiTags) {
+            String key = StringUtils.defaultString(prefix).toLowerCase(Locale.ROOT);
+            for (Map.Entry<String, Tag> entry : wikiTags.tags.tailMap(key).entrySet()) {
+                if ((limit >= 0 && result.size() >= limit) || !entry.getKey().startsWith(key)) {
+                    break;
+                }
+                if (entry.getValue().getCount(includeHiddenDocuments) > 0) {
+                    result.add(entry.getValue().getName());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @param wikiId the identifier of the wiki
+     * @param spaces the local references of the spaces (including their sub spaces) in which to count the tags, all
+     *            the documents of the wiki are taken into account when empty
+     * @param includeHiddenDocuments {@code true} to take into account the hidden documents
+     * @return the tags (alphabetical order) with the number of documents having them
+     * @throws QueryException when failing to load the tags of the wiki
+     */
+    public Map<String, Integer> getTagCount(String wikiId, Collection<String> spaces, boolean includeHiddenDocuments)
+        throws QueryException
+    {
+        WikiTags wikiTags = getWikiTags(wikiId);
+
+        Map<String, Integer> tagCount = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        synchronized (wikiTags) {
+            for (Tag tag : wikiTags.tags.values()) {
+                int count;
+                if (spaces.isEmpty()) {
+                    count = tag.getCount(includeHiddenDocuments);
+                } else {
+                    count = (int) tag.documents.values().stream()
+                        .filter(document -> (includeHiddenDocuments || !document.hidden) && document.isInSpaces(spaces))
+                        .count();
+                }
+
+                if (count > 0) {
+                    tagCount.put(tag.getName(), count);
+                }
+            }
+        }
+
+        return tagCount;
+    }
+
+    /**
+     * @param wikiId the identifier of the wiki
+     * @param tag the tag, case is ignored
+     * @param includeHiddenDocuments {@code true} to also return the hidden documents
+     * @param offset the index of the first document to return
+     * @param limit the maximum number of documents to return, -1 to return all of them
+     * @return the local references of the documents having the tag, sorted by full name
+     * @throws QueryException when failing to load the tags of the wiki
+     */
+    public List<String> getDocuments(String wikiId, String tag, boolean includeHiddenDocuments, int offset,
+        int limit) throws QueryException
+    {
+        WikiTags wikiTags = getWikiTags(wikiId);
+
+        List<String> result = new ArrayList<>();
+        synchronized (wikiTags) {
+            Tag indexedTag = wikiTags.tags.get(StringUtils.defaultString(tag).toLowerCase(Locale.ROOT));
+            if (indexedTag != null) {
+                Predicate<TaggedDocument> filter = document -> includeHiddenDocuments || !document.hidden;
+                indexedTag.documents.values().stream().filter(filter).skip(Math.max(offset, 0))
+                    .limit(limit >= 0 ? limit : Long.MAX_VALUE).forEach(document -> result.add(document.fullName));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Update the tags of a document. Nothing is done if the index of the document's wiki is not loaded yet since it
+     * will be loaded from the database (which already contains the modification) when needed.
+     *
+     * @param documentReference the reference of the document, without locale
+     * @param hidden {@code true} if the document is hidden
+     * @param tags the tags of the document
+     */
+    public void setDocumentTags(DocumentReference documentReference, boolean hidden, Collection<String> tags)
+    {
+        WikiTags wikiTags = this.wikis.get(documentReference.getWikiReference().getName());
+        if (wikiTags != null) {
+            synchronized (wikiTags) {
+                if (wikiTags.loaded) {
+                    wikiTags.setDocument(this.localSerializer.serialize(documentReference),
+                        this.localSerializer.serialize(documentReference.getLastSpaceReference()), hidden, tags);
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a deleted document from the index.
+     *
+     * @param documentReference the reference of the document, without locale
+     */
+    public void removeDocument(DocumentReference documentReference)
+    {
+        WikiTags wikiTags = this.wikis.get(documentReference.getWikiReference().getName());
+        if (wikiTags != null) {
+            synchronized (wikiTags) {
+                wikiTags.removeDocument(this.localSerializer.serialize(documentReference));
+            }
+        }
+    }
+
+    /**
+     * Forget the index of a wiki.
+     *
+     * @param wikiId the identifier of the wiki
+     */
+    public void removeWiki(String wikiId)
+    {
+        this.wikis.remove(wikiId);
+    }
+
+    private WikiTags getWikiTags(String wikiId) throws QueryException
+    {
+        WikiTags wikiTags = this.wikis.computeIfAbsent(wikiId, k -> new WikiTags());
+
+        // The documents saved while the index is loading wait for the end of the loading to update it
+        synchronized (wikiTags) {
+            if (!wikiTags.loaded) {
+                load(wikiId, wikiTags);
+                wikiTags.loaded = true;
+            }
+        }
+
+        return wikiTags;
+    }
+
+    private void load(String wikiId, WikiTags wikiTags) throws QueryException
+    {
+        Query query = this.queryManager.createQuery(LOAD_STATEMENT, Query.HQL);
+        query.setWiki(wikiId);
+        query.bindValue("className", TagPlugin.TAG_CLASS);
+        query.bindValue("propertyName", TagPlugin.TAG_PROPERTY);
+
+        List<Object[]> results = query.execute();
+
+        wikiTags.clear();
+        for (Object[] result : results) {
+            String fullName = (String) result[0];
+            TaggedDocument document = wikiTags.documents.get(fullName);
+            if (document == null) {
+                document = new TaggedDocument(fullName, (String) result[1], Boolean.TRUE.equals(result[2]));
+                wikiTags.documents.put(fullName, document);
+            }
+            wikiTags.addTag(document, (String) result[3]);
+        }
+    }
+}
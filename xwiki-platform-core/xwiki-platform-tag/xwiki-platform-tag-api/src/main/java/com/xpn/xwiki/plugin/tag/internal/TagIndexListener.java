@@ -0,0 +1,107 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.xwiki.bridge.event.DocumentCreatedEvent;
+import org.xwiki.bridge.event.DocumentDeletedEvent;
+import org.xwiki.bridge.event.DocumentUpdatedEvent;
+import org.xwiki.bridge.event.WikiDeletedEvent;
+import org.xwiki.component.annotation.Component;
+import org.xwiki.model.reference.LocalDocumentReference;
+import org.xwiki.observation.AbstractEventListener;
+import org.xwiki.observation.event.Event;
+
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.objects.BaseObject;
+import com.xpn.xwiki.plugin.tag.TagPlugin;
+
+/**
+ * Keeps the {@link TagIndex} up to date with the saved and deleted documents.
+ *
+ * @version $Id$
+ * @since 11.3RC1
+ */
+@Component
+@Named(TagIndexListener.NAME)
+@Singleton
+public class TagIndexListener extends AbstractEventListener
+{
+    /**
+     * The name of the listener.
+     */
+    public static final String NAME = "TagIndexListener";
+
+    private static final LocalDocumentReference TAG_CLASS_REFERENCE = new LocalDocumentReference("XWiki", "TagClass");
+
+    @Inject
+    private TagIndex tagIndex;
+
+    /**
+     * Default constructor.
+     */
+    public TagIndexListener()
+    {
+        super(NAME, new DocumentCreatedEvent(), new DocumentUpdatedEvent(), new DocumentDeletedEvent(),
+            new WikiDeletedEvent());
+    }
+
+    @Override
+    public void onEvent(Event event, Object source, Object data)
+    {
+        if (event instanceof WikiDeletedEvent) {
+            this.tagIndex.removeWiki(((WikiDeletedEvent) event).getWikiId());
+        } else {
+            XWikiDocument document = (XWikiDocument) source;
+
+            // The tags are stored in the default locale of the document
+            if (!Locale.ROOT.equals(document.getLocale())) {
+                return;
+            }
+
+            if (event instanceof DocumentDeletedEvent) {
+                this.tagIndex.removeDocument(document.getDocumentReference());
+            } else {
+                this.tagIndex.setDocumentTags(document.getDocumentReference(),
+                    Boolean.TRUE.equals(document.isHidden()), getTags(document));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> getTags(XWikiDocument document)
+    {
+        List<String> tags = new ArrayList<>();
+        for (BaseObject tagObject : document.getXObjects(TAG_CLASS_REFERENCE)) {
+            if (tagObject != null) {
+                tags.addAll(tagObject.getListValue(TagPlugin.TAG_PROPERTY));
+            }
+        }
+
+        return tags;
+    }
+}
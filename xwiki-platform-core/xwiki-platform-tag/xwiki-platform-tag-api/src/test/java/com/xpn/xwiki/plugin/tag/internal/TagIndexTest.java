@@ -0,0 +1,173 @@
+/*
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package com.xpn.xwiki.plugin.tag.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xwiki.model.reference.DocumentReference;
+import org.xwiki.model.reference.EntityReferenceSerializer;
+import org.xwiki.query.Query;
+import org.xwiki.query.QueryManager;
+import org.xwiki.test.junit5.mockito.ComponentTest;
+import org.xwiki.test.junit5.mockito.InjectMockComponents;
+import org.xwiki.test.junit5.mockito.MockComponent;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TagIndex}.
+ *
+ * @version $Id$
+ */
+@ComponentTest
+public class TagIndexTest
+{
+    private static final String WIKI = "wiki";
+
+    @InjectMockComponents
+    private TagIndex tagIndex;
+
+    @MockComponent
+    private QueryManager queryManager;
+
+    @MockComponent
+    @Named("local")
+    private EntityReferenceSerializer<String> localSerializer;
+
+    private Query query = mock(Query.class);
+
+    private DocumentReference documentReference = new DocumentReference(WIKI, "Main", "A");
+
+    @BeforeEach
+    public void configure() throws Exception
+    {
+        when(this.queryManager.createQuery(anyString(), anyString())).thenReturn(this.query);
+        when(this.query.execute()).thenReturn(Arrays.<Object>asList(new Object[] { "Main.A", "Main", false, "Foo" },
+            new Object[] { "Main.A", "Main", false, "bar" }, new Object[] { "Sandbox.B", "Sandbox", null, "foo" },
+            new Object[] { "Sandbox.Sub.C", "Sandbox.Sub", true, "foo" }));
+
+        when(this.localSerializer.serialize(this.documentReference)).thenReturn("Main.A");
+        when(this.localSerializer.serialize(this.documentReference.getLastSpaceReference())).thenReturn("Main");
+    }
+
+    private Map<String, Integer> tagCount(Object... entries)
+    {
+        Map<String, Integer> tagCount = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            tagCount.put((String) entries[i], (Integer) entries[i + 1]);
+        }
+
+        return tagCount;
+    }
+
+    @Test
+    public void getTagCount() throws Exception
+    {
+        assertEquals(tagCount("Foo", 2, "bar", 1),
+            this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), false));
+        assertEquals(tagCount("Foo", 3, "bar", 1),
+            this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), true));
+        assertEquals(tagCount("Foo", 2), this.tagIndex.getTagCount(WIKI, Arrays.asList("Sandbox"), true));
+        assertEquals(tagCount("Foo", 1), this.tagIndex.getTagCount(WIKI, Arrays.asList("Sandbox.Sub"), true));
+        assertEquals(tagCount(), this.tagIndex.getTagCount(WIKI, Arrays.asList("Sand"), true));
+
+        // The index is loaded only once.
+        verify(this.query, times(1)).execute();
+        verify(this.query).setWiki(WIKI);
+    }
+
+    @Test
+    public void getTags() throws Exception
+    {
+        assertEquals(Arrays.asList("bar", "Foo"), this.tagIndex.getTags(WIKI, false));
+        assertEquals(Arrays.asList("Foo"), this.tagIndex.getTags(WIKI, "f", false, 10));
+        assertEquals(Arrays.asList("bar"), this.tagIndex.getTags(WIKI, "", false, 1));
+        assertEquals(Collections.emptyList(), this.tagIndex.getTags(WIKI, "x", false, -1));
+    }
+
+    @Test
+    public void getDocuments() throws Exception
+    {
+        assertEquals(Arrays.asList("Main.A", "Sandbox.B"), this.tagIndex.getDocuments(WIKI, "foo", false, 0, -1));
+        assertEquals(Arrays.asList("Sandbox.B", "Sandbox.Sub.C"),
+            this.tagIndex.getDocuments(WIKI, "foo", true, 1, -1));
+        assertEquals(Arrays.asList("Sandbox.B"), this.tagIndex.getDocuments(WIKI, "Foo", true, 1, 1));
+        assertEquals(Collections.emptyList(), this.tagIndex.getDocuments(WIKI, "missing", true, 0, -1));
+    }
+
+    @Test
+    public void setDocumentTags() throws Exception
+    {
+        // Ignored since the index is not loaded yet
+        this.tagIndex.setDocumentTags(this.documentReference, false, Arrays.asList("ignored"));
+
+        assertEquals(Arrays.asList("bar", "Foo"), this.tagIndex.getTags(WIKI, false));
+
+        this.tagIndex.setDocumentTags(this.documentReference, false, Arrays.asList("baz", "foo"));
+
+        assertEquals(tagCount("Foo", 2, "baz", 1),
+            this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), false));
+        // The case variant of the tag is the alphabetically first one still used
+        assertEquals(Arrays.asList("baz", "foo"), this.tagIndex.getTags(WIKI, false));
+
+        this.tagIndex.setDocumentTags(this.documentReference, true, Arrays.asList("baz", "FOO"));
+
+        assertEquals(Arrays.asList("baz", "FOO"), this.tagIndex.getTags(WIKI, true));
+
+        this.tagIndex.setDocumentTags(this.documentReference, true, Arrays.asList("baz"));
+
+        assertEquals(tagCount("Foo", 1), this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), false));
+        assertEquals(tagCount("Foo", 2, "baz", 1),
+            this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), true));
+    }
+
+    @Test
+    public void removeDocument() throws Exception
+    {
+        this.tagIndex.getTags(WIKI, false);
+
+        this.tagIndex.removeDocument(this.documentReference);
+
+        assertEquals(tagCount("Foo", 1), this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), false));
+        assertEquals(Arrays.asList("Sandbox.B", "Sandbox.Sub.C"),
+            this.tagIndex.getDocuments(WIKI, "foo", true, 0, -1));
+        // The removed document was the only one using this case variant of the tag
+        assertEquals(Arrays.asList("foo"), this.tagIndex.getTags(WIKI, true));
+
+        // The index is loaded again after the wiki has been deleted
+        this.tagIndex.removeWiki(WIKI);
+
+        assertEquals(tagCount("Foo", 2, "bar", 1),
+            this.tagIndex.getTagCount(WIKI, Collections.<String>emptyList(), false));
+        verify(this.query, times(2)).execute();
+    }
+}
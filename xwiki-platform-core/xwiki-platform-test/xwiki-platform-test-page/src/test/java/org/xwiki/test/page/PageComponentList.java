@@ -34,6 +34,7 @@
 import org.xwiki.localization.internal.DefaultContextualLocalizationManager;
 import org.xwiki.localization.internal.DefaultLocalizationManager;
 import org.xwiki.localization.internal.DefaultTranslationBundleContext;
+import org.xwiki.localization.internal.TranslationIndexManager;
 import org.xwiki.model.internal.DefaultModelContext;
 import org.xwiki.observation.internal.DefaultObservationManager;
 import org.xwiki.properties.internal.DefaultBeanManager;
@@ -217,6 +218,7 @@
     DefaultContextualLocalizationManager.class,
     DefaultLocalizationManager.class,
     DefaultTranslationBundleContext.class,
+    TranslationIndexManager.class,
     XWikiLocalizationContext.class,
 
     // Property Class Providers (needed when the page has xobjects)
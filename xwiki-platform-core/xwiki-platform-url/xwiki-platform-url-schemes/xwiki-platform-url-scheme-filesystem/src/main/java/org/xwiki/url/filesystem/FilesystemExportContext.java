@@ -20,14 +20,18 @@
 package org.xwiki.url.filesystem;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Deque;
 import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Stores states when generating Filesystem URLs. As we generate URLs for passed Resources we also export them to the
  * filesystem at the same time.
+ * <p>
+ * The context can be shared by several threads rendering pages of the same export in parallel: the collected sets are
+ * concurrent and the nesting levels (which depend on the page or CSS file being rendered) are tracked per thread.
  *
  * @version $Id$
  * @since 7.2M1
@@ -39,17 +43,17 @@
      * file itself. When we export we put all resources and attachments in the root of the exported directory and thus
      * in order to have valid relative links we need to make them match. We use this variable to do this.
      */
-    private Stack<Integer> cssParentDepth = new Stack<>();
+    private final ThreadLocal<Deque<Integer>> cssParentDepth = ThreadLocal.withInitial(ArrayDeque::new);
 
     /**
      * @see #getDocParentLevel()
      */
-    private int docParentDepth;
+    private final ThreadLocal<Integer> docParentDepth = ThreadLocal.withInitial(() -> 0);
 
     /**
      * @see #getExportedPages()
      */
-    private Set<String> exportedPages = new HashSet<>();
+    private Set<String> exportedPages = ConcurrentHashMap.newKeySet();
 
     /**
      * @see #getExportDir()
@@ -59,19 +63,21 @@
     /**
      * @see #getNeededSkins()
      */
-    private Set<String> neededSkins = new HashSet<>();
+    private Set<String> neededSkins = ConcurrentHashMap.newKeySet();
 
     /**
      * @see #getExportedSkinFiles()
      */
-    private Set<String> exportedSkinFiles = new HashSet<>();
+    private Set<String> exportedSkinFiles = ConcurrentHashMap.newKeySet();
 
     /**
      * @return the number of relative parent levels in the path to find the CSS file
      */
     public int getCSSParentLevel()
     {
-        return this.cssParentDepth.isEmpty() ? 0 : this.cssParentDepth.peek();
+        Deque<Integer> depths = this.cssParentDepth.get();
+
+        return depths.isEmpty() ? 0 : depths.peek();
     }
 
     /**
@@ -81,7 +87,7 @@ public int getCSSParentLevel()
      */
     public int getDocParentLevel()
     {
-        return this.docParentDepth;
+        return this.docParentDepth.get();
     }
 
     /**
@@ -91,7 +97,7 @@ public int getDocParentLevel()
      */
     public void pushCSSParentLevels(int depth)
     {
-        this.cssParentDepth.push(depth);
+        this.cssParentDepth.get().push(depth);
     }
 
     /**
@@ -103,7 +109,7 @@ public void pushCSSParentLevels(int depth)
      */
     public void setDocParentLevels(int depth)
     {
-        this.docParentDepth = depth;
+        this.docParentDepth.set(depth);
     }
 
     /**
@@ -111,7 +117,7 @@ public void setDocParentLevels(int depth)
      */
     public void popCSSParentLevels()
     {
-        this.cssParentDepth.pop();
+        this.cssParentDepth.get().pop();
     }
 
     /**
@@ -195,4 +201,16 @@ public void addExportedSkinFile(String filePath)
     {
         this.exportedSkinFiles.add(filePath);
     }
+
+    /**
+     * Atomically mark the passed skin file as exported.
+     *
+     * @param filePath the skin file path
+     * @return true if the skin file was not already marked as exported (i.e. the caller is in charge of exporting it)
+     * @since 11.3RC1
+     */
+    public boolean markExportedSkinFile(String filePath)
+    {
+        return this.exportedSkinFiles.add(filePath);
+    }
 }
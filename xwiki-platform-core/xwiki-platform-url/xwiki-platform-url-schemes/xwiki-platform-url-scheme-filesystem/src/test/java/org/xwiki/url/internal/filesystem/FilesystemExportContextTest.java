@@ -23,6 +23,8 @@
 import org.xwiki.url.filesystem.FilesystemExportContext;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Unit tests for {@link org.xwiki.url.filesystem.FilesystemExportContext}.
@@ -38,4 +40,32 @@ public void getSetDocParentLevels()
         context.setDocParentLevels(5);
         assertEquals(5, context.getDocParentLevel());
     }
+
+    @Test
+    public void docParentLevelsAreIsolatedPerThread() throws Exception
+    {
+        FilesystemExportContext context = new FilesystemExportContext();
+        context.setDocParentLevels(5);
+
+        int[] otherThreadLevel = new int[1];
+        Thread thread = new Thread(() -> {
+            context.setDocParentLevels(2);
+            otherThreadLevel[0] = context.getDocParentLevel();
+        });
+        thread.start();
+        thread.join();
+
+        assertEquals(2, otherThreadLevel[0]);
+        assertEquals(5, context.getDocParentLevel());
+    }
+
+    @Test
+    public void markExportedSkinFile()
+    {
+        FilesystemExportContext context = new FilesystemExportContext();
+
+        assertTrue(context.markExportedSkinFile("skins/flamingo/style.css"));
+        assertFalse(context.markExportedSkinFile("skins/flamingo/style.css"));
+        assertTrue(context.hasExportedSkinFile("skins/flamingo/style.css"));
+    }
 }
@@ -20,6 +20,7 @@
 package org.xwiki.wiki.configuration;
 
 import org.xwiki.component.annotation.Role;
+import org.xwiki.stability.Unstable;
 
 /**
  * Configuration options for the Wiki module.
@@ -35,4 +36,14 @@
      * when path mode is used.
      */
     String getAliasSuffix();
+
+    /**
+     * @return the number of documents copied in a single batch when provisioning a new wiki from a template
+     * @since 11.3RC1
+     */
+    @Unstable
+    default int getCopyBatchSize()
+    {
+        return 100;
+    }
 }
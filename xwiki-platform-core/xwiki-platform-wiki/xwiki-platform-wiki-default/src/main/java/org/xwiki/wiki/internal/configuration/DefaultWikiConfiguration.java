@@ -42,6 +42,11 @@ public class DefaultWikiConfiguration implements WikiConfiguration
      */
     private static final String PREFIX = "wiki.";
 
+    /**
+     * The default number of documents copied in a single batch.
+     */
+    private static final int DEFAULT_COPY_BATCH_SIZE = 100;
+
     /**
      * Defines from where to read the wiki configuration data.
      */
@@ -54,4 +59,10 @@ public String getAliasSuffix()
     {
         return configuration.getProperty(PREFIX + "alias.suffix", "");
     }
+
+    @Override
+    public int getCopyBatchSize()
+    {
+        return configuration.getProperty(PREFIX + "copy.batchSize", DEFAULT_COPY_BATCH_SIZE);
+    }
 }
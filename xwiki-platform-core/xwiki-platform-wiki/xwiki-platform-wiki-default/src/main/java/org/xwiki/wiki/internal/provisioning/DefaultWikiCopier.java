@@ -19,6 +19,7 @@
  */
 package org.xwiki.wiki.internal.provisioning;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -31,19 +32,28 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryException;
 import org.xwiki.query.QueryManager;
+import org.xwiki.wiki.configuration.WikiConfiguration;
 import org.xwiki.wiki.manager.WikiManagerException;
 import org.xwiki.wiki.provisioning.WikiCopier;
 
 import com.xpn.xwiki.XWiki;
 import com.xpn.xwiki.XWikiContext;
 import com.xpn.xwiki.XWikiException;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
 
 /**
  * Default implementation for {@link WikiCopier}.
+ * <p>
+ * The documents are copied in batches of {@link WikiConfiguration#getCopyBatchSize()} documents, each batch being
+ * saved with {@link XWiki#saveDocuments(List, String, boolean, XWikiContext)} to limit the number of database
+ * transactions.
  * 
  * @version $Id$
  * @since 7.0M2
@@ -62,6 +72,12 @@ public class DefaultWikiCopier implements WikiCopier
     @Named("current")
     private DocumentReferenceResolver<String> documentReferenceResolver;
 
+    @Inject
+    private EntityReferenceSerializer<String> serializer;
+
+    @Inject
+    private WikiConfiguration configuration;
+
     @Inject
     private JobProgressManager progress;
 
@@ -72,7 +88,6 @@ public class DefaultWikiCopier implements WikiCopier
     public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistory) throws WikiManagerException
     {
         XWikiContext context = xcontextProvider.get();
-        XWiki xwiki = context.getWiki();
 
         this.progress.pushLevelProgress(2, this);
 
@@ -93,20 +108,14 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
             this.progress.pushLevelProgress(documentFullnames.size(), this);
 
             WikiReference fromWikiReference = new WikiReference(fromWikiId);
+            WikiReference toWikiReference = new WikiReference(toWikiId);
 
-            try {
-                for (String documentFullName : documentFullnames) {
-                    this.progress.startStep(this);
-
-                    DocumentReference origDocReference =
-                        documentReferenceResolver.resolve(documentFullName, fromWikiReference);
-                    DocumentReference newDocReference = origDocReference.setWikiReference(new WikiReference(toWikiId));
-
-                    logger.info("Copying document [{}] to [{}].", origDocReference, newDocReference);
-                    xwiki.copyDocument(origDocReference, newDocReference, null, !withHistory, true, context);
-                    logger.info("Done copying document [{}] to [{}].", origDocReference, newDocReference);
+            int batchSize = Math.max(1, this.configuration.getCopyBatchSize());
 
-                    this.progress.endStep(this);
+            try {
+                for (int i = 0; i < documentFullnames.size(); i += batchSize) {
+                    copyDocuments(documentFullnames.subList(i, Math.min(i + batchSize, documentFullnames.size())),
+                        fromWikiReference, toWikiReference, withHistory, context);
                 }
             } finally {
                 this.progress.popLevelProgress(this);
@@ -126,6 +135,103 @@ public void copyDocuments(String fromWikiId, String toWikiId, boolean withHistor
         }
     }
 
+    private void copyDocuments(List<String> documentFullnames, WikiReference fromWikiReference,
+        WikiReference toWikiReference, boolean withHistory, XWikiContext context) throws XWikiException
+    {
+        XWiki xwiki = context.getWiki();
+        String currentWiki = context.getWikiId();
+
+        List<XWikiDocument> sourceDocuments = new ArrayList<>(documentFullnames.size());
+        List<XWikiDocument> targetDocuments = new ArrayList<>(documentFullnames.size());
+
+        try {
+            // Load the documents to copy (and their translations) and prepare the copies
+
+            context.setWikiId(fromWikiReference.getName());
+
+            for (String documentFullName : documentFullnames) {
+                this.progress.startStep(this);
+
+                DocumentReference origDocReference =
+                    documentReferenceResolver.resolve(documentFullName, fromWikiReference);
+                DocumentReference newDocReference = origDocReference.setWikiReference(toWikiReference);
+
+                logger.info("Copying document [{}] to [{}].", origDocReference, newDocReference);
+
+                XWikiDocument sourceDocument = xwiki.getDocument(origDocReference, context);
+                if (!sourceDocument.isNew()) {
+                    String comment = "Copied from " + this.serializer.serialize(origDocReference);
+
+                    sourceDocuments.add(sourceDocument);
+                    targetDocuments.add(copyDocument(sourceDocument, newDocReference, comment, withHistory, context));
+
+                    for (String language : sourceDocument.getTranslationList(context)) {
+                        XWikiDocument sourceTranslation = sourceDocument.getTranslatedDocument(language, context);
+                        sourceDocuments.add(sourceTranslation);
+                        targetDocuments
+                            .add(copyDocument(sourceTranslation, newDocReference, comment, withHistory, context));
+                    }
+                }
+
+                this.progress.endStep(this);
+            }
+
+            // Save the copies in as few transactions as possible
+
+            context.setWikiId(toWikiReference.getName());
+
+            xwiki.saveDocuments(targetDocuments, null, false, context);
+
+            // Copy or reset the history of the copies
+
+            XWikiVersioningStoreInterface versioningStore = xwiki.getVersioningStore();
+            for (int i = 0; i < targetDocuments.size(); ++i) {
+                XWikiDocument targetDocument = targetDocuments.get(i);
+
+                if (withHistory) {
+                    // Each translation has its own history, so copy the archive of the copied translation (and not the
+                    // one of the default document)
+                    context.setWikiId(fromWikiReference.getName());
+                    XWikiDocumentArchive archive =
+                        versioningStore.getXWikiDocumentArchive(sourceDocuments.get(i), context);
+                    context.setWikiId(toWikiReference.getName());
+                    versioningStore.saveXWikiDocArchive(archive.clone(targetDocument.getId(), context), true,
+                        context);
+                } else {
+                    versioningStore.resetRCSArchive(targetDocument, true, context);
+                }
+
+                logger.info("Done copying document [{}] to [{}].", sourceDocuments.get(i).getDocumentReference(),
+                    targetDocument.getDocumentReference());
+            }
+        } finally {
+            context.setWikiId(currentWiki);
+        }
+    }
+
+    private XWikiDocument copyDocument(XWikiDocument sourceDocument, DocumentReference newDocReference,
+        String comment, boolean withHistory, XWikiContext context) throws XWikiException
+    {
+        XWikiDocument targetDocument = sourceDocument.copyDocument(newDocReference, context);
+
+        // Make sure to replace the existing document if any
+        targetDocument.setNew(true);
+
+        // Forget past versions
+        if (!withHistory) {
+            targetDocument.setVersion("1.1");
+        }
+
+        // Keep the dates and authors of the source document: the copy is not a modification of its content
+        targetDocument.setComment(comment);
+
+        // We don't want to trigger a new version otherwise the version number will be wrong.
+        targetDocument.setMetaDataDirty(false);
+        targetDocument.setContentDirty(false);
+
+        return targetDocument;
+    }
+
     @Override
     public void copyDeletedDocuments(String fromWikiId, String toWikiId) throws WikiManagerException
     {
@@ -32,16 +32,23 @@
 import org.xwiki.job.event.status.JobProgressManager;
 import org.xwiki.model.reference.DocumentReference;
 import org.xwiki.model.reference.DocumentReferenceResolver;
+import org.xwiki.model.reference.EntityReferenceSerializer;
 import org.xwiki.model.reference.WikiReference;
 import org.xwiki.query.Query;
 import org.xwiki.query.QueryManager;
 import org.xwiki.test.mockito.MockitoComponentMockingRule;
+import org.xwiki.wiki.configuration.WikiConfiguration;
 
 import com.xpn.xwiki.XWikiContext;
+import com.xpn.xwiki.doc.XWikiDocument;
+import com.xpn.xwiki.doc.XWikiDocumentArchive;
+import com.xpn.xwiki.store.XWikiVersioningStoreInterface;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -68,6 +75,10 @@
 
     private com.xpn.xwiki.XWiki xwiki;
 
+    private XWikiVersioningStoreInterface versioningStore;
+
+    private EntityReferenceSerializer<String> serializer;
+
     @Before
     public void setUp() throws Exception
     {
@@ -79,7 +90,29 @@ public void setUp() throws Exception
         xwiki = mock(com.xpn.xwiki.XWiki.class);
         when(xcontext.getWiki()).thenReturn(xwiki);
 
+        versioningStore = mock(XWikiVersioningStoreInterface.class);
+        when(xwiki.getVersioningStore()).thenReturn(versioningStore);
+
         documentReferenceResolver = mocker.getInstance(DocumentReferenceResolver.TYPE_STRING, "current");
+        serializer = mocker.getInstance(EntityReferenceSerializer.TYPE_STRING);
+
+        WikiConfiguration configuration = mocker.getInstance(WikiConfiguration.class);
+        when(configuration.getCopyBatchSize()).thenReturn(2);
+    }
+
+    private XWikiDocument mockCopy(DocumentReference reference, DocumentReference copyReference) throws Exception
+    {
+        XWikiDocument document = mock(XWikiDocument.class, reference.getName());
+        when(document.getDocumentReference()).thenReturn(reference);
+        when(xwiki.getDocument(reference, xcontext)).thenReturn(document);
+        when(serializer.serialize(reference)).thenReturn(reference.getWikiReference().getName() + ':'
+            + reference.getLastSpaceReference().getName() + '.' + reference.getName());
+
+        XWikiDocument copy = mock(XWikiDocument.class, copyReference.getName() + "Copy");
+        when(copy.getDocumentReference()).thenReturn(copyReference);
+        when(document.copyDocument(eq(copyReference), any(XWikiContext.class))).thenReturn(copy);
+
+        return copy;
     }
 
     @Test
@@ -104,29 +137,89 @@ public void copyDocuments() throws Exception
         when(documentReferenceResolver.resolve(eq("Space.Doc2"), eq(fromWikiReference))).thenReturn(docRef2);
         when(documentReferenceResolver.resolve(eq("Space.Doc3"), eq(fromWikiReference))).thenReturn(docRef3);
 
+        XWikiDocument copy1 = mockCopy(docRef1, copydocRef1);
+        XWikiDocument copy2 = mockCopy(docRef2, copydocRef2);
+        XWikiDocument copy3 = mockCopy(docRef3, copydocRef3);
+
         // Test
         mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", false);
 
         // Verify
         verify(query).setWiki("wikiA");
-        InOrder inOrder = inOrder(progress, xwiki, mocker.getMockedLogger());
+        InOrder inOrder = inOrder(progress, xwiki, versioningStore, mocker.getMockedLogger());
         inOrder.verify(progress).pushLevelProgress(3, mocker.getComponentUnderTest());
 
         inOrder.verify(progress).startStep(mocker.getComponentUnderTest());
         inOrder.verify(mocker.getMockedLogger()).info("Copying document [{}] to [{}].", docRef1, copydocRef1);
-        inOrder.verify(xwiki).copyDocument(docRef1, copydocRef1, null, true, true, xcontext);
-        inOrder.verify(mocker.getMockedLogger()).info("Done copying document [{}] to [{}].", docRef1, copydocRef1);
-
         inOrder.verify(progress).startStep(mocker.getComponentUnderTest());
         inOrder.verify(mocker.getMockedLogger()).info("Copying document [{}] to [{}].", docRef2, copydocRef2);
-        inOrder.verify(xwiki).copyDocument(docRef2, copydocRef2, null, true, true, xcontext);
+        inOrder.verify(xwiki).saveDocuments(Arrays.asList(copy1, copy2), null, false, xcontext);
+        inOrder.verify(versioningStore).resetRCSArchive(copy1, true, xcontext);
+        inOrder.verify(mocker.getMockedLogger()).info("Done copying document [{}] to [{}].", docRef1, copydocRef1);
+        inOrder.verify(versioningStore).resetRCSArchive(copy2, true, xcontext);
         inOrder.verify(mocker.getMockedLogger()).info("Done copying document [{}] to [{}].", docRef2, copydocRef2);
 
         inOrder.verify(progress).startStep(mocker.getComponentUnderTest());
         inOrder.verify(mocker.getMockedLogger()).info("Copying document [{}] to [{}].", docRef3, copydocRef3);
-        inOrder.verify(xwiki).copyDocument(docRef3, copydocRef3, null, true, true, xcontext);
+        inOrder.verify(xwiki).saveDocuments(Arrays.asList(copy3), null, false, xcontext);
+        inOrder.verify(versioningStore).resetRCSArchive(copy3, true, xcontext);
         inOrder.verify(mocker.getMockedLogger()).info("Done copying document [{}] to [{}].", docRef3, copydocRef3);
 
         inOrder.verify(progress).popLevelProgress(mocker.getComponentUnderTest());
+
+        verify(copy1).setVersion("1.1");
+        verify(copy1).setComment("Copied from wikiA:Space.Doc1");
+        verify(copy1).setNew(true);
+        // The dates and authors of the source documents are kept
+        verify(copy1, never()).setCreatorReference(any());
+        verify(copy1, never()).setAuthorReference(any());
+        verify(copy1, never()).setContentAuthorReference(any());
+        verify(copy1, never()).setCreationDate(any());
+        verify(copy1, never()).setDate(any());
+    }
+
+    @Test
+    public void copyDocumentsWithHistory() throws Exception
+    {
+        Query query = mock(Query.class);
+        when(queryManager.createQuery("select distinct doc.fullName from Document as doc", Query.XWQL)).thenReturn(
+            query);
+        when(query.<String>execute()).thenReturn(Arrays.asList("Space.Doc"));
+
+        DocumentReference docRef = new DocumentReference("wikiA", "Space", "Doc");
+        DocumentReference copydocRef = new DocumentReference("wikiB", "Space", "Doc");
+        when(documentReferenceResolver.resolve(eq("Space.Doc"), eq(new WikiReference("wikiA")))).thenReturn(docRef);
+
+        XWikiDocument copy = mockCopy(docRef, copydocRef);
+        when(copy.getId()).thenReturn(1L);
+        XWikiDocument document = xwiki.getDocument(docRef, xcontext);
+
+        // The translation of the document
+        XWikiDocument translation = mock(XWikiDocument.class, "translation");
+        XWikiDocument translationCopy = mock(XWikiDocument.class, "translationCopy");
+        when(translationCopy.getDocumentReference()).thenReturn(copydocRef);
+        when(translationCopy.getId()).thenReturn(2L);
+        when(translation.getDocumentReference()).thenReturn(docRef);
+        when(translation.copyDocument(eq(copydocRef), any(XWikiContext.class))).thenReturn(translationCopy);
+        when(document.getTranslationList(xcontext)).thenReturn(Arrays.asList("fr"));
+        when(document.getTranslatedDocument("fr", xcontext)).thenReturn(translation);
+
+        XWikiDocumentArchive archive = mock(XWikiDocumentArchive.class, "archive");
+        XWikiDocumentArchive archiveCopy = mock(XWikiDocumentArchive.class, "archiveCopy");
+        when(versioningStore.getXWikiDocumentArchive(document, xcontext)).thenReturn(archive);
+        when(archive.clone(1L, xcontext)).thenReturn(archiveCopy);
+        XWikiDocumentArchive translationArchive = mock(XWikiDocumentArchive.class, "translationArchive");
+        XWikiDocumentArchive translationArchiveCopy = mock(XWikiDocumentArchive.class, "translationArchiveCopy");
+        when(versioningStore.getXWikiDocumentArchive(translation, xcontext)).thenReturn(translationArchive);
+        when(translationArchive.clone(2L, xcontext)).thenReturn(translationArchiveCopy);
+
+        mocker.getComponentUnderTest().copyDocuments("wikiA", "wikiB", true);
+
+        verify(xwiki).saveDocuments(Arrays.asList(copy, translationCopy), null, false, xcontext);
+        // Each copy gets the history of the document it was copied from
+        verify(versioningStore).saveXWikiDocArchive(archiveCopy, true, xcontext);
+        verify(versioningStore).saveXWikiDocArchive(translationArchiveCopy, true, xcontext);
+        verify(copy, never()).setVersion(any());
+        verify(translationCopy, never()).setAuthorReference(any());
     }
 }
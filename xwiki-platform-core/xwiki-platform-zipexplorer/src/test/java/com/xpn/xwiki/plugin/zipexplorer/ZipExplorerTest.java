@@ -244,6 +244,7 @@ private XWikiDocument createXWikiDocumentWithZipFileAttachment() throws Exceptio
         when(document.getDocumentReference()).thenReturn(new DocumentReference("wiki", "Main", "Document"));
         XWikiAttachment attachment = createAttachment("zipfile.zip", createZipFile("Some content"), document);
         when(document.clone()).thenReturn(document);
+        when(document.lazyClone()).thenReturn(document);
         when(document.getAttachment("zipfile.zip")).thenReturn(attachment);
         return document;
     }